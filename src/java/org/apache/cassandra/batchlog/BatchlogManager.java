@@ -22,9 +22,12 @@ import java.lang.management.ManagementFactory;
 import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
+import com.codahale.metrics.Meter;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.*;
 import com.google.common.util.concurrent.RateLimiter;
@@ -32,15 +35,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.cassandra.concurrent.DebuggableScheduledThreadPoolExecutor;
+import org.apache.cassandra.concurrent.DebuggableThreadPoolExecutor;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.locator.InetAddressAndPort;
+import org.apache.cassandra.metrics.BatchlogReplayMetrics;
 import org.apache.cassandra.schema.SchemaConstants;
 import org.apache.cassandra.cql3.UntypedResultSet;
 import org.apache.cassandra.db.*;
 import org.apache.cassandra.db.marshal.BytesType;
-import org.apache.cassandra.db.marshal.UUIDType;
-import org.apache.cassandra.db.partitions.PartitionUpdate;
 import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.exceptions.RequestFailureReason;
 import org.apache.cassandra.exceptions.WriteFailureException;
 import org.apache.cassandra.exceptions.WriteTimeoutException;
 import org.apache.cassandra.gms.FailureDetector;
@@ -58,7 +62,6 @@ import org.apache.cassandra.utils.FBUtilities;
 import org.apache.cassandra.utils.UUIDGen;
 
 import static com.google.common.collect.Iterables.transform;
-import static org.apache.cassandra.cql3.QueryProcessor.executeInternal;
 import static org.apache.cassandra.cql3.QueryProcessor.executeInternalWithPaging;
 
 public class BatchlogManager implements BatchlogManagerMBean
@@ -67,23 +70,40 @@ public class BatchlogManager implements BatchlogManagerMBean
     private static final long REPLAY_INTERVAL = 10 * 1000; // milliseconds
     static final int DEFAULT_PAGE_SIZE = 128;
 
+    // the maximum number of replayed mutations awaiting a response from a given endpoint
+    private static final int MAX_IN_FLIGHT_PER_ENDPOINT = Integer.getInteger("cassandra.batchlog.max_in_flight_per_endpoint", 128);
+
     private static final Logger logger = LoggerFactory.getLogger(BatchlogManager.class);
+    public static final BatchlogReplayMetrics metrics = new BatchlogReplayMetrics();
     public static final BatchlogManager instance = new BatchlogManager();
     public static final long BATCHLOG_REPLAY_TIMEOUT = Long.getLong("cassandra.batchlog.replay_timeout_in_ms", DatabaseDescriptor.getWriteRpcTimeout() * 2);
 
-    private volatile long totalBatchesReplayed = 0; // no concurrency protection necessary as only written by replay thread.
-    private volatile UUID lastReplayedUuid = UUIDGen.minTimeUUID(0);
+    // read less batches per page if they are very large
+    private static final int PAGE_SIZE_IN_BYTES = 4 * 1024 * 1024;
+
+    private final AtomicLong totalBatchesReplayed = new AtomicLong();
+
+    // opened lazily, as tools may load this class without ever storing a batch
+    private volatile BatchlogStore batchlog;
 
     // Single-thread executor service for scheduling and serializing log replay.
     private final ScheduledExecutorService batchlogTasks;
 
+    // Executor service replaying the pages of a given log replay concurrently.
+    private final ExecutorService replayExecutor;
+    private final int replayThreads;
+
     private final RateLimiter rateLimiter = RateLimiter.create(Double.MAX_VALUE);
+    private final EndpointPermits replayPermits = new EndpointPermits(MAX_IN_FLIGHT_PER_ENDPOINT, metrics.throttledMutations);
 
     public BatchlogManager()
     {
         ScheduledThreadPoolExecutor executor = new DebuggableScheduledThreadPoolExecutor("BatchlogTasks");
         executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
         batchlogTasks = executor;
+
+        replayThreads = Math.max(1, DatabaseDescriptor.getMaxBatchlogReplayThreads());
+        replayExecutor = DebuggableThreadPoolExecutor.createWithFixedPoolSize("BatchlogReplay", replayThreads);
     }
 
     public void start()
@@ -97,6 +117,9 @@ public class BatchlogManager implements BatchlogManagerMBean
         {
             throw new RuntimeException(e);
         }
+        metrics.attach(this);
+
+        migrateLegacyBatches();
 
         batchlogTasks.scheduleWithFixedDelay(this::replayFailedBatches,
                                              StorageService.RING_DELAY,
@@ -108,15 +131,55 @@ public class BatchlogManager implements BatchlogManagerMBean
     {
         batchlogTasks.shutdown();
         batchlogTasks.awaitTermination(60, TimeUnit.SECONDS);
+        replayExecutor.shutdown();
+        replayExecutor.awaitTermination(60, TimeUnit.SECONDS);
+
+        synchronized (this)
+        {
+            if (batchlog != null)
+                batchlog.close();
+        }
+    }
+
+    private BatchlogStore batchlog()
+    {
+        BatchlogStore store = batchlog;
+        if (store == null)
+        {
+            synchronized (this)
+            {
+                store = batchlog;
+                if (store == null)
+                    batchlog = store = BatchlogStore.open(DatabaseDescriptor.getBatchlogDirectory());
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Moves the batches stored in the system.batches table by previous versions to the batchlog.
+     */
+    private void migrateLegacyBatches()
+    {
+        ColumnFamilyStore legacy = Keyspace.open(SchemaConstants.SYSTEM_KEYSPACE_NAME).getColumnFamilyStore(SystemKeyspace.BATCHES);
+        if (legacy.isEmpty())
+            return;
+
+        String query = String.format("SELECT id, mutations, version FROM %s.%s", SchemaConstants.SYSTEM_KEYSPACE_NAME, SystemKeyspace.BATCHES);
+        int migrated = 0;
+        for (UntypedResultSet.Row row : executeInternalWithPaging(query, DEFAULT_PAGE_SIZE))
+        {
+            batchlog().write(row.getUUID("id"), row.getInt("version"), row.getList("mutations", BytesType.instance), false);
+            migrated++;
+        }
+        batchlog().sync();
+        legacy.truncateBlocking();
+        logger.info("Migrated {} batches from {}.{} to the batchlog", migrated, SchemaConstants.SYSTEM_KEYSPACE_NAME, SystemKeyspace.BATCHES);
     }
 
     public static void remove(UUID id)
     {
-        new Mutation(PartitionUpdate.fullPartitionDelete(SystemKeyspace.Batches,
-                                                         UUIDType.instance.decompose(id),
-                                                         FBUtilities.timestampMicros(),
-                                                         FBUtilities.nowInSeconds()))
-            .apply();
+        instance.batchlog().remove(id);
     }
 
     public static void store(Batch batch)
@@ -143,29 +206,35 @@ public class BatchlogManager implements BatchlogManagerMBean
             }
         }
 
-        PartitionUpdate.SimpleBuilder builder = PartitionUpdate.simpleBuilder(SystemKeyspace.Batches, batch.id);
-        builder.row()
-               .timestamp(batch.creationTime)
-               .add("version", MessagingService.current_version)
-               .appendAll("mutations", mutations);
-
-        builder.buildAsMutation().apply(durableWrites);
+        instance.batchlog().write(batch.id, MessagingService.current_version, mutations, durableWrites);
     }
 
     @VisibleForTesting
     public int countAllBatches()
     {
-        String query = String.format("SELECT count(*) FROM %s.%s", SchemaConstants.SYSTEM_KEYSPACE_NAME, SystemKeyspace.BATCHES);
-        UntypedResultSet results = executeInternal(query);
-        if (results == null || results.isEmpty())
-            return 0;
+        return batchlog().size();
+    }
 
-        return (int) results.one().getLong("count");
+    @VisibleForTesting
+    boolean contains(UUID id)
+    {
+        return batchlog().contains(id);
+    }
+
+    @VisibleForTesting
+    void truncate()
+    {
+        batchlog().truncate();
     }
 
     public long getTotalBatchesReplayed()
     {
-        return totalBatchesReplayed;
+        return totalBatchesReplayed.get();
+    }
+
+    public int getInFlightReplays()
+    {
+        return replayPermits.inFlight();
     }
 
     public void forceBatchlogReplay() throws Exception
@@ -199,18 +268,9 @@ public class BatchlogManager implements BatchlogManagerMBean
         }
         setRate(DatabaseDescriptor.getBatchlogReplayThrottleInKB());
 
-        UUID limitUuid = UUIDGen.maxTimeUUID(System.currentTimeMillis() - getBatchlogTimeout());
-        ColumnFamilyStore store = Keyspace.open(SchemaConstants.SYSTEM_KEYSPACE_NAME).getColumnFamilyStore(SystemKeyspace.BATCHES);
-        int pageSize = calculatePageSize(store);
-        // There cannot be any live content where token(id) <= token(lastReplayedUuid) as every processed batch is
-        // deleted, but the tombstoned content may still be present in the tables. To avoid walking over it we specify
-        // token(id) > token(lastReplayedUuid) as part of the query.
-        String query = String.format("SELECT id, mutations, version FROM %s.%s WHERE token(id) > token(?) AND token(id) <= token(?)",
-                                     SchemaConstants.SYSTEM_KEYSPACE_NAME,
-                                     SystemKeyspace.BATCHES);
-        UntypedResultSet batches = executeInternalWithPaging(query, pageSize, lastReplayedUuid, limitUuid);
-        processBatchlogEntries(batches, pageSize, rateLimiter);
-        lastReplayedUuid = limitUuid;
+        long limitMillis = System.currentTimeMillis() - getBatchlogTimeout();
+        replayPendingBatches(limitMillis);
+        batchlog().maybeRollIdleSegment();
         logger.trace("Finished replayFailedBatches");
     }
 
@@ -235,40 +295,60 @@ public class BatchlogManager implements BatchlogManagerMBean
         }
     }
 
-    // read less rows (batches) per page if they are very large
-    static int calculatePageSize(ColumnFamilyStore store)
+    /**
+     * Replays the batches written before {@code limitMillis} that are still in the batchlog.
+     * <p>
+     * The batches are split in pages of consecutive batches of a segment, which are replayed concurrently by up to
+     * max_batchlog_replay_threads workers, each picking the next page as soon as it is done with the previous one.
+     * A page waiting on a slow or overloaded replica thus doesn't hold back the others, and the work naturally shifts
+     * to the workers whose replicas respond. All the workers share the same rate limiter, and the replayed mutations
+     * in flight to each endpoint are capped, so that a recovering replica isn't flooded.
+     */
+    private void replayPendingBatches(long limitMillis)
     {
-        double averageRowSize = store.getMeanPartitionSize();
-        if (averageRowSize <= 0)
-            return DEFAULT_PAGE_SIZE;
+        BatchlogStore batchlog = batchlog();
+        ReplayPages pages = new ReplayPages(batchlog.pendingSegments(), limitMillis);
 
-        return (int) Math.max(1, Math.min(DEFAULT_PAGE_SIZE, 4 * 1024 * 1024 / averageRowSize));
+        List<Future<?>> workers = new ArrayList<>(replayThreads);
+        for (int i = 0; i < replayThreads; i++)
+        {
+            workers.add(replayExecutor.submit(() -> {
+                ReplayPage page;
+                while ((page = pages.next()) != null)
+                    replayPage(batchlog, page);
+            }));
+        }
+        FBUtilities.waitOnFutures(workers);
     }
 
-    private void processBatchlogEntries(UntypedResultSet batches, int pageSize, RateLimiter rateLimiter)
+    private void replayPage(BatchlogStore batchlog, ReplayPage page)
     {
-        int positionInPage = 0;
-        ArrayList<ReplayingBatch> unfinishedBatches = new ArrayList<>(pageSize);
+        long bytesInPage = 0;
+        ArrayList<ReplayingBatch> unfinishedBatches = new ArrayList<>(page.ids.size());
 
         Set<InetAddressAndPort> hintedNodes = new HashSet<>();
-        Set<UUID> replayedBatches = new HashSet<>();
+        List<UUID> replayedBatches = new ArrayList<>(page.ids.size());
 
         // Sending out batches for replay without waiting for them, so that one stuck batch doesn't affect others
-        for (UntypedResultSet.Row row : batches)
+        for (UUID id : page.ids)
         {
-            UUID id = row.getUUID("id");
-            int version = row.getInt("version");
             try
             {
-                ReplayingBatch batch = new ReplayingBatch(id, version, row.getList("mutations", BytesType.instance));
-                if (batch.replay(rateLimiter, hintedNodes) > 0)
+                BatchlogStore.StoredBatch stored = batchlog.read(page.segment, id);
+                if (stored == null)
+                    continue; // removed in the meantime
+
+                bytesInPage += stored.size;
+                ReplayingBatch batch = new ReplayingBatch(id, stored.version, stored.mutations);
+                if (batch.replay(rateLimiter, replayPermits, hintedNodes) > 0)
                 {
                     unfinishedBatches.add(batch);
                 }
                 else
                 {
                     remove(id); // no write mutations were sent (either expired or all CFs involved truncated).
-                    ++totalBatchesReplayed;
+                    totalBatchesReplayed.incrementAndGet();
+                    metrics.replayedBatches.mark();
                 }
             }
             catch (IOException e)
@@ -277,25 +357,26 @@ public class BatchlogManager implements BatchlogManagerMBean
                 remove(id);
             }
 
-            if (++positionInPage == pageSize)
+            if (bytesInPage >= PAGE_SIZE_IN_BYTES)
             {
-                // We have reached the end of a batch. To avoid keeping more than a page of mutations in memory,
-                // finish processing the page before requesting the next row.
+                // To avoid keeping too many mutations in memory, finish processing the batches read so far
+                // before reading the next one.
                 finishAndClearBatches(unfinishedBatches, hintedNodes, replayedBatches);
-                positionInPage = 0;
+                bytesInPage = 0;
             }
         }
 
         finishAndClearBatches(unfinishedBatches, hintedNodes, replayedBatches);
 
         // to preserve batch guarantees, we must ensure that hints (if any) have made it to disk, before deleting the batches
-        HintsService.instance.flushAndFsyncBlockingly(transform(hintedNodes, StorageService.instance::getHostIdForEndpoint));
+        if (!hintedNodes.isEmpty())
+            HintsService.instance.flushAndFsyncBlockingly(transform(hintedNodes, StorageService.instance::getHostIdForEndpoint));
 
         // once all generated hints are fsynced, actually delete the batches
         replayedBatches.forEach(BatchlogManager::remove);
     }
 
-    private void finishAndClearBatches(ArrayList<ReplayingBatch> batches, Set<InetAddressAndPort> hintedNodes, Set<UUID> replayedBatches)
+    private void finishAndClearBatches(ArrayList<ReplayingBatch> batches, Set<InetAddressAndPort> hintedNodes, List<UUID> replayedBatches)
     {
         // schedule hints for timed out deliveries
         for (ReplayingBatch batch : batches)
@@ -304,10 +385,113 @@ public class BatchlogManager implements BatchlogManagerMBean
             replayedBatches.add(batch.id);
         }
 
-        totalBatchesReplayed += batches.size();
+        totalBatchesReplayed.addAndGet(batches.size());
+        metrics.replayedBatches.mark(batches.size());
         batches.clear();
     }
 
+    /**
+     * The batches of a segment replayed together, and whose removal waits for the hints written for them to be synced.
+     */
+    private static final class ReplayPage
+    {
+        private final BatchlogSegment segment;
+        private final List<UUID> ids;
+
+        private ReplayPage(BatchlogSegment segment, List<UUID> ids)
+        {
+            this.segment = segment;
+            this.ids = ids;
+        }
+    }
+
+    /**
+     * Lazily splits the replayable batches of the pending segments in pages, so that the ids of all of the batches
+     * to replay never have to be held in memory at once.
+     */
+    private static final class ReplayPages
+    {
+        private final Iterator<BatchlogSegment> segments;
+        private final long limitMillis;
+        private BatchlogSegment segment;
+        private Iterator<UUID> ids = Collections.emptyIterator();
+
+        private ReplayPages(List<BatchlogSegment> segments, long limitMillis)
+        {
+            this.segments = segments.iterator();
+            this.limitMillis = limitMillis;
+        }
+
+        synchronized ReplayPage next()
+        {
+            List<UUID> page = new ArrayList<>(DEFAULT_PAGE_SIZE);
+            while (true)
+            {
+                while (ids.hasNext() && page.size() < DEFAULT_PAGE_SIZE)
+                {
+                    UUID id = ids.next();
+                    if (UUIDGen.unixTimestamp(id) <= limitMillis)
+                        page.add(id);
+                }
+
+                if (!page.isEmpty() && (page.size() == DEFAULT_PAGE_SIZE || !ids.hasNext()))
+                    return new ReplayPage(segment, page);
+
+                if (!segments.hasNext())
+                    return null;
+
+                segment = segments.next();
+                ids = segment.batches.keySet().iterator();
+            }
+        }
+    }
+
+    /**
+     * Caps the number of replayed mutations awaiting a response from each endpoint.
+     */
+    static final class EndpointPermits
+    {
+        private final int maxPerEndpoint;
+        private final Meter throttled;
+        private final ConcurrentMap<InetAddressAndPort, Semaphore> permits = new ConcurrentHashMap<>();
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        EndpointPermits(int maxPerEndpoint, Meter throttled)
+        {
+            this.maxPerEndpoint = maxPerEndpoint;
+            this.throttled = throttled;
+        }
+
+        /**
+         * Acquires a permit to send a mutation to the given endpoint, without waiting for one to be released: a
+         * mutation to an endpoint that is that far behind is better hinted right away than holding back the replay.
+         *
+         * @return whether a permit was acquired
+         */
+        boolean tryAcquire(InetAddressAndPort endpoint)
+        {
+            Semaphore semaphore = permits.computeIfAbsent(endpoint, e -> new Semaphore(maxPerEndpoint));
+            if (!semaphore.tryAcquire())
+            {
+                throttled.mark();
+                return false;
+            }
+            inFlight.incrementAndGet();
+            return true;
+        }
+
+        void release(InetAddressAndPort endpoint)
+        {
+            inFlight.decrementAndGet();
+            permits.get(endpoint).release();
+        }
+
+        int inFlight()
+        {
+            return inFlight.get();
+        }
+    }
+
     public static long getBatchlogTimeout()
     {
         return BATCHLOG_REPLAY_TIMEOUT; // enough time for the actual write + BM removal mutation
@@ -330,7 +514,7 @@ public class BatchlogManager implements BatchlogManagerMBean
             this.replayedBytes = addMutations(version, serializedMutations);
         }
 
-        public int replay(RateLimiter rateLimiter, Set<InetAddressAndPort> hintedNodes) throws IOException
+        public int replay(RateLimiter rateLimiter, EndpointPermits permits, Set<InetAddressAndPort> hintedNodes) throws IOException
         {
             logger.trace("Replaying batch {}", id);
 
@@ -341,7 +525,7 @@ public class BatchlogManager implements BatchlogManagerMBean
             if (TimeUnit.MILLISECONDS.toSeconds(writtenAt) + gcgs <= FBUtilities.nowInSeconds())
                 return 0;
 
-            replayHandlers = sendReplays(mutations, writtenAt, hintedNodes);
+            replayHandlers = sendReplays(mutations, writtenAt, permits, hintedNodes);
 
             rateLimiter.acquire(replayedBytes); // acquire afterwards, to not mess up ttl calculation.
 
@@ -350,22 +534,31 @@ public class BatchlogManager implements BatchlogManagerMBean
 
         public void finish(Set<InetAddressAndPort> hintedNodes)
         {
-            for (int i = 0; i < replayHandlers.size(); i++)
+            try
             {
-                ReplayWriteResponseHandler<Mutation> handler = replayHandlers.get(i);
-                try
-                {
-                    handler.get();
-                }
-                catch (WriteTimeoutException|WriteFailureException e)
+                for (int i = 0; i < replayHandlers.size(); i++)
                 {
-                    logger.trace("Failed replaying a batched mutation to a node, will write a hint");
-                    logger.trace("Failure was : {}", e.getMessage());
-                    // writing hints for the rest to hints, starting from i
-                    writeHintsForUndeliveredEndpoints(i, hintedNodes);
-                    return;
+                    ReplayWriteResponseHandler<Mutation> handler = replayHandlers.get(i);
+                    try
+                    {
+                        handler.get();
+                    }
+                    catch (WriteTimeoutException|WriteFailureException e)
+                    {
+                        logger.trace("Failed replaying a batched mutation to a node, will write a hint");
+                        logger.trace("Failure was : {}", e.getMessage());
+                        // writing hints for the rest to hints, starting from i
+                        writeHintsForUndeliveredEndpoints(i, hintedNodes);
+                        return;
+                    }
                 }
             }
+            finally
+            {
+                // the endpoints that haven't responded by now won't, or not in time to matter
+                for (ReplayWriteResponseHandler<Mutation> handler : replayHandlers)
+                    handler.releasePermits();
+            }
         }
 
         private int addMutations(int version, List<ByteBuffer> serializedMutations) throws IOException
@@ -411,6 +604,7 @@ public class BatchlogManager implements BatchlogManagerMBean
 
                 if (handler != null)
                 {
+                    metrics.hintedMutations.mark(handler.undelivered.size());
                     hintedNodes.addAll(handler.undelivered);
                     HintsService.instance.write(transform(handler.undelivered, StorageService.instance::getHostIdForEndpoint),
                                                 Hint.create(undeliveredMutation, writtenAt));
@@ -420,12 +614,13 @@ public class BatchlogManager implements BatchlogManagerMBean
 
         private static List<ReplayWriteResponseHandler<Mutation>> sendReplays(List<Mutation> mutations,
                                                                               long writtenAt,
+                                                                              EndpointPermits permits,
                                                                               Set<InetAddressAndPort> hintedNodes)
         {
             List<ReplayWriteResponseHandler<Mutation>> handlers = new ArrayList<>(mutations.size());
             for (Mutation mutation : mutations)
             {
-                ReplayWriteResponseHandler<Mutation> handler = sendSingleReplayMutation(mutation, writtenAt, hintedNodes);
+                ReplayWriteResponseHandler<Mutation> handler = sendSingleReplayMutation(mutation, writtenAt, permits, hintedNodes);
                 if (handler != null)
                     handlers.add(handler);
             }
@@ -434,12 +629,13 @@ public class BatchlogManager implements BatchlogManagerMBean
 
         /**
          * We try to deliver the mutations to the replicas ourselves if they are alive and only resort to writing hints
-         * when a replica is down or a write request times out.
+         * when a replica is down, has too many replayed mutations in flight, or a write request times out.
          *
          * @return direct delivery handler to wait on or null, if no live nodes found
          */
         private static ReplayWriteResponseHandler<Mutation> sendSingleReplayMutation(final Mutation mutation,
                                                                                      long writtenAt,
+                                                                                     EndpointPermits permits,
                                                                                      Set<InetAddressAndPort> hintedNodes)
         {
             Set<InetAddressAndPort> liveEndpoints = new HashSet<>();
@@ -452,12 +648,13 @@ public class BatchlogManager implements BatchlogManagerMBean
                 {
                     mutation.apply();
                 }
-                else if (FailureDetector.instance.isAlive(endpoint))
+                else if (FailureDetector.instance.isAlive(endpoint) && permits.tryAcquire(endpoint))
                 {
                     liveEndpoints.add(endpoint); // will try delivering directly instead of writing a hint.
                 }
                 else
                 {
+                    metrics.hintedMutations.mark();
                     hintedNodes.add(endpoint);
                     HintsService.instance.write(StorageService.instance.getHostIdForEndpoint(endpoint),
                                                 Hint.create(mutation, writtenAt));
@@ -467,7 +664,8 @@ public class BatchlogManager implements BatchlogManagerMBean
             if (liveEndpoints.isEmpty())
                 return null;
 
-            ReplayWriteResponseHandler<Mutation> handler = new ReplayWriteResponseHandler<>(liveEndpoints, System.nanoTime());
+            ReplayWriteResponseHandler<Mutation> handler = new ReplayWriteResponseHandler<>(liveEndpoints, permits, System.nanoTime());
+            metrics.replayedMutations.mark(liveEndpoints.size());
             MessageOut<Mutation> message = mutation.createMessage();
             for (InetAddressAndPort endpoint : liveEndpoints)
                 MessagingService.instance().sendRR(message, endpoint, handler, false);
@@ -489,11 +687,28 @@ public class BatchlogManager implements BatchlogManagerMBean
         private static class ReplayWriteResponseHandler<T> extends WriteResponseHandler<T>
         {
             private final Set<InetAddressAndPort> undelivered = Collections.newSetFromMap(new ConcurrentHashMap<>());
+            // the endpoints we hold a replay permit for
+            private final Set<InetAddressAndPort> inFlight = Collections.newSetFromMap(new ConcurrentHashMap<>());
+            private final EndpointPermits permits;
 
-            ReplayWriteResponseHandler(Collection<InetAddressAndPort> writeEndpoints, long queryStartNanoTime)
+            ReplayWriteResponseHandler(Collection<InetAddressAndPort> writeEndpoints, EndpointPermits permits, long queryStartNanoTime)
             {
                 super(writeEndpoints, Collections.<InetAddressAndPort>emptySet(), null, null, null, WriteType.UNLOGGED_BATCH, queryStartNanoTime);
                 undelivered.addAll(writeEndpoints);
+                inFlight.addAll(writeEndpoints);
+                this.permits = permits;
+            }
+
+            private void releasePermit(InetAddressAndPort endpoint)
+            {
+                if (inFlight.remove(endpoint))
+                    permits.release(endpoint);
+            }
+
+            void releasePermits()
+            {
+                for (InetAddressAndPort endpoint : inFlight)
+                    releasePermit(endpoint);
             }
 
             @Override
@@ -505,10 +720,23 @@ public class BatchlogManager implements BatchlogManagerMBean
             @Override
             public void response(MessageIn<T> m)
             {
-                boolean removed = undelivered.remove(m == null ? FBUtilities.getBroadcastAddressAndPort() : m.from);
+                InetAddressAndPort from = m == null ? FBUtilities.getBroadcastAddressAndPort() : m.from;
+                boolean removed = undelivered.remove(from);
                 assert removed;
+                releasePermit(from);
                 super.response(m);
             }
+
+            /**
+             * Also called when the callback expires, so that the permits of an unresponsive endpoint are released after
+             * the write timeout rather than once the whole page is done.
+             */
+            @Override
+            public void onFailure(InetAddressAndPort from, RequestFailureReason failureReason)
+            {
+                releasePermit(from);
+                super.onFailure(from, failureReason);
+            }
         }
     }
 
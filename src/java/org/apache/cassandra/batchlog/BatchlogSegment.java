@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.batchlog;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import org.apache.cassandra.io.FSWriteError;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.utils.SyncUtil;
+
+import static org.apache.cassandra.utils.FBUtilities.updateChecksumInt;
+
+/**
+ * A single file of the local batchlog, named {@code batchlog-<id>-<version>.log}.
+ * <p>
+ * A segment is a sequence of records, each laid out as {@code [int size][int crc(size)][body][int crc(body)]},
+ * where the body is either a batch or the removal marker of a batch (see {@link BatchlogStore}). Records are only ever
+ * appended to the active segment of the store, while the older segments are only read, until all the batches they
+ * contain have been removed and they can be deleted as a whole.
+ */
+final class BatchlogSegment
+{
+    private static final Pattern pattern = Pattern.compile("^batchlog-(\\d+)-(\\d+)\\.log$");
+
+    static final int VERSION_1 = 1;
+    static final int CURRENT_VERSION = VERSION_1;
+
+    static final int RECORD_OVERHEAD = 12;
+
+    final long id;
+    final int version;
+    final File file;
+    private final FileChannel channel;
+
+    /**
+     * The batches written to this segment that haven't been removed yet, with the position of their record.
+     */
+    final Map<UUID, Long> batches = new ConcurrentHashMap<>();
+
+    private volatile long position;
+    private volatile long syncedPosition;
+
+    private BatchlogSegment(long id, int version, File file, FileChannel channel, long position)
+    {
+        this.id = id;
+        this.version = version;
+        this.file = file;
+        this.channel = channel;
+        this.position = position;
+        this.syncedPosition = position;
+    }
+
+    static boolean isSegmentFileName(String name)
+    {
+        return pattern.matcher(name).matches();
+    }
+
+    static String fileName(long id, int version)
+    {
+        return String.format("batchlog-%d-%d.log", id, version);
+    }
+
+    static BatchlogSegment create(File directory, long id) throws IOException
+    {
+        File file = new File(directory, fileName(id, CURRENT_VERSION));
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+        return new BatchlogSegment(id, CURRENT_VERSION, file, channel, 0);
+    }
+
+    /**
+     * Opens an existing segment for reading.
+     */
+    static BatchlogSegment open(File file) throws IOException
+    {
+        Matcher matcher = pattern.matcher(file.getName());
+        if (!matcher.matches())
+            throw new IllegalArgumentException("Not a batchlog segment: " + file);
+
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        return new BatchlogSegment(Long.parseLong(matcher.group(1)), Integer.parseInt(matcher.group(2)), file, channel, channel.size());
+    }
+
+    long position()
+    {
+        return position;
+    }
+
+    boolean isEmpty()
+    {
+        return position == 0;
+    }
+
+    /**
+     * Appends a record to the segment, returning its position. Must only be called by a single writer at a time.
+     */
+    long append(ByteBuffer record) throws IOException
+    {
+        long start = position;
+        long offset = start;
+        while (record.hasRemaining())
+            offset += channel.write(record, offset);
+        position = offset;
+        return start;
+    }
+
+    /**
+     * Builds a record from its body.
+     */
+    static ByteBuffer record(ByteBuffer body)
+    {
+        int size = body.remaining();
+        ByteBuffer record = ByteBuffer.allocate(size + RECORD_OVERHEAD);
+        CRC32 crc = new CRC32();
+
+        record.putInt(size);
+        updateChecksumInt(crc, size);
+        record.putInt((int) crc.getValue());
+
+        crc.reset();
+        crc.update(body.duplicate());
+        record.put(body.duplicate());
+        record.putInt((int) crc.getValue());
+
+        record.flip();
+        return record;
+    }
+
+    /**
+     * Reads the body of the record at the given position, validating its checksums.
+     *
+     * @return the body of the record, or null if the segment has been deleted in the meantime
+     * @throws IOException if the record is incomplete or corrupted
+     */
+    ByteBuffer readBody(long position) throws IOException
+    {
+        try
+        {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            readFully(header, position);
+            int size = header.getInt(0);
+            CRC32 crc = new CRC32();
+            updateChecksumInt(crc, size);
+            if (header.getInt(4) != (int) crc.getValue() || size < 0)
+                throw new IOException(String.format("Corrupted record header at position %d of %s", position, file));
+
+            ByteBuffer body = ByteBuffer.allocate(size + 4);
+            readFully(body, position + 8);
+            int expected = body.getInt(size);
+            body.limit(size);
+            crc.reset();
+            crc.update(body.duplicate());
+            if (expected != (int) crc.getValue())
+                throw new IOException(String.format("Corrupted record at position %d of %s", position, file));
+            return body;
+        }
+        catch (ClosedChannelException e)
+        {
+            return null;
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0)
+                throw new EOFException(String.format("Truncated record at position %d of %s", position, file));
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Makes sure everything written to the segment up to the given position is on disk, piggy-backing on a concurrent
+     * sync if possible.
+     */
+    void syncUpTo(long position)
+    {
+        if (syncedPosition >= position)
+            return;
+
+        synchronized (this)
+        {
+            if (syncedPosition >= position)
+                return;
+
+            long current = this.position;
+            try
+            {
+                SyncUtil.force(channel, true);
+            }
+            catch (ClosedChannelException e)
+            {
+                // the segment has been deleted, so there's nothing left to sync
+                return;
+            }
+            catch (IOException e)
+            {
+                throw new FSWriteError(e, file);
+            }
+            syncedPosition = current;
+        }
+    }
+
+    void sync()
+    {
+        syncUpTo(position);
+    }
+
+    void close()
+    {
+        FileUtils.closeQuietly(channel);
+    }
+
+    void delete()
+    {
+        close();
+        FileUtils.deleteWithConfirm(file);
+    }
+
+    @Override
+    public String toString()
+    {
+        return file.getName();
+    }
+}
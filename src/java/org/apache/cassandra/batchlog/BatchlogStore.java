@@ -0,0 +1,390 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.batchlog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.concurrent.ScheduledExecutors;
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.io.FSReadError;
+import org.apache.cassandra.io.FSWriteError;
+import org.apache.cassandra.io.util.DataInputBuffer;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+/**
+ * The local batchlog: an append-only log of the batches this node stores on behalf of their coordinator, so that they
+ * can be replayed if the coordinator fails to apply them.
+ * <p>
+ * Batches are appended to the active {@link BatchlogSegment}, which is rolled once it gets larger than
+ * {@link #MAX_SEGMENT_SIZE}. Removing a batch only appends a removal marker to the active segment (so that the batch
+ * isn't replayed after a restart), and a segment is deleted as a whole once all the batches it contains have been
+ * removed. Segments are deleted in order, as the removal markers they contain may apply to the batches of older
+ * segments. The position of the live batches is kept in memory, so nothing ever needs to be scanned but at startup.
+ * <p>
+ * The log is fsynced following the commit log settings: on each durable write in batch and group modes, piggy-backing
+ * on any concurrent fsync, or every commitlog_sync_period_in_ms in periodic mode. Removal markers are never synced
+ * by themselves; losing one only means the batch will be replayed again.
+ */
+final class BatchlogStore
+{
+    private static final Logger logger = LoggerFactory.getLogger(BatchlogStore.class);
+
+    static final long MAX_SEGMENT_SIZE = Long.getLong("cassandra.batchlog.max_segment_size_in_mb", 8) * 1024 * 1024;
+
+    private static final byte BATCH = 0;
+    private static final byte REMOVAL = 1;
+
+    private final File directory;
+    private final boolean syncOnWrite;
+
+    /**
+     * The segment of each live batch.
+     */
+    private final Map<UUID, BatchlogSegment> index = new ConcurrentHashMap<>();
+
+    /**
+     * All the segments, oldest first. Guarded by this, as are the writes to the active segment.
+     */
+    private final Deque<BatchlogSegment> segments = new ArrayDeque<>();
+    private volatile BatchlogSegment active;
+    private long nextSegmentId;
+
+    private final ScheduledFuture<?> syncTask;
+
+    private BatchlogStore(File directory, List<BatchlogSegment> existing) throws IOException
+    {
+        this.directory = directory;
+        this.syncOnWrite = DatabaseDescriptor.getCommitLogSync() != Config.CommitLogSync.periodic;
+
+        segments.addAll(existing);
+        nextSegmentId = existing.isEmpty() ? 1 : existing.get(existing.size() - 1).id + 1;
+        roll();
+        deleteObsoleteSegments();
+
+        if (syncOnWrite)
+        {
+            syncTask = null;
+        }
+        else
+        {
+            int period = DatabaseDescriptor.getCommitLogSyncPeriod();
+            syncTask = ScheduledExecutors.scheduledTasks.scheduleWithFixedDelay(this::sync, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Opens the batchlog stored in the given directory, loading the position of all the batches that haven't been
+     * removed yet.
+     */
+    static BatchlogStore open(File directory)
+    {
+        FileUtils.createDirectory(directory);
+
+        File[] files = directory.listFiles((dir, name) -> BatchlogSegment.isSegmentFileName(name));
+        if (files == null)
+            throw new FSReadError(new IOException("Unable to list " + directory), directory);
+
+        List<BatchlogSegment> segments = new ArrayList<>(files.length);
+        try
+        {
+            for (File file : files)
+                segments.add(BatchlogSegment.open(file));
+            segments.sort(Comparator.comparingLong(s -> s.id));
+
+            Map<UUID, BatchlogSegment> batches = new HashMap<>();
+            for (BatchlogSegment segment : segments)
+                load(segment, batches);
+
+            BatchlogStore store = new BatchlogStore(directory, segments);
+            store.index.putAll(batches);
+            logger.debug("Loaded {} batches from {} batchlog segments", batches.size(), segments.size());
+            return store;
+        }
+        catch (IOException e)
+        {
+            segments.forEach(BatchlogSegment::close);
+            throw new FSReadError(e, directory);
+        }
+    }
+
+    /**
+     * Reads the records of a segment, adding the batches it contains and removing the ones it marks as removed.
+     * A truncated or corrupted record ends the segment, as nothing after it can be trusted.
+     */
+    private static void load(BatchlogSegment segment, Map<UUID, BatchlogSegment> batches)
+    {
+        long position = 0;
+        while (position < segment.position())
+        {
+            ByteBuffer body;
+            try
+            {
+                body = segment.readBody(position);
+            }
+            catch (IOException e)
+            {
+                logger.warn("Ignoring the end of batchlog segment {}: {}", segment, e.getMessage());
+                break;
+            }
+
+            UUID id = new UUID(body.getLong(1), body.getLong(9));
+            if (body.get(0) == BATCH)
+            {
+                batches.put(id, segment);
+                segment.batches.put(id, position);
+            }
+            else
+            {
+                BatchlogSegment previous = batches.remove(id);
+                if (previous != null)
+                    previous.batches.remove(id);
+            }
+            position += body.limit() + BatchlogSegment.RECORD_OVERHEAD;
+        }
+    }
+
+    /**
+     * Appends a batch to the log, and, if durable, makes sure it is on disk before returning in batch and group
+     * commit log modes.
+     */
+    void write(UUID id, int version, Collection<ByteBuffer> mutations, boolean durable)
+    {
+        ByteBuffer record;
+        try (DataOutputBuffer body = new DataOutputBuffer())
+        {
+            body.writeByte(BATCH);
+            body.writeLong(id.getMostSignificantBits());
+            body.writeLong(id.getLeastSignificantBits());
+            body.writeInt(version);
+            body.writeUnsignedVInt(mutations.size());
+            for (ByteBuffer mutation : mutations)
+                ByteBufferUtil.writeWithVIntLength(mutation, body);
+            record = BatchlogSegment.record(body.buffer());
+        }
+        catch (IOException e)
+        {
+            // shouldn't happen
+            throw new AssertionError(e);
+        }
+
+        BatchlogSegment segment;
+        long end;
+        synchronized (this)
+        {
+            segment = active;
+            long position = append(segment, record);
+            segment.batches.put(id, position);
+            index.put(id, segment);
+            end = segment.position();
+            if (end >= MAX_SEGMENT_SIZE)
+                roll();
+        }
+
+        if (durable && syncOnWrite)
+            segment.syncUpTo(end);
+    }
+
+    /**
+     * Removes a batch from the log, deleting the segments that no longer contain any live batch.
+     */
+    void remove(UUID id)
+    {
+        BatchlogSegment segment = index.remove(id);
+        if (segment == null)
+            return;
+
+        segment.batches.remove(id);
+
+        ByteBuffer record = BatchlogSegment.record(marker(id));
+        synchronized (this)
+        {
+            append(active, record);
+            deleteObsoleteSegments();
+        }
+    }
+
+    private static ByteBuffer marker(UUID id)
+    {
+        ByteBuffer body = ByteBuffer.allocate(17);
+        body.put(REMOVAL);
+        body.putLong(id.getMostSignificantBits());
+        body.putLong(id.getLeastSignificantBits());
+        body.flip();
+        return body;
+    }
+
+    boolean contains(UUID id)
+    {
+        return index.containsKey(id);
+    }
+
+    int size()
+    {
+        return index.size();
+    }
+
+    /**
+     * @return the segments that still contain live batches, oldest first
+     */
+    synchronized List<BatchlogSegment> pendingSegments()
+    {
+        List<BatchlogSegment> pending = new ArrayList<>(segments.size());
+        for (BatchlogSegment segment : segments)
+            if (!segment.batches.isEmpty())
+                pending.add(segment);
+        return pending;
+    }
+
+    /**
+     * Reads a batch of the given segment.
+     *
+     * @return the batch, or null if it has been removed in the meantime
+     * @throws IOException if the record of the batch is corrupted
+     */
+    StoredBatch read(BatchlogSegment segment, UUID id) throws IOException
+    {
+        Long position = segment.batches.get(id);
+        if (position == null)
+            return null;
+
+        ByteBuffer body = segment.readBody(position);
+        if (body == null)
+            return null;
+
+        try (DataInputBuffer in = new DataInputBuffer(body, false))
+        {
+            in.skipBytes(17);
+            int version = in.readInt();
+            int count = (int) in.readUnsignedVInt();
+            List<ByteBuffer> mutations = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+                mutations.add(ByteBufferUtil.readWithVIntLength(in));
+            return new StoredBatch(id, version, mutations, body.limit());
+        }
+    }
+
+    /**
+     * Rolls the active segment if it doesn't contain any live batch anymore, so that it can be deleted.
+     */
+    synchronized void maybeRollIdleSegment()
+    {
+        if (!active.isEmpty() && active.batches.isEmpty())
+        {
+            roll();
+            deleteObsoleteSegments();
+        }
+    }
+
+    void sync()
+    {
+        active.sync();
+    }
+
+    @VisibleForTesting
+    synchronized void truncate()
+    {
+        index.clear();
+        for (BatchlogSegment segment : segments)
+            segment.batches.clear();
+        roll();
+        deleteObsoleteSegments();
+    }
+
+    synchronized void close()
+    {
+        if (syncTask != null)
+            syncTask.cancel(false);
+
+        for (BatchlogSegment segment : segments)
+        {
+            segment.sync();
+            segment.close();
+        }
+        if (active.isEmpty())
+            FileUtils.deleteWithConfirm(active.file);
+        segments.clear();
+    }
+
+    private long append(BatchlogSegment segment, ByteBuffer record)
+    {
+        try
+        {
+            return segment.append(record);
+        }
+        catch (IOException e)
+        {
+            throw new FSWriteError(e, segment.file);
+        }
+    }
+
+    private void roll()
+    {
+        BatchlogSegment previous = active;
+        try
+        {
+            active = BatchlogSegment.create(directory, nextSegmentId++);
+        }
+        catch (IOException e)
+        {
+            throw new FSWriteError(e, directory);
+        }
+        segments.addLast(active);
+
+        if (previous != null)
+            previous.sync();
+    }
+
+    private void deleteObsoleteSegments()
+    {
+        while (segments.peekFirst() != active && segments.peekFirst().batches.isEmpty())
+        {
+            BatchlogSegment segment = segments.pollFirst();
+            logger.trace("Deleting batchlog segment {}", segment);
+            segment.delete();
+        }
+    }
+
+    static final class StoredBatch
+    {
+        final UUID id;
+        final int version;
+        final List<ByteBuffer> mutations;
+        final int size;
+
+        StoredBatch(UUID id, int version, List<ByteBuffer> mutations, int size)
+        {
+            this.id = id;
+            this.version = version;
+            this.mutations = mutations;
+            this.size = size;
+        }
+    }
+}
@@ -70,6 +70,7 @@ public class Config
     public Set<String> hinted_handoff_disabled_datacenters = Sets.newConcurrentHashSet();
     public volatile int max_hint_window_in_ms = 3 * 3600 * 1000; // three hours
     public String hints_directory;
+    public String batchlog_directory;
 
     public ParameterizedClass seed_provider;
     public DiskAccessMode disk_access_mode = DiskAccessMode.auto;
@@ -150,6 +151,8 @@ public class Config
     public int native_transport_max_frame_size_in_mb = 256;
     public volatile long native_transport_max_concurrent_connections = -1L;
     public volatile long native_transport_max_concurrent_connections_per_ip = -1L;
+    public boolean native_transport_execute_inline = false;
+    public boolean native_transport_async_execution = false;
 
     /**
      * Max size of values in SSTables, in MegaBytes.
@@ -169,11 +172,12 @@ public class Config
     public Integer unlogged_batch_across_partitions_warn_threshold = 10;
     public volatile Integer concurrent_compactors;
     public volatile int compaction_throughput_mb_per_sec = 16;
+    public volatile int index_build_throughput_mb_per_sec = 0;
     public volatile int compaction_large_partition_warning_threshold_mb = 100;
     public int min_free_space_per_drive_in_mb = 50;
 
     public volatile int concurrent_validations = Integer.MAX_VALUE;
-    public volatile int concurrent_materialized_view_builders = 1;
+    public volatile Integer concurrent_materialized_view_builders;
 
     /**
      * @deprecated retry support removed on CASSANDRA-10992
@@ -220,14 +224,17 @@ public class Config
     public int dynamic_snitch_update_interval_in_ms = 100;
     public int dynamic_snitch_reset_interval_in_ms = 600000;
     public double dynamic_snitch_badness_threshold = 0.1;
+    public boolean dynamic_snitch_use_ewma = false;
 
     public EncryptionOptions.ServerEncryptionOptions server_encryption_options = new EncryptionOptions.ServerEncryptionOptions();
     public EncryptionOptions client_encryption_options = new EncryptionOptions();
 
     public InternodeCompression internode_compression = InternodeCompression.none;
+    public boolean internode_checksummed_framing = true;
 
     public int hinted_handoff_throttle_in_kb = 1024;
     public int batchlog_replay_throttle_in_kb = 1024;
+    public int max_batchlog_replay_threads = 2;
     public int max_hints_delivery_threads = 2;
     public int hints_flush_period_in_ms = 10000;
     public int max_hints_file_size_in_mb = 128;
@@ -321,6 +328,18 @@ public class Config
     public static final int otc_backlog_expiration_interval_ms_default = 200;
     public volatile int otc_backlog_expiration_interval_ms = otc_backlog_expiration_interval_ms_default;
 
+    /**
+     * Maximum size, in kilobytes, of the messages queued for or being written to a single internode connection.
+     * Droppable messages are shed when either this or the node-wide limit is exceeded. Zero disables the limit.
+     */
+    public volatile int otc_max_pending_size_per_connection_in_kb = 65536;
+
+    /**
+     * Maximum size, in kilobytes, of the messages queued for or being written to all internode connections.
+     * Zero disables the limit.
+     */
+    public volatile int otc_max_pending_size_in_kb = 524288;
+
     public int windows_timer_interval = 0;
 
     /**
@@ -52,8 +52,10 @@ import org.apache.cassandra.io.util.DiskOptimizationStrategy;
 import org.apache.cassandra.io.util.FileUtils;
 import org.apache.cassandra.io.util.SpinningDiskOptimizationStrategy;
 import org.apache.cassandra.io.util.SsdDiskOptimizationStrategy;
+import org.apache.cassandra.locator.AbstractReplicationStrategy;
 import org.apache.cassandra.locator.DynamicEndpointSnitch;
 import org.apache.cassandra.locator.EndpointSnitchInfo;
+import org.apache.cassandra.locator.EwmaDynamicEndpointSnitch;
 import org.apache.cassandra.locator.IEndpointSnitch;
 import org.apache.cassandra.locator.InetAddressAndPort;
 import org.apache.cassandra.locator.SeedProvider;
@@ -460,6 +462,11 @@ public class DatabaseDescriptor
             conf.hints_directory = storagedirFor("hints");
         }
 
+        if (conf.batchlog_directory == null)
+        {
+            conf.batchlog_directory = storagedirFor("batchlog");
+        }
+
         if (conf.cdc_raw_directory == null)
         {
             conf.cdc_raw_directory = storagedirFor("cdc_raw");
@@ -547,6 +554,8 @@ public class DatabaseDescriptor
                 throw new ConfigurationException("commitlog_directory must not be the same as any data_file_directories", false);
             if (datadir.equals(conf.hints_directory))
                 throw new ConfigurationException("hints_directory must not be the same as any data_file_directories", false);
+            if (datadir.equals(conf.batchlog_directory))
+                throw new ConfigurationException("batchlog_directory must not be the same as any data_file_directories", false);
             if (datadir.equals(conf.saved_caches_directory))
                 throw new ConfigurationException("saved_caches_directory must not be the same as any data_file_directories", false);
 
@@ -571,6 +580,10 @@ public class DatabaseDescriptor
             throw new ConfigurationException("hints_directory must not be the same as the commitlog_directory", false);
         if (conf.hints_directory.equals(conf.saved_caches_directory))
             throw new ConfigurationException("saved_caches_directory must not be the same as the hints_directory", false);
+        if (conf.commitlog_directory.equals(conf.batchlog_directory))
+            throw new ConfigurationException("batchlog_directory must not be the same as the commitlog_directory", false);
+        if (conf.hints_directory.equals(conf.batchlog_directory))
+            throw new ConfigurationException("batchlog_directory must not be the same as the hints_directory", false);
 
         if (conf.memtable_flush_writers == 0)
         {
@@ -605,6 +618,9 @@ public class DatabaseDescriptor
         if (conf.concurrent_compactors <= 0)
             throw new ConfigurationException("concurrent_compactors should be strictly greater than 0, but was " + conf.concurrent_compactors, false);
 
+        if (conf.concurrent_materialized_view_builders == null)
+            conf.concurrent_materialized_view_builders = FBUtilities.getAvailableProcessors();
+
         if (conf.concurrent_materialized_view_builders <= 0)
             throw new ConfigurationException("concurrent_materialized_view_builders should be strictly greater than 0, but was " + conf.concurrent_materialized_view_builders, false);
 
@@ -1043,7 +1059,9 @@ public class DatabaseDescriptor
         if (!snitchClassName.contains("."))
             snitchClassName = "org.apache.cassandra.locator." + snitchClassName;
         IEndpointSnitch snitch = FBUtilities.construct(snitchClassName, "snitch");
-        return dynamic ? new DynamicEndpointSnitch(snitch) : snitch;
+        if (!dynamic)
+            return snitch;
+        return useDynamicSnitchEwma() ? new EwmaDynamicEndpointSnitch(snitch) : new DynamicEndpointSnitch(snitch);
     }
 
     public static IAuthenticator getAuthenticator()
@@ -1203,6 +1221,10 @@ public class DatabaseDescriptor
                 throw new ConfigurationException("hints_directory must be specified", false);
             FileUtils.createDirectory(conf.hints_directory);
 
+            if (conf.batchlog_directory == null)
+                throw new ConfigurationException("batchlog_directory must be specified", false);
+            FileUtils.createDirectory(conf.batchlog_directory);
+
             if (conf.saved_caches_directory == null)
                 throw new ConfigurationException("saved_caches_directory must be specified", false);
             FileUtils.createDirectory(conf.saved_caches_directory);
@@ -1249,6 +1271,7 @@ public class DatabaseDescriptor
     public static void setEndpointSnitch(IEndpointSnitch eps)
     {
         snitch = eps;
+        AbstractReplicationStrategy.invalidateCachedSortedEndpoints();
     }
 
     public static int getColumnIndexSize()
@@ -1527,6 +1550,16 @@ public class DatabaseDescriptor
         conf.compaction_throughput_mb_per_sec = value;
     }
 
+    public static int getIndexBuildThroughputMbPerSec()
+    {
+        return conf.index_build_throughput_mb_per_sec;
+    }
+
+    public static void setIndexBuildThroughputMbPerSec(int value)
+    {
+        conf.index_build_throughput_mb_per_sec = value;
+    }
+
     public static long getCompactionLargePartitionWarningThreshold() { return conf.compaction_large_partition_warning_threshold_mb * 1024L * 1024L; }
 
     public static int getConcurrentValidations()
@@ -1830,6 +1863,28 @@ public class DatabaseDescriptor
         conf.native_transport_max_concurrent_connections_per_ip = native_transport_max_concurrent_connections_per_ip;
     }
 
+    public static boolean getNativeTransportExecuteInline()
+    {
+        return conf.native_transport_execute_inline;
+    }
+
+    @VisibleForTesting
+    public static void setNativeTransportExecuteInline(boolean executeInline)
+    {
+        conf.native_transport_execute_inline = executeInline;
+    }
+
+    public static boolean getNativeTransportAsyncExecution()
+    {
+        return conf.native_transport_async_execution;
+    }
+
+    @VisibleForTesting
+    public static void setNativeTransportAsyncExecution(boolean asyncExecution)
+    {
+        conf.native_transport_async_execution = asyncExecution;
+    }
+
     public static double getCommitLogSyncGroupWindow()
     {
         return conf.commitlog_sync_group_window_in_ms;
@@ -1970,6 +2025,11 @@ public class DatabaseDescriptor
         return new File(conf.hints_directory);
     }
 
+    public static File getBatchlogDirectory()
+    {
+        return new File(conf.batchlog_directory);
+    }
+
     public static File getSerializedCachePath(CacheType cacheType, String version, String extension)
     {
         String name = cacheType.toString()
@@ -2005,6 +2065,11 @@ public class DatabaseDescriptor
         conf.dynamic_snitch_badness_threshold = dynamicBadnessThreshold;
     }
 
+    public static boolean useDynamicSnitchEwma()
+    {
+        return conf.dynamic_snitch_use_ewma;
+    }
+
     public static EncryptionOptions.ServerEncryptionOptions getInternodeMessagingEncyptionOptions()
     {
         return conf.server_encryption_options;
@@ -2040,6 +2105,11 @@ public class DatabaseDescriptor
         conf.batchlog_replay_throttle_in_kb = throttleInKB;
     }
 
+    public static int getMaxBatchlogReplayThreads()
+    {
+        return conf.max_batchlog_replay_threads;
+    }
+
     public static int getMaxHintsDeliveryThreads()
     {
         return conf.max_hints_delivery_threads;
@@ -2259,6 +2329,16 @@ public class DatabaseDescriptor
         conf.internode_compression = compression;
     }
 
+    public static boolean isInternodeChecksummedFraming()
+    {
+        return conf.internode_checksummed_framing;
+    }
+
+    public static void setInternodeChecksummedFraming(boolean checksummedFraming)
+    {
+        conf.internode_checksummed_framing = checksummedFraming;
+    }
+
     public static boolean getInterDCTcpNoDelay()
     {
         return conf.inter_dc_tcp_nodelay;
@@ -2349,6 +2429,26 @@ public class DatabaseDescriptor
     {
         conf.otc_backlog_expiration_interval_ms = intervalInMillis;
     }
+
+    public static long getOtcMaxPendingBytesPerConnection()
+    {
+        return conf.otc_max_pending_size_per_connection_in_kb * 1024L;
+    }
+
+    public static void setOtcMaxPendingSizePerConnectionInKB(int sizeInKB)
+    {
+        conf.otc_max_pending_size_per_connection_in_kb = sizeInKB;
+    }
+
+    public static long getOtcMaxPendingBytes()
+    {
+        return conf.otc_max_pending_size_in_kb * 1024L;
+    }
+
+    public static void setOtcMaxPendingSizeInKB(int sizeInKB)
+    {
+        conf.otc_max_pending_size_in_kb = sizeInKB;
+    }
  
     public static int getWindowsTimerInterval()
     {
@@ -17,6 +17,9 @@
  */
 package org.apache.cassandra.cql3;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
 import org.apache.cassandra.cql3.functions.Function;
 import org.apache.cassandra.exceptions.*;
 import org.apache.cassandra.service.ClientState;
@@ -54,6 +57,20 @@ public interface CQLStatement
      */
     public ResultMessage execute(QueryState state, QueryOptions options, long queryStartNanoTime) throws RequestValidationException, RequestExecutionException;
 
+    /**
+     * Execute the statement without waiting for the replicas to respond, if the statement supports it. The returned
+     * future is then completed by whichever thread receives the last required response. Statements that don't support
+     * it are executed synchronously, which is what the default implementation does.
+     *
+     * @param state the current query state
+     * @param options options for this query (consistency, variables, pageSize, ...)
+     * @param queryStartNanoTime the timestamp returned by System.nanoTime() when this statement was received
+     */
+    default public ListenableFuture<ResultMessage> executeAsync(QueryState state, QueryOptions options, long queryStartNanoTime) throws RequestValidationException, RequestExecutionException
+    {
+        return Futures.immediateFuture(execute(state, options, queryStartNanoTime));
+    }
+
     /**
      * Variant of execute used for internal query against the system tables, and thus only query the local node.
      *
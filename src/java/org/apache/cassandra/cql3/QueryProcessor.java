@@ -30,6 +30,8 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Predicate;
 import com.google.common.collect.*;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -403,6 +405,16 @@ public class QueryProcessor implements QueryHandler
         return storePreparedStatement(queryString, clientState.getRawKeyspace(), prepared);
     }
 
+    /**
+     * Whether {@code queryString} is already prepared for {@code keyspace}, in which case preparing it again
+     * is a mere cache lookup.
+     */
+    public static boolean isPrepared(String queryString, String keyspace)
+    {
+        ParsedStatement.Prepared existing = preparedStatements.getIfPresent(computeId(queryString, keyspace));
+        return existing != null && queryString.equals(existing.rawCQLStatement);
+    }
+
     private static MD5Digest computeId(String queryString, String keyspace)
     {
         String toHash = keyspace == null ? queryString : keyspace + queryString;
@@ -457,6 +469,33 @@ public class QueryProcessor implements QueryHandler
 
     public ResultMessage processPrepared(CQLStatement statement, QueryState queryState, QueryOptions options, long queryStartNanoTime)
     throws RequestExecutionException, RequestValidationException
+    {
+        validateBoundValues(statement, options);
+        metrics.preparedStatementsExecuted.inc();
+        return processStatement(statement, queryState, options, queryStartNanoTime);
+    }
+
+    /**
+     * Same as {@link #processPrepared(CQLStatement, QueryState, QueryOptions, long)}, but using
+     * {@link CQLStatement#executeAsync} so the calling thread doesn't have to wait for the replicas.
+     */
+    public ListenableFuture<ResultMessage> processPreparedAsync(CQLStatement statement, QueryState queryState, QueryOptions options, long queryStartNanoTime)
+    throws RequestExecutionException, RequestValidationException
+    {
+        validateBoundValues(statement, options);
+        metrics.preparedStatementsExecuted.inc();
+
+        logger.trace("Process {} @CL.{}", statement, options.getConsistency());
+        ClientState clientState = queryState.getClientState();
+        statement.checkAccess(clientState);
+        statement.validate(clientState);
+
+        return Futures.transform(statement.executeAsync(queryState, options, queryStartNanoTime),
+                                 result -> result == null ? new ResultMessage.Void() : result,
+                                 MoreExecutors.directExecutor());
+    }
+
+    private static void validateBoundValues(CQLStatement statement, QueryOptions options)
     {
         List<ByteBuffer> variables = options.getValues();
         // Check to see if there are any bound variables to verify
@@ -472,9 +511,6 @@ public class QueryProcessor implements QueryHandler
                 for (int i = 0; i < variables.size(); i++)
                     logger.trace("[{}] '{}'", i+1, variables.get(i));
         }
-
-        metrics.preparedStatementsExecuted.inc();
-        return processStatement(statement, queryState, options, queryStartNanoTime);
     }
 
     public ResultMessage processBatch(BatchStatement statement,
@@ -65,6 +65,28 @@ public class ResultSet
         return rows.size();
     }
 
+    /**
+     * @return the total size of the values that are not copied when encoding this result set, see
+     * {@link CBUtil#isWrappedValue(ByteBuffer)}
+     */
+    public int wrappedValuesSize()
+    {
+        if (CBUtil.MIN_WRAPPED_VALUE_SIZE <= 0)
+            return 0;
+
+        int size = 0;
+        for (List<ByteBuffer> row : rows)
+        {
+            for (int i = 0; i < metadata.columnCount; i++)
+            {
+                ByteBuffer value = row.get(i);
+                if (CBUtil.isWrappedValue(value))
+                    size += value.remaining();
+            }
+        }
+        return size;
+    }
+
     public boolean isEmpty()
     {
         return size() == 0;
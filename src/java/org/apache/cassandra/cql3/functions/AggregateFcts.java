@@ -24,6 +24,8 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
 
 import org.apache.cassandra.cql3.CQL3Type;
 import org.apache.cassandra.db.marshal.*;
@@ -307,11 +309,10 @@ public abstract class AggregateFcts
                         {
                             ByteBuffer value = values.get(0);
 
-                            if (value == null)
+                            if (isNull(value))
                                 return;
 
-                            Number number = ((Number) argTypes().get(0).compose(value));
-                            sum += number.byteValue();
+                            sum += value.get(value.position());
                         }
                     };
                 }
@@ -361,11 +362,10 @@ public abstract class AggregateFcts
                         {
                             ByteBuffer value = values.get(0);
 
-                            if (value == null)
+                            if (isNull(value))
                                 return;
 
-                            Number number = ((Number) argTypes().get(0).compose(value));
-                            sum += number.shortValue();
+                            sum += value.getShort(value.position());
                         }
                     };
                 }
@@ -415,11 +415,10 @@ public abstract class AggregateFcts
                         {
                             ByteBuffer value = values.get(0);
 
-                            if (value == null)
+                            if (isNull(value))
                                 return;
 
-                            Number number = ((Number) argTypes().get(0).compose(value));
-                            sum += number.intValue();
+                            sum += value.getInt(value.position());
                         }
                     };
                 }
@@ -537,11 +536,11 @@ public abstract class AggregateFcts
         private double compensation;
         private double simpleSum;
 
-        private final AbstractType numberType;
+        private final ToDoubleFunction<ByteBuffer> reader;
 
-        public FloatSumAggregate(AbstractType numberType)
+        public FloatSumAggregate(AbstractType<?> numberType)
         {
-            this.numberType = numberType;
+            this.reader = doubleReader(numberType);
         }
 
         public void reset()
@@ -555,10 +554,10 @@ public abstract class AggregateFcts
         {
             ByteBuffer value = values.get(0);
 
-            if (value == null)
+            if (isNull(value))
                 return;
 
-            double number = ((Number) numberType.compose(value)).doubleValue();
+            double number = reader.applyAsDouble(value);
             simpleSum += number;
             double tmp = number - compensation;
             double rounded = sum + tmp;
@@ -595,11 +594,11 @@ public abstract class AggregateFcts
         private BigDecimal bigSum = null;
         private boolean overflow = false;
 
-        private final AbstractType numberType;
+        private final ToDoubleFunction<ByteBuffer> reader;
 
-        public FloatAvgAggregate(AbstractType numberType)
+        public FloatAvgAggregate(AbstractType<?> numberType)
         {
-            this.numberType = numberType;
+            this.reader = doubleReader(numberType);
         }
 
         public void reset()
@@ -640,12 +639,12 @@ public abstract class AggregateFcts
         {
             ByteBuffer value = values.get(0);
 
-            if (value == null)
+            if (isNull(value))
                 return;
 
             count++;
 
-            double number = ((Number) numberType.compose(value)).doubleValue();
+            double number = reader.applyAsDouble(value);
 
             if (overflow)
             {
@@ -727,29 +726,33 @@ public abstract class AggregateFcts
         {
             return new Aggregate()
             {
-                private Long min;
+                private long min;
+                private boolean isSet;
 
                 public void reset()
                 {
-                    min = null;
+                    isSet = false;
                 }
 
                 public ByteBuffer compute(ProtocolVersion protocolVersion)
                 {
-                    return min != null ? LongType.instance.decompose(min) : null;
+                    return isSet ? LongType.instance.decompose(min) : null;
                 }
 
                 public void addInput(ProtocolVersion protocolVersion, List<ByteBuffer> values)
                 {
                     ByteBuffer value = values.get(0);
 
-                    if (value == null)
+                    if (isNull(value))
                         return;
 
-                    long lval = LongType.instance.compose(value);
+                    long lval = value.getLong(value.position());
 
-                    if (min == null || lval < min)
+                    if (!isSet || lval < min)
+                    {
                         min = lval;
+                        isSet = true;
+                    }
                 }
             };
         }
@@ -765,29 +768,33 @@ public abstract class AggregateFcts
         {
             return new Aggregate()
             {
-                private Long max;
+                private long max;
+                private boolean isSet;
 
                 public void reset()
                 {
-                    max = null;
+                    isSet = false;
                 }
 
                 public ByteBuffer compute(ProtocolVersion protocolVersion)
                 {
-                    return max != null ? LongType.instance.decompose(max) : null;
+                    return isSet ? LongType.instance.decompose(max) : null;
                 }
 
                 public void addInput(ProtocolVersion protocolVersion, List<ByteBuffer> values)
                 {
                     ByteBuffer value = values.get(0);
 
-                    if (value == null)
+                    if (isNull(value))
                         return;
 
-                    long lval = LongType.instance.compose(value);
+                    long lval = value.getLong(value.position());
 
-                    if (max == null || lval > max)
+                    if (!isSet || lval > max)
+                    {
                         max = lval;
+                        isSet = true;
+                    }
                 }
             };
         }
@@ -933,11 +940,10 @@ public abstract class AggregateFcts
         {
             ByteBuffer value = values.get(0);
 
-            if (value == null)
+            if (isNull(value))
                 return;
 
-            Number number = LongType.instance.compose(value);
-            sum += number.longValue();
+            sum += value.getLong(value.position());
         }
     }
 
@@ -953,11 +959,11 @@ public abstract class AggregateFcts
         private BigInteger bigSum = null;
         private boolean overflow = false;
 
-        private final AbstractType numberType;
+        private final ToLongFunction<ByteBuffer> reader;
 
-        public AvgAggregate(AbstractType type)
+        public AvgAggregate(AbstractType<?> type)
         {
-            this.numberType = type;
+            this.reader = longReader(type);
         }
 
         public void reset()
@@ -984,11 +990,11 @@ public abstract class AggregateFcts
         {
             ByteBuffer value = values.get(0);
 
-            if (value == null)
+            if (isNull(value))
                 return;
 
             count++;
-            long number = ((Number) numberType.compose(value)).longValue();
+            long number = reader.applyAsLong(value);
             if (overflow)
             {
                 bigSum = bigSum.add(BigInteger.valueOf(number));
@@ -1006,4 +1012,45 @@ public abstract class AggregateFcts
             }
         }
     }
+
+    /**
+     * Whether the provided serialized value should be ignored by the aggregates. Empty values are treated as nulls,
+     * as the primitive readers below can't decode them.
+     */
+    private static boolean isNull(ByteBuffer value)
+    {
+        return value == null || !value.hasRemaining();
+    }
+
+    /**
+     * Returns a reader decoding the serialized values of the specified integral type straight from their buffer,
+     * without going through the type serializer nor boxing them.
+     */
+    private static ToLongFunction<ByteBuffer> longReader(AbstractType<?> type)
+    {
+        if (type == ByteType.instance)
+            return value -> value.get(value.position());
+        if (type == ShortType.instance)
+            return value -> value.getShort(value.position());
+        if (type == Int32Type.instance)
+            return value -> value.getInt(value.position());
+        if (type == LongType.instance || type == CounterColumnType.instance)
+            return value -> value.getLong(value.position());
+
+        throw new AssertionError("Unsupported integral type " + type.asCQL3Type());
+    }
+
+    /**
+     * Returns a reader decoding the serialized values of the specified floating point type straight from their
+     * buffer, without going through the type serializer nor boxing them.
+     */
+    private static ToDoubleFunction<ByteBuffer> doubleReader(AbstractType<?> type)
+    {
+        if (type == FloatType.instance)
+            return value -> value.getFloat(value.position());
+        if (type == DoubleType.instance)
+            return value -> value.getDouble(value.position());
+
+        throw new AssertionError("Unsupported floating point type " + type.asCQL3Type());
+    }
 }
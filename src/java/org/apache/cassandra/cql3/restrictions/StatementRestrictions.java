@@ -596,6 +596,17 @@ public final class StatementRestrictions
         filterRestrictions.add(expression);
     }
 
+    /**
+     * Checks if some of the restrictions are applied through the {@code RowFilter} of the query, either because they
+     * use a secondary index or because they require filtering.
+     *
+     * @return <code>true</code> if {@link #getRowFilter} returns a non-empty filter, <code>false</code> otherwise.
+     */
+    public boolean hasRowFilterRestrictions()
+    {
+        return !filterRestrictions.isEmpty();
+    }
+
     public RowFilter getRowFilter(SecondaryIndexManager indexManager, QueryOptions options)
     {
         if (filterRestrictions.isEmpty())
@@ -136,7 +136,11 @@ public final class ResultSetBuilder
                 selectors.reset();
             }
         }
-        current = new ArrayList<>(selectors.numberOfFetchedColumns());
+        // The aggregate selectors consume the input row, so we can reuse it rather than allocating one per row
+        if (current == null || !selectors.isAggregate())
+            current = new ArrayList<>(selectors.numberOfFetchedColumns());
+        else
+            current.clear();
 
         // Timestamps and TTLs are arrays per row, we must null them out between rows
         if (timestamps != null)
@@ -21,6 +21,9 @@ import java.nio.ByteBuffer;
 import java.util.*;
 
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -437,6 +440,32 @@ public abstract class ModificationStatement implements CQLStatement
              : executeWithoutCondition(queryState, options, queryStartNanoTime);
     }
 
+    /**
+     * Unconditional, non-counter modifications don't wait for the replicas, see {@link StorageProxy#mutateWithTriggersAsync}.
+     * Other modifications are executed synchronously.
+     */
+    @Override
+    public ListenableFuture<ResultMessage> executeAsync(QueryState queryState, QueryOptions options, long queryStartNanoTime)
+    throws RequestExecutionException, RequestValidationException
+    {
+        if (hasConditions() || isCounter())
+            return CQLStatement.super.executeAsync(queryState, options, queryStartNanoTime);
+
+        if (options.getConsistency() == null)
+            throw new InvalidRequestException("Invalid empty consistency level");
+
+        ConsistencyLevel cl = options.getConsistency();
+        cl.validateForWrite(metadata.keyspace);
+
+        Collection<? extends IMutation> mutations = getMutations(options, false, options.getTimestamp(queryState), queryStartNanoTime);
+        if (mutations.isEmpty())
+            return Futures.immediateFuture(null);
+
+        return Futures.transform(StorageProxy.mutateWithTriggersAsync(mutations, cl, queryStartNanoTime),
+                                 ignored -> (ResultMessage) null,
+                                 MoreExecutors.directExecutor());
+    }
+
     private ResultMessage executeWithoutCondition(QueryState queryState, QueryOptions options, long queryStartNanoTime)
     throws RequestExecutionException, RequestValidationException
     {
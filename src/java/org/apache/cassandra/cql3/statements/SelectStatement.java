@@ -22,6 +22,9 @@ import java.util.*;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,6 +45,7 @@ import org.apache.cassandra.cql3.selection.Selection.Selectors;
 import org.apache.cassandra.db.*;
 import org.apache.cassandra.db.aggregation.AggregationSpecification;
 import org.apache.cassandra.db.aggregation.GroupMaker;
+import org.apache.cassandra.db.aggregation.PartialAggregation;
 import org.apache.cassandra.db.filter.*;
 import org.apache.cassandra.db.marshal.CollectionType;
 import org.apache.cassandra.db.marshal.CompositeType;
@@ -59,6 +63,7 @@ import org.apache.cassandra.serializers.MarshalException;
 import org.apache.cassandra.service.ClientState;
 import org.apache.cassandra.service.ClientWarn;
 import org.apache.cassandra.service.QueryState;
+import org.apache.cassandra.service.StorageProxy;
 import org.apache.cassandra.service.pager.AggregationQueryPager;
 import org.apache.cassandra.service.pager.PagingState;
 import org.apache.cassandra.service.pager.QueryPager;
@@ -106,11 +111,25 @@ public class SelectStatement implements CQLStatement
      */
     private final AggregationSpecification aggregationSpec;
 
+    /**
+     * The aggregates computed by the replicas when the query is not paged by the client, or {@code null} if the
+     * aggregates can't be computed by the replicas.
+     */
+    private final PartialAggregation partialAggregation;
+
     /**
      * The comparator used to orders results when multiple keys are selected (using IN).
      */
     private final Comparator<List<ByteBuffer>> orderingComparator;
 
+    /**
+     * Whether the <code>ClusteringIndexFilter</code> doesn't depend on the bound values, in which case it is only
+     * built on the first execution and then reused, see {@link #getClusteringIndexFilter}.
+     */
+    private final boolean hasConstantClusteringIndexFilter;
+
+    private volatile ClusteringIndexFilter constantClusteringIndexFilter;
+
     // Used by forSelection below
     private static final Parameters defaultParameters = new Parameters(Collections.emptyMap(),
                                                                        Collections.emptyList(),
@@ -128,6 +147,31 @@ public class SelectStatement implements CQLStatement
                            Comparator<List<ByteBuffer>> orderingComparator,
                            Term limit,
                            Term perPartitionLimit)
+    {
+        this(table,
+             boundTerms,
+             parameters,
+             selection,
+             restrictions,
+             isReversed,
+             aggregationSpec,
+             null,
+             orderingComparator,
+             limit,
+             perPartitionLimit);
+    }
+
+    public SelectStatement(TableMetadata table,
+                           int boundTerms,
+                           Parameters parameters,
+                           Selection selection,
+                           StatementRestrictions restrictions,
+                           boolean isReversed,
+                           AggregationSpecification aggregationSpec,
+                           PartialAggregation partialAggregation,
+                           Comparator<List<ByteBuffer>> orderingComparator,
+                           Term limit,
+                           Term perPartitionLimit)
     {
         this.table = table;
         this.boundTerms = boundTerms;
@@ -135,10 +179,12 @@ public class SelectStatement implements CQLStatement
         this.restrictions = restrictions;
         this.isReversed = isReversed;
         this.aggregationSpec = aggregationSpec;
+        this.partialAggregation = partialAggregation;
         this.orderingComparator = orderingComparator;
         this.parameters = parameters;
         this.limit = limit;
         this.perPartitionLimit = perPartitionLimit;
+        this.hasConstantClusteringIndexFilter = parameters.isDistinct || !restrictions.hasClusteringColumnsRestrictions();
     }
 
     public Iterable<Function> getFunctions()
@@ -236,6 +282,21 @@ public class SelectStatement implements CQLStatement
         if (aggregationSpec == null && (pageSize <= 0 || (query.limits().count() <= pageSize)))
             return execute(query, options, state, selectors, nowInSec, userLimit, queryStartNanoTime);
 
+        // the replicas compute the aggregates of a whole query, so it can't be resumed from a client paging state
+        if (partialAggregation != null && options.getPagingState() == null)
+        {
+            List<ByteBuffer> values = StorageProxy.aggregate(query,
+                                                             partialAggregation,
+                                                             cl,
+                                                             state.getClientState(),
+                                                             pageSize <= 0 ? DEFAULT_PAGE_SIZE : pageSize);
+            if (values != null)
+            {
+                warnOnAggregation();
+                return new ResultMessage.Rows(new ResultSet(getResultMetadata(), Collections.singletonList(values)));
+            }
+        }
+
         QueryPager pager = getPager(query, options);
 
         return execute(Pager.forDistributedQuery(pager, cl, state.getClientState()),
@@ -247,6 +308,45 @@ public class SelectStatement implements CQLStatement
                        queryStartNanoTime);
     }
 
+    /**
+     * Reads of a single partition that fit in one page and don't aggregate don't wait for the replicas, see
+     * {@link StorageProxy#readAsync}. Other reads, including IN queries, are executed synchronously.
+     */
+    @Override
+    public ListenableFuture<ResultMessage> executeAsync(QueryState state, QueryOptions options, long queryStartNanoTime)
+    throws RequestExecutionException, RequestValidationException
+    {
+        ConsistencyLevel cl = options.getConsistency();
+        checkNotNull(cl, "Invalid empty consistency level");
+
+        cl.validateForRead(keyspace());
+
+        int nowInSec = FBUtilities.nowInSeconds();
+        int userLimit = getLimit(options);
+        int userPerPartitionLimit = getPerPartitionLimit(options);
+        int pageSize = options.getPageSize();
+
+        Selectors selectors = selection.newSelectors(options);
+        ReadQuery query = getQuery(options, selectors.getColumnFilter(), nowInSec, userLimit, userPerPartitionLimit, pageSize);
+
+        if (aggregationSpec != null
+            || (pageSize > 0 && query.limits().count() > pageSize)
+            || cl.isSerialConsistency()
+            || !(query instanceof SinglePartitionReadCommand.Group)
+            || ((SinglePartitionReadCommand.Group) query).commands.size() != 1)
+            return CQLStatement.super.executeAsync(state, options, queryStartNanoTime);
+
+        ListenableFuture<PartitionIterator> data = StorageProxy.readAsync((SinglePartitionReadCommand.Group) query, cl, queryStartNanoTime);
+        return Futures.transform(data,
+                                 partitions -> {
+                                     try (PartitionIterator iter = partitions)
+                                     {
+                                         return processResults(iter, options, selectors, nowInSec, userLimit);
+                                     }
+                                 },
+                                 MoreExecutors.directExecutor());
+    }
+
     public ReadQuery getQuery(QueryOptions options, int nowInSec) throws RequestValidationException
     {
         Selectors selectors = selection.newSelectors(options);
@@ -364,16 +464,7 @@ public class SelectStatement implements CQLStatement
                                        long queryStartNanoTime) throws RequestValidationException, RequestExecutionException
     {
         if (aggregationSpec != null)
-        {
-            if (!restrictions.hasPartitionKeyRestrictions())
-            {
-                warn("Aggregation query used without partition key");
-            }
-            else if (restrictions.keyIsInRelation())
-            {
-                warn("Aggregation query used on multiple partition keys (IN restriction)");
-            }
-        }
+            warnOnAggregation();
 
         // We can't properly do post-query ordering if we page (see #6722)
         // For GROUP BY or aggregation queries we always page internally even if the user has turned paging off
@@ -395,6 +486,18 @@ public class SelectStatement implements CQLStatement
         return msg;
     }
 
+    private void warnOnAggregation()
+    {
+        if (!restrictions.hasPartitionKeyRestrictions())
+        {
+            warn("Aggregation query used without partition key");
+        }
+        else if (restrictions.keyIsInRelation())
+        {
+            warn("Aggregation query used on multiple partition keys (IN restriction)");
+        }
+    }
+
     private void warn(String msg)
     {
         logger.warn(msg);
@@ -496,7 +599,7 @@ public class SelectStatement implements CQLStatement
         if (keys.isEmpty())
             return ReadQuery.EMPTY;
 
-        ClusteringIndexFilter filter = makeClusteringIndexFilter(options, columnFilter);
+        ClusteringIndexFilter filter = getClusteringIndexFilter(options, columnFilter);
         if (filter == null)
             return ReadQuery.EMPTY;
 
@@ -560,7 +663,7 @@ public class SelectStatement implements CQLStatement
 
     private ReadQuery getRangeCommand(QueryOptions options, ColumnFilter columnFilter, DataLimits limit, int nowInSec)
     {
-        ClusteringIndexFilter clusteringIndexFilter = makeClusteringIndexFilter(options, columnFilter);
+        ClusteringIndexFilter clusteringIndexFilter = getClusteringIndexFilter(options, columnFilter);
         if (clusteringIndexFilter == null)
             return ReadQuery.EMPTY;
 
@@ -581,6 +684,26 @@ public class SelectStatement implements CQLStatement
         return command;
     }
 
+    /**
+     * Returns the <code>ClusteringIndexFilter</code> of an execution of this statement. When the statement has no
+     * restrictions on the clustering columns, as for key-value reads, the filter only depends on the statement itself,
+     * and the one built by the first execution is reused.
+     */
+    private ClusteringIndexFilter getClusteringIndexFilter(QueryOptions options, ColumnFilter columnFilter)
+    {
+        if (!hasConstantClusteringIndexFilter)
+            return makeClusteringIndexFilter(options, columnFilter);
+
+        // filters are immutable, so concurrent executions building it at the same time is harmless
+        ClusteringIndexFilter filter = constantClusteringIndexFilter;
+        if (filter == null)
+        {
+            filter = makeClusteringIndexFilter(options, columnFilter);
+            constantClusteringIndexFilter = filter;
+        }
+        return filter;
+    }
+
     private ClusteringIndexFilter makeClusteringIndexFilter(QueryOptions options, ColumnFilter columnFilter)
     {
         if (parameters.isDistinct)
@@ -748,6 +871,10 @@ public class SelectStatement implements CQLStatement
      */
     public RowFilter getRowFilter(QueryOptions options) throws InvalidRequestException
     {
+        // Most reads don't filter, they don't need to look up the indexes of the table
+        if (!restrictions.hasRowFilterRestrictions())
+            return RowFilter.NONE;
+
         ColumnFamilyStore cfs = Keyspace.open(keyspace()).getColumnFamilyStore(columnFamily());
         SecondaryIndexManager secondaryIndexManager = cfs.indexManager;
         RowFilter filter = restrictions.getRowFilter(secondaryIndexManager, options);
@@ -796,13 +923,18 @@ public class SelectStatement implements CQLStatement
     // Determines whether, when we have a partition result with not rows, we still return the static content (as a
     // result set row with null for all other regular columns.)
     private boolean returnStaticContentOnPartitionWithNoRows()
+    {
+        return returnStaticContentOnPartitionWithNoRows(table, restrictions);
+    }
+
+    private static boolean returnStaticContentOnPartitionWithNoRows(TableMetadata table, StatementRestrictions restrictions)
     {
         // The general rational is that if some rows are specifically selected by the query (have clustering or
         // regular columns restrictions), we ignore partitions that are empty outside of static content, but if it's a full partition
         // query, then we include that content.
         // We make an exception for "static compact" table are from a CQL standpoint we always want to show their static
         // content for backward compatiblity.
-        return queriesFullPartitions() || table.isStaticCompactTable();
+        return queriesFullPartitions(restrictions) || table.isStaticCompactTable();
     }
 
     // Used by ModificationStatement for CAS operations
@@ -869,6 +1001,11 @@ public class SelectStatement implements CQLStatement
      * @return {@code true} if the query is a full partitions selection, {@code false} otherwise.
      */
     private boolean queriesFullPartitions()
+    {
+        return queriesFullPartitions(restrictions);
+    }
+
+    private static boolean queriesFullPartitions(StatementRestrictions restrictions)
     {
         return !restrictions.hasClusteringColumnsRestrictions() && !restrictions.hasRegularColumnsRestrictions();
     }
@@ -994,6 +1131,7 @@ public class SelectStatement implements CQLStatement
                                                        restrictions,
                                                        isReversed,
                                                        aggregationSpec,
+                                                       preparePartialAggregation(table, aggregationSpec, restrictions),
                                                        orderingComparator,
                                                        prepareLimit(boundNames, limit, keyspace(), limitReceiver()),
                                                        prepareLimit(boundNames, perPartitionLimit, keyspace(), perPartitionLimitReceiver()));
@@ -1001,6 +1139,28 @@ public class SelectStatement implements CQLStatement
             return new ParsedStatement.Prepared(stmt, boundNames, boundNames.getPartitionKeyBindIndexes(table));
         }
 
+        /**
+         * Returns the aggregates that the replicas can compute for this statement, if it aggregates all the selected
+         * rows into a single one and its selectors are all supported by {@link PartialAggregation}.
+         */
+        private PartialAggregation preparePartialAggregation(TableMetadata table,
+                                                             AggregationSpecification aggregationSpec,
+                                                             StatementRestrictions restrictions)
+        {
+            if (aggregationSpec != AggregationSpecification.AGGREGATE_EVERYTHING
+                || parameters.isJson
+                || parameters.isDistinct
+                || !parameters.orderings.isEmpty()
+                || restrictions.usesSecondaryIndexing())
+                return null;
+
+            List<Selectable> selectables = new ArrayList<>(selectClause.size());
+            for (RawSelector raw : selectClause)
+                selectables.add(raw.selectable.prepare(table));
+
+            return PartialAggregation.forSelectables(selectables, returnStaticContentOnPartitionWithNoRows(table, restrictions));
+        }
+
         private Selection prepareSelection(TableMetadata table,
                                            List<Selectable> selectables,
                                            VariableSpecifications boundNames,
@@ -92,6 +92,7 @@ public final class SystemKeyspace
     public static final String BATCHES = "batches";
     public static final String PAXOS = "paxos";
     public static final String BUILT_INDEXES = "IndexInfo";
+    public static final String INDEX_BUILDS_IN_PROGRESS = "index_builds_in_progress";
     public static final String LOCAL = "local";
     public static final String PEERS_V2 = "peers_v2";
     public static final String PEER_EVENTS_V2 = "peer_events_v2";
@@ -150,6 +151,18 @@ public final class SystemKeyspace
               + "PRIMARY KEY ((table_name), index_name)) ")
               .build();
 
+    private static final TableMetadata IndexBuildsInProgress =
+        parse(INDEX_BUILDS_IN_PROGRESS,
+              "token ranges already covered by in progress index builds",
+              "CREATE TABLE %s ("
+              + "keyspace_name text,"
+              + "index_name text,"
+              + "start_token varchar,"
+              + "end_token varchar,"
+              + "keys_built bigint,"
+              + "PRIMARY KEY ((keyspace_name), index_name, start_token, end_token))")
+              .build();
+
     private static final TableMetadata Local =
         parse(LOCAL,
                 "information about the local node",
@@ -384,6 +397,7 @@ public final class SystemKeyspace
     private static Tables tables()
     {
         return Tables.of(BuiltIndexes,
+                         IndexBuildsInProgress,
                          Batches,
                          Paxos,
                          Local,
@@ -1055,6 +1069,52 @@ public final class SystemKeyspace
         forceBlockingFlush(BUILT_INDEXES);
     }
 
+    /**
+     * Records that a full build of the specified index has covered the specified token range, so that the build can
+     * be resumed from the remaining ranges if it is interrupted.
+     */
+    public static void updateIndexBuildStatus(String keyspaceName, String indexName, Range<Token> range, long keysBuilt)
+    {
+        String req = "INSERT INTO system.%s (keyspace_name, index_name, start_token, end_token, keys_built) VALUES (?, ?, ?, ?, ?)";
+        Token.TokenFactory factory = IndexBuildsInProgress.partitioner.getTokenFactory();
+        executeInternal(format(req, INDEX_BUILDS_IN_PROGRESS),
+                        keyspaceName,
+                        indexName,
+                        factory.toString(range.left),
+                        factory.toString(range.right),
+                        keysBuilt);
+    }
+
+    /**
+     * @return the token ranges already covered by an interrupted full build of the specified index, along with the
+     * number of keys built for each of them
+     */
+    public static Map<Range<Token>, Long> getIndexBuildStatus(String keyspaceName, String indexName)
+    {
+        String req = "SELECT start_token, end_token, keys_built FROM system.%s WHERE keyspace_name = ? AND index_name = ?";
+        Token.TokenFactory factory = IndexBuildsInProgress.partitioner.getTokenFactory();
+        UntypedResultSet rs = executeInternal(format(req, INDEX_BUILDS_IN_PROGRESS), keyspaceName, indexName);
+
+        if (rs == null || rs.isEmpty())
+            return Collections.emptyMap();
+
+        Map<Range<Token>, Long> status = new HashMap<>();
+        for (UntypedResultSet.Row row : rs)
+        {
+            Token start = factory.fromString(row.getString("start_token"));
+            Token end = factory.fromString(row.getString("end_token"));
+            long keysBuilt = row.has("keys_built") ? row.getLong("keys_built") : 0;
+            status.put(new Range<>(start, end), keysBuilt);
+        }
+        return status;
+    }
+
+    public static void clearIndexBuildStatus(String keyspaceName, String indexName)
+    {
+        String req = "DELETE FROM system.%s WHERE keyspace_name = ? AND index_name = ?";
+        executeInternal(format(req, INDEX_BUILDS_IN_PROGRESS), keyspaceName, indexName);
+    }
+
     public static List<String> getBuiltIndexes(String keyspaceName, Set<String> indexNames)
     {
         List<String> names = new ArrayList<>(indexNames);
@@ -0,0 +1,520 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.aggregation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.cassandra.cql3.functions.AggregateFcts;
+import org.apache.cassandra.cql3.functions.Function;
+import org.apache.cassandra.cql3.selection.Selectable;
+import org.apache.cassandra.db.Clustering;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.TypeSizes;
+import org.apache.cassandra.db.context.CounterContext;
+import org.apache.cassandra.db.marshal.*;
+import org.apache.cassandra.db.rows.BaseRowIterator;
+import org.apache.cassandra.db.rows.Cell;
+import org.apache.cassandra.db.rows.Row;
+import org.apache.cassandra.db.rows.RowIterator;
+import org.apache.cassandra.db.rows.UnfilteredRowIterator;
+import org.apache.cassandra.db.transform.Transformation;
+import org.apache.cassandra.io.util.DataInputPlus;
+import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.schema.ColumnMetadata;
+import org.apache.cassandra.schema.TableMetadata;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+/**
+ * The native aggregates of a query without {@code GROUP BY}, in a form that replicas can compute over their own data,
+ * and whose partial results the coordinator can merge.
+ * <p>
+ * Only the aggregates whose partial results merge exactly are supported: {@code count}, {@code sum} of integral
+ * types (which wraps around on overflow, so that adding partial sums gives the same result as adding the values)
+ * and {@code min}/{@code max}. Queries selecting anything else are aggregated on the coordinator as before.
+ */
+public final class PartialAggregation
+{
+    public static final Serializer serializer = new Serializer();
+
+    /**
+     * The supported aggregates.
+     */
+    public static enum Kind
+    {
+        COUNT_ROWS, COUNT, SUM, MIN, MAX
+    }
+
+    private final Kind[] kinds;
+
+    /**
+     * The aggregated column of each aggregate, {@code null} for {@code COUNT_ROWS}.
+     */
+    private final ColumnMetadata[] columns;
+
+    /**
+     * Whether a partition with only static content counts as a row, see
+     * {@code SelectStatement.returnStaticContentOnPartitionWithNoRows}.
+     */
+    private final boolean countStaticOnlyPartitions;
+
+    private PartialAggregation(Kind[] kinds, ColumnMetadata[] columns, boolean countStaticOnlyPartitions)
+    {
+        this.kinds = kinds;
+        this.columns = columns;
+        this.countStaticOnlyPartitions = countStaticOnlyPartitions;
+    }
+
+    /**
+     * Creates the <code>PartialAggregation</code> computing the specified selectors, if they can all be computed by
+     * replicas.
+     *
+     * @param selectables the selected expressions, without their aliases
+     * @param countStaticOnlyPartitions whether a partition with only static content counts as a row
+     * @return the <code>PartialAggregation</code> computing the specified selectors, or {@code null} if any of
+     * them is not a supported aggregate of a regular column
+     */
+    public static PartialAggregation forSelectables(List<Selectable> selectables, boolean countStaticOnlyPartitions)
+    {
+        if (selectables.isEmpty())
+            return null;
+
+        Kind[] kinds = new Kind[selectables.size()];
+        ColumnMetadata[] columns = new ColumnMetadata[selectables.size()];
+        for (int i = 0; i < kinds.length; i++)
+        {
+            Selectable selectable = selectables.get(i);
+            if (!(selectable instanceof Selectable.WithFunction))
+                return null;
+
+            Function function = ((Selectable.WithFunction) selectable).function;
+            List<Selectable> args = ((Selectable.WithFunction) selectable).args;
+            if (!function.isNative() || !function.isAggregate())
+                return null;
+
+            if (function.name().equals(AggregateFcts.countRowsFunction.name()))
+            {
+                kinds[i] = Kind.COUNT_ROWS;
+                continue;
+            }
+
+            if (args.size() != 1 || !(args.get(0) instanceof ColumnMetadata))
+                return null;
+
+            ColumnMetadata column = (ColumnMetadata) args.get(0);
+            if (!column.isRegular() || column.isComplex() || !function.argTypes().get(0).equals(column.type))
+                return null;
+
+            switch (function.name().name)
+            {
+                case "count":
+                    kinds[i] = Kind.COUNT;
+                    break;
+                case "sum":
+                    if (!isIntegral(column.type))
+                        return null;
+                    kinds[i] = Kind.SUM;
+                    break;
+                case "min":
+                    kinds[i] = Kind.MIN;
+                    break;
+                case "max":
+                    kinds[i] = Kind.MAX;
+                    break;
+                default:
+                    return null;
+            }
+            columns[i] = column;
+        }
+        return new PartialAggregation(kinds, columns, countStaticOnlyPartitions);
+    }
+
+    private static boolean isIntegral(AbstractType<?> type)
+    {
+        return type == ByteType.instance
+            || type == ShortType.instance
+            || type == Int32Type.instance
+            || type == LongType.instance
+            || type.isCounter();
+    }
+
+    /**
+     * Creates a new, empty, aggregation state.
+     */
+    public State newState()
+    {
+        return new State(new long[kinds.length], new ByteBuffer[kinds.length]);
+    }
+
+    /**
+     * Creates a new <code>Aggregator</code> adding the live rows of the partitions it is applied to to the specified
+     * state.
+     *
+     * @param state the state to add the rows to
+     * @param nowInSec the query time
+     * @param enforceStrictLiveness whether the rows without a live primary key liveness are dead
+     * @param resumedKey the key of the partition the page resumes, if any. That partition was counted by the previous
+     * page, so it doesn't count as a partition with only static content if it has no more rows.
+     */
+    public Aggregator newAggregator(State state, int nowInSec, boolean enforceStrictLiveness, ByteBuffer resumedKey)
+    {
+        return new Aggregator(state, nowInSec, enforceStrictLiveness, resumedKey);
+    }
+
+    /**
+     * Merges a partial state into another one. Partial states must be merged in token order for {@code min} and
+     * {@code max} to return the same value as the coordinator would if several values compare as equal.
+     *
+     * @param state the state to merge into
+     * @param partial the state to merge
+     */
+    public void merge(State state, State partial)
+    {
+        for (int i = 0; i < kinds.length; i++)
+        {
+            switch (kinds[i])
+            {
+                case COUNT_ROWS:
+                case COUNT:
+                case SUM:
+                    state.longs[i] += partial.longs[i];
+                    break;
+                case MIN:
+                case MAX:
+                    addValue(state, i, partial.values[i]);
+                    break;
+                default:
+                    throw new AssertionError();
+            }
+        }
+    }
+
+    /**
+     * Returns the values of the aggregates, as the corresponding aggregate functions would have computed them.
+     */
+    public List<ByteBuffer> compute(State state)
+    {
+        List<ByteBuffer> values = new ArrayList<>(kinds.length);
+        for (int i = 0; i < kinds.length; i++)
+        {
+            switch (kinds[i])
+            {
+                case COUNT_ROWS:
+                case COUNT:
+                    values.add(LongType.instance.decompose(state.longs[i]));
+                    break;
+                case SUM:
+                    values.add(decomposeSum(columns[i].type, state.longs[i]));
+                    break;
+                case MIN:
+                case MAX:
+                    values.add(state.values[i]);
+                    break;
+                default:
+                    throw new AssertionError();
+            }
+        }
+        return values;
+    }
+
+    private static ByteBuffer decomposeSum(AbstractType<?> type, long sum)
+    {
+        if (type == ByteType.instance)
+            return ByteType.instance.decompose((byte) sum);
+        if (type == ShortType.instance)
+            return ShortType.instance.decompose((short) sum);
+        if (type == Int32Type.instance)
+            return Int32Type.instance.decompose((int) sum);
+        return LongType.instance.decompose(sum);
+    }
+
+    private void addRow(State state, Row row, int nowInSec)
+    {
+        for (int i = 0; i < kinds.length; i++)
+        {
+            if (kinds[i] == Kind.COUNT_ROWS)
+            {
+                state.longs[i]++;
+                continue;
+            }
+
+            Cell cell = row.getCell(columns[i]);
+            if (cell == null || !cell.isLive(nowInSec))
+                continue;
+
+            ByteBuffer value = cell.isCounterCell()
+                             ? ByteBufferUtil.bytes(CounterContext.instance().total(cell.value()))
+                             : cell.value();
+            switch (kinds[i])
+            {
+                case COUNT:
+                    state.longs[i]++;
+                    break;
+                case SUM:
+                    if (value.hasRemaining())
+                        state.longs[i] += readLong(columns[i].type, value);
+                    break;
+                case MIN:
+                case MAX:
+                    addValue(state, i, value);
+                    break;
+                default:
+                    throw new AssertionError();
+            }
+        }
+    }
+
+    private void addStaticOnlyPartition(State state)
+    {
+        // All the aggregated columns are regular ones, so only count(*) sees the row
+        for (int i = 0; i < kinds.length; i++)
+        {
+            if (kinds[i] == Kind.COUNT_ROWS)
+                state.longs[i]++;
+        }
+    }
+
+    private static long readLong(AbstractType<?> type, ByteBuffer value)
+    {
+        if (type == ByteType.instance)
+            return value.get(value.position());
+        if (type == ShortType.instance)
+            return value.getShort(value.position());
+        if (type == Int32Type.instance)
+            return value.getInt(value.position());
+        return value.getLong(value.position());
+    }
+
+    private void addValue(State state, int i, ByteBuffer value)
+    {
+        if (value == null)
+            return;
+
+        // counter values are their totals, which min and max compare as longs
+        AbstractType<?> type = columns[i].type.isCounter() ? LongType.instance : columns[i].type;
+
+        ByteBuffer current = state.values[i];
+        int cmp = current == null ? 0 : type.compare(current, value);
+        // the values may point to memtable memory, which can be reclaimed once the read completes
+        if (current == null || (kinds[i] == Kind.MIN ? cmp > 0 : cmp < 0))
+            state.values[i] = ByteBufferUtil.clone(value);
+    }
+
+    /**
+     * The partial results of a <code>PartialAggregation</code>: the counts and sums, and the current minimum and
+     * maximum values.
+     */
+    public static final class State
+    {
+        public static final StateSerializer serializer = new StateSerializer();
+
+        private final long[] longs;
+        private final ByteBuffer[] values;
+
+        private State(long[] longs, ByteBuffer[] values)
+        {
+            this.longs = longs;
+            this.values = values;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("State(%s, %s)", Arrays.toString(longs), Arrays.toString(values));
+        }
+    }
+
+    /**
+     * Adds the live rows of the partitions it is applied to to a state, following the semantic of
+     * {@code SelectStatement.processPartition}, and records the last live row, from which the next page has to
+     * resume. It can be applied to filtered or unfiltered partitions.
+     */
+    public final class Aggregator extends Transformation<BaseRowIterator<?>>
+    {
+        private final State state;
+        private final int nowInSec;
+        private final boolean enforceStrictLiveness;
+        private final ByteBuffer resumedKey;
+
+        private DecoratedKey currentKey;
+        private boolean hasLiveStatic;
+        private boolean hasLiveRows;
+
+        private DecoratedKey lastKey;
+        private Clustering lastClustering;
+
+        private Aggregator(State state, int nowInSec, boolean enforceStrictLiveness, ByteBuffer resumedKey)
+        {
+            this.state = state;
+            this.nowInSec = nowInSec;
+            this.enforceStrictLiveness = enforceStrictLiveness;
+            this.resumedKey = resumedKey;
+        }
+
+        @Override
+        protected BaseRowIterator<?> applyToPartition(BaseRowIterator<?> partition)
+        {
+            currentKey = partition.partitionKey();
+            hasLiveStatic = false;
+            hasLiveRows = false;
+            return partition instanceof UnfilteredRowIterator ? Transformation.apply((UnfilteredRowIterator) partition, this)
+                                                              : Transformation.apply((RowIterator) partition, this);
+        }
+
+        @Override
+        protected Row applyToStatic(Row row)
+        {
+            if (!row.isEmpty() && row.hasLiveData(nowInSec, enforceStrictLiveness))
+            {
+                hasLiveStatic = true;
+                lastKey = currentKey;
+                lastClustering = null;
+            }
+            return row;
+        }
+
+        @Override
+        protected Row applyToRow(Row row)
+        {
+            if (row.hasLiveData(nowInSec, enforceStrictLiveness))
+            {
+                hasLiveRows = true;
+                addRow(state, row, nowInSec);
+                lastKey = currentKey;
+                lastClustering = row.clustering() == Clustering.EMPTY ? null : row.clustering();
+            }
+            return row;
+        }
+
+        @Override
+        protected void onPartitionClose()
+        {
+            if (!hasLiveRows && hasLiveStatic && countStaticOnlyPartitions && !currentKey.getKey().equals(resumedKey))
+                addStaticOnlyPartition(state);
+        }
+
+        /**
+         * The key of the partition of the last live row, or {@code null} if there was none.
+         */
+        public DecoratedKey lastKey()
+        {
+            return lastKey;
+        }
+
+        /**
+         * The clustering of the last live row, or {@code null} if the last live row was a static one or the table
+         * has no clustering columns, meaning that there is nothing left to read in its partition.
+         */
+        public Clustering lastClustering()
+        {
+            return lastClustering;
+        }
+    }
+
+    public static class Serializer
+    {
+        public void serialize(PartialAggregation aggregation, DataOutputPlus out, int version) throws IOException
+        {
+            out.writeBoolean(aggregation.countStaticOnlyPartitions);
+            out.writeUnsignedVInt(aggregation.kinds.length);
+            for (int i = 0; i < aggregation.kinds.length; i++)
+            {
+                out.writeByte(aggregation.kinds[i].ordinal());
+                if (aggregation.kinds[i] != Kind.COUNT_ROWS)
+                    ByteBufferUtil.writeWithVIntLength(aggregation.columns[i].name.bytes, out);
+            }
+        }
+
+        public PartialAggregation deserialize(DataInputPlus in, int version, TableMetadata metadata) throws IOException
+        {
+            boolean countStaticOnlyPartitions = in.readBoolean();
+            int size = (int) in.readUnsignedVInt();
+            Kind[] kinds = new Kind[size];
+            ColumnMetadata[] columns = new ColumnMetadata[size];
+            for (int i = 0; i < size; i++)
+            {
+                kinds[i] = Kind.values()[in.readUnsignedByte()];
+                if (kinds[i] == Kind.COUNT_ROWS)
+                    continue;
+
+                ByteBuffer name = ByteBufferUtil.readWithVIntLength(in);
+                columns[i] = metadata.getColumn(name);
+                if (columns[i] == null)
+                    throw new RuntimeException("Unknown (or dropped) column " + UTF8Type.instance.getString(name) + " during deserialization");
+            }
+            return new PartialAggregation(kinds, columns, countStaticOnlyPartitions);
+        }
+
+        public long serializedSize(PartialAggregation aggregation, int version)
+        {
+            long size = TypeSizes.sizeof(aggregation.countStaticOnlyPartitions)
+                      + TypeSizes.sizeofUnsignedVInt(aggregation.kinds.length);
+            for (int i = 0; i < aggregation.kinds.length; i++)
+            {
+                size += TypeSizes.sizeof((byte) aggregation.kinds[i].ordinal());
+                if (aggregation.kinds[i] != Kind.COUNT_ROWS)
+                    size += ByteBufferUtil.serializedSizeWithVIntLength(aggregation.columns[i].name.bytes);
+            }
+            return size;
+        }
+    }
+
+    public static class StateSerializer
+    {
+        public void serialize(State state, DataOutputPlus out, int version) throws IOException
+        {
+            out.writeUnsignedVInt(state.longs.length);
+            for (int i = 0; i < state.longs.length; i++)
+            {
+                out.writeLong(state.longs[i]);
+                out.writeBoolean(state.values[i] != null);
+                if (state.values[i] != null)
+                    ByteBufferUtil.writeWithVIntLength(state.values[i], out);
+            }
+        }
+
+        public State deserialize(DataInputPlus in, int version) throws IOException
+        {
+            int size = (int) in.readUnsignedVInt();
+            long[] longs = new long[size];
+            ByteBuffer[] values = new ByteBuffer[size];
+            for (int i = 0; i < size; i++)
+            {
+                longs[i] = in.readLong();
+                if (in.readBoolean())
+                    values[i] = ByteBufferUtil.readWithVIntLength(in);
+            }
+            return new State(longs, values);
+        }
+
+        public long serializedSize(State state, int version)
+        {
+            long size = TypeSizes.sizeofUnsignedVInt(state.longs.length);
+            for (int i = 0; i < state.longs.length; i++)
+            {
+                size += TypeSizes.sizeof(state.longs[i]) + TypeSizes.sizeof(state.values[i] != null);
+                if (state.values[i] != null)
+                    size += ByteBufferUtil.serializedSizeWithVIntLength(state.values[i]);
+            }
+            return size;
+        }
+    }
+}
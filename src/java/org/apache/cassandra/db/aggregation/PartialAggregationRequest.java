@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.aggregation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.google.common.hash.Hasher;
+
+import org.apache.cassandra.db.ReadCommand;
+import org.apache.cassandra.db.ReadExecutionController;
+import org.apache.cassandra.db.TypeSizes;
+import org.apache.cassandra.db.filter.DataLimits;
+import org.apache.cassandra.db.partitions.UnfilteredPartitionIterator;
+import org.apache.cassandra.db.partitions.UnfilteredPartitionIterators;
+import org.apache.cassandra.db.rows.UnfilteredRowIterator;
+import org.apache.cassandra.db.transform.Transformation;
+import org.apache.cassandra.io.IVersionedSerializer;
+import org.apache.cassandra.io.util.DataInputPlus;
+import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.net.MessageOut;
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.HashingUtils;
+
+/**
+ * Asks a replica to compute the partial aggregates of a page of a query over its own data, see
+ * {@link PartialAggregation}.
+ */
+public final class PartialAggregationRequest
+{
+    public static final IVersionedSerializer<PartialAggregationRequest> serializer = new Serializer();
+
+    /**
+     * The digest version used when the coordinator doesn't need the digest of the replica data.
+     */
+    public static final int NO_DIGEST = -1;
+
+    public final ReadCommand command;
+    public final PartialAggregation aggregation;
+
+    /**
+     * The key of the partition this page resumes, or {@code null} if it doesn't resume a partition.
+     */
+    public final ByteBuffer resumedKey;
+
+    /**
+     * The version of the digest of the data the aggregates are computed from, which the coordinator compares to the
+     * digests of the other replicas, or {@link #NO_DIGEST}.
+     */
+    public final int digestVersion;
+
+    public PartialAggregationRequest(ReadCommand command, PartialAggregation aggregation, ByteBuffer resumedKey, int digestVersion)
+    {
+        this.command = command;
+        this.aggregation = aggregation;
+        this.resumedKey = resumedKey;
+        this.digestVersion = digestVersion;
+    }
+
+    public MessageOut<PartialAggregationRequest> createMessage()
+    {
+        return new MessageOut<>(MessagingService.Verb.PARTIAL_AGGREGATE, this, serializer);
+    }
+
+    /**
+     * Computes the aggregates over the local data, and the digest of that data if requested, in a single pass.
+     */
+    public PartialAggregationResponse execute()
+    {
+        PartialAggregation.State state = aggregation.newState();
+        DataLimits.Counter counter = command.limits().newCounter(command.nowInSec(),
+                                                                 false,
+                                                                 command.selectsFullPartition(),
+                                                                 command.metadata().enforceStrictLiveness())
+                                                     .onlyCount();
+        PartialAggregation.Aggregator aggregator = aggregation.newAggregator(state,
+                                                                             command.nowInSec(),
+                                                                             command.metadata().enforceStrictLiveness(),
+                                                                             resumedKey);
+        ByteBuffer digest = null;
+        try (ReadExecutionController executionController = command.executionController();
+             UnfilteredPartitionIterator iterator = Transformation.apply(counter.applyTo(command.executeLocally(executionController)), aggregator))
+        {
+            if (digestVersion == NO_DIGEST)
+            {
+                consume(iterator);
+            }
+            else
+            {
+                // the same digest as ReadResponse.createDigestResponse, so that it can be compared to digest responses
+                Hasher hasher = HashingUtils.CURRENT_HASH_FUNCTION.newHasher();
+                UnfilteredPartitionIterators.digest(iterator, hasher, digestVersion);
+                digest = ByteBuffer.wrap(hasher.hash().asBytes());
+            }
+        }
+
+        return PartialAggregationResponse.create(command.metadata(),
+                                                 state,
+                                                 command.limits().isExhausted(counter),
+                                                 aggregator.lastKey(),
+                                                 aggregator.lastClustering(),
+                                                 digest);
+    }
+
+    private static void consume(UnfilteredPartitionIterator iterator)
+    {
+        while (iterator.hasNext())
+        {
+            try (UnfilteredRowIterator partition = iterator.next())
+            {
+                while (partition.hasNext())
+                    partition.next();
+            }
+        }
+    }
+
+    private static class Serializer implements IVersionedSerializer<PartialAggregationRequest>
+    {
+        public void serialize(PartialAggregationRequest request, DataOutputPlus out, int version) throws IOException
+        {
+            ReadCommand.serializer.serialize(request.command, out, version);
+            PartialAggregation.serializer.serialize(request.aggregation, out, version);
+            out.writeBoolean(request.resumedKey != null);
+            if (request.resumedKey != null)
+                ByteBufferUtil.writeWithVIntLength(request.resumedKey, out);
+            out.writeBoolean(request.digestVersion != NO_DIGEST);
+            if (request.digestVersion != NO_DIGEST)
+                out.writeUnsignedVInt(request.digestVersion);
+        }
+
+        public PartialAggregationRequest deserialize(DataInputPlus in, int version) throws IOException
+        {
+            ReadCommand command = ReadCommand.serializer.deserialize(in, version);
+            PartialAggregation aggregation = PartialAggregation.serializer.deserialize(in, version, command.metadata());
+            ByteBuffer resumedKey = in.readBoolean() ? ByteBufferUtil.readWithVIntLength(in) : null;
+            int digestVersion = in.readBoolean() ? (int) in.readUnsignedVInt() : NO_DIGEST;
+            return new PartialAggregationRequest(command, aggregation, resumedKey, digestVersion);
+        }
+
+        public long serializedSize(PartialAggregationRequest request, int version)
+        {
+            long size = ReadCommand.serializer.serializedSize(request.command, version)
+                      + PartialAggregation.serializer.serializedSize(request.aggregation, version)
+                      + TypeSizes.sizeof(request.resumedKey != null)
+                      + TypeSizes.sizeof(request.digestVersion != NO_DIGEST);
+            if (request.resumedKey != null)
+                size += ByteBufferUtil.serializedSizeWithVIntLength(request.resumedKey);
+            if (request.digestVersion != NO_DIGEST)
+                size += TypeSizes.sizeofUnsignedVInt(request.digestVersion);
+            return size;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.aggregation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.cassandra.db.Clustering;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.TypeSizes;
+import org.apache.cassandra.io.IVersionedSerializer;
+import org.apache.cassandra.io.util.DataInputPlus;
+import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.schema.TableMetadata;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+/**
+ * The partial aggregates of a page computed by a replica, along with where the next page resumes and, if requested,
+ * the digest of the data they were computed from.
+ */
+public final class PartialAggregationResponse
+{
+    public static final IVersionedSerializer<PartialAggregationResponse> serializer = new Serializer();
+
+    // The clustering is sent serialized, as the table is needed to deserialize it. Like PagingState.RowMark, we use a
+    // fixed version for it, as it doesn't depend on the version of the node that sent it.
+    private static final int CLUSTERING_VERSION = MessagingService.VERSION_30;
+
+    public final PartialAggregation.State state;
+
+    /**
+     * Whether the page returned less rows than its limit, in which case there is no next page.
+     */
+    public final boolean isExhausted;
+
+    private final ByteBuffer lastKey;
+    private final ByteBuffer lastClustering;
+
+    /**
+     * The digest of the data, or {@code null} if it wasn't requested.
+     */
+    public final ByteBuffer digest;
+
+    private PartialAggregationResponse(PartialAggregation.State state, boolean isExhausted, ByteBuffer lastKey, ByteBuffer lastClustering, ByteBuffer digest)
+    {
+        this.state = state;
+        this.isExhausted = isExhausted;
+        this.lastKey = lastKey;
+        this.lastClustering = lastClustering;
+        this.digest = digest;
+    }
+
+    public static PartialAggregationResponse create(TableMetadata metadata,
+                                                    PartialAggregation.State state,
+                                                    boolean isExhausted,
+                                                    DecoratedKey lastKey,
+                                                    Clustering lastClustering,
+                                                    ByteBuffer digest)
+    {
+        return new PartialAggregationResponse(state,
+                                              isExhausted,
+                                              lastKey == null ? null : lastKey.getKey(),
+                                              lastClustering == null ? null : Clustering.serializer.serialize(lastClustering, CLUSTERING_VERSION, metadata.comparator.subtypes()),
+                                              digest);
+    }
+
+    /**
+     * The key of the partition of the last live row of the page, or {@code null} if it had none.
+     */
+    public DecoratedKey lastKey(TableMetadata metadata)
+    {
+        return lastKey == null ? null : metadata.partitioner.decorateKey(lastKey);
+    }
+
+    /**
+     * The clustering of the last live row of the page, or {@code null} if there is nothing left to read in its
+     * partition.
+     */
+    public Clustering lastClustering(TableMetadata metadata)
+    {
+        return lastClustering == null ? null : Clustering.serializer.deserialize(lastClustering, CLUSTERING_VERSION, metadata.comparator.subtypes());
+    }
+
+    private static class Serializer implements IVersionedSerializer<PartialAggregationResponse>
+    {
+        public void serialize(PartialAggregationResponse response, DataOutputPlus out, int version) throws IOException
+        {
+            PartialAggregation.State.serializer.serialize(response.state, out, version);
+            out.writeBoolean(response.isExhausted);
+            serializeNullable(response.lastKey, out);
+            serializeNullable(response.lastClustering, out);
+            serializeNullable(response.digest, out);
+        }
+
+        public PartialAggregationResponse deserialize(DataInputPlus in, int version) throws IOException
+        {
+            PartialAggregation.State state = PartialAggregation.State.serializer.deserialize(in, version);
+            boolean isExhausted = in.readBoolean();
+            ByteBuffer lastKey = deserializeNullable(in);
+            ByteBuffer lastClustering = deserializeNullable(in);
+            ByteBuffer digest = deserializeNullable(in);
+            return new PartialAggregationResponse(state, isExhausted, lastKey, lastClustering, digest);
+        }
+
+        public long serializedSize(PartialAggregationResponse response, int version)
+        {
+            return PartialAggregation.State.serializer.serializedSize(response.state, version)
+                 + TypeSizes.sizeof(response.isExhausted)
+                 + serializedSizeNullable(response.lastKey)
+                 + serializedSizeNullable(response.lastClustering)
+                 + serializedSizeNullable(response.digest);
+        }
+
+        private static void serializeNullable(ByteBuffer buffer, DataOutputPlus out) throws IOException
+        {
+            out.writeBoolean(buffer != null);
+            if (buffer != null)
+                ByteBufferUtil.writeWithVIntLength(buffer, out);
+        }
+
+        private static ByteBuffer deserializeNullable(DataInputPlus in) throws IOException
+        {
+            return in.readBoolean() ? ByteBufferUtil.readWithVIntLength(in) : null;
+        }
+
+        private static long serializedSizeNullable(ByteBuffer buffer)
+        {
+            return TypeSizes.sizeof(buffer != null) + (buffer == null ? 0 : ByteBufferUtil.serializedSizeWithVIntLength(buffer));
+        }
+    }
+}
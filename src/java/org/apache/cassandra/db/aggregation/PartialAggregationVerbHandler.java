@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.aggregation;
+
+import org.apache.cassandra.db.ReadCommand;
+import org.apache.cassandra.net.IVerbHandler;
+import org.apache.cassandra.net.MessageIn;
+import org.apache.cassandra.net.MessageOut;
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.tracing.Tracing;
+
+public class PartialAggregationVerbHandler implements IVerbHandler<PartialAggregationRequest>
+{
+    public void doVerb(MessageIn<PartialAggregationRequest> message, int id)
+    {
+        if (StorageService.instance.isBootstrapMode())
+        {
+            throw new RuntimeException("Cannot service reads while bootstrapping!");
+        }
+
+        ReadCommand command = message.payload.command;
+        command.setMonitoringTime(message.constructionTime, message.isCrossNode(), message.getTimeout(), message.getSlowQueryTimeout());
+
+        PartialAggregationResponse response = message.payload.execute();
+
+        if (!command.complete())
+        {
+            Tracing.trace("Discarding partial aggregation response to {} (timed out)", message.from);
+            MessagingService.instance().incrementDroppedMessages(message, message.getLifetimeInMS());
+            return;
+        }
+
+        Tracing.trace("Enqueuing partial aggregation response to {}", message.from);
+        MessageOut<PartialAggregationResponse> reply = new MessageOut<>(MessagingService.Verb.REQUEST_RESPONSE, response, PartialAggregationResponse.serializer);
+        MessagingService.instance().sendReply(reply, id, message.from);
+    }
+}
@@ -132,6 +132,7 @@ public class CompactionManager implements CompactionManagerMBean
     final Multiset<ColumnFamilyStore> compactingCF = ConcurrentHashMultiset.create();
 
     private final RateLimiter compactionRateLimiter = RateLimiter.create(Double.MAX_VALUE);
+    private final RateLimiter indexBuildRateLimiter = RateLimiter.create(Double.MAX_VALUE);
 
     public CompactionMetrics getMetrics()
     {
@@ -165,6 +166,32 @@ public class CompactionManager implements CompactionManagerMBean
             compactionRateLimiter.setRate(throughput);
     }
 
+    /**
+     * Gets the secondary index build rate limiter, which is independent of the compaction one.
+     * Rate unit is bytes per sec.
+     *
+     * @return RateLimiter with rate limit set
+     */
+    public RateLimiter getIndexBuildRateLimiter()
+    {
+        setIndexBuildRate(DatabaseDescriptor.getIndexBuildThroughputMbPerSec());
+        return indexBuildRateLimiter;
+    }
+
+    /**
+     * Sets the rate for the index build rate limiter. When index_build_throughput_mb_per_sec is 0 or node is
+     * bootstrapping, this sets the rate to Double.MAX_VALUE bytes per second.
+     * @param throughPutMbPerSec throughput to set in mb per second
+     */
+    public void setIndexBuildRate(final double throughPutMbPerSec)
+    {
+        double throughput = throughPutMbPerSec * 1024.0 * 1024.0;
+        if (throughput == 0 || StorageService.instance.isBootstrapMode())
+            throughput = Double.MAX_VALUE;
+        if (indexBuildRateLimiter.getRate() != throughput)
+            indexBuildRateLimiter.setRate(throughput);
+    }
+
     /**
      * Call this whenever a compaction might be needed on the given columnfamily.
      * It's okay to over-call (within reason) if a call is unnecessary, it will
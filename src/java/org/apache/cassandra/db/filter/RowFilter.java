@@ -43,6 +43,7 @@ import org.apache.cassandra.schema.IndexMetadata;
 import org.apache.cassandra.schema.TableMetadata;
 import org.apache.cassandra.utils.ByteBufferUtil;
 import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.FastByteOperations;
 
 import static org.apache.cassandra.cql3.statements.RequestValidations.checkBindValueSet;
 import static org.apache.cassandra.cql3.statements.RequestValidations.checkFalse;
@@ -168,14 +169,17 @@ public abstract class RowFilter implements Iterable<RowFilter.Expression>
      */
     public boolean partitionKeyRestrictionsAreSatisfiedBy(DecoratedKey key, AbstractType<?> keyValidator)
     {
+        ByteBuffer[] components = null;
         for (Expression e : expressions)
         {
             if (!e.column.isPartitionKey())
                 continue;
 
-            ByteBuffer value = keyValidator instanceof CompositeType
-                             ? ((CompositeType) keyValidator).split(key.getKey())[e.column.position()]
-                             : key.getKey();
+            // split the key only once, as it's tested for each of its restricted components
+            if (components == null && keyValidator instanceof CompositeType)
+                components = ((CompositeType) keyValidator).split(key.getKey());
+
+            ByteBuffer value = components != null ? components[e.column.position()] : key.getKey();
             if (!e.operator().isSatisfiedBy(e.column.type, value, e.value))
                 return false;
         }
@@ -570,9 +574,16 @@ public abstract class RowFilter implements Iterable<RowFilter.Expression>
      */
     public static class SimpleExpression extends Expression
     {
+        /**
+         * The comparison of the column values against the value of this expression, specialized for the column type
+         * and the operator, or {@code null} if they are compared through {@link Operator#isSatisfiedBy}.
+         */
+        private final ValueMatcher matcher;
+
         SimpleExpression(ColumnMetadata column, Operator operator, ByteBuffer value)
         {
             super(column, operator, value);
+            this.matcher = ValueMatcher.create(column, operator, value);
         }
 
         public boolean isSatisfiedBy(TableMetadata metadata, DecoratedKey partitionKey, Row row)
@@ -581,6 +592,12 @@ public abstract class RowFilter implements Iterable<RowFilter.Expression>
             // TODO: we should try to merge both code someday.
             assert value != null;
 
+            if (matcher != null)
+            {
+                ByteBuffer foundValue = getValue(metadata, partitionKey, row);
+                return foundValue != null && matcher.matches(foundValue);
+            }
+
             switch (operator)
             {
                 case EQ:
@@ -716,6 +733,155 @@ public abstract class RowFilter implements Iterable<RowFilter.Expression>
         }
     }
 
+    /**
+     * The comparison of the values of a column against the value of a {@link SimpleExpression}, created once per
+     * expression rather than dispatched on the operator and compared through the generic methods of the column type
+     * for every filtered row. The value of the expression is decoded once for the fixed-width numeric types, and
+     * counters are compared on their total without re-encoding it.
+     * <p>
+     * Only the comparison operators are specialized. Values that don't have the width of their type, which
+     * the types order specifically, are compared through {@link Operator#isSatisfiedBy}.
+     */
+    private static abstract class ValueMatcher
+    {
+        protected final Operator operator;
+        protected final AbstractType<?> type;
+        protected final ByteBuffer value;
+
+        // whether the values lower than, equal to and greater than the expression value satisfy the operator
+        private final boolean ifLower;
+        private final boolean ifEqual;
+        private final boolean ifGreater;
+
+        private ValueMatcher(Operator operator, AbstractType<?> type, ByteBuffer value)
+        {
+            this.operator = operator;
+            this.type = type;
+            this.value = value;
+            this.ifLower = operator == Operator.LT || operator == Operator.LTE;
+            this.ifEqual = operator == Operator.EQ || operator == Operator.LTE || operator == Operator.GTE;
+            this.ifGreater = operator == Operator.GT || operator == Operator.GTE;
+        }
+
+        /**
+         * Creates the matcher for the specified expression.
+         *
+         * @return the matcher for the expression, or {@code null} if it has to be evaluated generically
+         */
+        static ValueMatcher create(ColumnMetadata column, Operator operator, ByteBuffer value)
+        {
+            // null and unset values are rejected when the expression is validated
+            if (value == null || value == ByteBufferUtil.UNSET_BYTE_BUFFER || column.isComplex())
+                return null;
+
+            switch (operator)
+            {
+                case EQ:
+                case LT:
+                case LTE:
+                case GTE:
+                case GT:
+                    break;
+                default:
+                    return null;
+            }
+
+            // CQL comparisons ignore the ordering of clustering columns, see ReversedType#compareForCQL
+            AbstractType<?> type = column.type.isReversed() ? ((ReversedType<?>) column.type).baseType : column.type;
+
+            if (type.isCounter())
+                return value.remaining() == 8 ? new CounterMatcher(operator, value) : null;
+
+            if (type == Int32Type.instance && value.remaining() == 4)
+                return new IntMatcher(operator, type, value);
+
+            if ((type == LongType.instance || type == TimestampType.instance) && value.remaining() == 8)
+                return new LongMatcher(operator, type, value);
+
+            if (type.isByteOrderComparable)
+                return new ByteOrderMatcher(operator, type, value);
+
+            return null;
+        }
+
+        protected boolean accepts(int comparison)
+        {
+            return comparison < 0 ? ifLower : comparison == 0 ? ifEqual : ifGreater;
+        }
+
+        /**
+         * Whether the specified (non null) column value satisfies the expression.
+         */
+        abstract boolean matches(ByteBuffer foundValue);
+    }
+
+    private static final class IntMatcher extends ValueMatcher
+    {
+        private final int decoded;
+
+        private IntMatcher(Operator operator, AbstractType<?> type, ByteBuffer value)
+        {
+            super(operator, type, value);
+            this.decoded = value.getInt(value.position());
+        }
+
+        boolean matches(ByteBuffer foundValue)
+        {
+            return foundValue.remaining() == 4
+                 ? accepts(Integer.compare(foundValue.getInt(foundValue.position()), decoded))
+                 : operator.isSatisfiedBy(type, foundValue, value);
+        }
+    }
+
+    private static final class LongMatcher extends ValueMatcher
+    {
+        private final long decoded;
+
+        private LongMatcher(Operator operator, AbstractType<?> type, ByteBuffer value)
+        {
+            super(operator, type, value);
+            this.decoded = value.getLong(value.position());
+        }
+
+        boolean matches(ByteBuffer foundValue)
+        {
+            return foundValue.remaining() == 8
+                 ? accepts(Long.compare(foundValue.getLong(foundValue.position()), decoded))
+                 : operator.isSatisfiedBy(type, foundValue, value);
+        }
+    }
+
+    private static final class CounterMatcher extends ValueMatcher
+    {
+        private final long decoded;
+
+        private CounterMatcher(Operator operator, ByteBuffer value)
+        {
+            super(operator, LongType.instance, value);
+            this.decoded = value.getLong(value.position());
+        }
+
+        boolean matches(ByteBuffer foundValue)
+        {
+            // In order to support operators on Counter types, their value has to be extracted from internal
+            // representation. See CASSANDRA-11629
+            return accepts(Long.compare(CounterContext.instance().total(foundValue), decoded));
+        }
+    }
+
+    private static final class ByteOrderMatcher extends ValueMatcher
+    {
+        private ByteOrderMatcher(Operator operator, AbstractType<?> type, ByteBuffer value)
+        {
+            super(operator, type, value);
+        }
+
+        boolean matches(ByteBuffer foundValue)
+        {
+            return accepts(FastByteOperations.compareUnsigned(foundValue, value));
+        }
+    }
+
     /**
      * An expression of the form 'column' ['key'] = 'value' (which is only
      * supported when 'column' is a map).
@@ -24,6 +24,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.PeekingIterator;
@@ -34,6 +35,7 @@ import org.apache.cassandra.db.filter.*;
 import org.apache.cassandra.db.partitions.*;
 import org.apache.cassandra.db.rows.*;
 import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.schema.Schema;
 import org.apache.cassandra.schema.TableId;
 import org.apache.cassandra.schema.TableMetadata;
@@ -55,6 +57,18 @@ public class TableViews extends AbstractCollection<View>
     // list is the best option.
     private final List<View> views = new CopyOnWriteArrayList();
 
+    /*
+     * Skipping the read of the existing base row is only correct if no existing base deletion may shadow the update
+     * (see isIndependentOfExistingRow). We don't know the deletions of the partition without reading it, so we keep an
+     * upper bound of the timestamp of all the base deletions instead: those of the sstables, and those of the updates
+     * that went through this object. The memtables that existed before a view was added may contain deletions we
+     * haven't seen, so the bound is unknown until they are flushed.
+     */
+    private final AtomicLong maxSeenDeletionTimestamp = new AtomicLong(Long.MIN_VALUE);
+    private volatile Set<Memtable> untrackedMemtables = Collections.emptySet();
+    private volatile SSTablesDeletionBound sstablesDeletionBound;
+    private volatile ColumnFamilyStore baseCfs;
+
     public TableViews(TableId id)
     {
         baseTableMetadata = Schema.instance.getTableMetadataRef(id);
@@ -79,6 +93,17 @@ public class TableViews extends AbstractCollection<View>
     {
         // We should have validated that there is no existing view with this name at this point
         assert !contains(view.name);
+        synchronized (this)
+        {
+            baseCfs = view.getBaseCfs();
+            Set<Memtable> untracked = new HashSet<>(untrackedMemtables);
+            for (Memtable memtable : baseCfs.getTracker().getView().getAllMemtables())
+            {
+                if (!memtable.isClean())
+                    untracked.add(memtable);
+            }
+            untrackedMemtables = untracked;
+        }
         return views.add(view);
     }
 
@@ -117,6 +142,9 @@ public class TableViews extends AbstractCollection<View>
     /**
      * Calculates and pushes updates to the views replicas. The replicas are determined by
      * {@link ViewUtils#getViewNaturalEndpoint(String, Token, Token)}.
+     * <p>
+     * The existing base rows are read only for the updated rows whose view updates depend on them, see
+     * {@link View#isIndependentOfExistingRow}.
      *
      * @param update an update on the base table represented by this object.
      * @param writeCommitLog whether we should write the commit log for the view updates.
@@ -133,20 +161,35 @@ public class TableViews extends AbstractCollection<View>
         // Read modified rows
         int nowInSec = FBUtilities.nowInSeconds();
         long queryStartNanoTime = System.nanoTime();
-        SinglePartitionReadCommand command = readExistingRowsCommand(update, views, nowInSec);
+        long maxDeletionTimestamp = maxDeletionTimestamp();
+        if (hasDeletions(update))
+            maxSeenDeletionTimestamp.accumulateAndGet(update.maxTimestamp(), Math::max);
+        SinglePartitionReadCommand command = readExistingRowsCommand(update, views, maxDeletionTimestamp, nowInSec);
+        Collection<Mutation> mutations;
         if (command == null)
-            return;
+        {
+            // There is nothing to read, but the rows whose view updates don't depend on the existing rows may still
+            // have to be pushed to the views
+            if (!anyRowAffectsViews(update, views))
+                return;
 
-        ColumnFamilyStore cfs = Keyspace.openAndGetStore(update.metadata());
-        long start = System.nanoTime();
-        Collection<Mutation> mutations;
-        try (ReadExecutionController orderGroup = command.executionController();
-             UnfilteredRowIterator existings = UnfilteredPartitionIterators.getOnlyElement(command.executeLocally(orderGroup), command);
-             UnfilteredRowIterator updates = update.unfilteredIterator())
+            try (UnfilteredRowIterator existings = EmptyIterators.unfilteredRow(update.metadata(), update.partitionKey(), false);
+                 UnfilteredRowIterator updates = update.unfilteredIterator())
+            {
+                mutations = Iterators.getOnlyElement(generateViewUpdates(views, updates, existings, nowInSec, false));
+            }
+        }
+        else
         {
-            mutations = Iterators.getOnlyElement(generateViewUpdates(views, updates, existings, nowInSec, false));
+            long start = System.nanoTime();
+            try (ReadExecutionController orderGroup = command.executionController();
+                 UnfilteredRowIterator existings = UnfilteredPartitionIterators.getOnlyElement(command.executeLocally(orderGroup), command);
+                 UnfilteredRowIterator updates = update.unfilteredIterator())
+            {
+                mutations = Iterators.getOnlyElement(generateViewUpdates(views, updates, existings, nowInSec, false));
+            }
+            Keyspace.openAndGetStore(update.metadata()).metric.viewReadTime.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
-        Keyspace.openAndGetStore(update.metadata()).metric.viewReadTime.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
 
         if (!mutations.isEmpty())
             StorageProxy.mutateMV(update.partitionKey().getKey(), mutations, writeCommitLog, baseComplete, queryStartNanoTime);
@@ -368,10 +411,11 @@ public class TableViews extends AbstractCollection<View>
      *
      * @param updates the base table updates being applied.
      * @param views the views potentially affected by {@code updates}.
+     * @param maxDeletionTimestamp an upper bound of the timestamp of the existing base deletions.
      * @param nowInSec the current time in seconds.
      * @return the command to use to read the base table rows required to generate view updates for {@code updates}.
      */
-    private SinglePartitionReadCommand readExistingRowsCommand(PartitionUpdate updates, Collection<View> views, int nowInSec)
+    private SinglePartitionReadCommand readExistingRowsCommand(PartitionUpdate updates, Collection<View> views, long maxDeletionTimestamp, int nowInSec)
     {
         Slices.Builder sliceBuilder = null;
         DeletionInfo deletionInfo = updates.deletionInfo();
@@ -412,8 +456,9 @@ public class TableViews extends AbstractCollection<View>
         BTreeSet.Builder<Clustering> namesBuilder = sliceBuilder == null ? BTreeSet.builder(metadata.comparator) : null;
         for (Row row : updates)
         {
-            // Don't read the existing state if we can prove the update won't affect any views
-            if (!affectsAnyViews(key, row, views))
+            // Don't read the existing state if we can prove the update won't affect any views, or that the views
+            // updates won't depend on it
+            if (!affectsAnyViews(key, row, views) || isIndependentOfExistingRow(key, row, views, maxDeletionTimestamp, nowInSec))
                 continue;
 
             if (namesBuilder == null)
@@ -458,6 +503,122 @@ public class TableViews extends AbstractCollection<View>
         return false;
     }
 
+    /**
+     * Whether the updates to apply to every view affected by the provided base row update can be computed without
+     * reading the existing base row (see {@link View#isIndependentOfExistingRow}). On top of what the views require,
+     * the update must be more recent than any existing base deletion, as it would otherwise be (partly) shadowed in
+     * the base table but not in the views.
+     */
+    private boolean isIndependentOfExistingRow(DecoratedKey partitionKey, Row update, Collection<View> views, long maxDeletionTimestamp, int nowInSec)
+    {
+        if (minTimestamp(update) <= maxDeletionTimestamp)
+            return false;
+
+        for (View view : views)
+        {
+            if (view.mayBeAffectedBy(partitionKey, update) && !view.isIndependentOfExistingRow(update, nowInSec))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean anyRowAffectsViews(PartitionUpdate updates, Collection<View> views)
+    {
+        for (Row row : updates)
+        {
+            if (affectsAnyViews(updates.partitionKey(), row, views))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return an upper bound of the timestamp of the deletions (including expiring data) in the base table, or
+     * {@code Long.MAX_VALUE} if it is not known.
+     */
+    private long maxDeletionTimestamp()
+    {
+        org.apache.cassandra.db.lifecycle.View current = baseCfs.getTracker().getView();
+        if (!untrackedMemtables.isEmpty())
+        {
+            for (Memtable memtable : current.getAllMemtables())
+            {
+                if (untrackedMemtables.contains(memtable))
+                    return Long.MAX_VALUE;
+            }
+
+            // they have all been flushed, so their deletions are now accounted for by the sstables
+            synchronized (this)
+            {
+                Set<Memtable> untracked = new HashSet<>(untrackedMemtables);
+                untracked.retainAll(ImmutableSet.copyOf(current.getAllMemtables()));
+                untrackedMemtables = untracked.isEmpty() ? Collections.emptySet() : untracked;
+            }
+        }
+
+        SSTablesDeletionBound bound = sstablesDeletionBound;
+        if (bound == null || bound.view != current)
+        {
+            long maxTimestamp = Long.MIN_VALUE;
+            for (SSTableReader sstable : current.liveSSTables())
+                maxTimestamp = Math.max(maxTimestamp, sstable.getMaxTimestamp());
+            bound = new SSTablesDeletionBound(current, maxTimestamp);
+            sstablesDeletionBound = bound;
+        }
+        return Math.max(bound.maxTimestamp, maxSeenDeletionTimestamp.get());
+    }
+
+    /**
+     * Whether the provided update may shadow some data, now or once its expiring data has expired.
+     */
+    private static boolean hasDeletions(PartitionUpdate update)
+    {
+        if (!update.deletionInfo().isLive())
+            return true;
+
+        for (Row row : update)
+        {
+            if (!row.deletion().isLive() || row.primaryKeyLivenessInfo().isExpiring())
+                return true;
+
+            for (ColumnData data : row)
+            {
+                if (data.column().isComplex() && !((ComplexColumnData) data).complexDeletion().isLive())
+                    return true;
+            }
+
+            for (Cell cell : row.cells())
+            {
+                if (cell.isTombstone() || cell.isExpiring())
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private static long minTimestamp(Row row)
+    {
+        long timestamp = row.primaryKeyLivenessInfo().isEmpty() ? Long.MAX_VALUE : row.primaryKeyLivenessInfo().timestamp();
+        for (Cell cell : row.cells())
+            timestamp = Math.min(timestamp, cell.timestamp());
+        return timestamp;
+    }
+
+    /**
+     * An upper bound of the timestamp of the deletions in the sstables of a given view of the base table.
+     */
+    private static class SSTablesDeletionBound
+    {
+        private final org.apache.cassandra.db.lifecycle.View view;
+        private final long maxTimestamp;
+
+        private SSTablesDeletionBound(org.apache.cassandra.db.lifecycle.View view, long maxTimestamp)
+        {
+            this.view = view;
+            this.maxTimestamp = maxTimestamp;
+        }
+    }
+
     /**
      * Given an existing base row and the update that we're going to apply to this row, generate the modifications
      * to apply to MVs using the provided {@code ViewUpdateGenerator}s.
@@ -78,6 +78,11 @@ public class View
         return definition;
     }
 
+    ColumnFamilyStore getBaseCfs()
+    {
+        return baseCfs;
+    }
+
     /**
      * This updates the columns stored which are dependent on the base TableMetadata.
      */
@@ -138,6 +143,46 @@ public class View
         return true;
     }
 
+    /**
+     * Whether the updates to apply to the view for the provided base update can be computed without knowing the
+     * existing base row, i.e. whether we can skip reading it before write.
+     * <p>
+     * This is the case when the view mirrors the base rows: it has no base non-PK column in its PK, so the update
+     * can't change the view entry the base row maps to, it includes all the base columns, so the entry liveness is
+     * the base row one, and it has no filter on the regular columns, so the update can't change whether the row
+     * matches the view. Applying the update as-is to the view entry then gives the same result as applying the
+     * difference between the existing and the merged rows, provided the update only adds live data: deletions are
+     * left to the regular path as they may have to remove an existing entry.
+     *
+     * @param update the update being applied.
+     * @param nowInSec the current time in seconds.
+     * @return {@code true} if the view updates for {@code update} don't depend on the existing base row.
+     */
+    public boolean isIndependentOfExistingRow(Row update, int nowInSec)
+    {
+        if (!baseNonPKColumnsInViewPK.isEmpty() || !definition.includeAllColumns)
+            return false;
+
+        if (!getSelectStatement().rowFilterForInternalCalls().isEmpty())
+            return false;
+
+        if (!update.deletion().isLive() || !update.hasLiveData(nowInSec, baseCfs.metadata().enforceStrictLiveness()))
+            return false;
+
+        for (ColumnData data : update)
+        {
+            if (data.column().isComplex() && !((ComplexColumnData) data).complexDeletion().isLive())
+                return false;
+        }
+
+        for (Cell cell : update.cells())
+        {
+            if (!cell.isLive(nowInSec))
+                return false;
+        }
+        return true;
+    }
+
     /**
      * Whether a given base row matches the view filter (and thus if is should have a corresponding entry).
      * <p>
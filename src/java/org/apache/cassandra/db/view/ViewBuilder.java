@@ -159,20 +159,29 @@ class ViewBuilder
 
         // Submit a new view build task for each building range.
         // We keep record of all the submitted tasks to be able of stopping them.
-        List<ListenableFuture<Long>> futures = pendingRanges.entrySet()
-                                                            .stream()
-                                                            .map(e -> new ViewBuilderTask(baseCfs,
-                                                                                          view,
-                                                                                          e.getKey(),
-                                                                                          e.getValue().left,
-                                                                                          e.getValue().right))
-                                                            .peek(tasks::add)
-                                                            .map(CompactionManager.instance::submitViewBuilder)
-                                                            .collect(toList());
+        List<ViewBuilderTask> newTasks = pendingRanges.entrySet()
+                                                      .stream()
+                                                      .map(e -> new ViewBuilderTask(baseCfs,
+                                                                                    view,
+                                                                                    e.getKey(),
+                                                                                    e.getValue().left,
+                                                                                    e.getValue().right))
+                                                      .collect(toList());
+        tasks.addAll(newTasks);
+        List<ListenableFuture<Long>> futures = newTasks.stream()
+                                                       .map(CompactionManager.instance::submitViewBuilder)
+                                                       .collect(toList());
+
+        // Once all the tasks are done, flush the view table once to record their ranges as built
+        ListenableFuture<List<Long>> future = Futures.transform(Futures.allAsList(futures),
+                                                                result -> {
+                                                                    ViewBuilderTask.markBuilt(newTasks);
+                                                                    return result;
+                                                                },
+                                                                MoreExecutors.directExecutor());
 
         // Add a callback to process any eventual new local range and mark the view as built, doing a delayed retry if
         // the tasks don't succeed
-        ListenableFuture<List<Long>> future = Futures.allAsList(futures);
         Futures.addCallback(future, new FutureCallback<List<Long>>()
         {
             public void onSuccess(List<Long> result)
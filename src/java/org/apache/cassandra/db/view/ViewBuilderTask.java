@@ -18,15 +18,21 @@
 
 package org.apache.cassandra.db.view;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.PeekingIterator;
 import com.google.common.util.concurrent.Futures;
@@ -36,6 +42,7 @@ import org.slf4j.LoggerFactory;
 import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.DeletionTime;
+import org.apache.cassandra.db.Memtable;
 import org.apache.cassandra.db.Mutation;
 import org.apache.cassandra.db.ReadExecutionController;
 import org.apache.cassandra.db.ReadQuery;
@@ -53,11 +60,24 @@ import org.apache.cassandra.dht.Range;
 import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.io.sstable.ReducingKeyIterator;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.locator.InetAddressAndPort;
 import org.apache.cassandra.service.StorageProxy;
+import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.utils.FBUtilities;
 import org.apache.cassandra.utils.UUIDGen;
 import org.apache.cassandra.utils.concurrent.Refs;
 
+/**
+ * Builds a materialized view for a token range of the base table.
+ * <p>
+ * The view updates for which this node is the paired view replica are applied directly to the local view table,
+ * without going through the commit log nor the batchlog: the progress of the build is only recorded once they have
+ * been flushed. Only the updates for remote view replicas go through {@link StorageProxy#mutateMV}.
+ * <p>
+ * The tasks don't flush the view table themselves, as there are many of them per view with vnodes: the
+ * {@link ViewBuilder} flushes it once all the tasks of a build are done, and then records their ranges as built
+ * with {@link #markBuilt(Collection)}.
+ */
 public class ViewBuilderTask extends CompactionInfo.Holder implements Callable<Long>
 {
     private static final Logger logger = LoggerFactory.getLogger(ViewBuilderTask.class);
@@ -65,6 +85,7 @@ public class ViewBuilderTask extends CompactionInfo.Holder implements Callable<L
     private static final int ROWS_BETWEEN_CHECKPOINTS = 1000;
 
     private final ColumnFamilyStore baseCfs;
+    private final ColumnFamilyStore viewCfs;
     private final View view;
     private final Range<Token> range;
     private final UUID compactionId;
@@ -73,9 +94,16 @@ public class ViewBuilderTask extends CompactionInfo.Holder implements Callable<L
     private volatile boolean isStopped = false;
     private volatile boolean isCompactionInterrupted = false;
 
+    // The last progress not recorded yet, as the local view updates it covers may not have been flushed yet: they
+    // were applied to (some of) checkpointMemtables
+    private Token checkpointToken;
+    private long checkpointKeysBuilt;
+    private Set<Memtable> checkpointMemtables;
+
     ViewBuilderTask(ColumnFamilyStore baseCfs, View view, Range<Token> range, Token lastToken, long keysBuilt)
     {
         this.baseCfs = baseCfs;
+        this.viewCfs = baseCfs.keyspace.getColumnFamilyStore(view.getDefinition().metadata.id);
         this.view = view;
         this.range = range;
         this.compactionId = UUIDGen.getTimeUUID();
@@ -107,8 +135,74 @@ public class ViewBuilderTask extends CompactionInfo.Holder implements Callable<L
                                                        .forTable(baseCfs.metadata.id)
                                                        .generateViewUpdates(Collections.singleton(view), data, empty, nowInSec, true);
 
+            mutations.forEachRemaining(m -> applyViewUpdates(key, m));
+        }
+    }
+
+    /**
+     * Applies the view updates for which this node is the view replica locally, and sends the other ones to their
+     * view replica.
+     */
+    private void applyViewUpdates(DecoratedKey baseKey, Collection<Mutation> mutations)
+    {
+        List<Mutation> remoteMutations = null;
+        for (Mutation mutation : mutations)
+        {
+            if (isLocalViewReplica(baseKey, mutation))
+            {
+                mutation.apply(false);
+            }
+            else
+            {
+                if (remoteMutations == null)
+                    remoteMutations = new ArrayList<>(mutations.size());
+                remoteMutations.add(mutation);
+            }
+        }
+
+        if (remoteMutations != null)
+        {
             AtomicLong noBase = new AtomicLong(Long.MAX_VALUE);
-            mutations.forEachRemaining(m -> StorageProxy.mutateMV(key.getKey(), m, true, noBase, System.nanoTime()));
+            StorageProxy.mutateMV(baseKey.getKey(), remoteMutations, true, noBase, System.nanoTime());
+        }
+    }
+
+    /**
+     * Whether the view mutation can be applied locally, which uses the same conditions as
+     * {@link StorageProxy#mutateMV}.
+     */
+    private static boolean isLocalViewReplica(DecoratedKey baseKey, Mutation mutation)
+    {
+        StorageService storageService = StorageService.instance;
+        if (storageService.isStarting() || storageService.isJoining() || storageService.isMoving() || !storageService.isJoined())
+            return false;
+
+        String keyspaceName = mutation.getKeyspaceName();
+        Token viewToken = mutation.key().getToken();
+        Optional<InetAddressAndPort> pairedEndpoint = ViewUtils.getViewNaturalEndpoint(keyspaceName, baseKey.getToken(), viewToken);
+        return pairedEndpoint.isPresent()
+               && pairedEndpoint.get().equals(FBUtilities.getBroadcastAddressAndPort())
+               && storageService.getTokenMetadata().pendingEndpointsFor(viewToken, keyspaceName).isEmpty();
+    }
+
+    /**
+     * Records the progress of the build up to the provided token, as soon as the local view updates for the keys
+     * up to it have been flushed. We don't force a flush here, so the recorded progress may lag behind until the view
+     * table gets flushed.
+     */
+    private void checkpoint(String ksName, Token token)
+    {
+        if (checkpointToken != null && !Iterables.any(viewCfs.getTracker().getView().getAllMemtables(), checkpointMemtables::contains))
+        {
+            SystemKeyspace.updateViewBuildStatus(ksName, view.name, range, checkpointToken, checkpointKeysBuilt);
+            checkpointToken = null;
+        }
+
+        if (checkpointToken == null)
+        {
+            checkpointToken = token;
+            checkpointKeysBuilt = keysBuilt;
+            checkpointMemtables = ImmutableSet.copyOf(viewCfs.getTracker().getView().getAllMemtables());
         }
     }
 
@@ -146,7 +240,7 @@ public class ViewBuilderTask extends CompactionInfo.Holder implements Callable<L
                         ++keysBuilt;
                     }
                     if (keysBuilt % ROWS_BETWEEN_CHECKPOINTS == 1)
-                        SystemKeyspace.updateViewBuildStatus(ksName, view.name, range, token, keysBuilt);
+                        checkpoint(ksName, token);
                     prevToken = token;
                 }
             }
@@ -162,11 +256,8 @@ public class ViewBuilderTask extends CompactionInfo.Holder implements Callable<L
         String ksName = baseCfs.keyspace.getName();
         if (!isStopped)
         {
-            // Save the completed status using the end of the range as last token. This way it will be possible for
-            // future view build attempts to don't even create a task for this range
-            SystemKeyspace.updateViewBuildStatus(ksName, view.name, range, range.right, keysBuilt);
-
-            logger.debug("Completed build of view({}.{}) for range {} after covering {} keys ", ksName, view.name, range, keysBuilt);
+            logger.debug("Completed build of view({}.{}) for range {} after covering {} keys, waiting for the view to be flushed",
+                         ksName, view.name, range, keysBuilt);
         }
         else
         {
@@ -179,6 +270,30 @@ public class ViewBuilderTask extends CompactionInfo.Holder implements Callable<L
         }
     }
 
+    /**
+     * Records the ranges of the given completed tasks of a view as built, once the view updates they have applied
+     * locally have been made durable by a single flush of the view table.
+     */
+    static void markBuilt(Collection<ViewBuilderTask> tasks)
+    {
+        if (tasks.isEmpty())
+            return;
+
+        tasks.iterator().next().viewCfs.forceBlockingFlush();
+
+        for (ViewBuilderTask task : tasks)
+        {
+            // a stopped task hasn't completed its range
+            if (task.isStopped)
+                continue;
+
+            // Save the completed status using the end of the range as last token. This way it will be possible for
+            // future view build attempts to don't even create a task for this range
+            String ksName = task.baseCfs.keyspace.getName();
+            SystemKeyspace.updateViewBuildStatus(ksName, task.view.name, task.range, task.range.right, task.keysBuilt);
+        }
+    }
+
     @Override
     public CompactionInfo getCompactionInfo()
     {
@@ -20,18 +20,35 @@ package org.apache.cassandra.db.view;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.Keyspace;
 import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.locator.AbstractReplicationStrategy;
 import org.apache.cassandra.locator.InetAddressAndPort;
 import org.apache.cassandra.locator.NetworkTopologyStrategy;
+import org.apache.cassandra.locator.TokenMetadata;
+import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.utils.FBUtilities;
 
 public final class ViewUtils
 {
+    private static final long MAX_CACHED_PAIRINGS = Long.getLong("cassandra.view_pairing_cache_size", 65536);
+
+    /**
+     * The view natural endpoints computed so far, per pair of base and view token ranges. Since the ring version and
+     * the replication strategy are part of the key, entries are never invalidated: the stale ones are simply not
+     * looked up anymore and get evicted.
+     */
+    private static final Cache<PairedRanges, Optional<InetAddressAndPort>> cachedPairings = Caffeine.newBuilder()
+                                                                                                    .maximumSize(MAX_CACHED_PAIRINGS)
+                                                                                                    .build();
+
     private ViewUtils()
     {
     }
@@ -56,12 +73,37 @@ public final class ViewUtils
      *  B writes to A (B's cardinality is 2 for T1, and A's cardinality is 2 for T3)
      *  C writes to B (C's cardinality is 3 for T1, and B's cardinality is 3 for T3)
      *
+     * The pairing only depends on the token ranges {@code baseToken} and {@code viewToken} belong to, so it is cached
+     * per pair of ranges until the ring or the replication strategy of the keyspace changes.
+     *
      * @return Optional.empty() if this method is called using a base token which does not belong to this replica
      */
     public static Optional<InetAddressAndPort> getViewNaturalEndpoint(String keyspaceName, Token baseToken, Token viewToken)
     {
         AbstractReplicationStrategy replicationStrategy = Keyspace.open(keyspaceName).getReplicationStrategy();
 
+        // read the ring version first: whatever is computed afterwards is at least as recent as it
+        TokenMetadata tokenMetadata = StorageService.instance.getTokenMetadata();
+        long ringVersion = tokenMetadata.getRingVersion();
+        ArrayList<Token> ring = tokenMetadata.sortedTokens();
+        if (ring.isEmpty())
+            return computeViewNaturalEndpoint(replicationStrategy, baseToken, viewToken);
+
+        PairedRanges ranges = new PairedRanges(replicationStrategy,
+                                               ringVersion,
+                                               TokenMetadata.firstToken(ring, baseToken),
+                                               TokenMetadata.firstToken(ring, viewToken));
+        Optional<InetAddressAndPort> endpoint = cachedPairings.getIfPresent(ranges);
+        if (endpoint == null)
+        {
+            endpoint = computeViewNaturalEndpoint(replicationStrategy, baseToken, viewToken);
+            cachedPairings.put(ranges, endpoint);
+        }
+        return endpoint;
+    }
+
+    private static Optional<InetAddressAndPort> computeViewNaturalEndpoint(AbstractReplicationStrategy replicationStrategy, Token baseToken, Token viewToken)
+    {
         String localDataCenter = DatabaseDescriptor.getEndpointSnitch().getDatacenter(FBUtilities.getBroadcastAddressAndPort());
         List<InetAddressAndPort> baseEndpoints = new ArrayList<>();
         List<InetAddressAndPort> viewEndpoints = new ArrayList<>();
@@ -100,4 +142,46 @@ public final class ViewUtils
 
         return Optional.of(viewEndpoints.get(baseIdx));
     }
+
+    /**
+     * A base and a view token range, identified by the ring token ending them, for a given replication strategy and
+     * ring version.
+     */
+    private static final class PairedRanges
+    {
+        private final AbstractReplicationStrategy replicationStrategy;
+        private final long ringVersion;
+        private final Token baseRange;
+        private final Token viewRange;
+
+        private PairedRanges(AbstractReplicationStrategy replicationStrategy, long ringVersion, Token baseRange, Token viewRange)
+        {
+            this.replicationStrategy = replicationStrategy;
+            this.ringVersion = ringVersion;
+            this.baseRange = baseRange;
+            this.viewRange = viewRange;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+                return true;
+            if (!(o instanceof PairedRanges))
+                return false;
+
+            PairedRanges that = (PairedRanges) o;
+            // a new strategy is created whenever the replication of the keyspace changes, so identity is what we want
+            return replicationStrategy == that.replicationStrategy
+                   && ringVersion == that.ringVersion
+                   && baseRange.equals(that.baseRange)
+                   && viewRange.equals(that.viewRange);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(System.identityHashCode(replicationStrategy), ringVersion, baseRange, viewRange);
+        }
+    }
 }
@@ -19,6 +19,7 @@
 package org.apache.cassandra.hints;
 
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,6 +64,16 @@ public final class HintVerbHandler implements IVerbHandler<HintMessage>
             return;
         }
 
+        apply(hostId, hint).thenAccept(o -> reply(id, message.from)).exceptionally(e -> {logger.debug("Failed to apply hint", e); return null;});
+    }
+
+    /**
+     * Validates and applies (or stores, if this node isn't its destination) a hint.
+     *
+     * @return a future completed once the hint has been applied or stored, or skipped if it was invalid
+     */
+    static CompletableFuture<?> apply(UUID hostId, Hint hint)
+    {
         // We must perform validation before applying the hint, and there is no other place to do it other than here.
         try
         {
@@ -70,9 +81,8 @@ public final class HintVerbHandler implements IVerbHandler<HintMessage>
         }
         catch (MarshalException e)
         {
-            logger.warn("Failed to validate a hint for {}: {} - skipped", address, hostId);
-            reply(id, message.from);
-            return;
+            logger.warn("Failed to validate a hint for {}: {} - skipped", StorageService.instance.getEndpointForHostId(hostId), hostId);
+            return CompletableFuture.completedFuture(null);
         }
 
         if (!hostId.equals(StorageService.instance.getLocalHostUUID()))
@@ -80,19 +90,19 @@ public final class HintVerbHandler implements IVerbHandler<HintMessage>
             // the node is not the final destination of the hint (must have gotten it from a decommissioning node),
             // so just store it locally, to be delivered later.
             HintsService.instance.write(hostId, hint);
-            reply(id, message.from);
+            return CompletableFuture.completedFuture(null);
         }
         else if (!StorageProxy.instance.appliesLocally(hint.mutation))
         {
             // the topology has changed, and we are no longer a replica of the mutation - since we don't know which node(s)
             // it has been handed over to, re-address the hint to all replicas; see CASSANDRA-5902.
             HintsService.instance.writeForAllReplicas(hint);
-            reply(id, message.from);
+            return CompletableFuture.completedFuture(null);
         }
         else
         {
             // the common path - the node is both the destination and a valid replica for the hint.
-            hint.applyFuture().thenAccept(o -> reply(id, message.from)).exceptionally(e -> {logger.debug("Failed to apply hint", e); return null;});
+            return hint.applyFuture();
         }
     }
 
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.hints;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import com.google.common.primitives.Ints;
+
+import org.apache.cassandra.db.TypeSizes;
+import org.apache.cassandra.exceptions.UnknownTableException;
+import org.apache.cassandra.io.IVersionedSerializer;
+import org.apache.cassandra.io.util.DataInputPlus;
+import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.io.util.TrackedDataInputPlus;
+import org.apache.cassandra.net.MessageOut;
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.utils.UUIDSerializer;
+
+/**
+ * The message we use to dispatch a batch of hints of a page of a hints file at once, to be applied by the receiver
+ * before a single reply (see {@link HintsBatchVerbHandler}).
+ *
+ * If the hints file messaging version matches the version of the target host, the hints are sent as they are encoded
+ * in the file, verbatim, like with {@link EncodedHintMessage}. Otherwise, they are decoded from the file, and
+ * re-encoded in the version of the target host.
+ */
+public final class HintsBatchMessage
+{
+    public static final IVersionedSerializer<HintsBatchMessage> serializer = new Serializer();
+
+    final UUID hostId;
+
+    // the decoded hints, on the receiving side (without the ones for unknown tables), or when conversion is required
+    final List<Hint> hints;
+
+    // the hints as encoded in the hints file, when sent verbatim
+    private final List<ByteBuffer> encodedHints;
+    private final int version;
+
+    HintsBatchMessage(UUID hostId, List<Hint> hints)
+    {
+        this.hostId = hostId;
+        this.hints = hints;
+        this.encodedHints = null;
+        this.version = -1;
+    }
+
+    HintsBatchMessage(UUID hostId, List<ByteBuffer> encodedHints, int version)
+    {
+        this.hostId = hostId;
+        this.hints = null;
+        this.encodedHints = encodedHints;
+        this.version = version;
+    }
+
+    MessageOut<HintsBatchMessage> createMessageOut()
+    {
+        return new MessageOut<>(MessagingService.Verb.HINTS_BATCH, this, serializer);
+    }
+
+    long[] getHintCreationTimes()
+    {
+        if (encodedHints == null)
+            return hints.stream().mapToLong(hint -> hint.creationTime).toArray();
+
+        long[] creationTimes = new long[encodedHints.size()];
+        for (int i = 0; i < creationTimes.length; i++)
+            creationTimes[i] = Hint.serializer.getHintCreationTime(encodedHints.get(i), version);
+        return creationTimes;
+    }
+
+    private static class Serializer implements IVersionedSerializer<HintsBatchMessage>
+    {
+        public long serializedSize(HintsBatchMessage message, int version)
+        {
+            long size = UUIDSerializer.serializer.serializedSize(message.hostId, version);
+            if (message.encodedHints == null)
+            {
+                size += TypeSizes.sizeofUnsignedVInt(message.hints.size());
+                for (Hint hint : message.hints)
+                {
+                    long hintSize = Hint.serializer.serializedSize(hint, version);
+                    size += TypeSizes.sizeofUnsignedVInt(hintSize);
+                    size += hintSize;
+                }
+                return size;
+            }
+
+            if (version != message.version)
+                throw new IllegalArgumentException("serializedSize() called with non-matching version " + version);
+
+            size += TypeSizes.sizeofUnsignedVInt(message.encodedHints.size());
+            for (ByteBuffer hint : message.encodedHints)
+            {
+                size += TypeSizes.sizeofUnsignedVInt(hint.remaining());
+                size += hint.remaining();
+            }
+            return size;
+        }
+
+        public void serialize(HintsBatchMessage message, DataOutputPlus out, int version) throws IOException
+        {
+            UUIDSerializer.serializer.serialize(message.hostId, out, version);
+            if (message.encodedHints == null)
+            {
+                out.writeUnsignedVInt(message.hints.size());
+                for (Hint hint : message.hints)
+                {
+                    out.writeUnsignedVInt(Hint.serializer.serializedSize(hint, version));
+                    Hint.serializer.serialize(hint, out, version);
+                }
+                return;
+            }
+
+            if (version != message.version)
+                throw new IllegalArgumentException("serialize() called with non-matching version " + version);
+
+            out.writeUnsignedVInt(message.encodedHints.size());
+            for (ByteBuffer hint : message.encodedHints)
+            {
+                out.writeUnsignedVInt(hint.remaining());
+                out.write(hint.duplicate());
+            }
+        }
+
+        /*
+         * Like HintMessage, skips the hints for tables that have been dropped rather than failing the whole page.
+         */
+        public HintsBatchMessage deserialize(DataInputPlus in, int version) throws IOException
+        {
+            UUID hostId = UUIDSerializer.serializer.deserialize(in, version);
+
+            int count = Ints.checkedCast(in.readUnsignedVInt());
+            List<Hint> hints = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+            {
+                long hintSize = in.readUnsignedVInt();
+                TrackedDataInputPlus countingIn = new TrackedDataInputPlus(in);
+                try
+                {
+                    hints.add(Hint.serializer.deserialize(countingIn, version));
+                }
+                catch (UnknownTableException e)
+                {
+                    in.skipBytes(Ints.checkedCast(hintSize - countingIn.getBytesRead()));
+                }
+            }
+            return new HintsBatchMessage(hostId, hints);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cassandra.hints;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.locator.InetAddressAndPort;
+import org.apache.cassandra.net.IVerbHandler;
+import org.apache.cassandra.net.MessageIn;
+import org.apache.cassandra.net.MessagingService;
+
+/**
+ * Verb handler for the dispatch of a batch of hints of a page, see {@link HintsDispatcher#MAX_HINTS_PER_MESSAGE}.
+ *
+ * Applies (or stores) all the hints of the batch in a single task, then replies once all of them are done; if any of
+ * them fails, no reply is sent, and the sender will retry the page.
+ */
+public final class HintsBatchVerbHandler implements IVerbHandler<HintsBatchMessage>
+{
+    private static final Logger logger = LoggerFactory.getLogger(HintsBatchVerbHandler.class);
+
+    public void doVerb(MessageIn<HintsBatchMessage> message, int id)
+    {
+        List<Hint> hints = message.payload.hints;
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[hints.size()];
+        for (int i = 0; i < futures.length; i++)
+            futures[i] = HintVerbHandler.apply(message.payload.hostId, hints.get(i));
+
+        CompletableFuture.allOf(futures)
+                         .thenAccept(o -> reply(id, message.from))
+                         .exceptionally(e -> {logger.debug("Failed to apply hints", e); return null;});
+    }
+
+    private static void reply(int id, InetAddressAndPort to)
+    {
+        MessagingService.instance().sendReply(HintResponse.message, id, to);
+    }
+}
@@ -40,13 +40,22 @@ import org.apache.cassandra.utils.concurrent.SimpleCondition;
 /**
  * Dispatches a single hints file to a specified node in a batched manner.
  *
- * Uses either {@link EncodedHintMessage} - when dispatching hints into a node with the same messaging version as the hints file,
- * or {@link HintMessage}, when conversion is required.
+ * Sends each page of hints as {@link HintsBatchMessage}s of at most {@link #MAX_HINTS_PER_MESSAGE} hints, unless the node
+ * is too old to understand them. In which case it uses either {@link EncodedHintMessage} - when dispatching hints into a
+ * node with the same messaging version as the hints file, or {@link HintMessage}, when conversion is required.
  */
 final class HintsDispatcher implements AutoCloseable
 {
     private static final Logger logger = LoggerFactory.getLogger(HintsDispatcher.class);
 
+    private static final boolean DISPATCH_PAGES = Boolean.parseBoolean(System.getProperty("cassandra.hints.dispatch_pages", "true"));
+
+    /**
+     * The hints of a message are applied one after the other by a single task on the receiver, within the timeout of a
+     * single hint, so each page is split into several messages.
+     */
+    static final int MAX_HINTS_PER_MESSAGE = Integer.getInteger("cassandra.hints.max_hints_per_message", 32);
+
     private enum Action { CONTINUE, ABORT }
 
     private final HintsReader reader;
@@ -125,9 +134,20 @@ final class HintsDispatcher implements AutoCloseable
          * If that is not the case, we'll need to perform conversion to a newer (or an older) format, and decoding the hint
          * is an unavoidable intermediate step.
          */
-        Action action = reader.descriptor().messagingVersion() == messagingVersion
-                      ? sendHints(page.buffersIterator(), callbacks, this::sendEncodedHint)
-                      : sendHints(page.hintsIterator(), callbacks, this::sendHint);
+        boolean encoded = reader.descriptor().messagingVersion() == messagingVersion;
+        Action action;
+        if (DISPATCH_PAGES && messagingVersion >= MessagingService.VERSION_40)
+        {
+            action = encoded
+                   ? sendPage(page.buffersIterator(), callbacks, hints -> new HintsBatchMessage(hostId, hints, messagingVersion))
+                   : sendPage(page.hintsIterator(), callbacks, hints -> new HintsBatchMessage(hostId, hints));
+        }
+        else
+        {
+            action = encoded
+                   ? sendHints(page.buffersIterator(), callbacks, this::sendEncodedHint)
+                   : sendHints(page.hintsIterator(), callbacks, this::sendHint);
+        }
 
         if (action == Action.ABORT)
             return action;
@@ -136,7 +156,7 @@ final class HintsDispatcher implements AutoCloseable
         for (Callback cb : callbacks)
         {
             Callback.Outcome outcome = cb.await();
-            updateMetrics(outcome);
+            updateMetrics(outcome, cb.hintCreationTimes.length);
 
             if (outcome != Callback.Outcome.SUCCESS)
                 hadFailures = true;
@@ -145,18 +165,18 @@ final class HintsDispatcher implements AutoCloseable
         return hadFailures ? Action.ABORT : Action.CONTINUE;
     }
 
-    private void updateMetrics(Callback.Outcome outcome)
+    private void updateMetrics(Callback.Outcome outcome, int hints)
     {
         switch (outcome)
         {
             case SUCCESS:
-                HintsServiceMetrics.hintsSucceeded.mark();
+                HintsServiceMetrics.hintsSucceeded.mark(hints);
                 break;
             case FAILURE:
-                HintsServiceMetrics.hintsFailed.mark();
+                HintsServiceMetrics.hintsFailed.mark(hints);
                 break;
             case TIMEOUT:
-                HintsServiceMetrics.hintsTimedOut.mark();
+                HintsServiceMetrics.hintsTimedOut.mark(hints);
                 break;
         }
     }
@@ -196,6 +216,39 @@ final class HintsDispatcher implements AutoCloseable
         return callback;
     }
 
+    /*
+     * Sending hints a page at a time, in batches of at most MAX_HINTS_PER_MESSAGE hints.
+     */
+
+    private <T> Action sendPage(Iterator<T> page, Collection<Callback> callbacks, Function<List<T>, HintsBatchMessage> messageFunction)
+    {
+        List<T> hints = new ArrayList<>(MAX_HINTS_PER_MESSAGE);
+        while (page.hasNext())
+        {
+            if (abortRequested.getAsBoolean())
+                return Action.ABORT;
+            hints.add(page.next());
+
+            if (hints.size() == MAX_HINTS_PER_MESSAGE)
+            {
+                callbacks.add(sendBatch(messageFunction.apply(hints)));
+                hints = new ArrayList<>(MAX_HINTS_PER_MESSAGE);
+            }
+        }
+
+        // all the remaining hints of the page may have expired
+        if (!hints.isEmpty())
+            callbacks.add(sendBatch(messageFunction.apply(hints)));
+        return Action.CONTINUE;
+    }
+
+    private Callback sendBatch(HintsBatchMessage message)
+    {
+        Callback callback = new Callback(message.getHintCreationTimes());
+        MessagingService.instance().sendRRWithFailure(message.createMessageOut(), address, callback);
+        return callback;
+    }
+
     private static final class Callback implements IAsyncCallbackWithFailure
     {
         enum Outcome { SUCCESS, TIMEOUT, FAILURE, INTERRUPTED }
@@ -203,11 +256,11 @@ final class HintsDispatcher implements AutoCloseable
         private final long start = System.nanoTime();
         private final SimpleCondition condition = new SimpleCondition();
         private volatile Outcome outcome;
-        private final long hintCreationTime;
+        private final long[] hintCreationTimes;
 
-        private Callback(long hintCreationTime)
+        private Callback(long... hintCreationTimes)
         {
-            this.hintCreationTime = hintCreationTime;
+            this.hintCreationTimes = hintCreationTimes;
         }
 
         Outcome await()
@@ -236,7 +289,9 @@ final class HintsDispatcher implements AutoCloseable
 
         public void response(MessageIn msg)
         {
-            HintsServiceMetrics.updateDelayMetrics(msg.from, ApproximateTime.currentTimeMillis() - this.hintCreationTime);
+            long now = ApproximateTime.currentTimeMillis();
+            for (long hintCreationTime : hintCreationTimes)
+                HintsServiceMetrics.updateDelayMetrics(msg.from, now - hintCreationTime);
             outcome = Outcome.SUCCESS;
             condition.signalAll();
         }
@@ -21,6 +21,8 @@
 package org.apache.cassandra.index;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -115,7 +117,7 @@ import org.apache.cassandra.utils.concurrent.OpOrder;
  * arguments a PartitionIterator (containing the reconciled result rows) and a RowFilter (from the ReadCommand being
  * executed) and returns another iterator of partitions, possibly having transformed the initial results in some way.
  * The post processing function is obtained from the Index's postProcessorFor method; the built-in indexes which ship
- * with Cassandra return a no-op function here.
+ * with Cassandra return {@link #NO_POST_PROCESSING} here.
  *
  * An optional static method may be provided to validate custom index options (two variants are supported):
  *
@@ -148,6 +150,22 @@ public interface Index
     interface IndexBuildingSupport
     {
         SecondaryIndexBuilder getIndexBuildTask(ColumnFamilyStore cfs, Set<Index> indexes, Collection<SSTableReader> sstables);
+
+        /**
+         * Splits the build of the specified indexes from the specified SSTables in tasks that can be run in parallel.
+         * The build is only considered done when all the returned tasks are done.
+         *
+         * @param isFullRebuild {@code true} if the indexes are built from all the SSTables of the table, in which case
+         * an implementation may resume a previously interrupted build
+         * @return the build tasks, which may be empty if there is nothing left to build
+         */
+        default List<SecondaryIndexBuilder> getIndexBuildTasks(ColumnFamilyStore cfs,
+                                                               Set<Index> indexes,
+                                                               Collection<SSTableReader> sstables,
+                                                               boolean isFullRebuild)
+        {
+            return Collections.singletonList(getIndexBuildTask(cfs, indexes, sstables));
+        }
     }
 
     /**
@@ -162,11 +180,27 @@ public interface Index
         }
     }
 
+    /**
+     * {@code CollatedViewIndexBuildingSupport} which splits the build in token ranges that are built in parallel, and
+     * checkpoints the progress of full builds after each range.
+     */
+    public static class ParallelCollatedViewIndexBuildingSupport extends CollatedViewIndexBuildingSupport
+    {
+        @Override
+        public List<SecondaryIndexBuilder> getIndexBuildTasks(ColumnFamilyStore cfs,
+                                                              Set<Index> indexes,
+                                                              Collection<SSTableReader> sstables,
+                                                              boolean isFullRebuild)
+        {
+            return CollatedViewIndexBuilder.splitByTokenRange(cfs, indexes, sstables, isFullRebuild);
+        }
+    }
+
     /**
      * Singleton instance of {@code CollatedViewIndexBuildingSupport}, which may be used by any {@code Index}
      * implementation.
      */
-    public static final CollatedViewIndexBuildingSupport INDEX_BUILDER_SUPPORT = new CollatedViewIndexBuildingSupport();
+    public static final CollatedViewIndexBuildingSupport INDEX_BUILDER_SUPPORT = new ParallelCollatedViewIndexBuildingSupport();
 
     /*
      * Management functions
@@ -522,9 +556,18 @@ public interface Index
      * The function takes a PartitionIterator of the results from the replicas which has already been collated
      * and reconciled, along with the command being executed. It returns another PartitionIterator containing the results
      * of the transformation (which may be the same as the input if the transformation is a no-op).
+     *
+     * Indexes which don't transform the results should return {@link #NO_POST_PROCESSING}, which lets the coordinator
+     * rely on the number of rows returned by each range to limit the ranges it queries. Any other function is assumed
+     * to possibly drop, add or reorder rows.
      */
     public BiFunction<PartitionIterator, ReadCommand, PartitionIterator> postProcessorFor(ReadCommand command);
 
+    /**
+     * The post processing function of the indexes which don't transform the results, see {@link #postProcessorFor}.
+     */
+    public static final BiFunction<PartitionIterator, ReadCommand, PartitionIterator> NO_POST_PROCESSING = (partitionIterator, readCommand) -> partitionIterator;
+
     /**
      * Factory method for query time search helper.
      *
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.index;
+
+/**
+ * Coordinator side estimate of how selective the queries using an index are, as the number of rows returned per token
+ * range queried. Contrarily to {@link Index#getEstimatedResultRows()}, which is only based on the local data, this is
+ * learned from the results of the previous range queries using the index, and so accounts for the whole cluster and
+ * for the expressions actually queried.
+ * <p>
+ * The estimate is an exponentially weighted moving average, so that it follows changes in the data and the queries.
+ */
+public class IndexSelectivity
+{
+    /**
+     * The weight of the latest query in the estimate.
+     */
+    private static final double ALPHA = 0.2;
+
+    private double rowsPerRange = Double.NaN;
+
+    /**
+     * Records the results of a range query.
+     *
+     * @param rangesQueried the number of token ranges fully read by the query
+     * @param rowsReturned the number of live rows returned for those ranges
+     */
+    public synchronized void update(int rangesQueried, int rowsReturned)
+    {
+        if (rangesQueried <= 0)
+            return;
+
+        double sample = (double) rowsReturned / rangesQueried;
+        rowsPerRange = Double.isNaN(rowsPerRange) ? sample : ALPHA * sample + (1 - ALPHA) * rowsPerRange;
+    }
+
+    /**
+     * @return the estimated number of rows returned per token range, or {@code NaN} if no query has been recorded yet
+     */
+    public synchronized float rowsPerRange()
+    {
+        return (float) rowsPerRange;
+    }
+}
@@ -39,6 +39,7 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.RateLimiter;
 import com.google.common.util.concurrent.SettableFuture;
 
 import org.apache.commons.lang3.StringUtils;
@@ -148,6 +149,11 @@ public class SecondaryIndexManager implements IndexRegistry, INotificationConsum
      */
     private final Map<String, AtomicInteger> inProgressBuilds = Maps.newConcurrentMap();
 
+    /**
+     * The selectivity of the range queries coordinated by this node for each index.
+     */
+    private final Map<String, IndexSelectivity> selectivities = Maps.newConcurrentMap();
+
     // executes tasks returned by Indexer#addIndexColumn which may require index(es) to be (re)built
     private static final ListeningExecutorService asyncExecutor = MoreExecutors.listeningDecorator(
     new JMXEnabledThreadPoolExecutor(1,
@@ -319,6 +325,8 @@ public class SecondaryIndexManager implements IndexRegistry, INotificationConsum
     public void markAllIndexesRemoved()
     {
         getBuiltIndexNames().forEach(this::markIndexRemoved);
+        // an interrupted build mustn't be resumed by an index later created with the same name
+        indexes.keySet().forEach(indexName -> SystemKeyspace.clearIndexBuildStatus(baseCfs.keyspace.getName(), indexName));
     }
 
     /**
@@ -346,6 +354,8 @@ public class SecondaryIndexManager implements IndexRegistry, INotificationConsum
                 return;
             }
 
+            // an explicit rebuild starts over, rather than resuming any interrupted build
+            toRebuild.forEach(index -> SystemKeyspace.clearIndexBuildStatus(baseCfs.keyspace.getName(), index.getIndexMetadata().name));
             buildIndexesBlocking(allSSTables, toRebuild, true);
         }
     }
@@ -459,13 +469,17 @@ public class SecondaryIndexManager implements IndexRegistry, INotificationConsum
                 stored.add(index);
             }
 
-            // Schedule all index building tasks with a callback to mark them as built or failed
+            // Schedule all index building tasks, which may be split to run in parallel, with a callback to mark them as
+            // built or failed once all the tasks of their group are done
             List<Future<?>> futures = new ArrayList<>(byType.size());
             byType.forEach((buildingSupport, groupedIndexes) ->
                            {
-                               SecondaryIndexBuilder builder = buildingSupport.getIndexBuildTask(baseCfs, groupedIndexes, sstables);
+                               List<SecondaryIndexBuilder> builders = buildingSupport.getIndexBuildTasks(baseCfs, groupedIndexes, sstables, isFullRebuild);
+                               List<ListenableFuture<?>> tasks = builders.stream()
+                                                                         .map(CompactionManager.instance::submitIndexBuild)
+                                                                         .collect(Collectors.toList());
                                final SettableFuture build = SettableFuture.create();
-                               Futures.addCallback(CompactionManager.instance.submitIndexBuild(builder), new FutureCallback()
+                               Futures.addCallback(allTasksSucceeded(tasks), new FutureCallback()
                                {
                                    @Override
                                    public void onFailure(Throwable t)
@@ -548,6 +562,20 @@ public class SecondaryIndexManager implements IndexRegistry, INotificationConsum
         return StringUtils.join(indexNames, ',');
     }
 
+    /**
+     * Returns a future that completes once all the specified tasks are done, failing if any of them failed. Contrarily
+     * to {@link Futures#allAsList(Iterable)}, this doesn't complete before the remaining tasks are done if one of them
+     * fails, so the sstables they use can't be released while they still run.
+     */
+    private static ListenableFuture<?> allTasksSucceeded(List<ListenableFuture<?>> tasks)
+    {
+        return Futures.whenAllComplete(tasks).call(() -> {
+            for (ListenableFuture<?> task : tasks)
+                Futures.getDone(task);
+            return null;
+        }, MoreExecutors.directExecutor());
+    }
+
     /**
      * Marks the specified indexes as (re)building if:
      * 1) There's no in progress rebuild of any of the given indexes.
@@ -626,7 +654,10 @@ public class SecondaryIndexManager implements IndexRegistry, INotificationConsum
             {
                 inProgressBuilds.remove(indexName);
                 if (!needsFullRebuild.contains(indexName) && DatabaseDescriptor.isDaemonInitialized())
+                {
                     SystemKeyspace.setIndexBuilt(baseCfs.keyspace.getName(), indexName);
+                    SystemKeyspace.clearIndexBuildStatus(baseCfs.keyspace.getName(), indexName);
+                }
             }
         }
     }
@@ -672,6 +703,7 @@ public class SecondaryIndexManager implements IndexRegistry, INotificationConsum
     private synchronized void markIndexRemoved(String indexName)
     {
         SystemKeyspace.setIndexRemoved(baseCfs.keyspace.getName(), indexName);
+        SystemKeyspace.clearIndexBuildStatus(baseCfs.keyspace.getName(), indexName);
         queryableIndexes.remove(indexName);
         needsFullRebuild.remove(indexName);
         inProgressBuilds.remove(indexName);
@@ -836,6 +868,7 @@ public class SecondaryIndexManager implements IndexRegistry, INotificationConsum
                                                                                           FBUtilities.nowInSeconds(),
                                                                                           key);
             int nowInSec = cmd.nowInSec();
+            RateLimiter limiter = CompactionManager.instance.getIndexBuildRateLimiter();
             boolean readStatic = false;
 
             SinglePartitionPager pager = new SinglePartitionPager(cmd, null, ProtocolVersion.CURRENT);
@@ -873,6 +906,7 @@ public class SecondaryIndexManager implements IndexRegistry, INotificationConsum
                             readStatic = true;
                         }
 
+                        long bytesRead = 0;
                         MutableDeletionInfo.Builder deletionBuilder = MutableDeletionInfo.builder(partition.partitionLevelDeletion(), baseCfs.getComparator(), false);
 
                         while (partition.hasNext())
@@ -883,6 +917,7 @@ public class SecondaryIndexManager implements IndexRegistry, INotificationConsum
                             {
                                 Row row = (Row) unfilteredRow;
                                 indexers.forEach(indexer -> indexer.insertRow(row));
+                                bytesRead += row.dataSize();
                             }
                             else
                             {
@@ -901,6 +936,10 @@ public class SecondaryIndexManager implements IndexRegistry, INotificationConsum
                         }
 
                         indexers.forEach(Index.Indexer::finish);
+
+                        // index builds are throttled on the size of the indexed data, separately from compactions
+                        if (bytesRead > 0)
+                            limiter.acquire((int) Math.min(bytesRead, Integer.MAX_VALUE));
                     }
                 }
             }
@@ -1091,6 +1130,7 @@ public class SecondaryIndexManager implements IndexRegistry, INotificationConsum
 
     private Index unregisterIndex(String name)
     {
+        selectivities.remove(name);
         Index removed = indexes.remove(name);
         logger.trace(removed == null ? "Index {} was not registered" : "Removed index {} from registry", name);
         return removed;
@@ -1101,6 +1141,14 @@ public class SecondaryIndexManager implements IndexRegistry, INotificationConsum
         return indexes.get(metadata.name);
     }
 
+    /**
+     * @return the selectivity of the range queries using the specified index coordinated by this node
+     */
+    public IndexSelectivity getSelectivity(Index index)
+    {
+        return selectivities.computeIfAbsent(index.getIndexMetadata().name, name -> new IndexSelectivity());
+    }
+
     public Collection<Index> listIndexes()
     {
         return ImmutableSet.copyOf(indexes.values());
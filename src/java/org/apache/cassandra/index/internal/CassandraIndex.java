@@ -23,12 +23,13 @@ package org.apache.cassandra.index.internal;
 import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.Callable;
-import java.util.concurrent.Future;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,7 +57,6 @@ import org.apache.cassandra.index.internal.composites.CompositesSearcher;
 import org.apache.cassandra.index.internal.keys.KeysSearcher;
 import org.apache.cassandra.index.transactions.IndexTransaction;
 import org.apache.cassandra.index.transactions.UpdateTransaction;
-import org.apache.cassandra.io.sstable.ReducingKeyIterator;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.schema.IndexMetadata;
 import org.apache.cassandra.utils.FBUtilities;
@@ -278,7 +278,7 @@ public abstract class CassandraIndex implements Index
      */
     public BiFunction<PartitionIterator, ReadCommand, PartitionIterator> postProcessorFor(ReadCommand command)
     {
-        return (partitionIterator, readCommand) -> partitionIterator;
+        return NO_POST_PROCESSING;
     }
 
     public RowFilter getPostIndexQueryFilter(RowFilter filter)
@@ -706,11 +706,14 @@ public abstract class CassandraIndex implements Index
                         metadata.name,
                         getSSTableNames(sstables));
 
-            SecondaryIndexBuilder builder = new CollatedViewIndexBuilder(baseCfs,
-                                                                         Collections.singleton(this),
-                                                                         new ReducingKeyIterator(sstables));
-            Future<?> future = CompactionManager.instance.submitIndexBuild(builder);
-            FBUtilities.waitOnFuture(future);
+            // the build resumes from where it was if it has been interrupted by a restart
+            List<ListenableFuture<?>> futures = getBuildTaskSupport().getIndexBuildTasks(baseCfs, Collections.singleton(this), sstables, true)
+                                                                        .stream()
+                                                                        .map(CompactionManager.instance::submitIndexBuild)
+                                                                        .collect(Collectors.toList());
+            // wait for all the tasks before surfacing any failure, as they use the referenced sstables
+            FBUtilities.waitOnFuture(Futures.successfulAsList(futures));
+            FBUtilities.waitOnFutures(futures);
             indexCfs.forceBlockingFlush();
         }
         logger.info("Index build of {} complete", metadata.name);
@@ -17,35 +17,152 @@
  */
 package org.apache.cassandra.index.internal;
 
-import java.util.Set;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
 
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.SystemKeyspace;
 import org.apache.cassandra.db.compaction.CompactionInfo;
 import org.apache.cassandra.db.compaction.CompactionInterruptedException;
 import org.apache.cassandra.db.compaction.OperationType;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Splitter;
+import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.index.Index;
 import org.apache.cassandra.index.SecondaryIndexBuilder;
 import org.apache.cassandra.io.sstable.ReducingKeyIterator;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.utils.UUIDGen;
 
 /**
  * Manages building an entire index from column family data. Runs on to compaction manager.
+ * <p>
+ * The build can be restricted to a token range, so that it can be split in tasks run in parallel by the compaction
+ * threads, see {@link #splitByTokenRange(ColumnFamilyStore, Set, Collection, boolean)}.
  */
 public class CollatedViewIndexBuilder extends SecondaryIndexBuilder
 {
+    private static final Logger logger = LoggerFactory.getLogger(CollatedViewIndexBuilder.class);
+
+    /**
+     * The maximum amount of data indexed by each task of a split build, which is also the amount of work that may
+     * have to be done again if the build is interrupted.
+     */
+    private static final long MAX_TASK_SIZE = Long.getLong("cassandra.index_build_max_task_size_in_mb", 8192) << 20;
+
+    /**
+     * The minimum amount of data indexed by each task of a split build, so that small tables aren't needlessly split.
+     */
+    private static final long MIN_TASK_SIZE = 64L << 20;
+
     private final ColumnFamilyStore cfs;
     private final Set<Index> indexers;
     private final ReducingKeyIterator iter;
     private final UUID compactionId;
+    private final Range<Token> range;
+    private final boolean isFullRebuild;
+    private long keysBuilt = 0;
 
     public CollatedViewIndexBuilder(ColumnFamilyStore cfs, Set<Index> indexers, ReducingKeyIterator iter)
+    {
+        this(cfs, indexers, iter, null, false);
+    }
+
+    private CollatedViewIndexBuilder(ColumnFamilyStore cfs,
+                                     Set<Index> indexers,
+                                     ReducingKeyIterator iter,
+                                     Range<Token> range,
+                                     boolean isFullRebuild)
     {
         this.cfs = cfs;
         this.indexers = indexers;
         this.iter = iter;
         this.compactionId = UUIDGen.getTimeUUID();
+        this.range = range;
+        this.isFullRebuild = isFullRebuild;
+    }
+
+    /**
+     * Splits the build of the specified indexes in token ranges, which are sized so that the tasks can be spread over
+     * all the compaction threads without any of them indexing more than {@link #MAX_TASK_SIZE}.
+     * <p>
+     * The ranges covered by a full build are checkpointed as they complete, and skipped if the build is resumed after
+     * being interrupted, for example by a restart.
+     */
+    public static List<SecondaryIndexBuilder> splitByTokenRange(ColumnFamilyStore cfs,
+                                                                Set<Index> indexes,
+                                                                Collection<SSTableReader> sstables,
+                                                                boolean isFullRebuild)
+    {
+        return splitByTokenRange(cfs, indexes, sstables, isFullRebuild, MIN_TASK_SIZE, MAX_TASK_SIZE);
+    }
+
+    @VisibleForTesting
+    static List<SecondaryIndexBuilder> splitByTokenRange(ColumnFamilyStore cfs,
+                                                         Set<Index> indexes,
+                                                         Collection<SSTableReader> sstables,
+                                                         boolean isFullRebuild,
+                                                         long minTaskSize,
+                                                         long maxTaskSize)
+    {
+        IPartitioner partitioner = cfs.getPartitioner();
+        Range<Token> ring = new Range<>(partitioner.getMinimumToken(), partitioner.getMinimumToken());
+
+        Set<Range<Token>> builtRanges = isFullRebuild ? getBuiltRanges(cfs, indexes) : Collections.emptySet();
+        Set<Range<Token>> ranges = ring.subtractAll(builtRanges);
+        if (!builtRanges.isEmpty())
+            logger.info("Resuming build of {} with {} token ranges left",
+                        indexes.stream().map(i -> i.getIndexMetadata().name).collect(Collectors.joining(",")),
+                        ranges.size());
+
+        long totalSize = sstables.stream().mapToLong(SSTableReader::uncompressedLength).sum();
+        long taskSize = Math.min(maxTaskSize, Math.max(minTaskSize, totalSize / DatabaseDescriptor.getConcurrentCompactors()));
+        long tasks = (totalSize + taskSize - 1) / taskSize;
+        Optional<Splitter> splitter = partitioner.splitter();
+        if (tasks > 1 && splitter.isPresent())
+            ranges = splitter.get().split(ranges, (int) Math.min(tasks, Integer.MAX_VALUE));
+
+        List<SecondaryIndexBuilder> builders = new ArrayList<>();
+        for (Range<Token> range : ranges)
+        {
+            for (Range<Token> unwrapped : range.unwrap())
+            {
+                List<SSTableReader> intersecting = sstables.stream()
+                                                           .filter(s -> unwrapped.intersects(s.getBounds()))
+                                                           .collect(Collectors.toList());
+                builders.add(new CollatedViewIndexBuilder(cfs,
+                                                          indexes,
+                                                          new ReducingKeyIterator(intersecting, unwrapped),
+                                                          unwrapped,
+                                                          isFullRebuild));
+            }
+        }
+        return builders;
+    }
+
+    /**
+     * @return the token ranges that an interrupted full build has already covered for all the specified indexes
+     */
+    private static Set<Range<Token>> getBuiltRanges(ColumnFamilyStore cfs, Set<Index> indexes)
+    {
+        Set<Range<Token>> builtRanges = null;
+        for (Index index : indexes)
+        {
+            Set<Range<Token>> ranges = SystemKeyspace.getIndexBuildStatus(cfs.keyspace.getName(), index.getIndexMetadata().name).keySet();
+            if (builtRanges == null)
+                builtRanges = new HashSet<>(ranges);
+            else
+                builtRanges.retainAll(ranges);
+        }
+        return builtRanges == null ? Collections.emptySet() : builtRanges;
     }
 
     public CompactionInfo getCompactionInfo()
@@ -68,11 +185,41 @@ public class CollatedViewIndexBuilder extends SecondaryIndexBuilder
                     throw new CompactionInterruptedException(getCompactionInfo());
                 DecoratedKey key = iter.next();
                 cfs.indexManager.indexPartition(key, indexers, pageSize);
+                keysBuilt++;
             }
         }
         finally
         {
             iter.close();
         }
+
+        if (range != null && isFullRebuild && DatabaseDescriptor.isDaemonInitialized())
+            checkpoint();
+    }
+
+    /**
+     * Records that the token range of this builder is covered, once what has been indexed is durable.
+     */
+    private void checkpoint()
+    {
+        // index writes done by a build don't go through the commit log
+        for (Index index : indexers)
+        {
+            Callable<?> flushTask = index.getBlockingFlushTask();
+            if (flushTask == null)
+                continue;
+
+            try
+            {
+                flushTask.call();
+            }
+            catch (Exception e)
+            {
+                throw new RuntimeException(e);
+            }
+        }
+
+        for (Index index : indexers)
+            SystemKeyspace.updateIndexBuildStatus(cfs.keyspace.getName(), index.getIndexMetadata().name, range, keysBuilt);
     }
 }
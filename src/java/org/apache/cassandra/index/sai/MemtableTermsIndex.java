@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.index.sai;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.ObjectSizes;
+
+/**
+ * The terms of the rows written to a single memtable, with the keys of the partitions containing them.
+ * <p>
+ * Entries are never removed: the whole index is dropped once its memtable has been flushed, and the rows that have
+ * been overwritten or deleted in the meantime are filtered out by the query post-filter.
+ */
+final class MemtableTermsIndex
+{
+    // rough per entry overhead of the map and of the key sets
+    private static final long ENTRY_OVERHEAD = 64;
+
+    private final ConcurrentHashMap<ByteBuffer, Set<DecoratedKey>> terms = new ConcurrentHashMap<>();
+
+    /**
+     * @return the on heap size added by the entry
+     */
+    long index(DecoratedKey key, ByteBuffer term)
+    {
+        long size = 0;
+        Set<DecoratedKey> keys = terms.get(term);
+        if (keys == null)
+        {
+            Set<DecoratedKey> newKeys = ConcurrentHashMap.newKeySet();
+            keys = terms.putIfAbsent(ByteBufferUtil.clone(term), newKeys);
+            if (keys == null)
+            {
+                keys = newKeys;
+                size += ENTRY_OVERHEAD + ObjectSizes.sizeOnHeapOf(term);
+            }
+        }
+
+        if (keys.add(key))
+            size += ENTRY_OVERHEAD;
+        return size;
+    }
+
+    Set<DecoratedKey> search(ByteBuffer term)
+    {
+        Set<DecoratedKey> keys = terms.get(term);
+        return keys == null ? Collections.emptySet() : keys;
+    }
+}
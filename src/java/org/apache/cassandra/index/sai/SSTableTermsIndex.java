@@ -0,0 +1,315 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.index.sai;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.google.common.primitives.Ints;
+
+import org.apache.cassandra.io.sstable.CorruptSSTableException;
+import org.apache.cassandra.io.util.FileHandle;
+import org.apache.cassandra.io.util.RandomAccessReader;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.concurrent.Ref;
+import org.apache.cassandra.utils.concurrent.RefCounted;
+
+import static org.apache.cassandra.index.sai.SSTableTermsWriter.BLOCK_SIZE;
+import static org.apache.cassandra.index.sai.SSTableTermsWriter.FOOTER_SIZE;
+import static org.apache.cassandra.index.sai.SSTableTermsWriter.MAGIC;
+
+/**
+ * Reads the component written by {@link SSTableTermsWriter}.
+ * <p>
+ * Only the footer and the block index are kept on heap. The term blocks, posting lists and partition positions are
+ * read from the file by each query, through the {@link Reader} it opens with {@link #tryOpen()}.
+ * <p>
+ * The file is kept open from the moment it is loaded until the index is released and its last reader is closed, so
+ * that the offsets of the block index remain valid even if the component gets rebuilt in the meantime.
+ */
+final class SSTableTermsIndex
+{
+    static final int[] NO_PARTITIONS = new int[0];
+
+    private final FileHandle handle;
+    private final Ref<SSTableTermsIndex> selfRef;
+
+    private final int termCount;
+    private final long postingsOffset;
+
+    private final ByteBuffer[] blockTerms;
+    private final long[] blockOffsets;
+
+    private SSTableTermsIndex(FileHandle handle,
+                              int termCount,
+                              long postingsOffset,
+                              ByteBuffer[] blockTerms,
+                              long[] blockOffsets)
+    {
+        this.handle = handle;
+        this.selfRef = new Ref<>(this, new Tidy(handle));
+        this.termCount = termCount;
+        this.postingsOffset = postingsOffset;
+        this.blockTerms = blockTerms;
+        this.blockOffsets = blockOffsets;
+    }
+
+    @SuppressWarnings("resource") // the handle is owned by the returned index
+    static SSTableTermsIndex load(File file)
+    {
+        FileHandle handle;
+        try (FileHandle.Builder builder = new FileHandle.Builder(file.getPath()))
+        {
+            handle = builder.complete();
+        }
+
+        try
+        {
+            return load(file, handle);
+        }
+        catch (Throwable t)
+        {
+            handle.close();
+            throw t;
+        }
+    }
+
+    private static SSTableTermsIndex load(File file, FileHandle handle)
+    {
+        try (RandomAccessReader in = handle.createReader())
+        {
+            if (in.length() < FOOTER_SIZE)
+                throw new CorruptSSTableException(new IOException("Truncated index component"), file);
+
+            in.seek(in.length() - FOOTER_SIZE);
+            in.readInt(); // partition count
+            int termCount = in.readInt();
+            long postingsOffset = in.readLong();
+            in.readLong(); // terms offset, only needed to scan the whole dictionary
+            long blockIndexOffset = in.readLong();
+            if (in.readInt() != MAGIC)
+                throw new CorruptSSTableException(new IOException("Invalid index component footer"), file);
+
+            in.seek(blockIndexOffset);
+            int blocks = Ints.checkedCast(in.readUnsignedVInt());
+            ByteBuffer[] blockTerms = new ByteBuffer[blocks];
+            long[] blockOffsets = new long[blocks];
+            for (int i = 0; i < blocks; i++)
+            {
+                blockTerms[i] = ByteBufferUtil.readWithVIntLength(in);
+                blockOffsets[i] = in.readLong();
+            }
+            return new SSTableTermsIndex(handle, termCount, postingsOffset, blockTerms, blockOffsets);
+        }
+        catch (IOException e)
+        {
+            throw new CorruptSSTableException(e, file);
+        }
+    }
+
+    /**
+     * @return a reader of this index, or null if it has already been released
+     */
+    @SuppressWarnings("resource") // the reference is released when the reader is closed
+    Reader tryOpen()
+    {
+        Ref<SSTableTermsIndex> ref = selfRef.tryRef();
+        if (ref == null)
+            return null;
+
+        try
+        {
+            return new Reader(ref, handle.createReader());
+        }
+        catch (Throwable t)
+        {
+            ref.release();
+            throw t;
+        }
+    }
+
+    /**
+     * Releases the reference of the index itself, once it has been unloaded. The file is closed with the last
+     * reader still using it.
+     */
+    void release()
+    {
+        selfRef.release();
+    }
+
+    /**
+     * @return the sorted ordinals of the partitions containing the given term
+     */
+    private int[] postings(RandomAccessReader in, ByteBuffer term) throws IOException
+    {
+        int block = findBlock(term);
+        if (block < 0)
+            return NO_PARTITIONS;
+
+        in.seek(blockOffsets[block]);
+        int count = Math.min(BLOCK_SIZE, termCount - block * BLOCK_SIZE);
+        byte[] current = new byte[0];
+        for (int i = 0; i < count; i++)
+        {
+            int shared = Ints.checkedCast(in.readUnsignedVInt());
+            int suffix = Ints.checkedCast(in.readUnsignedVInt());
+            byte[] next = new byte[shared + suffix];
+            System.arraycopy(current, 0, next, 0, shared);
+            in.readFully(next, shared, suffix);
+            long postingOffset = in.readUnsignedVInt();
+            current = next;
+
+            int cmp = ByteBufferUtil.compareUnsigned(ByteBuffer.wrap(current), term);
+            if (cmp == 0)
+                return readPostings(in, postingsOffset + postingOffset);
+            if (cmp > 0)
+                break;
+        }
+        return NO_PARTITIONS;
+    }
+
+    /**
+     * @return the position in the primary index of the sstable of the partition with the given ordinal
+     */
+    private long partitionPosition(RandomAccessReader in, int partition) throws IOException
+    {
+        in.seek((long) partition * Long.BYTES);
+        return in.readLong();
+    }
+
+    private int[] readPostings(RandomAccessReader in, long position) throws IOException
+    {
+        in.seek(position);
+        int[] partitions = new int[Ints.checkedCast(in.readUnsignedVInt())];
+        int previous = 0;
+        for (int i = 0; i < partitions.length; i++)
+        {
+            previous += Ints.checkedCast(in.readUnsignedVInt());
+            partitions[i] = previous;
+        }
+        return partitions;
+    }
+
+    /**
+     * @return the last block whose first term is lower than or equal to the given term, or -1 if there is none
+     */
+    private int findBlock(ByteBuffer term)
+    {
+        int low = 0, high = blockTerms.length - 1;
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            int cmp = ByteBufferUtil.compareUnsigned(blockTerms[mid], term);
+            if (cmp == 0)
+                return mid;
+            if (cmp < 0)
+                low = mid + 1;
+            else
+                high = mid - 1;
+        }
+        return high;
+    }
+
+    /**
+     * Reads the index of a single query, holding a reference to it until closed.
+     */
+    final class Reader implements AutoCloseable
+    {
+        private final Ref<SSTableTermsIndex> ref;
+        private final RandomAccessReader in;
+
+        private Reader(Ref<SSTableTermsIndex> ref, RandomAccessReader in)
+        {
+            this.ref = ref;
+            this.in = in;
+        }
+
+        /**
+         * @return the sorted ordinals of the partitions containing the given term
+         */
+        int[] postings(ByteBuffer term) throws IOException
+        {
+            return SSTableTermsIndex.this.postings(in, term);
+        }
+
+        /**
+         * @return the position in the primary index of the sstable of the partition with the given ordinal
+         */
+        long partitionPosition(int partition) throws IOException
+        {
+            return SSTableTermsIndex.this.partitionPosition(in, partition);
+        }
+
+        public void close()
+        {
+            try
+            {
+                in.close();
+            }
+            finally
+            {
+                ref.release();
+            }
+        }
+    }
+
+    private static final class Tidy implements RefCounted.Tidy
+    {
+        private final FileHandle handle;
+
+        private Tidy(FileHandle handle)
+        {
+            this.handle = handle;
+        }
+
+        public void tidy()
+        {
+            handle.close();
+        }
+
+        public String name()
+        {
+            return handle.path();
+        }
+    }
+
+    /**
+     * Intersects two sorted arrays of partition ordinals.
+     */
+    static int[] intersect(int[] a, int[] b)
+    {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length)
+        {
+            if (a[i] < b[j])
+                i++;
+            else if (a[i] > b[j])
+                j++;
+            else
+            {
+                result[k++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return k == result.length ? result : Arrays.copyOf(result, k);
+    }
+}
@@ -0,0 +1,502 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.index.sai;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.primitives.Ints;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.LongArrayList;
+
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.rows.Cell;
+import org.apache.cassandra.db.rows.Row;
+import org.apache.cassandra.db.rows.Unfiltered;
+import org.apache.cassandra.io.FSWriteError;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.format.SSTableFlushObserver;
+import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.io.util.RandomAccessReader;
+import org.apache.cassandra.io.util.SequentialWriter;
+import org.apache.cassandra.schema.ColumnMetadata;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.ObjectSizes;
+
+/**
+ * Writes the {@link StorageAttachedIndex} component of an sstable, as the sstable itself is written by a flush, a
+ * compaction or an index build.
+ * <p>
+ * The terms and partitions are buffered on heap up to {@link #MAX_SEGMENT_MEMORY}: past that, the buffered segment
+ * is written to a temporary file at the next partition boundary, like the segments of SASI. Once the sstable is
+ * complete, the segments and the partitions still buffered are merged into the component. The component is written
+ * to a temporary file too, renamed once complete, as an index build writes the component of a live sstable that may
+ * be searched at the same time. The temporary files left over by an interrupted write are removed on startup.
+ * <p>
+ * Partitions are identified by their ordinal in the sstable, and the component is laid out as:
+ * <ul>
+ *     <li>the position in the primary index of each partition, as a fixed size long, so that it can be looked up
+ *     by ordinal;</li>
+ *     <li>the posting list of each term: its size, followed by the delta encoded ordinals of the partitions containing
+ *     the term, all as unsigned vints;</li>
+ *     <li>the terms dictionary: the terms in unsigned byte order, in blocks of {@link #BLOCK_SIZE} terms, where each
+ *     term is front coded against the previous term of its block and followed by the offset of its posting list;</li>
+ *     <li>the block index: the first term of each block and the position of the block;</li>
+ *     <li>a fixed size footer, see {@link #FOOTER_SIZE}.</li>
+ * </ul>
+ */
+final class SSTableTermsWriter implements SSTableFlushObserver
+{
+    static final int BLOCK_SIZE = 16;
+
+    static final int MAGIC = 0x53414931;
+
+    /**
+     * partition count (int), term count (int), postings offset (long), terms offset (long), block index offset (long)
+     * and magic (int)
+     */
+    static final int FOOTER_SIZE = 36;
+
+    static final long MAX_SEGMENT_MEMORY = Long.getLong("cassandra.sai.max_segment_memory_in_mb", 128) << 20;
+
+    private static final long ENTRY_OVERHEAD = 64;
+
+    private final ColumnMetadata column;
+    private final File tmpFile;
+    private final File file;
+    private final long maxSegmentMemory;
+
+    private final LongArrayList partitionPositions = new LongArrayList();
+    private final TreeMap<ByteBuffer, IntArrayList> postings = new TreeMap<>(ByteBufferUtil::compareUnsigned);
+    private long bufferedBytes;
+    private final List<File> segments = new ArrayList<>();
+
+    private int partition = -1;
+    private boolean completed;
+
+    SSTableTermsWriter(ColumnMetadata column, File tmpFile, File file)
+    {
+        this(column, tmpFile, file, MAX_SEGMENT_MEMORY);
+    }
+
+    @VisibleForTesting
+    SSTableTermsWriter(ColumnMetadata column, File tmpFile, File file, long maxSegmentMemory)
+    {
+        this.column = column;
+        this.tmpFile = tmpFile;
+        this.file = file;
+        this.maxSegmentMemory = maxSegmentMemory;
+    }
+
+    public void begin()
+    {
+    }
+
+    public void startPartition(DecoratedKey key, long indexPosition)
+    {
+        // a partition is never split between segments, so that the posting lists of a term can just be concatenated
+        if (bufferedBytes >= maxSegmentMemory)
+            flushSegment();
+
+        partition++;
+        partitionPositions.add(indexPosition);
+        bufferedBytes += Long.BYTES;
+    }
+
+    public void nextUnfilteredCluster(Unfiltered unfilteredCluster)
+    {
+        if (!unfilteredCluster.isRow())
+            return;
+
+        Cell cell = ((Row) unfilteredCluster).getCell(column);
+        if (cell == null || cell.isTombstone())
+            return;
+
+        IntArrayList partitions = postings.get(cell.value());
+        if (partitions == null)
+        {
+            ByteBuffer term = ByteBufferUtil.clone(cell.value());
+            postings.put(term, partitions = new IntArrayList());
+            bufferedBytes += ENTRY_OVERHEAD + ObjectSizes.sizeOnHeapOf(term);
+        }
+        else if (partitions.get(partitions.size() - 1) == partition)
+        {
+            return;
+        }
+
+        partitions.add(partition);
+        bufferedBytes += Integer.BYTES;
+    }
+
+    /**
+     * Writes the buffered partitions and terms to a new segment: the number of partitions followed by their positions,
+     * then the number of terms followed by each term and its posting list, encoded as in the component.
+     */
+    private void flushSegment()
+    {
+        File segment = new File(file.getPath() + '_' + segments.size() + Descriptor.TMP_EXT);
+        segments.add(segment);
+        try (SequentialWriter out = new SequentialWriter(segment))
+        {
+            out.writeUnsignedVInt(partitionPositions.size());
+            for (int i = 0; i < partitionPositions.size(); i++)
+                out.writeLong(partitionPositions.get(i));
+
+            out.writeUnsignedVInt(postings.size());
+            for (Map.Entry<ByteBuffer, IntArrayList> entry : postings.entrySet())
+            {
+                ByteBufferUtil.writeWithVIntLength(entry.getKey(), out);
+                writePostings(entry.getValue(), out);
+            }
+            // only read back by the merge, so there is no need to sync it
+            out.flush();
+        }
+        catch (IOException e)
+        {
+            throw new FSWriteError(e, segment);
+        }
+
+        partitionPositions.clear();
+        postings.clear();
+        bufferedBytes = 0;
+    }
+
+    private static void writePostings(IntArrayList partitions, DataOutputPlus out) throws IOException
+    {
+        out.writeUnsignedVInt(partitions.size());
+        int previous = 0;
+        for (int i = 0; i < partitions.size(); i++)
+        {
+            out.writeUnsignedVInt(partitions.get(i) - previous);
+            previous = partitions.get(i);
+        }
+    }
+
+    /**
+     * Writes the component. This is called both when the sstable writer is finished and when it is committed, so only
+     * the first call does something.
+     */
+    public void complete()
+    {
+        if (completed)
+            return;
+
+        completed = true;
+        File termsFile = new File(file.getPath() + "_terms" + Descriptor.TMP_EXT);
+        try
+        {
+            // left over by an interrupted build
+            if (tmpFile.exists())
+                FileUtils.deleteWithConfirm(tmpFile);
+
+            try (SequentialWriter out = new SequentialWriter(tmpFile))
+            {
+                write(out, termsFile);
+                out.sync();
+            }
+            catch (IOException e)
+            {
+                FileUtils.delete(tmpFile);
+                throw new FSWriteError(e, tmpFile);
+            }
+            catch (Throwable t)
+            {
+                FileUtils.delete(tmpFile);
+                throw t;
+            }
+        }
+        finally
+        {
+            abort();
+            FileUtils.delete(termsFile);
+        }
+
+        // replaces the component of the previous build, if any
+        FileUtils.renameWithConfirm(tmpFile, file);
+    }
+
+    /**
+     * Deletes the segments written so far, when the sstable won't be completed.
+     */
+    void abort()
+    {
+        segments.forEach(FileUtils::delete);
+        segments.clear();
+    }
+
+    /**
+     * Merges the segments and the buffered partitions into the component. The posting lists are written as the terms
+     * are merged, while the dictionary, that comes after them, is written to a separate temporary file that is then
+     * appended.
+     */
+    private void write(SequentialWriter out, File termsFile) throws IOException
+    {
+        List<TermSource> sources = new ArrayList<>(segments.size() + 1);
+        try
+        {
+            for (File segment : segments)
+                sources.add(new SegmentSource(sources.size(), segment));
+            sources.add(new BufferedSource(sources.size()));
+
+            int partitionCount = 0;
+            for (TermSource source : sources)
+                partitionCount += source.writePartitionPositions(out);
+
+            long postingsOffset = out.position();
+            PriorityQueue<TermSource> queue = new PriorityQueue<>(sources.size(), TermSource.COMPARATOR);
+            for (TermSource source : sources)
+            {
+                if (source.term != null)
+                    queue.add(source);
+            }
+
+            List<ByteBuffer> blockTerms = new ArrayList<>();
+            LongArrayList blockOffsets = new LongArrayList();
+            List<TermSource> merged = new ArrayList<>(sources.size());
+            int termCount = 0;
+            try (SequentialWriter terms = new SequentialWriter(termsFile))
+            {
+                ByteBuffer previous = null;
+                while (!queue.isEmpty())
+                {
+                    // the sources of a term are polled in order, so that their posting lists are concatenated in order
+                    merged.clear();
+                    merged.add(queue.poll());
+                    ByteBuffer term = merged.get(0).term;
+                    while (!queue.isEmpty() && ByteBufferUtil.compareUnsigned(queue.peek().term, term) == 0)
+                        merged.add(queue.poll());
+
+                    long postingOffset = out.position() - postingsOffset;
+                    int size = 0;
+                    for (TermSource source : merged)
+                        size += source.postingCount;
+                    out.writeUnsignedVInt(size);
+                    int last = 0;
+                    for (TermSource source : merged)
+                    {
+                        last = source.writePostings(out, last);
+                        if (source.term != null)
+                            queue.add(source);
+                    }
+
+                    if (termCount % BLOCK_SIZE == 0)
+                    {
+                        blockTerms.add(term);
+                        blockOffsets.add(terms.position());
+                        previous = null;
+                    }
+
+                    int shared = previous == null ? 0 : sharedPrefix(previous, term);
+                    terms.writeUnsignedVInt(shared);
+                    terms.writeUnsignedVInt(term.remaining() - shared);
+                    ByteBuffer suffix = term.duplicate();
+                    suffix.position(suffix.position() + shared);
+                    terms.write(suffix);
+                    terms.writeUnsignedVInt(postingOffset);
+
+                    previous = term;
+                    termCount++;
+                }
+                terms.flush();
+            }
+
+            long termsOffset = out.position();
+            Files.copy(termsFile.toPath(), out);
+
+            long blockIndexOffset = out.position();
+            out.writeUnsignedVInt(blockTerms.size());
+            for (int i = 0; i < blockTerms.size(); i++)
+            {
+                ByteBufferUtil.writeWithVIntLength(blockTerms.get(i), out);
+                out.writeLong(termsOffset + blockOffsets.get(i));
+            }
+
+            out.writeInt(partitionCount);
+            out.writeInt(termCount);
+            out.writeLong(postingsOffset);
+            out.writeLong(termsOffset);
+            out.writeLong(blockIndexOffset);
+            out.writeInt(MAGIC);
+        }
+        finally
+        {
+            FileUtils.closeQuietly(sources);
+        }
+    }
+
+    private static int sharedPrefix(ByteBuffer a, ByteBuffer b)
+    {
+        int length = Math.min(a.remaining(), b.remaining());
+        int i = 0;
+        while (i < length && a.get(a.position() + i) == b.get(b.position() + i))
+            i++;
+        return i;
+    }
+
+    /**
+     * The partitions and the sorted terms of a segment, read as they are merged.
+     */
+    private static abstract class TermSource implements Closeable
+    {
+        static final Comparator<TermSource> COMPARATOR = (a, b) -> {
+            int cmp = ByteBufferUtil.compareUnsigned(a.term, b.term);
+            return cmp != 0 ? cmp : Integer.compare(a.order, b.order);
+        };
+
+        final int order;
+
+        /**
+         * The current term, or null once all the terms have been read, and the size of its posting list.
+         */
+        ByteBuffer term;
+        int postingCount;
+
+        TermSource(int order)
+        {
+            this.order = order;
+        }
+
+        /**
+         * Copies the positions of the partitions of the segment, before any term is read.
+         *
+         * @return the number of partitions of the segment
+         */
+        abstract int writePartitionPositions(DataOutputPlus out) throws IOException;
+
+        /**
+         * Copies the posting list of the current term, delta encoded from the given ordinal, and moves to the next
+         * term.
+         *
+         * @return the last ordinal of the posting list
+         */
+        abstract int writePostings(DataOutputPlus out, int previous) throws IOException;
+
+        public void close()
+        {
+        }
+    }
+
+    private static final class SegmentSource extends TermSource
+    {
+        private final RandomAccessReader in;
+        private int remainingTerms;
+
+        private SegmentSource(int order, File segment)
+        {
+            super(order);
+            this.in = RandomAccessReader.open(segment);
+        }
+
+        int writePartitionPositions(DataOutputPlus out) throws IOException
+        {
+            int count = Ints.checkedCast(in.readUnsignedVInt());
+            for (int i = 0; i < count; i++)
+                out.writeLong(in.readLong());
+
+            remainingTerms = Ints.checkedCast(in.readUnsignedVInt());
+            next();
+            return count;
+        }
+
+        int writePostings(DataOutputPlus out, int previous) throws IOException
+        {
+            int partition = 0;
+            for (int i = 0; i < postingCount; i++)
+            {
+                partition += Ints.checkedCast(in.readUnsignedVInt());
+                out.writeUnsignedVInt(partition - previous);
+                previous = partition;
+            }
+            next();
+            return previous;
+        }
+
+        private void next() throws IOException
+        {
+            if (remainingTerms-- == 0)
+            {
+                term = null;
+                return;
+            }
+            term = ByteBufferUtil.readWithVIntLength(in);
+            postingCount = Ints.checkedCast(in.readUnsignedVInt());
+        }
+
+        public void close()
+        {
+            in.close();
+        }
+    }
+
+    private final class BufferedSource extends TermSource
+    {
+        private final Iterator<Map.Entry<ByteBuffer, IntArrayList>> entries = postings.entrySet().iterator();
+        private IntArrayList partitions;
+
+        private BufferedSource(int order)
+        {
+            super(order);
+        }
+
+        int writePartitionPositions(DataOutputPlus out) throws IOException
+        {
+            for (int i = 0; i < partitionPositions.size(); i++)
+                out.writeLong(partitionPositions.get(i));
+
+            next();
+            return partitionPositions.size();
+        }
+
+        int writePostings(DataOutputPlus out, int previous) throws IOException
+        {
+            for (int i = 0; i < partitions.size(); i++)
+            {
+                out.writeUnsignedVInt(partitions.get(i) - previous);
+                previous = partitions.get(i);
+            }
+            next();
+            return previous;
+        }
+
+        private void next()
+        {
+            if (!entries.hasNext())
+            {
+                term = null;
+                return;
+            }
+            Map.Entry<ByteBuffer, IntArrayList> entry = entries.next();
+            term = entry.getKey();
+            partitions = entry.getValue();
+            postingCount = partitions.size();
+        }
+    }
+}
@@ -0,0 +1,514 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.index.sai;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.cql3.Operator;
+import org.apache.cassandra.cql3.statements.IndexTarget;
+import org.apache.cassandra.db.*;
+import org.apache.cassandra.db.compaction.CompactionManager;
+import org.apache.cassandra.db.compaction.OperationType;
+import org.apache.cassandra.db.filter.RowFilter;
+import org.apache.cassandra.db.lifecycle.SSTableSet;
+import org.apache.cassandra.db.lifecycle.View;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.db.partitions.PartitionIterator;
+import org.apache.cassandra.db.partitions.PartitionUpdate;
+import org.apache.cassandra.db.rows.Cell;
+import org.apache.cassandra.db.rows.Row;
+import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.exceptions.InvalidRequestException;
+import org.apache.cassandra.index.Index;
+import org.apache.cassandra.index.IndexRegistry;
+import org.apache.cassandra.index.SecondaryIndexBuilder;
+import org.apache.cassandra.index.TargetParser;
+import org.apache.cassandra.index.transactions.IndexTransaction;
+import org.apache.cassandra.io.sstable.Component;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.format.SSTableFlushObserver;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.notifications.*;
+import org.apache.cassandra.schema.ColumnMetadata;
+import org.apache.cassandra.schema.IndexMetadata;
+import org.apache.cassandra.schema.TableMetadata;
+import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.Pair;
+import org.apache.cassandra.utils.concurrent.OpOrder;
+import org.apache.cassandra.utils.concurrent.Refs;
+
+/**
+ * A secondary index whose data is attached to the sstables of the base table, rather than stored in a separate
+ * table.
+ * <p>
+ * The rows written to a memtable are indexed in memory, in a {@link MemtableTermsIndex} dropped once the memtable has
+ * been flushed. Each sstable written by a flush or a compaction gets its own index component, written alongside the
+ * sstable by a {@link SSTableTermsWriter}: a terms dictionary mapping each indexed value to the posting list of the
+ * ordinals of the partitions containing it. A query looks up the value of each of its indexed expressions in every
+ * memtable and sstable, and intersects the results to get the candidate partitions, that are then read and
+ * post-filtered.
+ * <p>
+ * Only the {@code =} operator on a regular or static, non complex, column is supported. Values are matched on their
+ * serialized bytes.
+ */
+public class StorageAttachedIndex implements Index, INotificationConsumer
+{
+    private static final Logger logger = LoggerFactory.getLogger(StorageAttachedIndex.class);
+
+    private static final String FILE_NAME_FORMAT = "SI_%s.db";
+
+    private static class StorageAttachedIndexBuildingSupport implements IndexBuildingSupport
+    {
+        public SecondaryIndexBuilder getIndexBuildTask(ColumnFamilyStore cfs,
+                                                       Set<Index> indexes,
+                                                       Collection<SSTableReader> sstablesToRebuild)
+        {
+            Set<StorageAttachedIndex> toBuild = indexes.stream()
+                                                       .filter(i -> i instanceof StorageAttachedIndex)
+                                                       .map(i -> (StorageAttachedIndex) i)
+                                                       .collect(Collectors.toSet());
+            return new StorageAttachedIndexBuilder(cfs, toBuild, sstablesToRebuild);
+        }
+
+        /**
+         * Splits the build per sstable, as each sstable has its own index components.
+         */
+        @Override
+        public List<SecondaryIndexBuilder> getIndexBuildTasks(ColumnFamilyStore cfs,
+                                                              Set<Index> indexes,
+                                                              Collection<SSTableReader> sstablesToRebuild,
+                                                              boolean isFullRebuild)
+        {
+            return sstablesToRebuild.stream()
+                                    .map(sstable -> getIndexBuildTask(cfs, indexes, Collections.singleton(sstable)))
+                                    .collect(Collectors.toList());
+        }
+    }
+
+    private static final StorageAttachedIndexBuildingSupport INDEX_BUILDER_SUPPORT = new StorageAttachedIndexBuildingSupport();
+
+    private final ColumnFamilyStore baseCfs;
+    private final IndexMetadata config;
+    private final ColumnMetadata column;
+    private final Component component;
+
+    private final ConcurrentMap<Memtable, MemtableTermsIndex> memtableIndexes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Descriptor, SSTableTermsIndex> sstableIndexes = new ConcurrentHashMap<>();
+
+    public StorageAttachedIndex(ColumnFamilyStore baseCfs, IndexMetadata config)
+    {
+        this.baseCfs = baseCfs;
+        this.config = config;
+        this.column = TargetParser.parse(baseCfs.metadata(), config).left;
+        this.component = new Component(Component.Type.SECONDARY_INDEX, String.format(FILE_NAME_FORMAT, config.name));
+
+        baseCfs.getTracker().subscribe(this);
+    }
+
+    public static Map<String, String> validateOptions(Map<String, String> options, TableMetadata metadata)
+    {
+        String targetColumn = options.get(IndexTarget.TARGET_OPTION_NAME);
+        if (targetColumn == null)
+            throw new ConfigurationException("unknown target column");
+
+        Pair<ColumnMetadata, IndexTarget.Type> target = TargetParser.parse(metadata, targetColumn);
+        if (target == null)
+            throw new ConfigurationException("failed to retrieve target column for: " + targetColumn);
+
+        if (target.left.isComplex())
+            throw new ConfigurationException("complex columns are not supported by storage attached indexes");
+
+        if (target.left.isPrimaryKeyColumn())
+            throw new ConfigurationException("primary key columns are not supported by storage attached indexes");
+
+        return Collections.emptyMap();
+    }
+
+    public void register(IndexRegistry registry)
+    {
+        registry.registerIndex(this);
+    }
+
+    public IndexMetadata getIndexMetadata()
+    {
+        return config;
+    }
+
+    ColumnMetadata getColumn()
+    {
+        return column;
+    }
+
+    /**
+     * Builds the missing components, for the sstables written before the index was created. The memtable is flushed
+     * first, since its current content hasn't been indexed either. As the components are written to temporary files
+     * that are only renamed once complete, a build interrupted by a restart resumes with the sstables that still lack
+     * them.
+     */
+    public Callable<?> getInitializationTask()
+    {
+        return () -> {
+            baseCfs.forceBlockingFlush();
+
+            try (ColumnFamilyStore.RefViewFragment viewFragment = baseCfs.selectAndReference(View.selectFunction(SSTableSet.CANONICAL));
+                 Refs<SSTableReader> sstables = viewFragment.refs)
+            {
+                List<SSTableReader> toBuild = sstables.stream()
+                                                      .filter(sstable -> !hasComponent(sstable.descriptor))
+                                                      .collect(Collectors.toList());
+                if (toBuild.isEmpty())
+                    return null;
+
+                logger.info("Building index {} for {} sstables of {}.{}",
+                            config.name, toBuild.size(), baseCfs.metadata.keyspace, baseCfs.metadata.name);
+
+                List<ListenableFuture<?>> futures = INDEX_BUILDER_SUPPORT.getIndexBuildTasks(baseCfs, Collections.singleton(this), toBuild, true)
+                                                                         .stream()
+                                                                         .map(CompactionManager.instance::submitIndexBuild)
+                                                                         .collect(Collectors.toList());
+                // wait for all the tasks before surfacing any failure, as they use the referenced sstables
+                FBUtilities.waitOnFuture(Futures.successfulAsList(futures));
+                FBUtilities.waitOnFutures(futures);
+            }
+            return null;
+        };
+    }
+
+    public Callable<?> getMetadataReloadTask(IndexMetadata indexMetadata)
+    {
+        return null;
+    }
+
+    public Callable<?> getBlockingFlushTask()
+    {
+        return null; // the index components are written along with the sstables
+    }
+
+    public Callable<?> getInvalidateTask()
+    {
+        return () -> {
+            baseCfs.getTracker().unsubscribe(this);
+            memtableIndexes.clear();
+            sstableIndexes.keySet().forEach(this::unloadSSTableIndex);
+            for (SSTableReader sstable : baseCfs.getLiveSSTables())
+                new DeleteComponent(componentFile(sstable.descriptor)).run();
+            return null;
+        };
+    }
+
+    public Callable<?> getTruncateTask(long truncatedAt)
+    {
+        return null; // the components are removed along with the truncated sstables
+    }
+
+    public boolean shouldBuildBlocking()
+    {
+        return true;
+    }
+
+    public Optional<ColumnFamilyStore> getBackingTable()
+    {
+        return Optional.empty();
+    }
+
+    public boolean indexes(RegularAndStaticColumns columns)
+    {
+        return columns.contains(column);
+    }
+
+    public boolean dependsOn(ColumnMetadata column)
+    {
+        return this.column.compareTo(column) == 0;
+    }
+
+    public boolean supportsExpression(ColumnMetadata column, Operator operator)
+    {
+        return dependsOn(column) && operator == Operator.EQ;
+    }
+
+    public AbstractType<?> customExpressionValueType()
+    {
+        return null;
+    }
+
+    public RowFilter getPostIndexQueryFilter(RowFilter filter)
+    {
+        // the index only selects candidate partitions, so all the expressions have to be checked against their rows
+        return filter;
+    }
+
+    public long getEstimatedResultRows()
+    {
+        // like SASI, prefer this index over the ones backed by a table, since it can intersect several expressions
+        return Long.MIN_VALUE;
+    }
+
+    public void validate(PartitionUpdate update) throws InvalidRequestException
+    {
+    }
+
+    public Indexer indexerFor(DecoratedKey key, RegularAndStaticColumns columns, int nowInSec, OpOrder.Group opGroup, IndexTransaction.Type transactionType)
+    {
+        // we are only interested in the writes to the memtable, everything else is indexed by the sstable writers
+        if (transactionType != IndexTransaction.Type.UPDATE)
+            return null;
+
+        return new Indexer()
+        {
+            public void begin()
+            {
+            }
+
+            public void partitionDelete(DeletionTime deletionTime)
+            {
+            }
+
+            public void rangeTombstone(RangeTombstone tombstone)
+            {
+            }
+
+            public void insertRow(Row row)
+            {
+                Cell cell = row.getCell(column);
+                if (cell == null || cell.isTombstone())
+                    return;
+
+                // The data of the write may end up in an older memtable than the current one if they are being
+                // switched, but never in a newer one: indexing it in the current memtable keeps it searchable at
+                // least as long as it is in a memtable.
+                Memtable memtable = baseCfs.getTracker().getView().getCurrentMemtable();
+                long size = memtableIndexes.computeIfAbsent(memtable, m -> new MemtableTermsIndex()).index(key, cell.value());
+                memtable.getAllocator().onHeap().allocate(size, opGroup);
+            }
+
+            public void updateRow(Row oldRow, Row newRow)
+            {
+                insertRow(newRow);
+            }
+
+            public void removeRow(Row row)
+            {
+            }
+
+            public void finish()
+            {
+            }
+        };
+    }
+
+    public Searcher searcherFor(ReadCommand command) throws InvalidRequestException
+    {
+        List<Pair<StorageAttachedIndex, ByteBuffer>> expressions = new ArrayList<>();
+        for (RowFilter.Expression expression : command.rowFilter().getExpressions())
+        {
+            if (expression.isCustom() || expression.operator() != Operator.EQ)
+                continue;
+
+            for (Index index : baseCfs.indexManager.listIndexes())
+            {
+                if (index instanceof StorageAttachedIndex
+                    && index.supportsExpression(expression.column(), expression.operator())
+                    && baseCfs.indexManager.isIndexQueryable(index))
+                {
+                    expressions.add(Pair.create((StorageAttachedIndex) index, expression.getIndexValue()));
+                    break;
+                }
+            }
+        }
+        return new StorageAttachedIndexSearcher(baseCfs, command, expressions);
+    }
+
+    public SSTableFlushObserver getFlushObserver(Descriptor descriptor, OperationType opType)
+    {
+        return newWriter(descriptor);
+    }
+
+    public BiFunction<PartitionIterator, ReadCommand, PartitionIterator> postProcessorFor(ReadCommand command)
+    {
+        return NO_POST_PROCESSING;
+    }
+
+    public IndexBuildingSupport getBuildTaskSupport()
+    {
+        return INDEX_BUILDER_SUPPORT;
+    }
+
+    public void handleNotification(INotification notification, Object sender)
+    {
+        if (notification instanceof SSTableAddedNotification)
+        {
+            SSTableAddedNotification notice = (SSTableAddedNotification) notification;
+            // the sstables that don't come from a flush are already built by the SecondaryIndexManager
+            if (notice.memtable().isPresent())
+                buildMissingComponents(notice.added);
+        }
+        else if (notification instanceof SSTableListChangedNotification)
+        {
+            SSTableListChangedNotification notice = (SSTableListChangedNotification) notification;
+            for (SSTableReader sstable : notice.removed)
+                removeSSTable(sstable);
+            buildMissingComponents(notice.added);
+        }
+        else if (notification instanceof MemtableDiscardedNotification)
+        {
+            memtableIndexes.remove(((MemtableDiscardedNotification) notification).memtable);
+        }
+        else if (notification instanceof MemtableRenewedNotification)
+        {
+            memtableIndexes.keySet().retainAll(Sets.newHashSet(baseCfs.getTracker().getView().getAllMemtables()));
+        }
+    }
+
+    /**
+     * Builds the components of the given new sstables that have been written without them, because their writer was
+     * created before the index. They are searched by scanning all their keys until then.
+     */
+    private void buildMissingComponents(Iterable<SSTableReader> added)
+    {
+        List<SSTableReader> toBuild = new ArrayList<>();
+        for (SSTableReader sstable : added)
+        {
+            if (!sstable.isMarkedCompacted() && !hasComponent(sstable.descriptor))
+                toBuild.add(sstable);
+        }
+        if (toBuild.isEmpty())
+            return;
+
+        Refs<SSTableReader> refs = Refs.tryRef(toBuild);
+        if (refs == null)
+            return; // already compacted away
+
+        logger.debug("Building index {} for {} new sstables of {}.{}",
+                     config.name, toBuild.size(), baseCfs.metadata.keyspace, baseCfs.metadata.name);
+        try
+        {
+            CompactionManager.instance.submitIndexBuild(new StorageAttachedIndexBuilder(baseCfs, Collections.singleton(this), toBuild))
+                                      .addListener(refs::release, MoreExecutors.directExecutor());
+        }
+        catch (Throwable t)
+        {
+            refs.release();
+            throw t;
+        }
+    }
+
+    SSTableTermsWriter newWriter(Descriptor descriptor)
+    {
+        return new SSTableTermsWriter(column, new File(descriptor.tmpFilenameFor(component)), componentFile(descriptor));
+    }
+
+    Set<DecoratedKey> searchMemtable(Memtable memtable, ByteBuffer value)
+    {
+        MemtableTermsIndex index = memtableIndexes.get(memtable);
+        return index == null ? Collections.emptySet() : index.search(value);
+    }
+
+    /**
+     * @return a reader of the index of the given sstable, to be closed by the caller, or null if its component hasn't
+     * been built yet
+     */
+    SSTableTermsIndex.Reader openSSTableIndex(SSTableReader sstable)
+    {
+        while (true)
+        {
+            SSTableTermsIndex index = sstableIndexes.get(sstable.descriptor);
+            if (index == null)
+            {
+                if (!hasComponent(sstable.descriptor))
+                    return null;
+
+                SSTableTermsIndex loaded = SSTableTermsIndex.load(componentFile(sstable.descriptor));
+                index = sstableIndexes.putIfAbsent(sstable.descriptor, loaded);
+                if (index == null)
+                    index = loaded;
+                else
+                    loaded.release();
+            }
+
+            SSTableTermsIndex.Reader reader = index.tryOpen();
+            if (reader != null)
+                return reader;
+
+            // the index has just been unloaded, because its component has been rebuilt
+            sstableIndexes.remove(sstable.descriptor, index);
+        }
+    }
+
+    void unloadSSTableIndex(SSTableReader sstable)
+    {
+        unloadSSTableIndex(sstable.descriptor);
+    }
+
+    private void unloadSSTableIndex(Descriptor descriptor)
+    {
+        SSTableTermsIndex index = sstableIndexes.remove(descriptor);
+        if (index != null)
+            index.release();
+    }
+
+    boolean hasComponent(Descriptor descriptor)
+    {
+        return componentFile(descriptor).exists();
+    }
+
+    @VisibleForTesting
+    File componentFile(Descriptor descriptor)
+    {
+        return new File(descriptor.filenameFor(component));
+    }
+
+    private void removeSSTable(SSTableReader sstable)
+    {
+        unloadSSTableIndex(sstable);
+        // the component of a compacted sstable is deleted along with the sstable, once its last reader is done
+        if (sstable.isMarkedCompacted())
+            sstable.runOnClose(new DeleteComponent(componentFile(sstable.descriptor)));
+    }
+
+    private static class DeleteComponent implements Runnable
+    {
+        private final File file;
+
+        private DeleteComponent(File file)
+        {
+            this.file = file;
+        }
+
+        public void run()
+        {
+            if (file.exists())
+                FileUtils.deleteWithConfirm(file);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.index.sai;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import com.google.common.util.concurrent.RateLimiter;
+
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.RowIndexEntry;
+import org.apache.cassandra.db.compaction.CompactionInfo;
+import org.apache.cassandra.db.compaction.CompactionInterruptedException;
+import org.apache.cassandra.db.compaction.CompactionManager;
+import org.apache.cassandra.db.compaction.OperationType;
+import org.apache.cassandra.db.rows.Unfiltered;
+import org.apache.cassandra.index.SecondaryIndexBuilder;
+import org.apache.cassandra.io.FSReadError;
+import org.apache.cassandra.io.sstable.KeyIterator;
+import org.apache.cassandra.io.sstable.SSTableIdentityIterator;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.io.util.RandomAccessReader;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.UUIDGen;
+
+/**
+ * Writes the {@link StorageAttachedIndex} components of existing sstables, by reading them back the same way they
+ * would have been written.
+ */
+class StorageAttachedIndexBuilder extends SecondaryIndexBuilder
+{
+    private final ColumnFamilyStore cfs;
+    private final UUID compactionId = UUIDGen.getTimeUUID();
+
+    private final Collection<StorageAttachedIndex> indexes;
+    private final Collection<SSTableReader> sstables;
+
+    private long bytesProcessed = 0;
+    private final long totalSizeInBytes;
+
+    StorageAttachedIndexBuilder(ColumnFamilyStore cfs, Collection<StorageAttachedIndex> indexes, Collection<SSTableReader> sstables)
+    {
+        long totalIndexBytes = 0;
+        for (SSTableReader sstable : sstables)
+            totalIndexBytes += new File(sstable.getIndexFilename()).length();
+
+        this.cfs = cfs;
+        this.indexes = indexes;
+        this.sstables = sstables;
+        this.totalSizeInBytes = totalIndexBytes;
+    }
+
+    public void build()
+    {
+        if (indexes.isEmpty())
+            return;
+
+        RateLimiter limiter = CompactionManager.instance.getIndexBuildRateLimiter();
+
+        for (SSTableReader sstable : sstables)
+        {
+            List<SSTableTermsWriter> writers = new ArrayList<>(indexes.size());
+            for (StorageAttachedIndex index : indexes)
+                writers.add(index.newWriter(sstable.descriptor));
+
+            long previousKeyPosition = 0;
+            try (RandomAccessReader dataFile = sstable.openDataReader();
+                 KeyIterator keys = new KeyIterator(sstable.descriptor, cfs.metadata()))
+            {
+                while (keys.hasNext())
+                {
+                    if (isStopRequested())
+                        throw new CompactionInterruptedException(getCompactionInfo());
+
+                    DecoratedKey key = keys.next();
+                    long keyPosition = keys.getKeyPosition();
+                    for (SSTableTermsWriter writer : writers)
+                        writer.startPartition(key, keyPosition);
+
+                    RowIndexEntry indexEntry = sstable.getPosition(key, SSTableReader.Operator.EQ);
+                    dataFile.seek(indexEntry.position);
+                    ByteBufferUtil.readWithShortLength(dataFile); // key
+
+                    try (SSTableIdentityIterator partition = SSTableIdentityIterator.create(sstable, dataFile, key))
+                    {
+                        if (cfs.metadata().hasStaticColumns())
+                        {
+                            for (SSTableTermsWriter writer : writers)
+                                writer.nextUnfilteredCluster(partition.staticRow());
+                        }
+
+                        while (partition.hasNext())
+                        {
+                            Unfiltered unfiltered = partition.next();
+                            for (SSTableTermsWriter writer : writers)
+                                writer.nextUnfilteredCluster(unfiltered);
+                        }
+                    }
+
+                    long partitionSize = dataFile.getFilePointer() - indexEntry.position;
+                    if (partitionSize > 0)
+                        limiter.acquire((int) Math.min(partitionSize, Integer.MAX_VALUE));
+
+                    bytesProcessed += keyPosition - previousKeyPosition;
+                    previousKeyPosition = keyPosition;
+                }
+            }
+            catch (IOException e)
+            {
+                writers.forEach(SSTableTermsWriter::abort);
+                throw new FSReadError(e, sstable.getFilename());
+            }
+            catch (Throwable t)
+            {
+                writers.forEach(SSTableTermsWriter::abort);
+                throw t;
+            }
+
+            writers.forEach(SSTableTermsWriter::complete);
+            // the components of a rebuilt sstable may have been loaded already
+            indexes.forEach(index -> index.unloadSSTableIndex(sstable));
+        }
+    }
+
+    public CompactionInfo getCompactionInfo()
+    {
+        return new CompactionInfo(cfs.metadata(),
+                                  OperationType.INDEX_BUILD,
+                                  bytesProcessed,
+                                  totalSizeInBytes,
+                                  compactionId);
+    }
+}
@@ -0,0 +1,442 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.index.sai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import com.google.common.collect.Iterators;
+
+import org.apache.cassandra.db.*;
+import org.apache.cassandra.db.filter.ColumnFilter;
+import org.apache.cassandra.db.filter.DataLimits;
+import org.apache.cassandra.db.lifecycle.SSTableSet;
+import org.apache.cassandra.db.lifecycle.View;
+import org.apache.cassandra.db.partitions.UnfilteredPartitionIterator;
+import org.apache.cassandra.db.rows.UnfilteredRowIterator;
+import org.apache.cassandra.dht.AbstractBounds;
+import org.apache.cassandra.dht.Bounds;
+import org.apache.cassandra.index.Index;
+import org.apache.cassandra.io.FSReadError;
+import org.apache.cassandra.io.sstable.ISSTableScanner;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.io.sstable.format.SSTableReadsListener;
+import org.apache.cassandra.schema.TableMetadata;
+import org.apache.cassandra.utils.AbstractIterator;
+import org.apache.cassandra.utils.CloseableIterator;
+import org.apache.cassandra.utils.MergeIterator;
+import org.apache.cassandra.utils.Pair;
+
+/**
+ * Selects the partitions matching all the indexed expressions of a query in every memtable and sstable of the table,
+ * and reads them.
+ * <p>
+ * The candidate partitions of each sstable are read lazily from its index component, in token order, and merged
+ * with the ones of the memtables. Only the candidates within the key range of the command are looked up, and the
+ * iteration stops as soon as the caller has enough rows to honor the limits of the command, so a page of results
+ * costs about as much as the candidates it reads, whatever the size of the table.
+ */
+class StorageAttachedIndexSearcher implements Index.Searcher
+{
+    private final ColumnFamilyStore cfs;
+    private final ReadCommand command;
+    private final List<Pair<StorageAttachedIndex, ByteBuffer>> expressions;
+    private final AbstractBounds<PartitionPosition> keyRange;
+
+    StorageAttachedIndexSearcher(ColumnFamilyStore cfs, ReadCommand command, List<Pair<StorageAttachedIndex, ByteBuffer>> expressions)
+    {
+        this.cfs = cfs;
+        this.command = command;
+        this.expressions = expressions;
+        this.keyRange = keyRange(command);
+    }
+
+    private static AbstractBounds<PartitionPosition> keyRange(ReadCommand command)
+    {
+        if (command instanceof PartitionRangeReadCommand)
+            return ((PartitionRangeReadCommand) command).dataRange().keyRange();
+
+        DecoratedKey key = ((SinglePartitionReadCommand) command).partitionKey();
+        return new Bounds<>(key, key);
+    }
+
+    @SuppressWarnings("resource") // the view and the candidates are closed by the returned iterator
+    public UnfilteredPartitionIterator search(ReadExecutionController executionController)
+    {
+        ColumnFamilyStore.RefViewFragment view = cfs.selectAndReference(View.selectFunction(SSTableSet.LIVE));
+        CloseableIterator<DecoratedKey> keys;
+        try
+        {
+            keys = candidates(view);
+        }
+        catch (Throwable t)
+        {
+            view.release();
+            throw t;
+        }
+
+        return new UnfilteredPartitionIterator()
+        {
+            private UnfilteredRowIterator next;
+
+            public TableMetadata metadata()
+            {
+                return command.metadata();
+            }
+
+            public boolean hasNext()
+            {
+                return prepareNext();
+            }
+
+            public UnfilteredRowIterator next()
+            {
+                if (next == null)
+                    prepareNext();
+
+                UnfilteredRowIterator toReturn = next;
+                next = null;
+                return toReturn;
+            }
+
+            private boolean prepareNext()
+            {
+                while (next == null && keys.hasNext())
+                {
+                    DecoratedKey key = keys.next();
+                    SinglePartitionReadCommand dataCmd = SinglePartitionReadCommand.create(cfs.metadata(),
+                                                                                           command.nowInSec(),
+                                                                                           command.columnFilter(),
+                                                                                           command.rowFilter(),
+                                                                                           DataLimits.NONE,
+                                                                                           key,
+                                                                                           command.clusteringIndexFilter(key),
+                                                                                           null);
+
+                    @SuppressWarnings("resource") // closed right away if empty, or by the caller or close() otherwise
+                    UnfilteredRowIterator partition = dataCmd.queryMemtableAndDisk(cfs, executionController);
+                    if (partition.isEmpty())
+                        partition.close();
+                    else
+                        next = partition;
+                }
+                return next != null;
+            }
+
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            public void close()
+            {
+                try
+                {
+                    if (next != null)
+                        next.close();
+                    keys.close();
+                }
+                finally
+                {
+                    view.release();
+                }
+            }
+        };
+    }
+
+    /**
+     * @return the keys, in token order and without duplicates, of the partitions selected by the command that may
+     * match all the expressions
+     */
+    private CloseableIterator<DecoratedKey> candidates(ColumnFamilyStore.RefViewFragment view)
+    {
+        List<CloseableIterator<DecoratedKey>> sources = new ArrayList<>();
+        try
+        {
+            for (Memtable memtable : view.memtables)
+                sources.add(memtableCandidates(memtable));
+
+            for (SSTableReader sstable : view.sstables)
+                sources.add(sstableCandidates(sstable));
+        }
+        catch (Throwable t)
+        {
+            sources.forEach(CloseableIterator::close);
+            throw t;
+        }
+
+        return MergeIterator.get(sources, DecoratedKey::compareTo, new MergeIterator.Reducer<DecoratedKey, DecoratedKey>()
+        {
+            private DecoratedKey reduced;
+
+            public boolean trivialReduceIsTrivial()
+            {
+                return true;
+            }
+
+            public void reduce(int idx, DecoratedKey current)
+            {
+                reduced = current;
+            }
+
+            protected DecoratedKey getReduced()
+            {
+                return reduced;
+            }
+        });
+    }
+
+    /**
+     * The keys of a memtable are only indexed in hash sets, so its matching keys within the range of the command are
+     * sorted on heap. They are bounded by the size of the memtable.
+     */
+    private CloseableIterator<DecoratedKey> memtableCandidates(Memtable memtable)
+    {
+        Set<DecoratedKey> matches = null;
+        for (Pair<StorageAttachedIndex, ByteBuffer> expression : expressions)
+        {
+            Set<DecoratedKey> hits = expression.left.searchMemtable(memtable, expression.right);
+            if (matches == null)
+            {
+                matches = new HashSet<>();
+                for (DecoratedKey key : hits)
+                {
+                    if (command.selectsKey(key))
+                        matches.add(key);
+                }
+            }
+            else
+            {
+                matches.retainAll(hits);
+            }
+
+            if (matches.isEmpty())
+                return candidates(Collections.emptyIterator());
+        }
+
+        List<DecoratedKey> keys = new ArrayList<>(matches);
+        keys.sort(DecoratedKey::compareTo);
+        return candidates(keys.iterator());
+    }
+
+    private static CloseableIterator<DecoratedKey> candidates(Iterator<DecoratedKey> keys)
+    {
+        return new AbstractIterator<DecoratedKey>()
+        {
+            protected DecoratedKey computeNext()
+            {
+                return keys.hasNext() ? keys.next() : endOfData();
+            }
+        };
+    }
+
+    @SuppressWarnings("resource") // the positions reader is closed by the returned candidates
+    private CloseableIterator<DecoratedKey> sstableCandidates(SSTableReader sstable)
+    {
+        int[] matches = null;
+        SSTableTermsIndex.Reader positions = null;
+        try
+        {
+            for (Pair<StorageAttachedIndex, ByteBuffer> expression : expressions)
+            {
+                SSTableTermsIndex.Reader reader = expression.left.openSSTableIndex(sstable);
+                if (reader == null)
+                {
+                    // the component of a new sstable is written right before it is made live, so this can only
+                    // happen if the index is being built for it, in which case we have to consider all its partitions
+                    continue;
+                }
+
+                int[] hits;
+                if (positions == null)
+                {
+                    // the reader of the first index is kept to look up the partitions of the matching ordinals
+                    positions = reader;
+                    hits = reader.postings(expression.right);
+                }
+                else
+                {
+                    try (SSTableTermsIndex.Reader toClose = reader)
+                    {
+                        hits = toClose.postings(expression.right);
+                    }
+                }
+
+                matches = matches == null ? hits : SSTableTermsIndex.intersect(matches, hits);
+                if (matches.length == 0)
+                    break;
+            }
+        }
+        catch (IOException e)
+        {
+            if (positions != null)
+                positions.close();
+            throw new FSReadError(e, sstable.getFilename());
+        }
+        catch (Throwable t)
+        {
+            if (positions != null)
+                positions.close();
+            throw t;
+        }
+
+        if (matches != null)
+        {
+            if (matches.length > 0)
+                return new IndexedCandidates(sstable, positions, matches);
+
+            positions.close();
+            return candidates(Collections.emptyIterator());
+        }
+
+        // without index component, the only candidate of a single partition read is its partition
+        if (command instanceof SinglePartitionReadCommand)
+            return candidates(Iterators.singletonIterator(((SinglePartitionReadCommand) command).partitionKey()));
+
+        return new ScannedCandidates(sstable, (PartitionRangeReadCommand) command);
+    }
+
+    private boolean isBeforeRange(DecoratedKey key)
+    {
+        int cmp = key.compareTo(keyRange.left);
+        return cmp < 0 || (cmp == 0 && !keyRange.inclusiveLeft());
+    }
+
+    private boolean isAfterRange(DecoratedKey key)
+    {
+        if (keyRange.right.isMinimum())
+            return false;
+
+        int cmp = key.compareTo(keyRange.right);
+        return cmp > 0 || (cmp == 0 && !keyRange.inclusiveRight());
+    }
+
+    /**
+     * The keys of the matching partitions of an sstable, looked up by ordinal in its index component. The ordinals
+     * follow the order of the sstable, so the first one within the range of the command is found by binary search,
+     * and the iteration stops at the first one past its end.
+     */
+    private class IndexedCandidates extends AbstractIterator<DecoratedKey>
+    {
+        private final SSTableReader sstable;
+        private final SSTableTermsIndex.Reader reader;
+        private final int[] matches;
+        private final boolean wrapping;
+        private int next;
+
+        private IndexedCandidates(SSTableReader sstable, SSTableTermsIndex.Reader reader, int[] matches)
+        {
+            this.sstable = sstable;
+            this.reader = reader;
+            this.matches = matches;
+            this.wrapping = AbstractBounds.strictlyWrapsAround(keyRange.left, keyRange.right);
+            try
+            {
+                this.next = wrapping ? 0 : firstInRange();
+            }
+            catch (Throwable t)
+            {
+                reader.close();
+                throw t;
+            }
+        }
+
+        private int firstInRange()
+        {
+            int low = 0, high = matches.length;
+            while (low < high)
+            {
+                int mid = (low + high) >>> 1;
+                DecoratedKey key = keyAt(mid);
+                if (key != null && isBeforeRange(key))
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            return low;
+        }
+
+        private DecoratedKey keyAt(int i)
+        {
+            try
+            {
+                return sstable.keyAt(reader.partitionPosition(matches[i]));
+            }
+            catch (IOException e)
+            {
+                throw new FSReadError(e, sstable.getFilename());
+            }
+        }
+
+        protected DecoratedKey computeNext()
+        {
+            while (next < matches.length)
+            {
+                DecoratedKey key = keyAt(next++);
+                if (key == null)
+                    continue;
+
+                if (!wrapping && isAfterRange(key))
+                    break;
+
+                if (command.selectsKey(key))
+                    return key;
+            }
+            return endOfData();
+        }
+
+        public void close()
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * The keys of an sstable whose index component is being built, all of which are candidates of a range read. They
+     * are read lazily from its primary index by a scanner restricted to the range of the command.
+     */
+    private class ScannedCandidates extends AbstractIterator<DecoratedKey>
+    {
+        private final ISSTableScanner scanner;
+
+        private ScannedCandidates(SSTableReader sstable, PartitionRangeReadCommand command)
+        {
+            this.scanner = sstable.getScanner(ColumnFilter.all(cfs.metadata()), command.dataRange(), SSTableReadsListener.NOOP_LISTENER);
+        }
+
+        protected DecoratedKey computeNext()
+        {
+            while (scanner.hasNext())
+            {
+                // the content of the partitions returned by the scanner is only read if accessed
+                try (UnfilteredRowIterator partition = scanner.next())
+                {
+                    if (command.selectsKey(partition.partitionKey()))
+                        return partition.partitionKey();
+                }
+            }
+            return endOfData();
+        }
+
+        public void close()
+        {
+            scanner.close();
+        }
+    }
+}
@@ -67,6 +67,28 @@ public class SASIIndex implements Index, INotificationConsumer
         public SecondaryIndexBuilder getIndexBuildTask(ColumnFamilyStore cfs,
                                                        Set<Index> indexes,
                                                        Collection<SSTableReader> sstablesToRebuild)
+        {
+            return new SASIIndexBuilder(cfs, getSSTablesToBuild(indexes, sstablesToRebuild));
+        }
+
+        /**
+         * Splits the build per sstable, as each sstable has its own index components.
+         */
+        @Override
+        public List<SecondaryIndexBuilder> getIndexBuildTasks(ColumnFamilyStore cfs,
+                                                              Set<Index> indexes,
+                                                              Collection<SSTableReader> sstablesToRebuild,
+                                                              boolean isFullRebuild)
+        {
+            NavigableMap<SSTableReader, Map<ColumnMetadata, ColumnIndex>> sstables = getSSTablesToBuild(indexes, sstablesToRebuild);
+            List<SecondaryIndexBuilder> builders = new ArrayList<>(sstables.size());
+            for (SSTableReader sstable : sstables.keySet())
+                builders.add(new SASIIndexBuilder(cfs, sstables.subMap(sstable, true, sstable, true)));
+            return builders;
+        }
+
+        private NavigableMap<SSTableReader, Map<ColumnMetadata, ColumnIndex>> getSSTablesToBuild(Set<Index> indexes,
+                                                                                                 Collection<SSTableReader> sstablesToRebuild)
         {
             NavigableMap<SSTableReader, Map<ColumnMetadata, ColumnIndex>> sstables = new TreeMap<>((a, b) -> {
                 return Integer.compare(a.descriptor.generation, b.descriptor.generation);
@@ -88,7 +110,7 @@ public class SASIIndex implements Index, INotificationConsumer
                                         });
                    });
 
-            return new SASIIndexBuilder(cfs, sstables);
+            return sstables;
         }
     }
 
@@ -300,7 +322,7 @@ public class SASIIndex implements Index, INotificationConsumer
 
     public BiFunction<PartitionIterator, ReadCommand, PartitionIterator> postProcessorFor(ReadCommand command)
     {
-        return (partitionIterator, readCommand) -> partitionIterator;
+        return NO_POST_PROCESSING;
     }
 
     public IndexBuildingSupport getBuildTaskSupport()
@@ -24,12 +24,15 @@ import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
+import com.google.common.util.concurrent.RateLimiter;
+
 import org.apache.cassandra.schema.ColumnMetadata;
 import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.RowIndexEntry;
 import org.apache.cassandra.db.compaction.CompactionInfo;
 import org.apache.cassandra.db.compaction.CompactionInterruptedException;
+import org.apache.cassandra.db.compaction.CompactionManager;
 import org.apache.cassandra.db.compaction.OperationType;
 import org.apache.cassandra.db.marshal.AbstractType;
 import org.apache.cassandra.index.SecondaryIndexBuilder;
@@ -68,6 +71,7 @@ class SASIIndexBuilder extends SecondaryIndexBuilder
     public void build()
     {
         AbstractType<?> keyValidator = cfs.metadata().partitionKeyType;
+        RateLimiter limiter = CompactionManager.instance.getIndexBuildRateLimiter();
         for (Map.Entry<SSTableReader, Map<ColumnMetadata, ColumnIndex>> e : sstables.entrySet())
         {
             SSTableReader sstable = e.getKey();
@@ -105,6 +109,10 @@ class SASIIndexBuilder extends SecondaryIndexBuilder
                                 while (partition.hasNext())
                                     indexWriter.nextUnfilteredCluster(partition.next());
                             }
+
+                            long partitionSize = dataFile.getFilePointer() - indexEntry.position;
+                            if (partitionSize > 0)
+                                limiter.acquire((int) Math.min(partitionSize, Integer.MAX_VALUE));
                         }
                         catch (IOException ex)
                         {
@@ -298,13 +298,19 @@ public class TokenTree
 
         private void searchLeaf(long next)
         {
-            for (int i = currentTokenIndex; i < leafSize; i++)
+            // entries of a leaf are fixed size and sorted by token, so the first token equal to
+            // or bigger than next can be found with a binary search over the rest of the leaf
+            int low = currentTokenIndex, high = leafSize - 1;
+            while (low <= high)
             {
-                if (compareTokenAt(currentTokenIndex, next) >= 0)
-                    break;
-
-                currentTokenIndex++;
+                int middle = (low + high) >>> 1;
+                if (compareTokenAt(middle, next) < 0)
+                    low = middle + 1;
+                else
+                    high = middle - 1;
             }
+
+            currentTokenIndex = low;
         }
 
         private int compareTokenAt(int idx, long toToken)
@@ -19,11 +19,11 @@ package org.apache.cassandra.index.sasi.utils;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.PriorityQueue;
 
-import com.google.common.collect.Iterators;
 import org.apache.cassandra.io.util.FileUtils;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -90,10 +90,16 @@ public class RangeIntersectionIterator
     {
         protected final PriorityQueue<RangeIterator<K, D>> ranges;
 
+        // the same ranges, from the most selective to the least selective one, which is the order they are best
+        // checked in, as the ones with the fewest tokens are the most likely to reject a candidate
+        protected final List<RangeIterator<K, D>> rangesByCount;
+
         private AbstractIntersectionIterator(Builder.Statistics<K, D> statistics, PriorityQueue<RangeIterator<K, D>> ranges)
         {
             super(statistics);
             this.ranges = ranges;
+            this.rangesByCount = new ArrayList<>(ranges);
+            this.rangesByCount.sort(Comparator.comparingLong(RangeIterator::getCount));
         }
 
         public void close() throws IOException
@@ -104,15 +110,14 @@ public class RangeIntersectionIterator
     }
 
     /**
-     * Iterator which performs intersection of multiple ranges by using bouncing (merge-join) technique to identify
-     * common elements in the given ranges. Aforementioned "bounce" works as follows: range queue is poll'ed for the
-     * range with the smallest current token (main loop), that token is used to {@link RangeIterator#skipTo(Comparable)}
-     * other ranges, if token produced by {@link RangeIterator#skipTo(Comparable)} is equal to current "candidate" token,
-     * both get merged together and the same operation is repeated for next range from the queue, if returned token
-     * is not equal than candidate, candidate's range gets put back into the queue and the main loop gets repeated until
-     * next intersection token is found or at least one iterator runs out of tokens.
+     * Iterator which performs intersection of multiple ranges by bouncing (leapfrogging) between them: the most
+     * selective range proposes a candidate token, which is used to {@link RangeIterator#skipTo(Comparable)} the other
+     * ranges, from the most to the least selective one. As soon as a range skips past the candidate, the token it
+     * stopped at becomes the next target of the most selective range, so that every range jumps over the tokens
+     * which can't be in the intersection, instead of only the ranges lagging behind.
      *
-     * This technique is every efficient to jump over gaps in the ranges.
+     * This technique is every efficient to jump over gaps in the ranges, as the ranges can skip whole blocks of
+     * tokens at once (see {@link org.apache.cassandra.index.sasi.disk.TokenTree}).
      *
      * @param <K> The type used to sort ranges.
      * @param <D> The container type which is going to be returned by {@link Iterator#next()}.
@@ -127,91 +132,57 @@ public class RangeIntersectionIterator
 
         protected D computeNext()
         {
-            List<RangeIterator<K, D>> processed = null;
+            RangeIterator<K, D> lead = rangesByCount.get(0);
+            K target = getMinimum();
 
-            while (!ranges.isEmpty())
+            while (true)
             {
-                RangeIterator<K, D> head = ranges.poll();
-
-                // jump right to the beginning of the intersection or return next element
-                if (head.getCurrent().compareTo(getMinimum()) < 0)
-                    head.skipTo(getMinimum());
-
-                D candidate = head.hasNext() ? head.next() : null;
+                D candidate = skipTo(lead, target);
                 if (candidate == null || candidate.get().compareTo(getMaximum()) > 0)
-                {
-                    ranges.add(head);
                     return endOfData();
-                }
 
-                if (processed == null)
-                    processed = new ArrayList<>();
-
-                boolean intersectsAll = true, exhausted = false;
-                while (!ranges.isEmpty())
+                K token = candidate.get();
+                boolean intersectsAll = true;
+                for (int i = 1; i < rangesByCount.size(); i++)
                 {
-                    RangeIterator<K, D> range = ranges.poll();
-
-                    // found a range which doesn't overlap with one (or possibly more) other range(s)
-                    if (!isOverlapping(head, range))
-                    {
-                        exhausted = true;
-                        intersectsAll = false;
-                        break;
-                    }
-
-                    D point = range.skipTo(candidate.get());
-
+                    D point = skipTo(rangesByCount.get(i), token);
                     if (point == null) // other range is exhausted
-                    {
-                        exhausted = true;
-                        intersectsAll = false;
-                        break;
-                    }
-
-                    processed.add(range);
+                        return endOfData();
 
-                    if (candidate.get().equals(point.get()))
-                    {
-                        candidate.merge(point);
-                        // advance skipped range to the next element if any
-                        Iterators.getNext(range, null);
-                    }
-                    else
+                    if (!token.equals(point.get()))
                     {
+                        target = point.get();
                         intersectsAll = false;
                         break;
                     }
                 }
 
-                ranges.add(head);
-
-                ranges.addAll(processed);
-                processed.clear();
-
-                if (exhausted)
-                    return endOfData();
-
                 if (intersectsAll)
+                {
+                    lead.next();
+                    for (int i = 1; i < rangesByCount.size(); i++)
+                        candidate.merge(rangesByCount.get(i).next());
                     return candidate;
+                }
             }
-
-            return endOfData();
         }
 
         protected void performSkipTo(K nextToken)
         {
-            List<RangeIterator<K, D>> skipped = new ArrayList<>();
-
-            while (!ranges.isEmpty())
-            {
-                RangeIterator<K, D> range = ranges.poll();
+            for (RangeIterator<K, D> range : rangesByCount)
                 range.skipTo(nextToken);
-                skipped.add(range);
-            }
+        }
+
+        /**
+         * Peeks at the first token of the range equal to or bigger than the given one, whether or not the current
+         * token of the range has already been returned by {@link RangeIterator#next()}.
+         */
+        private D skipTo(RangeIterator<K, D> range, K token)
+        {
+            if (range.getCurrent().compareTo(token) < 0)
+                return range.skipTo(token);
 
-            for (RangeIterator<K, D> range : skipped)
-                ranges.add(range);
+            return range.hasNext() ? range.peek() : null;
         }
     }
 
@@ -248,7 +219,7 @@ public class RangeIntersectionIterator
                 K token = candidate.get();
 
                 boolean intersectsAll = true;
-                for (RangeIterator<K, D> range : ranges)
+                for (RangeIterator<K, D> range : rangesByCount)
                 {
                     // avoid checking against self, much cheaper than changing queue comparator
                     // to compare based on the size and re-populating such queue.
@@ -22,7 +22,11 @@ import java.io.IOException;
 
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.RowIndexEntry;
+import org.apache.cassandra.dht.AbstractBounds;
 import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.io.util.DataInputPlus;
 import org.apache.cassandra.io.util.RandomAccessReader;
 import org.apache.cassandra.schema.TableMetadata;
@@ -35,17 +39,23 @@ public class KeyIterator extends AbstractIterator<DecoratedKey> implements Close
     private final static class In
     {
         private final File path;
+        private final long start;
         private RandomAccessReader in;
 
-        public In(File path)
+        public In(File path, long start)
         {
             this.path = path;
+            this.start = start;
         }
 
         private void maybeInit()
         {
             if (in == null)
+            {
                 in = RandomAccessReader.open(path);
+                if (start > 0)
+                    in.seek(start);
+            }
         }
 
         public DataInputPlus get()
@@ -82,27 +92,56 @@ public class KeyIterator extends AbstractIterator<DecoratedKey> implements Close
     private final Descriptor desc;
     private final In in;
     private final IPartitioner partitioner;
+    private final Range<Token> range;
+    private final long start;
+    private final long end;
 
     private long keyPosition;
 
     public KeyIterator(Descriptor desc, TableMetadata metadata)
     {
         this.desc = desc;
-        in = new In(new File(desc.filenameFor(Component.PRIMARY_INDEX)));
+        in = new In(new File(desc.filenameFor(Component.PRIMARY_INDEX)), 0);
         partitioner = metadata.partitioner;
+        range = null;
+        start = 0;
+        end = -1;
+    }
+
+    /**
+     * Iterates over the keys of the specified sstable that are contained in the specified non wrapping token range,
+     * starting the scan of the primary index at the closest sample of the index summary. The caller must hold a
+     * reference to the sstable.
+     */
+    public KeyIterator(SSTableReader sstable, Range<Token> range)
+    {
+        assert !AbstractBounds.strictlyWrapsAround(range.left, range.right) : range;
+        this.desc = sstable.descriptor;
+        this.range = range;
+        partitioner = sstable.metadata().partitioner;
+        start = range.left.isMinimum() ? 0 : sstable.getIndexScanPosition(range.left.maxKeyBound());
+        end = range.right.isMinimum() ? -1 : sstable.getIndexScanPosition(range.right.maxKeyBound());
+        in = new In(new File(desc.filenameFor(Component.PRIMARY_INDEX)), start);
     }
 
     protected DecoratedKey computeNext()
     {
         try
         {
-            if (in.isEOF())
-                return endOfData();
-
-            keyPosition = in.getFilePointer();
-            DecoratedKey key = partitioner.decorateKey(ByteBufferUtil.readWithShortLength(in.get()));
-            RowIndexEntry.Serializer.skip(in.get(), desc.version); // skip remainder of the entry
-            return key;
+            while (!in.isEOF())
+            {
+                keyPosition = in.getFilePointer();
+                DecoratedKey key = partitioner.decorateKey(ByteBufferUtil.readWithShortLength(in.get()));
+                RowIndexEntry.Serializer.skip(in.get(), desc.version); // skip remainder of the entry
+
+                if (range == null || range.contains(key.getToken()))
+                    return key;
+
+                // keys are sorted, so we are done as soon as we are past the end of the range
+                if (!range.right.isMinimum() && key.getToken().compareTo(range.right) > 0)
+                    break;
+            }
+            return endOfData();
         }
         catch (IOException e)
         {
@@ -117,12 +156,17 @@ public class KeyIterator extends AbstractIterator<DecoratedKey> implements Close
 
     public long getBytesRead()
     {
-        return in.getFilePointer();
+        return in.getFilePointer() - start;
     }
 
+    /**
+     * @return the size of the scanned part of the primary index, which is only an estimate if the iteration is
+     * restricted to a token range
+     */
     public long getTotalBytes()
     {
-        return in.length();
+        long scanEnd = end < 0 ? in.length() : Math.max(end, in.getFilePointer());
+        return scanEnd - start;
     }
 
     public long getKeyPosition()
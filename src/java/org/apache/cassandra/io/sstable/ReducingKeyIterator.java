@@ -22,6 +22,8 @@ import java.util.Collection;
 import java.util.Iterator;
 
 import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.utils.CloseableIterator;
 import org.apache.cassandra.utils.IMergeIterator;
@@ -42,6 +44,16 @@ public class ReducingKeyIterator implements CloseableIterator<DecoratedKey>
             iters.add(new KeyIterator(sstable.descriptor, sstable.metadata()));
     }
 
+    /**
+     * Iterates over the keys of the specified sstables that are contained in the specified non wrapping token range.
+     */
+    public ReducingKeyIterator(Collection<SSTableReader> sstables, Range<Token> range)
+    {
+        iters = new ArrayList<>(sstables.size());
+        for (SSTableReader sstable : sstables)
+            iters.add(new KeyIterator(sstable, range));
+    }
+
     private void maybeInit()
     {
         if (mi == null)
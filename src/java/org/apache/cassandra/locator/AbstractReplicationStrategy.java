@@ -20,9 +20,11 @@ package org.apache.cassandra.locator;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multimap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,6 +61,9 @@ public abstract class AbstractReplicationStrategy
     // track when the token range changes, signaling we need to invalidate our endpoint cache
     private volatile long lastInvalidatedVersion = 0;
 
+    // track when the proximity ordering of endpoints may have changed, signaling we need to invalidate the sorted endpoint cache
+    private static final AtomicLong proximityVersion = new AtomicLong();
+
     public IEndpointSnitch snitch;
 
     protected AbstractReplicationStrategy(String keyspaceName, TokenMetadata tokenMetadata, IEndpointSnitch snitch, Map<String, String> configOptions)
@@ -74,8 +79,15 @@ public abstract class AbstractReplicationStrategy
     }
 
     private final Map<Token, ArrayList<InetAddressAndPort>> cachedEndpoints = new NonBlockingHashMap<Token, ArrayList<InetAddressAndPort>>();
+    private final Map<Token, SortedEndpoints> cachedSortedEndpoints = new NonBlockingHashMap<>();
 
     public ArrayList<InetAddressAndPort> getCachedEndpoints(Token t)
+    {
+        maybeInvalidateCachedEndpoints();
+        return cachedEndpoints.get(t);
+    }
+
+    private void maybeInvalidateCachedEndpoints()
     {
         long lastVersion = tokenMetadata.getRingVersion();
 
@@ -87,12 +99,20 @@ public abstract class AbstractReplicationStrategy
                 {
                     logger.trace("clearing cached endpoints");
                     cachedEndpoints.clear();
+                    cachedSortedEndpoints.clear();
                     lastInvalidatedVersion = lastVersion;
                 }
             }
         }
+    }
 
-        return cachedEndpoints.get(t);
+    /**
+     * Invalidates the endpoints cached by {@link #getSortedEndpoints(RingPosition)} for all keyspaces. To be called
+     * whenever the snitch, or the way it orders endpoints by proximity, changes.
+     */
+    public static void invalidateCachedSortedEndpoints()
+    {
+        proximityVersion.incrementAndGet();
     }
 
     /**
@@ -119,6 +139,47 @@ public abstract class AbstractReplicationStrategy
         return new ArrayList<InetAddressAndPort>(endpoints);
     }
 
+    /**
+     * get the (possibly cached) endpoints that should store the given Token, sorted by proximity to this node
+     * according to the configured snitch. Contrarily to {@link #getNaturalEndpoints(RingPosition)}, the returned
+     * list is shared, and thus immutable. It is cached until either the ring or the snitch ordering changes.
+     *
+     * @param searchPosition the position the sorted endpoints are requested for
+     * @return the natural endpoints for the given token, sorted by proximity
+     */
+    public List<InetAddressAndPort> getSortedEndpoints(RingPosition searchPosition)
+    {
+        // read the versions first: whatever is computed afterwards is at least as recent as them
+        long ringVersion = tokenMetadata.getRingVersion();
+        long sortVersion = proximityVersion.get();
+        maybeInvalidateCachedEndpoints();
+
+        Token keyToken = TokenMetadata.firstToken(tokenMetadata.sortedTokens(), searchPosition.getToken());
+        SortedEndpoints sorted = cachedSortedEndpoints.get(keyToken);
+        if (sorted != null && sorted.ringVersion == ringVersion && sorted.proximityVersion == sortVersion)
+            return sorted.endpoints;
+
+        ArrayList<InetAddressAndPort> endpoints = getNaturalEndpoints(searchPosition);
+        DatabaseDescriptor.getEndpointSnitch().sortByProximity(FBUtilities.getBroadcastAddressAndPort(), endpoints);
+        sorted = new SortedEndpoints(ringVersion, sortVersion, ImmutableList.copyOf(endpoints));
+        cachedSortedEndpoints.put(keyToken, sorted);
+        return sorted.endpoints;
+    }
+
+    private static class SortedEndpoints
+    {
+        final long ringVersion;
+        final long proximityVersion;
+        final List<InetAddressAndPort> endpoints;
+
+        SortedEndpoints(long ringVersion, long proximityVersion, List<InetAddressAndPort> endpoints)
+        {
+            this.ringVersion = ringVersion;
+            this.proximityVersion = proximityVersion;
+            this.endpoints = endpoints;
+        }
+    }
+
     /**
      * calculate the natural endpoints for the given token
      *
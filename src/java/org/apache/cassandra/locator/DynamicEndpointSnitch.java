@@ -28,6 +28,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.google.common.annotations.VisibleForTesting;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 
@@ -48,7 +49,7 @@ import org.apache.cassandra.utils.FBUtilities;
  */
 public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILatencySubscriber, DynamicEndpointSnitchMBean
 {
-    private static final boolean USE_SEVERITY = !Boolean.getBoolean("cassandra.ignore_dynamic_snitch_severity");
+    protected static final boolean USE_SEVERITY = !Boolean.getBoolean("cassandra.ignore_dynamic_snitch_severity");
 
     private static final double ALPHA = 0.75; // set to 0.75 to make EDS more biased to towards the newer values
     private static final int WINDOW_SIZE = 100;
@@ -65,6 +66,8 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
     private boolean registered = false;
 
     private volatile HashMap<InetAddressAndPort, Double> scores = new HashMap<>();
+    // the scores when the endpoints sorted by proximity were last invalidated, see updateScores()
+    private Map<InetAddressAndPort, Double> invalidatedScores = new HashMap<>();
     private final ConcurrentHashMap<InetAddressAndPort, ExponentiallyDecayingReservoir> samples = new ConcurrentHashMap<>();
 
     public final IEndpointSnitch subsnitch;
@@ -138,6 +141,7 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
         }
 
         dynamicBadnessThreshold = DatabaseDescriptor.getDynamicBadnessThreshold();
+        AbstractReplicationStrategy.invalidateCachedSortedEndpoints();
     }
 
     private void registerMBean()
@@ -301,7 +305,7 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
         sample.update(latency);
     }
 
-    private void updateScores() // this is expensive
+    protected void updateScores() // this is expensive
     {
         if (!StorageService.instance.isGossipActive())
             return;
@@ -314,6 +318,73 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
             }
 
         }
+        HashMap<InetAddressAndPort, Double> newScores = calculateScores();
+        scores = newScores;
+
+        // the scores are updated every dynamicUpdateInterval, and on timeouts, but the sorted endpoints only need to
+        // be recomputed when their order may change
+        synchronized (this)
+        {
+            if (mayChangeOrdering(invalidatedScores, newScores, dynamicBadnessThreshold))
+            {
+                invalidatedScores = newScores;
+                AbstractReplicationStrategy.invalidateCachedSortedEndpoints();
+            }
+        }
+    }
+
+    /**
+     * Whether endpoints sorted with the new scores may be ordered differently than with the old ones, the score of
+     * an endpoint missing from a map being 0 as in {@link #compareEndpoints}. This is the case if the ranks of the
+     * endpoints change, or if a badness threshold is set, if the check of {@link #sortByProximityWithBadness} may
+     * give a different result, that is if the score of an endpoint is greater than the score of another one times
+     * the threshold with the old scores but not with the new ones, or the other way around.
+     */
+    @VisibleForTesting
+    static boolean mayChangeOrdering(Map<InetAddressAndPort, Double> oldScores, Map<InetAddressAndPort, Double> newScores, double badnessThreshold)
+    {
+        Set<InetAddressAndPort> endpoints = new HashSet<>(oldScores.keySet());
+        endpoints.addAll(newScores.keySet());
+        List<InetAddressAndPort> sorted = new ArrayList<>(endpoints);
+        sorted.sort(Comparator.comparingDouble(endpoint -> oldScores.getOrDefault(endpoint, 0.0)));
+
+        // the endpoints are sorted by old score, so the ranks are the same if each endpoint compares the same way
+        // to the previous one with the new scores
+        double previousOldScore = 0.0, previousNewScore = 0.0;
+        for (int i = 0; i < sorted.size(); i++)
+        {
+            double oldScore = oldScores.getOrDefault(sorted.get(i), 0.0);
+            double newScore = newScores.getOrDefault(sorted.get(i), 0.0);
+            if (i > 0 && Double.compare(oldScore, previousOldScore) != Double.compare(newScore, previousNewScore))
+                return true;
+
+            previousOldScore = oldScore;
+            previousNewScore = newScore;
+        }
+
+        if (badnessThreshold == 0)
+            return false;
+
+        // As the ranks are the same, the endpoints whose score times the threshold is lower than the score of a given
+        // endpoint are a prefix of the sorted endpoints, with both the old and the new scores: the badness check has
+        // the same result for any list of endpoints if each endpoint has the same such prefix.
+        int oldPrefix = 0, newPrefix = 0;
+        for (InetAddressAndPort endpoint : sorted)
+        {
+            double oldScore = oldScores.getOrDefault(endpoint, 0.0);
+            double newScore = newScores.getOrDefault(endpoint, 0.0);
+            while (oldPrefix < sorted.size() && oldScores.getOrDefault(sorted.get(oldPrefix), 0.0) * (1.0 + badnessThreshold) < oldScore)
+                oldPrefix++;
+            while (newPrefix < sorted.size() && newScores.getOrDefault(sorted.get(newPrefix), 0.0) * (1.0 + badnessThreshold) < newScore)
+                newPrefix++;
+            if (oldPrefix != newPrefix)
+                return true;
+        }
+        return false;
+    }
+
+    protected HashMap<InetAddressAndPort, Double> calculateScores()
+    {
         double maxLatency = 1;
 
         Map<InetAddressAndPort, Snapshot> snapshots = new HashMap<>(samples.size());
@@ -342,10 +413,10 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
             // lowest score (least amount of badness) wins.
             newScores.put(entry.getKey(), score);
         }
-        scores = newScores;
+        return newScores;
     }
 
-    private void reset()
+    protected void reset()
     {
        samples.clear();
     }
@@ -396,7 +467,7 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
         Gossiper.instance.addLocalApplicationState(ApplicationState.SEVERITY, StorageService.instance.valueFactory.severity(severity));
     }
 
-    private double getSeverity(InetAddressAndPort endpoint)
+    protected double getSeverity(InetAddressAndPort endpoint)
     {
         EndpointState state = Gossiper.instance.getEndpointStateForEndpoint(endpoint);
         if (state == null)
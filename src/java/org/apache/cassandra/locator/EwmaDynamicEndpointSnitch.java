@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.locator;
+
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A dynamic snitch that scores endpoints by an exponentially weighted moving average of their latency.
+ * <p>
+ * Contrarily to {@link DynamicEndpointSnitch}, which periodically computes the median of a reservoir of samples
+ * per endpoint, each latency is folded into the average of its endpoint as it is received, without locking,
+ * so recomputing the scores is cheap and reflects recent latencies (think GC pauses) more quickly.
+ * A timed out request is folded in like a response taking as long as the timeout, and triggers an immediate
+ * rescoring (at most once per {@link #TIMEOUT_RESCORE_INTERVAL_NANOS}), rather than waiting for the next periodic one.
+ * <p>
+ * As with the default dynamic snitch, scores are normalized against the worst endpoint, and the severity
+ * gossiped by each endpoint is added to its score, so that replicas can push back when loaded.
+ */
+public class EwmaDynamicEndpointSnitch extends DynamicEndpointSnitch
+{
+    /**
+     * The weight of a new latency in the moving average.
+     */
+    private static final double ALPHA = Double.parseDouble(System.getProperty("cassandra.dynamic_snitch_ewma_alpha", "0.25"));
+    private static final long TIMEOUT_RESCORE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * The moving average of the latency of each endpoint, stored as the raw bits of a double.
+     */
+    private final ConcurrentHashMap<InetAddressAndPort, AtomicLong> averages = new ConcurrentHashMap<>();
+    private final AtomicLong lastTimeoutRescoreNanos = new AtomicLong();
+
+    public EwmaDynamicEndpointSnitch(IEndpointSnitch snitch)
+    {
+        this(snitch, null);
+    }
+
+    public EwmaDynamicEndpointSnitch(IEndpointSnitch snitch, String instance)
+    {
+        super(snitch, instance);
+    }
+
+    @Override
+    public void receiveTiming(InetAddressAndPort host, long latency) // this is cheap
+    {
+        AtomicLong average = averages.get(host);
+        if (average == null)
+        {
+            // the first latency received is taken as is
+            average = averages.putIfAbsent(host, new AtomicLong(Double.doubleToRawLongBits(latency)));
+            if (average == null)
+                return;
+        }
+
+        while (true)
+        {
+            long current = average.get();
+            double updated = ALPHA * latency + (1 - ALPHA) * Double.longBitsToDouble(current);
+            if (average.compareAndSet(current, Double.doubleToRawLongBits(updated)))
+                return;
+        }
+    }
+
+    @Override
+    public void receiveTimeout(InetAddressAndPort host, long latency)
+    {
+        receiveTiming(host, latency);
+
+        long now = System.nanoTime();
+        long last = lastTimeoutRescoreNanos.get();
+        if (now - last >= TIMEOUT_RESCORE_INTERVAL_NANOS && lastTimeoutRescoreNanos.compareAndSet(last, now))
+            updateScores();
+    }
+
+    @Override
+    protected HashMap<InetAddressAndPort, Double> calculateScores()
+    {
+        double maxLatency = 1;
+        HashMap<InetAddressAndPort, Double> latencies = new HashMap<>(averages.size());
+        for (Map.Entry<InetAddressAndPort, AtomicLong> entry : averages.entrySet())
+        {
+            double latency = Double.longBitsToDouble(entry.getValue().get());
+            latencies.put(entry.getKey(), latency);
+            if (latency > maxLatency)
+                maxLatency = latency;
+        }
+
+        // weight the latency of each host against the worst one, and add its gossiped severity, as the default snitch does
+        for (Map.Entry<InetAddressAndPort, Double> entry : latencies.entrySet())
+        {
+            double score = entry.getValue() / maxLatency;
+            if (USE_SEVERITY)
+                score += getSeverity(entry.getKey());
+            entry.setValue(score);
+        }
+        return latencies;
+    }
+
+    @Override
+    protected void reset()
+    {
+        // give the hosts considered bad a chance to recover, as we otherwise may never read from them again
+        averages.clear();
+    }
+
+    @Override
+    public List<Double> dumpTimings(String hostname) throws UnknownHostException
+    {
+        Double average = getAverageLatency(InetAddressAndPort.getByName(hostname));
+        return average == null ? Collections.emptyList() : Collections.singletonList(average);
+    }
+
+    @VisibleForTesting
+    Double getAverageLatency(InetAddressAndPort host)
+    {
+        AtomicLong average = averages.get(host);
+        return average == null ? null : Double.longBitsToDouble(average.get());
+    }
+}
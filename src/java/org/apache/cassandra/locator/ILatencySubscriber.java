@@ -20,4 +20,13 @@ package org.apache.cassandra.locator;
 public interface ILatencySubscriber
 {
     public void receiveTiming(InetAddressAndPort address, long latency);
+
+    /**
+     * Invoked when a request to the given address timed out after the given latency. By default, the timeout is
+     * simply considered as a response taking that long.
+     */
+    default void receiveTimeout(InetAddressAndPort address, long latency)
+    {
+        receiveTiming(address, latency);
+    }
 }
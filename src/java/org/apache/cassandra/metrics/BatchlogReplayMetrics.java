@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import org.apache.cassandra.batchlog.BatchlogManager;
+
+import static org.apache.cassandra.metrics.CassandraMetricsRegistry.Metrics;
+
+/**
+ * Metrics for the replay of the batchlog by {@link BatchlogManager}.
+ */
+public class BatchlogReplayMetrics
+{
+    public static final MetricNameFactory factory = new DefaultNameFactory("BatchlogReplay");
+
+    /** Batches replayed, or found expired or truncated */
+    public final Meter replayedBatches;
+    /** Mutations sent to a live replica */
+    public final Meter replayedMutations;
+    /** Mutations written as a hint, because their replica was down, timed out or was too busy */
+    public final Meter hintedMutations;
+    /** Mutations hinted because their replica already had too many replayed mutations in flight */
+    public final Meter throttledMutations;
+    /** Number of batches in the batchlog, replayable or not */
+    public Gauge<Integer> pendingBatches;
+    /** Number of replayed mutations awaiting a response */
+    public Gauge<Integer> inFlightMutations;
+
+    public BatchlogReplayMetrics()
+    {
+        replayedBatches = Metrics.meter(factory.createMetricName("ReplayedBatches"));
+        replayedMutations = Metrics.meter(factory.createMetricName("ReplayedMutations"));
+        hintedMutations = Metrics.meter(factory.createMetricName("HintedMutations"));
+        throttledMutations = Metrics.meter(factory.createMetricName("ThrottledMutations"));
+    }
+
+    public void attach(final BatchlogManager manager)
+    {
+        pendingBatches = Metrics.register(factory.createMetricName("PendingBatches"), new Gauge<Integer>()
+        {
+            public Integer getValue()
+            {
+                return manager.countAllBatches();
+            }
+        });
+        inFlightMutations = Metrics.register(factory.createMetricName("InFlightMutations"), new Gauge<Integer>()
+        {
+            public Integer getValue()
+            {
+                return manager.getInFlightReplays();
+            }
+        });
+    }
+}
@@ -19,6 +19,7 @@ package org.apache.cassandra.metrics;
 
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Meter;
+import org.apache.cassandra.net.async.OutboundMessagingConnection;
 import org.apache.cassandra.net.async.OutboundMessagingPool;
 
 import static org.apache.cassandra.metrics.CassandraMetricsRegistry.Metrics;
@@ -35,6 +36,15 @@ public class ConnectionMetrics
     /** Total number of timeouts happened on this node */
     public static final Meter totalTimeouts = Metrics.meter(DefaultNameFactory.createMetricName(TYPE_NAME, "TotalTimeouts", null));
 
+    /** Total size of the messages queued or being written to all TCP Connections on this node */
+    public static final Gauge<Long> totalPendingBytes = Metrics.register(DefaultNameFactory.createMetricName(TYPE_NAME, "TotalPendingBytes", null), new Gauge<Long>()
+    {
+        public Long getValue()
+        {
+            return OutboundMessagingConnection.getGlobalPendingBytes();
+        }
+    });
+
     public final String address;
     /** Pending tasks for large message TCP Connections */
     public final Gauge<Integer> largeMessagePendingTasks;
@@ -42,18 +52,24 @@ public class ConnectionMetrics
     public final Gauge<Long> largeMessageCompletedTasks;
     /** Dropped tasks for large message TCP Connections */
     public final Gauge<Long> largeMessageDroppedTasks;
+    /** Size of the pending tasks for large message TCP Connections */
+    public final Gauge<Long> largeMessagePendingBytes;
     /** Pending tasks for small message TCP Connections */
     public final Gauge<Integer> smallMessagePendingTasks;
     /** Completed tasks for small message TCP Connections */
     public final Gauge<Long> smallMessageCompletedTasks;
     /** Dropped tasks for small message TCP Connections */
     public final Gauge<Long> smallMessageDroppedTasks;
+    /** Size of the pending tasks for small message TCP Connections */
+    public final Gauge<Long> smallMessagePendingBytes;
     /** Pending tasks for gossip message TCP Connections */
     public final Gauge<Integer> gossipMessagePendingTasks;
     /** Completed tasks for gossip message TCP Connections */
     public final Gauge<Long> gossipMessageCompletedTasks;
     /** Dropped tasks for gossip message TCP Connections */
     public final Gauge<Long> gossipMessageDroppedTasks;
+    /** Size of the pending tasks for gossip message TCP Connections */
+    public final Gauge<Long> gossipMessagePendingBytes;
 
     /** Number of timeouts for specific IP */
     public final Meter timeouts;
@@ -93,6 +109,13 @@ public class ConnectionMetrics
                 return messagingPool.largeMessageChannel.getDroppedMessages();
             }
         });
+        largeMessagePendingBytes = Metrics.register(factory.createMetricName("LargeMessagePendingBytes"), new Gauge<Long>()
+        {
+            public Long getValue()
+            {
+                return messagingPool.largeMessageChannel.getPendingBytes();
+            }
+        });
         smallMessagePendingTasks = Metrics.register(factory.createMetricName("SmallMessagePendingTasks"), new Gauge<Integer>()
         {
             public Integer getValue()
@@ -114,6 +137,13 @@ public class ConnectionMetrics
                 return messagingPool.smallMessageChannel.getDroppedMessages();
             }
         });
+        smallMessagePendingBytes = Metrics.register(factory.createMetricName("SmallMessagePendingBytes"), new Gauge<Long>()
+        {
+            public Long getValue()
+            {
+                return messagingPool.smallMessageChannel.getPendingBytes();
+            }
+        });
         gossipMessagePendingTasks = Metrics.register(factory.createMetricName("GossipMessagePendingTasks"), new Gauge<Integer>()
         {
             public Integer getValue()
@@ -135,6 +165,13 @@ public class ConnectionMetrics
                 return messagingPool.gossipChannel.getDroppedMessages();
             }
         });
+        gossipMessagePendingBytes = Metrics.register(factory.createMetricName("GossipMessagePendingBytes"), new Gauge<Long>()
+        {
+            public Long getValue()
+            {
+                return messagingPool.gossipChannel.getPendingBytes();
+            }
+        });
         timeouts = Metrics.meter(factory.createMetricName("Timeouts"));
     }
 
@@ -143,12 +180,15 @@ public class ConnectionMetrics
         Metrics.remove(factory.createMetricName("LargeMessagePendingTasks"));
         Metrics.remove(factory.createMetricName("LargeMessageCompletedTasks"));
         Metrics.remove(factory.createMetricName("LargeMessageDroppedTasks"));
+        Metrics.remove(factory.createMetricName("LargeMessagePendingBytes"));
         Metrics.remove(factory.createMetricName("SmallMessagePendingTasks"));
         Metrics.remove(factory.createMetricName("SmallMessageCompletedTasks"));
         Metrics.remove(factory.createMetricName("SmallMessageDroppedTasks"));
+        Metrics.remove(factory.createMetricName("SmallMessagePendingBytes"));
         Metrics.remove(factory.createMetricName("GossipMessagePendingTasks"));
         Metrics.remove(factory.createMetricName("GossipMessageCompletedTasks"));
         Metrics.remove(factory.createMetricName("GossipMessageDroppedTasks"));
+        Metrics.remove(factory.createMetricName("GossipMessagePendingBytes"));
         Metrics.remove(factory.createMetricName("Timeouts"));
     }
 }
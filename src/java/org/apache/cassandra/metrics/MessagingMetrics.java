@@ -17,6 +17,8 @@
  */
 package org.apache.cassandra.metrics;
 
+import java.util.Iterator;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
@@ -24,6 +26,8 @@ import org.apache.cassandra.config.DatabaseDescriptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Timer;
 import org.apache.cassandra.locator.InetAddressAndPort;
 
@@ -39,12 +43,52 @@ public class MessagingMetrics
     public final Timer crossNodeLatency;
     public final ConcurrentHashMap<String, Timer> dcLatency;
     public final ConcurrentHashMap<String, Timer> queueWaitLatency;
+    /** Number of checksummed internode frames received that failed checksum validation */
+    public final Counter corruptedFrames;
+    private final ConcurrentHashMap<String, FrameMetrics> frameMetrics;
 
     public MessagingMetrics()
     {
         crossNodeLatency = Metrics.timer(factory.createMetricName("CrossNodeLatency"));
         dcLatency = new ConcurrentHashMap<>();
         queueWaitLatency = new ConcurrentHashMap<>();
+        corruptedFrames = Metrics.counter(factory.createMetricName("CorruptedFrames"));
+        frameMetrics = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the framing metrics of the outbound connection of the given type (gossip, small or large messages)
+     * to the given peer. Metrics are shared by successive connections of the same type to the same peer.
+     */
+    public FrameMetrics frameMetrics(InetAddressAndPort peer, String connectionType)
+    {
+        String scope = frameMetricsScope(peer);
+        return frameMetrics.computeIfAbsent(scope + '-' + connectionType, k -> new FrameMetrics(scope, connectionType));
+    }
+
+    /**
+     * Unregisters the framing metrics of all the outbound connections to the given peer, once its connections are
+     * closed for good.
+     */
+    public void releaseFrameMetrics(InetAddressAndPort peer)
+    {
+        String prefix = frameMetricsScope(peer) + '-';
+        Iterator<Map.Entry<String, FrameMetrics>> iter = frameMetrics.entrySet().iterator();
+        while (iter.hasNext())
+        {
+            Map.Entry<String, FrameMetrics> entry = iter.next();
+            if (entry.getKey().startsWith(prefix))
+            {
+                iter.remove();
+                entry.getValue().release();
+            }
+        }
+    }
+
+    private static String frameMetricsScope(InetAddressAndPort peer)
+    {
+        // ipv6 addresses will contain colons, which are invalid in a JMX ObjectName
+        return peer.toString().replace(':', '.');
     }
 
     public void addTimeTaken(InetAddressAndPort from, long timeTaken)
@@ -72,4 +116,51 @@ public class MessagingMetrics
         }
         timer.update(timeTaken, TimeUnit.MILLISECONDS);
     }
+
+    /**
+     * Per connection metrics of the checksummed internode framing.
+     */
+    public static class FrameMetrics
+    {
+        /** Number of frames written */
+        public final Counter framesSent;
+        /** Number of bytes written to the wire, frame headers included */
+        public final Counter bytesSent;
+        /** Number of message bytes written, before compression */
+        public final Counter uncompressedBytesSent;
+        /** Ratio of the bytes written to the wire to the message bytes */
+        public final Gauge<Double> compressionRatio;
+
+        private final MetricNameFactory factory;
+        private final String connectionType;
+
+        private FrameMetrics(String scope, String connectionType)
+        {
+            this.factory = new DefaultNameFactory("Messaging", scope);
+            this.connectionType = connectionType;
+            framesSent = Metrics.counter(factory.createMetricName(connectionType + "FramesSent"));
+            bytesSent = Metrics.counter(factory.createMetricName(connectionType + "FrameBytesSent"));
+            uncompressedBytesSent = Metrics.counter(factory.createMetricName(connectionType + "FrameUncompressedBytesSent"));
+            compressionRatio = Metrics.register(factory.createMetricName(connectionType + "FrameCompressionRatio"), () ->
+            {
+                long uncompressed = uncompressedBytesSent.getCount();
+                return uncompressed == 0 ? 1d : (double) bytesSent.getCount() / uncompressed;
+            });
+        }
+
+        private void release()
+        {
+            Metrics.remove(factory.createMetricName(connectionType + "FramesSent"));
+            Metrics.remove(factory.createMetricName(connectionType + "FrameBytesSent"));
+            Metrics.remove(factory.createMetricName(connectionType + "FrameUncompressedBytesSent"));
+            Metrics.remove(factory.createMetricName(connectionType + "FrameCompressionRatio"));
+        }
+
+        public void frameSent(int wireBytes, int uncompressedBytes)
+        {
+            framesSent.inc();
+            bytesSent.inc(wireBytes);
+            uncompressedBytesSent.inc(uncompressedBytes);
+        }
+    }
 }
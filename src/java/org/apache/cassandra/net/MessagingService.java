@@ -73,6 +73,8 @@ import org.apache.cassandra.db.SystemKeyspace;
 import org.apache.cassandra.db.TruncateResponse;
 import org.apache.cassandra.db.Truncation;
 import org.apache.cassandra.db.WriteResponse;
+import org.apache.cassandra.db.aggregation.PartialAggregationRequest;
+import org.apache.cassandra.db.aggregation.PartialAggregationResponse;
 import org.apache.cassandra.dht.AbstractBounds;
 import org.apache.cassandra.dht.BootStrapper;
 import org.apache.cassandra.dht.IPartitioner;
@@ -84,6 +86,7 @@ import org.apache.cassandra.gms.GossipDigestAck2;
 import org.apache.cassandra.gms.GossipDigestSyn;
 import org.apache.cassandra.hints.HintMessage;
 import org.apache.cassandra.hints.HintResponse;
+import org.apache.cassandra.hints.HintsBatchMessage;
 import org.apache.cassandra.io.IVersionedSerializer;
 import org.apache.cassandra.io.util.DataInputPlus;
 import org.apache.cassandra.io.util.DataOutputPlus;
@@ -105,6 +108,7 @@ import org.apache.cassandra.service.AbstractWriteResponseHandler;
 import org.apache.cassandra.service.StorageProxy;
 import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.service.paxos.Commit;
+import org.apache.cassandra.service.paxos.PrepareAndRead;
 import org.apache.cassandra.service.paxos.PrepareResponse;
 import org.apache.cassandra.tracing.TraceState;
 import org.apache.cassandra.tracing.Tracing;
@@ -255,6 +259,27 @@ public final class MessagingService implements MessagingServiceMBean
             }
         },
         PING(),
+        PAXOS_PREPARE_AND_READ
+        {
+            public long getTimeout()
+            {
+                return DatabaseDescriptor.getWriteRpcTimeout();
+            }
+        },
+        HINTS_BATCH
+        {
+            public long getTimeout()
+            {
+                return DatabaseDescriptor.getWriteRpcTimeout();
+            }
+        },
+        PARTIAL_AGGREGATE
+        {
+            public long getTimeout()
+            {
+                return DatabaseDescriptor.getRangeRpcTimeout();
+            }
+        },
 
         // add new verbs after the existing verbs, but *before* the UNUSED verbs, since we serialize by ordinal.
         // UNUSED verbs serve as padding for backwards compatability where a previous version needs to validate a verb from the future.
@@ -312,8 +337,10 @@ public final class MessagingService implements MessagingServiceMBean
         put(Verb.COUNTER_MUTATION, Stage.COUNTER_MUTATION);
         put(Verb.READ_REPAIR, Stage.MUTATION);
         put(Verb.HINT, Stage.MUTATION);
+        put(Verb.HINTS_BATCH, Stage.MUTATION);
         put(Verb.TRUNCATE, Stage.MUTATION);
         put(Verb.PAXOS_PREPARE, Stage.MUTATION);
+        put(Verb.PAXOS_PREPARE_AND_READ, Stage.MUTATION);
         put(Verb.PAXOS_PROPOSE, Stage.MUTATION);
         put(Verb.PAXOS_COMMIT, Stage.MUTATION);
         put(Verb.BATCH_STORE, Stage.MUTATION);
@@ -323,6 +350,7 @@ public final class MessagingService implements MessagingServiceMBean
         put(Verb.RANGE_SLICE, Stage.READ);
         put(Verb.INDEX_SCAN, Stage.READ);
         put(Verb.PAGED_RANGE, Stage.READ);
+        put(Verb.PARTIAL_AGGREGATE, Stage.READ);
 
         put(Verb.REQUEST_RESPONSE, Stage.REQUEST_RESPONSE);
         put(Verb.INTERNAL_RESPONSE, Stage.INTERNAL_RESPONSE);
@@ -376,6 +404,7 @@ public final class MessagingService implements MessagingServiceMBean
         put(Verb.READ, ReadCommand.serializer);
         put(Verb.RANGE_SLICE, ReadCommand.serializer);
         put(Verb.PAGED_RANGE, ReadCommand.serializer);
+        put(Verb.PARTIAL_AGGREGATE, PartialAggregationRequest.serializer);
         put(Verb.BOOTSTRAP_TOKEN, BootStrapper.StringSerializer.instance);
         put(Verb.REPAIR_MESSAGE, RepairMessage.serializer);
         put(Verb.GOSSIP_DIGEST_ACK, GossipDigestAck.serializer);
@@ -388,9 +417,11 @@ public final class MessagingService implements MessagingServiceMBean
         put(Verb.SNAPSHOT, SnapshotCommand.serializer);
         put(Verb.ECHO, EchoMessage.serializer);
         put(Verb.PAXOS_PREPARE, Commit.serializer);
+        put(Verb.PAXOS_PREPARE_AND_READ, PrepareAndRead.serializer);
         put(Verb.PAXOS_PROPOSE, Commit.serializer);
         put(Verb.PAXOS_COMMIT, Commit.serializer);
         put(Verb.HINT, HintMessage.serializer);
+        put(Verb.HINTS_BATCH, HintsBatchMessage.serializer);
         put(Verb.BATCH_STORE, Batch.serializer);
         put(Verb.BATCH_REMOVE, UUIDSerializer.serializer);
 
@@ -404,11 +435,13 @@ public final class MessagingService implements MessagingServiceMBean
     {{
         put(Verb.MUTATION, WriteResponse.serializer);
         put(Verb.HINT, HintResponse.serializer);
+        put(Verb.HINTS_BATCH, HintResponse.serializer);
         put(Verb.READ_REPAIR, WriteResponse.serializer);
         put(Verb.COUNTER_MUTATION, WriteResponse.serializer);
         put(Verb.RANGE_SLICE, ReadResponse.serializer);
         put(Verb.PAGED_RANGE, ReadResponse.serializer);
         put(Verb.READ, ReadResponse.serializer);
+        put(Verb.PARTIAL_AGGREGATE, PartialAggregationResponse.serializer);
         put(Verb.TRUNCATE, TruncateResponse.serializer);
         put(Verb.SNAPSHOT, null);
 
@@ -418,6 +451,7 @@ public final class MessagingService implements MessagingServiceMBean
         put(Verb.REPLICATION_FINISHED, null);
 
         put(Verb.PAXOS_PREPARE, PrepareResponse.serializer);
+        put(Verb.PAXOS_PREPARE_AND_READ, PrepareResponse.withReadSerializer);
         put(Verb.PAXOS_PROPOSE, BooleanSerializer.serializer);
 
         put(Verb.BATCH_STORE, WriteResponse.serializer);
@@ -472,10 +506,12 @@ public final class MessagingService implements MessagingServiceMBean
                                                                    Verb.MUTATION,
                                                                    Verb.COUNTER_MUTATION,
                                                                    Verb.HINT,
+                                                                   Verb.HINTS_BATCH,
                                                                    Verb.READ_REPAIR,
                                                                    Verb.READ,
                                                                    Verb.RANGE_SLICE,
                                                                    Verb.PAGED_RANGE,
+                                                                   Verb.PARTIAL_AGGREGATE,
                                                                    Verb.REQUEST_RESPONSE,
                                                                    Verb.BATCH_STORE,
                                                                    Verb.BATCH_REMOVE);
@@ -567,7 +603,7 @@ public final class MessagingService implements MessagingServiceMBean
             {
                 final CallbackInfo expiredCallbackInfo = pair.right.value;
 
-                maybeAddLatency(expiredCallbackInfo.callback, expiredCallbackInfo.target, pair.right.timeout);
+                maybeAddTimeout(expiredCallbackInfo.callback, expiredCallbackInfo.target, pair.right.timeout);
 
                 ConnectionMetrics.totalTimeouts.mark();
                 markTimeout(expiredCallbackInfo.target);
@@ -726,6 +762,22 @@ public final class MessagingService implements MessagingServiceMBean
             subscriber.receiveTiming(address, latency);
     }
 
+    /**
+     * Track timed out requests for the dynamic snitch
+     *
+     * @param cb      the callback associated with the expired message
+     * @param address the host that failed to reply to the message
+     * @param timeout how long we waited for the reply
+     */
+    private void maybeAddTimeout(IAsyncCallback cb, InetAddressAndPort address, long timeout)
+    {
+        if (cb.isLatencyForSnitch())
+        {
+            for (ILatencySubscriber subscriber : subscribers)
+                subscriber.receiveTimeout(address, timeout);
+        }
+    }
+
     /**
      * called from gossiper when it notices a node is not responding.
      */
@@ -882,7 +934,19 @@ public final class MessagingService implements MessagingServiceMBean
     {
         OutboundMessagingPool pool = channelManagers.remove(to);
         if (pool != null)
-            pool.close(true);
+            closeConnectionPool(to, pool, true);
+    }
+
+    /**
+     * Closes a connection pool removed from {@link #channelManagers}, and unregisters the metrics of its connections.
+     */
+    private void closeConnectionPool(InetAddressAndPort address, OutboundMessagingPool pool, boolean softClose)
+    {
+        pool.close(softClose);
+        // the framing metrics are named after the address the connections were opened to
+        metrics.releaseFrameMetrics(address);
+        if (!address.equals(pool.getPreferredRemoteAddr()))
+            metrics.releaseFrameMetrics(pool.getPreferredRemoteAddr());
     }
 
     /**
@@ -906,7 +970,7 @@ public final class MessagingService implements MessagingServiceMBean
     {
         OutboundMessagingPool messagingPool = channelManagers.remove(address);
         if (messagingPool != null)
-            messagingPool.close(false);
+            closeConnectionPool(address, messagingPool, false);
     }
 
     public InetAddressAndPort getCurrentEndpoint(InetAddressAndPort publicAddress)
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.net.async;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+import org.apache.cassandra.net.MessagingService;
+
+import static org.apache.cassandra.net.async.FrameEncoder.COMPRESSED_FLAG;
+import static org.apache.cassandra.net.async.FrameEncoder.HEADER_LENGTH;
+import static org.apache.cassandra.net.async.FrameEncoder.MAX_FRAME_SIZE;
+
+/**
+ * Decodes the frames written by {@link FrameEncoder}, validating both the header and content checksums and
+ * decompressing the payload if needed. Any invalid frame is fatal to the connection: the data is corrupted,
+ * and we can not tell where the next message starts.
+ */
+class FrameDecoder extends ByteToMessageDecoder
+{
+    private static final LZ4SafeDecompressor decompressor = LZ4Factory.fastestInstance().safeDecompressor();
+
+    private final CRC32 checksum = new CRC32();
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws IOException
+    {
+        try
+        {
+            decodeFrames(ctx, in, out);
+        }
+        catch (IOException e)
+        {
+            // nothing that follows can be trusted anymore
+            in.skipBytes(in.readableBytes());
+            throw e;
+        }
+    }
+
+    private void decodeFrames(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws IOException
+    {
+        while (in.readableBytes() >= HEADER_LENGTH)
+        {
+            int readerIndex = in.readerIndex();
+            checksum.reset();
+            checksum.update(in.nioBuffer(readerIndex, 12));
+            if (in.getInt(readerIndex + 12) != (int) checksum.getValue())
+                throw corrupted("frame header checksum mismatch");
+
+            int payloadLength = in.getInt(readerIndex);
+            boolean compressed = (payloadLength & COMPRESSED_FLAG) != 0;
+            payloadLength &= ~COMPRESSED_FLAG;
+            int length = in.getInt(readerIndex + 4);
+            if (length <= 0 || length > MAX_FRAME_SIZE || (compressed ? payloadLength >= length : payloadLength != length))
+                throw corrupted(String.format("invalid frame lengths (payload = %d, uncompressed = %d)", payloadLength, length));
+
+            if (in.readableBytes() < HEADER_LENGTH + payloadLength)
+                return;
+
+            int contentChecksum = in.getInt(readerIndex + 8);
+            in.skipBytes(HEADER_LENGTH);
+
+            ByteBuf content;
+            if (compressed)
+            {
+                content = ctx.alloc().directBuffer(length, length);
+                try
+                {
+                    int decompressedLength = decompressor.decompress(in.nioBuffer(in.readerIndex(), payloadLength), 0, payloadLength,
+                                                                     content.nioBuffer(0, length), 0, length);
+                    if (decompressedLength != length)
+                        throw corrupted(String.format("frame decompressed to %d bytes, expected %d", decompressedLength, length));
+                }
+                catch (IOException | RuntimeException e)
+                {
+                    content.release();
+                    throw e instanceof IOException ? (IOException) e : corrupted("failed to decompress frame: " + e.getMessage());
+                }
+                content.writerIndex(length);
+                in.skipBytes(payloadLength);
+            }
+            else
+            {
+                content = in.readRetainedSlice(length);
+            }
+
+            checksum.reset();
+            checksum.update(content.nioBuffer());
+            if (contentChecksum != (int) checksum.getValue())
+            {
+                content.release();
+                throw corrupted("frame content checksum mismatch");
+            }
+            out.add(content);
+        }
+    }
+
+    private static IOException corrupted(String reason)
+    {
+        MessagingService.instance().metrics.corruptedFrames.inc();
+        return new IOException("Corrupted internode frame: " + reason);
+    }
+}
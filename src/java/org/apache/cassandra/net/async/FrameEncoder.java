@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.net.async;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.concurrent.PromiseNotifier;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+
+import org.apache.cassandra.metrics.MessagingMetrics;
+
+/**
+ * Packs the serialized outbound messages of a connection into checksummed, optionally LZ4 compressed, frames.
+ * <p>
+ * Each frame carries up to {@link #MAX_FRAME_SIZE} bytes of message data, and is laid out as follows:
+ * <pre>
+ * {@code
+ *            1 1 1 1 1 2 2 2 2 2 3 3 3 3 3 4 4 4 4 4 5 5 5 5 5 6 6
+ *  0 2 4 6 8 0 2 4 6 8 0 2 4 6 8 0 2 4 6 8 0 2 4 6 8 0 2 4 6 8 0 2
+ * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ * |C|                   Payload length                            |
+ * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ * |                  Uncompressed length                          |
+ * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ * |               CRC32 of the uncompressed data                  |
+ * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ * |             CRC32 of the first 12 header bytes                |
+ * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ * |                                                               |
+ * +                   Payload                                     +
+ * |                                                               |
+ * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ * }
+ * </pre>
+ * where C is set when the payload is LZ4 compressed. A frame is only sent compressed when that actually makes it smaller.
+ * <p>
+ * Messages are accumulated until either a frame is full or the channel is flushed, so that many small messages share a
+ * frame (and its checksum and compression). Flushes are themselves deferred to a single task on the event loop, so that
+ * all the flushes requested while processing a batch of messages result in a single frame and a single socket write.
+ * The promise of a message is completed when the frame containing its last byte has been written.
+ */
+class FrameEncoder extends ChannelOutboundHandlerAdapter
+{
+    static final int MAX_FRAME_SIZE = 1 << 16;
+    static final int HEADER_LENGTH = 16;
+    static final int COMPRESSED_FLAG = 0x80000000;
+
+    private final LZ4Compressor compressor;
+    private final MessagingMetrics.FrameMetrics metrics;
+    private final CRC32 checksum = new CRC32();
+
+    /**
+     * The promises of the messages whose last byte is in {@link #buffer}.
+     */
+    private final List<ChannelPromise> pendingPromises = new ArrayList<>();
+
+    /**
+     * The data of the frame being built.
+     */
+    private ByteBuf buffer;
+    private boolean flushScheduled;
+
+    FrameEncoder(boolean compress, MessagingMetrics.FrameMetrics metrics)
+    {
+        this.compressor = compress ? LZ4Factory.fastestInstance().fastCompressor() : null;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx)
+    {
+        buffer = ctx.alloc().directBuffer(MAX_FRAME_SIZE, MAX_FRAME_SIZE);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx)
+    {
+        if (buffer != null)
+        {
+            buffer.release();
+            buffer = null;
+        }
+        ClosedChannelException cause = new ClosedChannelException();
+        for (ChannelPromise promise : pendingPromises)
+            promise.tryFailure(cause);
+        pendingPromises.clear();
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
+    {
+        if (!(msg instanceof ByteBuf))
+        {
+            writeFrame(ctx);
+            ctx.write(msg, promise);
+            return;
+        }
+
+        ByteBuf buf = (ByteBuf) msg;
+        try
+        {
+            while (true)
+            {
+                buffer.writeBytes(buf, Math.min(buf.readableBytes(), buffer.writableBytes()));
+                if (!buf.isReadable())
+                    pendingPromises.add(promise);
+                if (!buffer.isWritable())
+                    writeFrame(ctx);
+                if (!buf.isReadable())
+                    return;
+            }
+        }
+        finally
+        {
+            buf.release();
+        }
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx)
+    {
+        if (flushScheduled)
+            return;
+
+        flushScheduled = true;
+        ctx.channel().eventLoop().execute(() -> {
+            flushScheduled = false;
+            if (buffer == null)
+                return;
+            writeFrame(ctx);
+            ctx.flush();
+        });
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise)
+    {
+        writeFrame(ctx);
+        ctx.flush();
+        ctx.close(promise);
+    }
+
+    /**
+     * Writes out the data accumulated so far, if any, as a frame.
+     */
+    private void writeFrame(ChannelHandlerContext ctx)
+    {
+        if (!buffer.isReadable())
+        {
+            // the pending messages were empty; only make sure their promises complete in order with the previous writes
+            if (!pendingPromises.isEmpty())
+                ctx.write(Unpooled.EMPTY_BUFFER, pendingPromise(ctx));
+            return;
+        }
+
+        int length = buffer.readableBytes();
+        checksum.reset();
+        checksum.update(buffer.nioBuffer());
+        int contentChecksum = (int) checksum.getValue();
+
+        ByteBuf frame = null;
+        int payloadLength = length;
+        if (compressor != null)
+        {
+            int maxCompressedLength = compressor.maxCompressedLength(length);
+            frame = ctx.alloc().directBuffer(HEADER_LENGTH + maxCompressedLength);
+            int compressedLength = compressor.compress(buffer.nioBuffer(), 0, length,
+                                                       frame.nioBuffer(HEADER_LENGTH, maxCompressedLength), 0, maxCompressedLength);
+            if (compressedLength < length)
+            {
+                payloadLength = compressedLength | COMPRESSED_FLAG;
+                frame.writerIndex(HEADER_LENGTH + compressedLength);
+            }
+            else
+            {
+                frame.release();
+                frame = null;
+            }
+        }
+
+        if (frame == null)
+        {
+            frame = ctx.alloc().directBuffer(HEADER_LENGTH + length);
+            frame.writerIndex(HEADER_LENGTH);
+            frame.writeBytes(buffer, buffer.readerIndex(), length);
+        }
+        buffer.clear();
+
+        frame.setInt(0, payloadLength);
+        frame.setInt(4, length);
+        frame.setInt(8, contentChecksum);
+        checksum.reset();
+        checksum.update(frame.nioBuffer(0, 12));
+        frame.setInt(12, (int) checksum.getValue());
+
+        if (metrics != null)
+            metrics.frameSent(frame.readableBytes(), length);
+
+        if (pendingPromises.isEmpty())
+            ctx.write(frame);
+        else
+            ctx.write(frame, pendingPromise(ctx));
+    }
+
+    /**
+     * Returns a single promise completing all the {@link #pendingPromises}, and clears the latter.
+     */
+    private ChannelPromise pendingPromise(ChannelHandlerContext ctx)
+    {
+        ChannelPromise promise;
+        if (pendingPromises.size() == 1)
+        {
+            promise = pendingPromises.get(0);
+        }
+        else
+        {
+            promise = ctx.newPromise();
+            promise.addListener(new PromiseNotifier<>(pendingPromises.toArray(new ChannelPromise[0])));
+        }
+        pendingPromises.clear();
+        return promise;
+    }
+}
@@ -62,6 +62,9 @@ public class HandshakeProtocol
      *      - the "mode" of the connection: whether it is for streaming or for messaging.
      *      - whether compression should be used or not (if it is, compression is enabled _after_ the last message of the
      *        handshake has been sent).
+     *      - whether messages should be sent in checksummed frames (see {@link FrameEncoder}); as for compression,
+     *        framing starts _after_ the last message of the handshake has been sent, and only if the peer confirmed it
+     *        in the {@link SecondHandshakeMessage}.
      * <p>
      * More precisely, connection flags:
      * <pre>
@@ -69,14 +72,15 @@ public class HandshakeProtocol
      *                      1 1 1 1 1 1 1 1 1 1 2 2 2 2 2 2 2 2 2 2 3 3
      *  0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1
      * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
-     * |U U C M       |                |                               |
-     * |N N M O       |     VERSION    |             unused            |
-     * |U U P D       |                |                               |
+     * |U U C M F     |                |                               |
+     * |N N M O R     |     VERSION    |             unused            |
+     * |U U P D M     |                |                               |
      * +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
      * }
      * </pre>
      * UNU - unused bits lowest two bits; from a historical note: used to be "serializer type," which was always Binary
      * CMP - compression enabled bit
+     * FRM - checksummed framing enabled bit
      * MOD - connection mode. If the bit is on, the connection is for streaming; if the bit is off, it is for inter-node messaging.
      * VERSION - if a streaming connection, indicates the streaming protocol version {@link org.apache.cassandra.streaming.messages.StreamMessage#CURRENT_VERSION};
      * if a messaging connection, indicates the messaging protocol version the initiator *thinks* should be used.
@@ -89,13 +93,20 @@ public class HandshakeProtocol
         final int messagingVersion;
         final NettyFactory.Mode mode;
         final boolean compressionEnabled;
+        final boolean framingEnabled;
 
         public FirstHandshakeMessage(int messagingVersion, NettyFactory.Mode mode, boolean compressionEnabled)
+        {
+            this(messagingVersion, mode, compressionEnabled, false);
+        }
+
+        public FirstHandshakeMessage(int messagingVersion, NettyFactory.Mode mode, boolean compressionEnabled, boolean framingEnabled)
         {
             assert messagingVersion > 0;
             this.messagingVersion = messagingVersion;
             this.mode = mode;
             this.compressionEnabled = compressionEnabled;
+            this.framingEnabled = framingEnabled;
         }
 
         @VisibleForTesting
@@ -106,6 +117,8 @@ public class HandshakeProtocol
                 flags |= 1 << 2;
             if (mode == NettyFactory.Mode.STREAMING)
                 flags |= 1 << 3;
+            if (framingEnabled)
+                flags |= 1 << 4;
 
             flags |= (messagingVersion << 8);
             return flags;
@@ -132,7 +145,8 @@ public class HandshakeProtocol
                                      ? NettyFactory.Mode.STREAMING
                                      : NettyFactory.Mode.MESSAGING;
             boolean compressed = MessagingService.getBits(flags, 2, 1) == 1;
-            return new FirstHandshakeMessage(version, mode, compressed);
+            boolean framed = MessagingService.getBits(flags, 4, 1) == 1;
+            return new FirstHandshakeMessage(version, mode, compressed, framed);
         }
 
         @Override
@@ -144,19 +158,21 @@ public class HandshakeProtocol
             FirstHandshakeMessage that = (FirstHandshakeMessage)other;
             return this.messagingVersion == that.messagingVersion
                    && this.mode == that.mode
-                   && this.compressionEnabled == that.compressionEnabled;
+                   && this.compressionEnabled == that.compressionEnabled
+                   && this.framingEnabled == that.framingEnabled;
         }
 
         @Override
         public int hashCode()
         {
-            return Objects.hash(messagingVersion, mode, compressionEnabled);
+            return Objects.hash(messagingVersion, mode, compressionEnabled, framingEnabled);
         }
 
         @Override
         public String toString()
         {
-            return String.format("FirstHandshakeMessage - messaging version: %d, mode: %s, compress: %b", messagingVersion, mode, compressionEnabled);
+            return String.format("FirstHandshakeMessage - messaging version: %d, mode: %s, compress: %b, framing: %b",
+                                 messagingVersion, mode, compressionEnabled, framingEnabled);
         }
     }
 
@@ -164,49 +180,72 @@ public class HandshakeProtocol
      * The second message of the handshake, sent by the node receiving the {@link FirstHandshakeMessage} back to the
      * connection initiator. This message contains the messaging version of the peer sending this message,
      * so {@link org.apache.cassandra.net.MessagingService#current_version}.
+     * <p>
+     * If the first message proposed checksummed framing and the receiving peer supports it, the receiving peer
+     * confirms it by setting the {@link #FRAMING_CONFIRMED} bit on top of the version. Peers that don't know about
+     * framing ignore the proposal and never set the bit, so the initiator only frames its messages once the
+     * receiving peer confirmed it will read frames.
      */
     static class SecondHandshakeMessage
     {
         /** The messaging version sent by the receiving peer (int). */
         private static final int LENGTH = 4;
 
+        /** Set on the version when the receiving peer accepts checksummed framing. */
+        private static final int FRAMING_CONFIRMED = 1 << 16;
+
         final int messagingVersion;
+        final boolean framingConfirmed;
 
         SecondHandshakeMessage(int messagingVersion)
+        {
+            this(messagingVersion, false);
+        }
+
+        SecondHandshakeMessage(int messagingVersion, boolean framingConfirmed)
         {
             this.messagingVersion = messagingVersion;
+            this.framingConfirmed = framingConfirmed;
         }
 
         public ByteBuf encode(ByteBufAllocator allocator)
         {
             ByteBuf buffer = allocator.directBuffer(LENGTH, LENGTH);
             buffer.writerIndex(0);
-            buffer.writeInt(messagingVersion);
+            buffer.writeInt(framingConfirmed ? messagingVersion | FRAMING_CONFIRMED : messagingVersion);
             return buffer;
         }
 
         static SecondHandshakeMessage maybeDecode(ByteBuf in)
         {
-            return in.readableBytes() >= LENGTH ? new SecondHandshakeMessage(in.readInt()) : null;
+            if (in.readableBytes() < LENGTH)
+                return null;
+
+            int value = in.readInt();
+            return new SecondHandshakeMessage(value & ~FRAMING_CONFIRMED, (value & FRAMING_CONFIRMED) != 0);
         }
 
         @Override
         public boolean equals(Object other)
         {
-            return other instanceof SecondHandshakeMessage
-                   && this.messagingVersion == ((SecondHandshakeMessage) other).messagingVersion;
+            if (!(other instanceof SecondHandshakeMessage))
+                return false;
+
+            SecondHandshakeMessage that = (SecondHandshakeMessage) other;
+            return this.messagingVersion == that.messagingVersion
+                   && this.framingConfirmed == that.framingConfirmed;
         }
 
         @Override
         public int hashCode()
         {
-            return Integer.hashCode(messagingVersion);
+            return Objects.hash(messagingVersion, framingConfirmed);
         }
 
         @Override
         public String toString()
         {
-            return String.format("SecondHandshakeMessage - messaging version: %d", messagingVersion);
+            return String.format("SecondHandshakeMessage - messaging version: %d, framing: %b", messagingVersion, framingConfirmed);
         }
     }
 
@@ -57,6 +57,11 @@ class InboundHandshakeHandler extends ByteToMessageDecoder
      */
     private boolean compressed;
 
+    /**
+     * Does the peer send its messages in checksummed frames (see {@link FrameEncoder})?
+     */
+    private boolean framed;
+
     /**
      * A future the essentially places a timeout on how long we'll wait for the peer
      * to complete the next step of the handshake.
@@ -186,10 +191,11 @@ class InboundHandshakeHandler extends ByteToMessageDecoder
 
             logger.trace("Connection version {} from {}", version, ctx.channel().remoteAddress());
             compressed = msg.compressionEnabled;
+            framed = msg.framingEnabled;
 
             // if this version is < the MS version the other node is trying
             // to connect with, the other node will disconnect
-            ctx.writeAndFlush(new SecondHandshakeMessage(MessagingService.current_version).encode(ctx.alloc()))
+            ctx.writeAndFlush(new SecondHandshakeMessage(MessagingService.current_version, framed).encode(ctx.alloc()))
                .addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
 
             // outbound side will reconnect to change the version
@@ -249,14 +255,22 @@ class InboundHandshakeHandler extends ByteToMessageDecoder
         MessagingService.instance().setVersion(from, maxVersion);
         logger.trace("Set version for {} to {} (will use {})", from, maxVersion, MessagingService.instance().getVersion(from));
 
-        setupMessagingPipeline(ctx.pipeline(), from, compressed, version);
+        setupMessagingPipeline(ctx.pipeline(), from, compressed, framed, version);
         return State.HANDSHAKE_COMPLETE;
     }
 
     @VisibleForTesting
     void setupMessagingPipeline(ChannelPipeline pipeline, InetAddressAndPort peer, boolean compressed, int messagingVersion)
     {
-        if (compressed)
+        setupMessagingPipeline(pipeline, peer, compressed, false, messagingVersion);
+    }
+
+    @VisibleForTesting
+    void setupMessagingPipeline(ChannelPipeline pipeline, InetAddressAndPort peer, boolean compressed, boolean framed, int messagingVersion)
+    {
+        if (framed)
+            pipeline.addLast(NettyFactory.INBOUND_FRAME_HANDLER_NAME, new FrameDecoder());
+        else if (compressed)
             pipeline.addLast(NettyFactory.INBOUND_COMPRESSOR_HANDLER_NAME, NettyFactory.createLz4Decoder(messagingVersion));
 
         pipeline.addLast("messageInHandler", new MessageInHandler(peer, messagingVersion));
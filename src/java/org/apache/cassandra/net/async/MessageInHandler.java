@@ -25,6 +25,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.function.BiConsumer;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -34,6 +35,7 @@ import org.slf4j.LoggerFactory;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
+import org.apache.cassandra.concurrent.DebuggableThreadPoolExecutor;
 import org.apache.cassandra.db.monitoring.ApproximateTime;
 import org.apache.cassandra.exceptions.UnknownTableException;
 import org.apache.cassandra.io.util.DataInputBuffer;
@@ -42,6 +44,7 @@ import org.apache.cassandra.net.CompactEndpointSerializationHelper;
 import org.apache.cassandra.net.MessageIn;
 import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.net.ParameterType;
+import org.apache.cassandra.utils.JVMStabilityInspector;
 
 /**
  * Parses out individual messages from the incoming buffers. Each message, both header and payload, is incrementally built up
@@ -50,6 +53,11 @@ import org.apache.cassandra.net.ParameterType;
  * Note: this class derives from {@link ByteToMessageDecoder} to take advantage of the {@link ByteToMessageDecoder.Cumulator}
  * behavior across {@link #decode(ChannelHandlerContext, ByteBuf, List)} invocations. That way we don't have to maintain
  * the not-fully consumed {@link ByteBuf}s.
+ *
+ * Payloads larger than {@link #LARGE_PAYLOAD_THRESHOLD} are not accumulated until fully received though: they are
+ * handed off, as they arrive, to a {@link RebufferingByteBufDataInputPlus} from which the payload is deserialized on a
+ * {@link #largePayloadExecutor} thread. The input disables auto-read on the channel when too many bytes are buffered,
+ * which bounds the memory a connection uses for a large message, whatever its size.
  */
 class MessageInHandler extends ByteToMessageDecoder
 {
@@ -67,7 +75,8 @@ class MessageInHandler extends ByteToMessageDecoder
         READ_SECOND_CHUNK,
         READ_PARAMETERS_DATA,
         READ_PAYLOAD_SIZE,
-        READ_PAYLOAD
+        READ_PAYLOAD,
+        READ_LARGE_PAYLOAD
     }
 
     /**
@@ -81,6 +90,25 @@ class MessageInHandler extends ByteToMessageDecoder
      */
     private static final int SECOND_SECTION_BYTE_COUNT = 8;
 
+    /**
+     * The payload size from which a message is deserialized incrementally, as its bytes arrive, rather than
+     * once it has been fully received.
+     */
+    @VisibleForTesting
+    static final long LARGE_PAYLOAD_THRESHOLD = OutboundMessagingPool.LARGE_MESSAGE_THRESHOLD;
+
+    /**
+     * The amounts of received but not yet deserialized bytes of a large payload between which auto-read is toggled.
+     */
+    private static final int LARGE_PAYLOAD_LOW_WATER_MARK = 1 << 18;
+    private static final int LARGE_PAYLOAD_HIGH_WATER_MARK = 1 << 20;
+
+    /**
+     * Deserializes the large payloads, as that may block waiting for more bytes to arrive, and thus cannot happen on
+     * the event loop.
+     */
+    private static final ExecutorService largePayloadExecutor = DebuggableThreadPoolExecutor.createCachedThreadpoolWithMaxSize("MessagingLargePayloadReader");
+
     private final InetAddressAndPort peer;
     private final int messagingVersion;
 
@@ -93,6 +121,16 @@ class MessageInHandler extends ByteToMessageDecoder
     private State state;
     private MessageHeader messageHeader;
 
+    /**
+     * The input the payload being received is appended to, when it is larger than {@link #LARGE_PAYLOAD_THRESHOLD}.
+     */
+    private RebufferingByteBufDataInputPlus largePayload;
+
+    /**
+     * The number of bytes of the {@link #largePayload} that have yet to be received.
+     */
+    private int largePayloadRemaining;
+
     MessageInHandler(InetAddressAndPort peer, int messagingVersion)
     {
         this (peer, messagingVersion, MESSAGING_SERVICE_CONSUMER);
@@ -173,16 +211,29 @@ class MessageInHandler extends ByteToMessageDecoder
                         readableBytes -= 4;
                         // fall-through
                     case READ_PAYLOAD:
-                        if (readableBytes < messageHeader.payloadSize)
-                            return;
+                        if (messageHeader.payloadSize < LARGE_PAYLOAD_THRESHOLD)
+                        {
+                            if (readableBytes < messageHeader.payloadSize)
+                                return;
+
+                            MessageIn<Object> messageIn = MessageIn.read(inputPlus, messagingVersion,
+                                                                         messageHeader.messageId, messageHeader.constructionTime, messageHeader.from,
+                                                                         messageHeader.payloadSize, messageHeader.verb, messageHeader.parameters);
 
-                        // TODO consider deserailizing the messge not on the event loop
-                        MessageIn<Object> messageIn = MessageIn.read(inputPlus, messagingVersion,
-                                                                     messageHeader.messageId, messageHeader.constructionTime, messageHeader.from,
-                                                                     messageHeader.payloadSize, messageHeader.verb, messageHeader.parameters);
+                            if (messageIn != null)
+                                messageConsumer.accept(messageIn, messageHeader.messageId);
 
-                        if (messageIn != null)
-                            messageConsumer.accept(messageIn, messageHeader.messageId);
+                            state = State.READ_FIRST_CHUNK;
+                            messageHeader = null;
+                            break;
+                        }
+
+                        startLargePayload(ctx);
+                        state = State.READ_LARGE_PAYLOAD;
+                        // fall-through
+                    case READ_LARGE_PAYLOAD:
+                        if (!appendLargePayload(in, readableBytes))
+                            return;
 
                         state = State.READ_FIRST_CHUNK;
                         messageHeader = null;
@@ -198,6 +249,107 @@ class MessageInHandler extends ByteToMessageDecoder
         }
     }
 
+    /**
+     * Starts deserializing the payload of the current {@link #messageHeader} on the {@link #largePayloadExecutor},
+     * from a {@link RebufferingByteBufDataInputPlus} that gets filled by {@link #appendLargePayload(ByteBuf, int)}.
+     */
+    private void startLargePayload(ChannelHandlerContext ctx)
+    {
+        MessageHeader header = messageHeader;
+        RebufferingByteBufDataInputPlus input = new RebufferingByteBufDataInputPlus(LARGE_PAYLOAD_LOW_WATER_MARK,
+                                                                                    LARGE_PAYLOAD_HIGH_WATER_MARK,
+                                                                                    ctx.channel().config());
+        largePayload = input;
+        largePayloadRemaining = header.payloadSize;
+        largePayloadExecutor.submit(() -> readLargePayload(header, input));
+    }
+
+    /**
+     * Hands off as many bytes of the large payload as are available in {@code in}, without copying them.
+     *
+     * @return <code>true</code> if the whole payload has been handed off; else, <code>false</code>.
+     */
+    private boolean appendLargePayload(ByteBuf in, int readableBytes)
+    {
+        int length = Math.min(readableBytes, largePayloadRemaining);
+        if (length > 0)
+        {
+            largePayload.append(in.readRetainedSlice(length));
+            largePayloadRemaining -= length;
+        }
+
+        if (largePayloadRemaining > 0)
+            return false;
+
+        largePayload.markClose();
+        largePayload = null;
+        return true;
+    }
+
+    /**
+     * Deserializes a large payload, blocking until its bytes are received.
+     * <p>
+     * Note: this is executed on a {@link #largePayloadExecutor} thread.
+     */
+    private void readLargePayload(MessageHeader header, RebufferingByteBufDataInputPlus input)
+    {
+        boolean eof = false;
+        try
+        {
+            MessageIn<Object> messageIn = MessageIn.read(input, messagingVersion,
+                                                         header.messageId, header.constructionTime, header.from,
+                                                         header.payloadSize, header.verb, header.parameters);
+            if (messageIn != null)
+                messageConsumer.accept(messageIn, header.messageId);
+        }
+        catch (EOFException e)
+        {
+            eof = true;
+            logger.trace("eof reading a large message payload from {}", header.from, e);
+        }
+        catch (Throwable t)
+        {
+            JVMStabilityInspector.inspectThrowable(t);
+            logger.warn("Unexpected exception reading a large message payload from {}", header.from, t);
+        }
+        finally
+        {
+            // consume whatever wasn't deserialized, up to the end of the payload (or the closing of the channel),
+            // so that every buffer handed off by the event loop gets released here
+            if (!eof)
+            {
+                try
+                {
+                    while (input.skipBytes(Integer.MAX_VALUE) > 0);
+                }
+                catch (IOException e)
+                {
+                    // expected once we've reached the end of the input
+                }
+            }
+            input.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * {@link ByteToMessageDecoder} requests more data when auto-read is disabled and no message was decoded,
+     * which is always the case here as messages are passed to the {@link #messageConsumer}. This would defeat
+     * the back pressure applied by the {@link #largePayload} input, so we only let it do so when not receiving
+     * a large payload.
+     */
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception
+    {
+        if (largePayload != null && !ctx.channel().config().isAutoRead())
+        {
+            ctx.fireChannelReadComplete();
+            return;
+        }
+        super.channelReadComplete(ctx);
+    }
+
     /**
      * @return <code>true</code> if all the parameters have been read from the {@link ByteBuf}; else, <code>false</code>.
      */
@@ -286,6 +438,11 @@ class MessageInHandler extends ByteToMessageDecoder
     public void channelInactive(ChannelHandlerContext ctx) throws Exception
     {
         logger.debug("received channel closed message for peer {} on local addr {}", ctx.channel().remoteAddress(), ctx.channel().localAddress());
+        if (largePayload != null)
+        {
+            largePayload.markClose();
+            largePayload = null;
+        }
         ctx.fireChannelInactive();
     }
 
@@ -19,8 +19,14 @@
 package org.apache.cassandra.net.async;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
@@ -38,11 +44,14 @@ import io.netty.handler.codec.UnsupportedMessageTypeException;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
 
+import org.apache.cassandra.concurrent.DebuggableThreadPoolExecutor;
+import org.apache.cassandra.io.util.BufferedDataOutputStreamPlus;
 import org.apache.cassandra.io.util.DataOutputPlus;
 import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.net.ParameterType;
 import org.apache.cassandra.tracing.TraceState;
 import org.apache.cassandra.tracing.Tracing;
+import org.apache.cassandra.utils.JVMStabilityInspector;
 import org.apache.cassandra.utils.NanoTimeToCurrentTimeMillis;
 import org.apache.cassandra.utils.NoSpamLogger;
 import org.apache.cassandra.utils.UUIDGen;
@@ -73,6 +82,19 @@ class MessageOutHandler extends ChannelDuplexHandler
     private static final String AUTO_FLUSH_PROPERTY = PROPERTY_PREFIX + "otc_buffer_size";
     static final int AUTO_FLUSH_THRESHOLD = Integer.getInteger(AUTO_FLUSH_PROPERTY, DEFAULT_AUTO_FLUSH_THRESHOLD);
 
+    /**
+     * The size of the buffers messages larger than it are serialized into, each being written out as soon as it is
+     * full, rather than serializing the whole message into a single buffer.
+     */
+    @VisibleForTesting
+    static final int LARGE_MESSAGE_FRAME_SIZE = Integer.getInteger(PROPERTY_PREFIX + "otc_large_message_frame_size", 1 << 16);
+
+    /**
+     * Serializes the large messages, as that may block waiting for the channel to become writable, and thus cannot
+     * happen on the event loop.
+     */
+    private static final ExecutorService largeMessageExecutor = DebuggableThreadPoolExecutor.createCachedThreadpoolWithMaxSize("MessagingLargeMessageWriter");
+
     /**
      * The amount of prefix data, in bytes, before the serialized message.
      */
@@ -94,6 +116,20 @@ class MessageOutHandler extends ChannelDuplexHandler
 
     private final Supplier<QueuedMessage> backlogSupplier;
 
+    /**
+     * The large message currently being serialized on the {@link #largeMessageExecutor}, if any.
+     * <p>
+     * Note: this is only accessed on the netty event loop.
+     */
+    private FramedMessageOutput largeMessage;
+
+    /**
+     * The messages received while {@link #largeMessage} is being written, which must not be interleaved with its frames.
+     * <p>
+     * Note: this is only accessed on the netty event loop.
+     */
+    private final Queue<DeferredWrite> deferredWrites = new ArrayDeque<>();
+
     MessageOutHandler(OutboundConnectionIdentifier connectionId, int targetMessagingVersion, ChannelWriter channelWriter, Supplier<QueuedMessage> backlogSupplier)
     {
         this (connectionId, targetMessagingVersion, channelWriter, backlogSupplier, AUTO_FLUSH_THRESHOLD);
@@ -117,6 +153,14 @@ class MessageOutHandler extends ChannelDuplexHandler
         if (!ctx.channel().isOpen())
         {
             logger.debug("attempting to process a message in the pipeline, but channel {} is closed", ctx.channel().id());
+            // still complete the promise, so the message outcome gets accounted for
+            promise.tryFailure(new ClosedChannelException());
+            return;
+        }
+
+        if (largeMessage != null)
+        {
+            deferredWrites.add(new DeferredWrite(o, promise));
             return;
         }
 
@@ -138,11 +182,17 @@ class MessageOutHandler extends ChannelDuplexHandler
                 return;
             }
 
-            out = ctx.alloc().ioBuffer((int)currentFrameSize);
-
             captureTracingInfo(msg);
-            serializeMessage(msg, out);
-            ctx.write(out, promise);
+            if (currentFrameSize > LARGE_MESSAGE_FRAME_SIZE)
+            {
+                startLargeMessage(ctx, msg, promise);
+            }
+            else
+            {
+                out = ctx.alloc().ioBuffer((int)currentFrameSize);
+                serializeMessage(msg, out);
+                ctx.write(out, promise);
+            }
 
             // check to see if we should flush based on buffered size
             ChannelOutboundBuffer outboundBuffer = ctx.channel().unsafe().outboundBuffer();
@@ -163,6 +213,75 @@ class MessageOutHandler extends ChannelDuplexHandler
         }
     }
 
+    /**
+     * Starts serializing a large message on the {@link #largeMessageExecutor}. Its frames are only produced while the
+     * channel is writable, so that the message never takes more memory than the channel's high water mark plus
+     * one frame. Any message written in the meantime is deferred until the message's promise completes, see
+     * {@link #largeMessageDone(ChannelHandlerContext)}.
+     */
+    private void startLargeMessage(ChannelHandlerContext ctx, QueuedMessage msg, ChannelPromise promise)
+    {
+        FramedMessageOutput out = new FramedMessageOutput(ctx, LARGE_MESSAGE_FRAME_SIZE);
+        largeMessage = out;
+        promise.addListener(f -> largeMessageDone(ctx));
+        try
+        {
+            largeMessageExecutor.submit(() -> writeLargeMessage(ctx, msg, out, promise));
+        }
+        catch (RuntimeException e)
+        {
+            out.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Serializes a large message, blocking whenever the channel is not writable.
+     * <p>
+     * Note: this is executed on a {@link #largeMessageExecutor} thread.
+     */
+    private void writeLargeMessage(ChannelHandlerContext ctx, QueuedMessage msg, FramedMessageOutput out, ChannelPromise promise)
+    {
+        try
+        {
+            serializeMessage(msg, out);
+            out.finish(promise);
+        }
+        catch (Throwable t)
+        {
+            JVMStabilityInspector.inspectThrowable(t);
+            out.release();
+            exceptionCaught(ctx, t);
+            promise.tryFailure(t);
+        }
+    }
+
+    /**
+     * Writes the messages deferred while the {@link #largeMessage} was written, until another large message comes up,
+     * and then resumes processing the backlog.
+     * <p>
+     * Note: this is invoked on the netty event loop, as a listener of the large message's promise.
+     */
+    private void largeMessageDone(ChannelHandlerContext ctx)
+    {
+        largeMessage = null;
+
+        int count = 0;
+        DeferredWrite deferred;
+        while (largeMessage == null && (deferred = deferredWrites.poll()) != null)
+        {
+            write(ctx, deferred.message, deferred.promise);
+            count++;
+        }
+
+        // the flushes triggered while the messages were deferred had nothing to send for them
+        if (count > 0)
+            ctx.flush();
+
+        if (largeMessage == null)
+            channelWritabilityChanged(ctx);
+    }
+
     /**
      * Test to see if the message passed in is a {@link QueuedMessage} and if it has timed out or not. If the checks fail,
      * this method has the side effect of modifying the {@link ChannelPromise}.
@@ -227,15 +346,9 @@ class MessageOutHandler extends ChannelDuplexHandler
 
     private void serializeMessage(QueuedMessage msg, ByteBuf out) throws IOException
     {
-        out.writeInt(MessagingService.PROTOCOL_MAGIC);
-        out.writeInt(msg.id);
-
-        // int cast cuts off the high-order half of the timestamp, which we can assume remains
-        // the same between now and when the recipient reconstructs it.
-        out.writeInt((int) NanoTimeToCurrentTimeMillis.convert(msg.timestampNanos));
         @SuppressWarnings("resource")
         DataOutputPlus outStream = new ByteBufDataOutputPlus(out);
-        msg.message.serialize(outStream, targetMessagingVersion);
+        serializeMessage(msg, outStream);
 
         // next few lines are for debugging ... massively helpful!!
         // if we allocated too much buffer for this message, we'll log here.
@@ -245,6 +358,17 @@ class MessageOutHandler extends ChannelDuplexHandler
                          connectionId, out.capacity(), out.writerIndex(), msg.message);
     }
 
+    private void serializeMessage(QueuedMessage msg, DataOutputPlus out) throws IOException
+    {
+        out.writeInt(MessagingService.PROTOCOL_MAGIC);
+        out.writeInt(msg.id);
+
+        // int cast cuts off the high-order half of the timestamp, which we can assume remains
+        // the same between now and when the recipient reconstructs it.
+        out.writeInt((int) NanoTimeToCurrentTimeMillis.convert(msg.timestampNanos));
+        msg.message.serialize(out, targetMessagingVersion);
+    }
+
     @Override
     public void flush(ChannelHandlerContext ctx)
     {
@@ -262,11 +386,19 @@ class MessageOutHandler extends ChannelDuplexHandler
      * be processed immediately; they'll be queued up as tasks, and once this function return, those messages can begin
      * to be consumed.
      * <p>
+     * While a large message is being written, only the latter resumes; the backlog is processed once it is done.
+     * <p>
      * Note: this is invoked on the netty event loop.
      */
     @Override
     public void channelWritabilityChanged(ChannelHandlerContext ctx)
     {
+        if (largeMessage != null)
+        {
+            largeMessage.writabilityChanged();
+            return;
+        }
+
         if (!ctx.channel().isWritable())
             return;
 
@@ -304,6 +436,21 @@ class MessageOutHandler extends ChannelDuplexHandler
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Wakes up any large message waiting for the channel to become writable, so it fails rather than waiting forever.
+     * <p>
+     * Note: this is invoked on the netty event loop.
+     */
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx)
+    {
+        if (largeMessage != null)
+            largeMessage.writabilityChanged();
+        ctx.fireChannelInactive();
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
     {
@@ -321,4 +468,142 @@ class MessageOutHandler extends ChannelDuplexHandler
         ctx.flush();
         ctx.close(promise);
     }
+
+    /**
+     * A message written while a large message is in progress, along with its promise.
+     */
+    private static class DeferredWrite
+    {
+        final Object message;
+        final ChannelPromise promise;
+
+        DeferredWrite(Object message, ChannelPromise promise)
+        {
+            this.message = message;
+            this.promise = promise;
+        }
+    }
+
+    /**
+     * Serializes a message into a sequence of fixed-size buffers, each one being written and flushed to the channel
+     * as soon as it is full, once the channel is writable. That way a large message never requires a buffer of its
+     * size, nor more than the channel's high water mark of buffered frames, and its first bytes are sent before it is
+     * fully serialized. The peer reads it back as a regular stream of bytes.
+     * <p>
+     * Note: this is used on a {@link #largeMessageExecutor} thread, as it blocks until the channel is writable, and
+     * must not be closed as its buffers are owned by the channel once written; use {@link #finish(ChannelPromise)}
+     * or {@link #release()} instead.
+     */
+    private static class FramedMessageOutput extends BufferedDataOutputStreamPlus
+    {
+        private final ChannelHandlerContext ctx;
+        private final int frameSize;
+
+        /**
+         * The owning {@link ByteBuf} of the {@link BufferedDataOutputStreamPlus#buffer}.
+         */
+        private ByteBuf currentBuf;
+
+        FramedMessageOutput(ChannelHandlerContext ctx, int frameSize)
+        {
+            this(ctx, ctx.alloc().ioBuffer(frameSize, frameSize), frameSize);
+        }
+
+        private FramedMessageOutput(ChannelHandlerContext ctx, ByteBuf buf, int frameSize)
+        {
+            super(buf.nioBuffer(0, frameSize));
+            this.ctx = ctx;
+            this.frameSize = frameSize;
+            this.currentBuf = buf;
+            // never write anything but full frames to the channel
+            strictFlushing = true;
+        }
+
+        @Override
+        protected WritableByteChannel newDefaultChannel()
+        {
+            return new WritableByteChannel()
+            {
+                public int write(ByteBuffer src) throws IOException
+                {
+                    assert src == buffer;
+                    int size = src.position();
+                    doFlush(size);
+                    return size;
+                }
+
+                public boolean isOpen()
+                {
+                    return ctx.channel().isOpen();
+                }
+
+                public void close()
+                {   }
+            };
+        }
+
+        @Override
+        protected void doFlush(int count) throws IOException
+        {
+            if (buffer.position() == 0)
+                return;
+
+            awaitWritable();
+            currentBuf.writerIndex(buffer.position());
+            ctx.writeAndFlush(currentBuf);
+            currentBuf = ctx.alloc().ioBuffer(frameSize, frameSize);
+            buffer = currentBuf.nioBuffer(0, frameSize);
+        }
+
+        /**
+         * Writes the last frame of the message, completing {@code promise} once the whole message has been sent.
+         */
+        void finish(ChannelPromise promise) throws IOException
+        {
+            awaitWritable();
+            currentBuf.writerIndex(buffer.position());
+            ctx.writeAndFlush(currentBuf, promise);
+            currentBuf = null;
+            buffer = null;
+        }
+
+        /**
+         * Blocks until the channel is writable, so that no more frames get buffered than the channel allows.
+         */
+        private synchronized void awaitWritable() throws IOException
+        {
+            while (!ctx.channel().isWritable())
+            {
+                if (!ctx.channel().isOpen())
+                    throw new ClosedChannelException();
+
+                try
+                {
+                    wait();
+                }
+                catch (InterruptedException e)
+                {
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+
+        /**
+         * Wakes up {@link #awaitWritable()}.
+         * <p>
+         * Note: this is invoked on the netty event loop.
+         */
+        synchronized void writabilityChanged()
+        {
+            notifyAll();
+        }
+
+        void release()
+        {
+            if (currentBuf != null && currentBuf.refCnt() > 0)
+                currentBuf.release();
+            currentBuf = null;
+            buffer = null;
+        }
+    }
 }
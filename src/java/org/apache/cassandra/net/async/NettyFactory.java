@@ -77,6 +77,8 @@ public final class NettyFactory
     private static final String OPTIONAL_SSL_CHANNEL_HANDLER_NAME = "optionalSsl";
     static final String INBOUND_COMPRESSOR_HANDLER_NAME = "inboundCompressor";
     static final String OUTBOUND_COMPRESSOR_HANDLER_NAME = "outboundCompressor";
+    static final String INBOUND_FRAME_HANDLER_NAME = "inboundFrameDecoder";
+    static final String OUTBOUND_FRAME_HANDLER_NAME = "outboundFrameEncoder";
     private static final String HANDSHAKE_HANDLER_NAME = "handshakeHandler";
     public static final String INBOUND_STREAM_HANDLER_NAME = "inboundStreamHandler";
 
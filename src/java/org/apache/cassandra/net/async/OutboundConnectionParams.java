@@ -41,6 +41,7 @@ public class OutboundConnectionParams
     final ServerEncryptionOptions encryptionOptions;
     final NettyFactory.Mode mode;
     final boolean compress;
+    final boolean framing;
     final Optional<CoalescingStrategy> coalescingStrategy;
     final int sendBufferSize;
     final boolean tcpNoDelay;
@@ -54,6 +55,7 @@ public class OutboundConnectionParams
                                      ServerEncryptionOptions encryptionOptions,
                                      NettyFactory.Mode mode,
                                      boolean compress,
+                                     boolean framing,
                                      Optional<CoalescingStrategy> coalescingStrategy,
                                      int sendBufferSize,
                                      boolean tcpNoDelay,
@@ -67,6 +69,7 @@ public class OutboundConnectionParams
         this.encryptionOptions = encryptionOptions;
         this.mode = mode;
         this.compress = compress;
+        this.framing = framing;
         this.coalescingStrategy = coalescingStrategy;
         this.sendBufferSize = sendBufferSize;
         this.tcpNoDelay = tcpNoDelay;
@@ -93,6 +96,7 @@ public class OutboundConnectionParams
         private ServerEncryptionOptions encryptionOptions;
         private NettyFactory.Mode mode;
         private boolean compress;
+        private boolean framing;
         private Optional<CoalescingStrategy> coalescingStrategy = Optional.empty();
         private int sendBufferSize = DEFAULT_SEND_BUFFER_SIZE;
         private boolean tcpNoDelay;
@@ -111,6 +115,7 @@ public class OutboundConnectionParams
             this.encryptionOptions = params.encryptionOptions;
             this.mode = params.mode;
             this.compress = params.compress;
+            this.framing = params.framing;
             this.coalescingStrategy = params.coalescingStrategy;
             this.sendBufferSize = params.sendBufferSize;
             this.tcpNoDelay = params.tcpNoDelay;
@@ -148,6 +153,12 @@ public class OutboundConnectionParams
             return this;
         }
 
+        public Builder framing(boolean framing)
+        {
+            this.framing = framing;
+            return this;
+        }
+
         public Builder coalescingStrategy(Optional<CoalescingStrategy> coalescingStrategy)
         {
             this.coalescingStrategy = coalescingStrategy;
@@ -195,7 +206,7 @@ public class OutboundConnectionParams
             Preconditions.checkArgument(protocolVersion > 0, "illegal protocol version: " + protocolVersion);
             Preconditions.checkArgument(sendBufferSize > 0 && sendBufferSize < 1 << 20, "illegal send buffer size: " + sendBufferSize);
 
-            return new OutboundConnectionParams(connectionId, callback, encryptionOptions, mode, compress, coalescingStrategy, sendBufferSize,
+            return new OutboundConnectionParams(connectionId, callback, encryptionOptions, mode, compress, framing, coalescingStrategy, sendBufferSize,
                                                 tcpNoDelay, backlogSupplier, messageResultConsumer, waterMark, protocolVersion);
         }
     }
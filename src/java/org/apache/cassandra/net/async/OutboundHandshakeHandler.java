@@ -38,6 +38,7 @@ import io.netty.handler.timeout.IdleStateHandler;
 import io.netty.util.concurrent.Future;
 
 import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.metrics.MessagingMetrics;
 import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.net.async.HandshakeProtocol.FirstHandshakeMessage;
 import org.apache.cassandra.net.async.HandshakeProtocol.SecondHandshakeMessage;
@@ -84,6 +85,13 @@ public class OutboundHandshakeHandler extends ByteToMessageDecoder
     private final NettyFactory.Mode mode;
     private final OutboundConnectionParams params;
 
+    /**
+     * Whether checksummed frames (see {@link FrameEncoder}) are proposed to the peer. Only proposed to peers on the
+     * current messaging version, and only used if the peer confirms it in the {@link SecondHandshakeMessage}, as
+     * peers that don't support framing ignore the proposal.
+     */
+    private final boolean proposeFraming;
+
     OutboundHandshakeHandler(OutboundConnectionParams params)
     {
         this.params = params;
@@ -91,6 +99,7 @@ public class OutboundHandshakeHandler extends ByteToMessageDecoder
         this.messagingVersion = params.protocolVersion;
         this.callback = params.callback;
         this.mode = params.mode;
+        this.proposeFraming = params.framing && mode == NettyFactory.Mode.MESSAGING && messagingVersion >= MessagingService.current_version;
     }
 
     /**
@@ -103,7 +112,7 @@ public class OutboundHandshakeHandler extends ByteToMessageDecoder
     @Override
     public void channelActive(final ChannelHandlerContext ctx) throws Exception
     {
-        FirstHandshakeMessage msg = new FirstHandshakeMessage(messagingVersion, mode, params.compress);
+        FirstHandshakeMessage msg = new FirstHandshakeMessage(messagingVersion, mode, params.compress, proposeFraming);
         logger.trace("starting handshake with peer {}, msg = {}", connectionId.connectionAddress(), msg);
         ctx.writeAndFlush(msg.encode(ctx.alloc())).addListener(future -> firstHandshakeMessageListener(future, ctx));
 
@@ -178,7 +187,7 @@ public class OutboundHandshakeHandler extends ByteToMessageDecoder
         try
         {
             ctx.writeAndFlush(new ThirdHandshakeMessage(MessagingService.current_version, connectionId.local()).encode(ctx.alloc()));
-            ChannelWriter channelWriter = setupPipeline(ctx.channel(), peerMessagingVersion);
+            ChannelWriter channelWriter = setupPipeline(ctx.channel(), peerMessagingVersion, proposeFraming && msg.framingConfirmed);
             callback.accept(HandshakeResult.success(channelWriter, peerMessagingVersion));
         }
         catch (Exception e)
@@ -190,11 +199,13 @@ public class OutboundHandshakeHandler extends ByteToMessageDecoder
     }
 
     @VisibleForTesting
-    ChannelWriter setupPipeline(Channel channel, int messagingVersion)
+    ChannelWriter setupPipeline(Channel channel, int messagingVersion, boolean framed)
     {
         ChannelPipeline pipeline = channel.pipeline();
         pipeline.addLast("idleWriteHandler", new IdleStateHandler(true, 0, WRITE_IDLE_MS, 0, TimeUnit.MILLISECONDS));
-        if (params.compress)
+        if (framed)
+            pipeline.addLast(NettyFactory.OUTBOUND_FRAME_HANDLER_NAME, new FrameEncoder(params.compress, frameMetrics()));
+        else if (params.compress)
             pipeline.addLast(NettyFactory.OUTBOUND_COMPRESSOR_HANDLER_NAME, NettyFactory.createLz4Encoder(messagingVersion));
 
         ChannelWriter channelWriter = ChannelWriter.create(channel, params.messageResultConsumer, params.coalescingStrategy);
@@ -203,6 +214,18 @@ public class OutboundHandshakeHandler extends ByteToMessageDecoder
         return channelWriter;
     }
 
+    private MessagingMetrics.FrameMetrics frameMetrics()
+    {
+        String type;
+        switch (connectionId.type())
+        {
+            case GOSSIP: type = "Gossip"; break;
+            case LARGE_MESSAGE: type = "LargeMessage"; break;
+            default: type = "SmallMessage"; break;
+        }
+        return MessagingService.instance().metrics.frameMetrics(connectionId.remote(), type);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
     {
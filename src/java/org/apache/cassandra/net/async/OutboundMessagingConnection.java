@@ -107,6 +107,25 @@ public class OutboundMessagingConnection
      */
     private final Queue<QueuedMessage> backlog;
 
+    /**
+     * The serialized size of the messages sent to all peers that are either in a {@link #backlog} or being written to
+     * a {@link Channel}, i.e. the messages that were accepted by {@link #sendMessage(QueuedMessage)} but whose outcome
+     * is not known yet.
+     */
+    private static final AtomicLong globalPendingBytes = new AtomicLong();
+
+    /**
+     * The serialized size of the messages accepted by this connection whose outcome is not known yet. Along with
+     * {@link #globalPendingBytes}, it is used to shed droppable messages when the peer cannot keep up with us.
+     */
+    private final AtomicLong pendingBytes;
+
+    /**
+     * The next time (in nanos) at which the timed out messages of the {@link #backlog} are expired in bulk.
+     * Only accessed by the backlog consumer on the netty event loop, so races only affect the timing of an expiration.
+     */
+    private long nextBacklogExpirationNanos;
+
     /**
      * Reference to a {@link ScheduledExecutorService} rther than directly depending on something like {@link ScheduledExecutors}.
      */
@@ -170,6 +189,7 @@ public class OutboundMessagingConnection
         this.encryptionOptions = encryptionOptions;
         this.authenticator = authenticator;
         backlog = new ConcurrentLinkedQueue<>();
+        pendingBytes = new AtomicLong(0);
         droppedMessageCount = new AtomicLong(0);
         completedMessageCount = new AtomicLong(0);
         state = new AtomicReference<>(State.NOT_READY);
@@ -192,8 +212,9 @@ public class OutboundMessagingConnection
      * the backlog queue.
      *
      * @return true if the message was accepted by the {@link #channelWriter}; else false if it was not accepted
-     * and added to the backlog or the channel is {@link State#CLOSED}. See documentation in {@link ChannelWriter} and
-     * {@link MessageOutHandler} how the backlogged messages get consumed.
+     * and added to the backlog, the channel is {@link State#CLOSED} or the message was dropped because the peer
+     * is not consuming our messages fast enough (see {@link #reserve(QueuedMessage)}). See documentation in
+     * {@link ChannelWriter} and {@link MessageOutHandler} how the backlogged messages get consumed.
      */
     boolean sendMessage(MessageOut msg, int id)
     {
@@ -203,6 +224,18 @@ public class OutboundMessagingConnection
     boolean sendMessage(QueuedMessage queuedMessage)
     {
         State state = this.state.get();
+        if (state == State.CLOSED)
+        {
+            errorLogger.warn("trying to write message to a closed connection");
+            return false;
+        }
+
+        if (!reserve(queuedMessage))
+        {
+            droppedMessageCount.incrementAndGet();
+            return false;
+        }
+
         if (state == State.READY)
         {
             if (channelWriter.write(queuedMessage, false))
@@ -211,11 +244,6 @@ public class OutboundMessagingConnection
             backlog.add(queuedMessage);
             return false;
         }
-        else if (state == State.CLOSED)
-        {
-            errorLogger.warn("trying to write message to a closed connection");
-            return false;
-        }
         else
         {
             backlog.add(queuedMessage);
@@ -224,6 +252,57 @@ public class OutboundMessagingConnection
         }
     }
 
+    /**
+     * Accounts for the serialized size of {@code msg} in the pending bytes of this connection and of the node,
+     * unless {@code msg} is droppable and either of the configured limits would be exceeded, in which case it should be
+     * dropped right away: it would most likely time out before the peer gets to it anyway, and holding on to it is how
+     * a slow peer makes us run out of heap. Non-droppable messages are always accepted, and so are messages to a
+     * connection that has nothing pending, so that a message larger than the limits can still be sent.
+     * <p>
+     * Concurrent producers may overshoot the limits by a few messages, which is fine as they are only meant to bound
+     * the memory we hold, not to be exact.
+     *
+     * @return true if the message was accepted; else, false.
+     */
+    @VisibleForTesting
+    boolean reserve(QueuedMessage msg)
+    {
+        int size = msg.message.serializedSize(targetVersion);
+        if (msg.droppable)
+        {
+            long connectionLimit = DatabaseDescriptor.getOtcMaxPendingBytesPerConnection();
+            long globalLimit = DatabaseDescriptor.getOtcMaxPendingBytes();
+            long pending = pendingBytes.get();
+            if (pending > 0
+                && ((connectionLimit > 0 && pending + size > connectionLimit)
+                    || (globalLimit > 0 && globalPendingBytes.get() + size > globalLimit)))
+            {
+                errorLogger.warn("dropping {} message(s) to {} as the outbound messages pending exceed the configured limits",
+                                 msg.message.verb, connectionId);
+                return false;
+            }
+        }
+
+        msg.pendingBytes = size;
+        pendingBytes.addAndGet(size);
+        globalPendingBytes.addAndGet(size);
+        return true;
+    }
+
+    /**
+     * Releases the bytes {@link #reserve(QueuedMessage)}'d for {@code msg}, once it was either sent, failed, or dropped.
+     */
+    private void release(QueuedMessage msg)
+    {
+        int size = msg.pendingBytes;
+        if (size == 0)
+            return;
+
+        msg.pendingBytes = 0;
+        pendingBytes.addAndGet(-size);
+        globalPendingBytes.addAndGet(-size);
+    }
+
     /**
      * Initiate all the actions required to establish a working, valid connection. This includes
      * opening the socket, negotiating the internode messaging handshake, and setting up the working
@@ -329,6 +408,7 @@ public class OutboundMessagingConnection
                                                                   .encryptionOptions(encryptionOptions)
                                                                   .mode(Mode.MESSAGING)
                                                                   .compress(compress)
+                                                                  .framing(DatabaseDescriptor.isInternodeChecksummedFraming())
                                                                   .coalescingStrategy(coalescingStrategy)
                                                                   .sendBufferSize(sendBufferSize)
                                                                   .tcpNoDelay(tcpNoDelay)
@@ -340,8 +420,11 @@ public class OutboundMessagingConnection
         return NettyFactory.instance.createOutboundBootstrap(params);
     }
 
-    private QueuedMessage nextBackloggedMessage()
+    @VisibleForTesting
+    QueuedMessage nextBackloggedMessage()
     {
+        maybeExpireBacklog();
+
         QueuedMessage msg = backlog.poll();
         if (msg == null)
             return null;
@@ -350,12 +433,41 @@ public class OutboundMessagingConnection
             return msg;
 
         if (msg.shouldRetry())
-            return msg.createRetry();
+        {
+            QueuedMessage retry = msg.createRetry();
+            retry.pendingBytes = msg.pendingBytes;
+            return retry;
+        }
 
+        release(msg);
         droppedMessageCount.incrementAndGet();
         return null;
     }
 
+    /**
+     * Drops, in one pass, the timed out messages at the head of the {@link #backlog}, which is where they pile up when
+     * the peer is slow. This is done at most once every {@link DatabaseDescriptor#getOtcBacklogExpirationInterval()}
+     * milliseconds as it may be a long operation.
+     */
+    private void maybeExpireBacklog()
+    {
+        long now = System.nanoTime();
+        if (now < nextBacklogExpirationNanos)
+            return;
+        nextBacklogExpirationNanos = now + TimeUnit.MILLISECONDS.toNanos(DatabaseDescriptor.getOtcBacklogExpirationInterval());
+
+        QueuedMessage msg;
+        while ((msg = backlog.peek()) != null && msg.isTimedOut())
+        {
+            // the backlog may be concurrently purged, so only account for the messages we actually removed
+            if (backlog.remove(msg))
+            {
+                release(msg);
+                droppedMessageCount.incrementAndGet();
+            }
+        }
+    }
+
     static boolean isLocalDC(InetAddressAndPort localHost, InetAddressAndPort remoteHost)
     {
         String remoteDC = DatabaseDescriptor.getEndpointSnitch().getDatacenter(remoteHost);
@@ -441,7 +553,7 @@ public class OutboundMessagingConnection
             // a last-ditch attempt to let finishHandshake() win the race
             if (state.compareAndSet(initialState, State.NOT_READY))
             {
-                backlog.clear();
+                purgeBacklog();
                 return true;
             }
         }
@@ -485,7 +597,7 @@ public class OutboundMessagingConnection
                 if (state.get() == State.CLOSED)
                 {
                     result.channelWriter.close();
-                    backlog.clear();
+                    purgeBacklog();
                     break;
                 }
                 channelWriter = result.channelWriter;
@@ -501,7 +613,7 @@ public class OutboundMessagingConnection
                 break;
             case NEGOTIATION_FAILURE:
                 setStateIfNotClosed(state, State.NOT_READY);
-                backlog.clear();
+                purgeBacklog();
                 break;
             default:
                 throw new IllegalArgumentException("unhandled result type: " + result.outcome);
@@ -532,6 +644,8 @@ public class OutboundMessagingConnection
     void handleMessageResult(MessageResult messageResult)
     {
         completedMessageCount.incrementAndGet();
+        if (messageResult.msg != null)
+            release(messageResult.msg);
 
         // checking the cause() is an optimized way to tell if the operation was successful (as the cause will be null)
         // Note that ExpiredException is just a marker for timeout-ed message we're dropping, but as we already
@@ -617,7 +731,9 @@ public class OutboundMessagingConnection
 
     void purgeBacklog()
     {
-        backlog.clear();
+        QueuedMessage msg;
+        while ((msg = backlog.poll()) != null)
+            release(msg);
     }
 
     public void close(boolean softClose)
@@ -640,12 +756,14 @@ public class OutboundMessagingConnection
             }
             else
             {
-                backlog.clear();
                 channelWriter.close();
             }
 
             channelWriter = null;
         }
+
+        // whatever couldn't be written out won't ever be
+        purgeBacklog();
     }
 
     @Override
@@ -673,6 +791,16 @@ public class OutboundMessagingConnection
         return droppedMessageCount.get();
     }
 
+    public Long getPendingBytes()
+    {
+        return pendingBytes.get();
+    }
+
+    public static long getGlobalPendingBytes()
+    {
+        return globalPendingBytes.get();
+    }
+
     /*
         methods specific to testing follow
      */
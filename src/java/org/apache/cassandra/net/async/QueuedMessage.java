@@ -37,6 +37,12 @@ public class QueuedMessage implements CoalescingStrategies.Coalescable
     public final boolean droppable;
     private final boolean retryable;
 
+    /**
+     * The number of bytes this message is accounted for in its connection's pending bytes, or 0 if it isn't (yet).
+     * Only ever updated by {@link OutboundMessagingConnection}.
+     */
+    int pendingBytes;
+
     public QueuedMessage(MessageOut<?> message, int id)
     {
         this(message, id, System.nanoTime(), MessagingService.DROPPABLE_VERBS.contains(message.verb), true);
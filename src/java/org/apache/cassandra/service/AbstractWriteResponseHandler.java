@@ -20,15 +20,20 @@ package org.apache.cassandra.service;
 import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.cassandra.concurrent.ScheduledExecutors;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.ConsistencyLevel;
 import org.apache.cassandra.db.Keyspace;
@@ -58,6 +63,8 @@ public abstract class AbstractWriteResponseHandler<T> implements IAsyncCallbackW
     private final Map<InetAddressAndPort, RequestFailureReason> failureReasonByEndpoint;
     private final long queryStartNanoTime;
     private volatile boolean supportsBackPressure = true;
+    // only set if someone asked for a non-blocking completion through getAsync()
+    private volatile SettableFuture<Void> completion;
 
     /**
       * Delegate to another WriteReponseHandler or possibly this one to track if the ideal consistency level was reached.
@@ -104,21 +111,65 @@ public abstract class AbstractWriteResponseHandler<T> implements IAsyncCallbackW
         }
 
         if (!success)
-        {
-            int blockedFor = totalBlockFor();
-            int acks = ackCount();
-            // It's pretty unlikely, but we can race between exiting await above and here, so
-            // that we could now have enough acks. In that case, we "lie" on the acks count to
-            // avoid sending confusing info to the user (see CASSANDRA-6491).
-            if (acks >= blockedFor)
-                acks = blockedFor - 1;
-            throw new WriteTimeoutException(writeType, consistencyLevel, acks, blockedFor);
-        }
+            throw timeoutException();
+
+        if (isFailed())
+            throw failureException();
+    }
 
-        if (totalBlockFor() + failures > totalEndpoints())
+    /**
+     * Non-blocking counterpart of {@link #get()}: the returned future completes once the consistency level
+     * has been met, or fails with the exception {@link #get()} would have thrown. It is completed either by
+     * the thread delivering the response or failure that signals this handler, or by a task scheduled to fire
+     * on timeout, so no thread has to wait for the replicas.
+     */
+    public ListenableFuture<Void> getAsync()
+    {
+        SettableFuture<Void> future = SettableFuture.create();
+        completion = future;
+
+        // we may have been signaled before the completion was set, in which case signal() might not have seen it
+        if (condition.isSignaled())
         {
-            throw new WriteFailureException(consistencyLevel, ackCount(), totalBlockFor(), writeType, failureReasonByEndpoint);
+            complete(future);
+            return future;
         }
+
+        ScheduledFuture<?> timeout = ScheduledExecutors.scheduledFastTasks.schedule(() -> future.setException(timeoutException()),
+                                                                                   Math.max(0, currentTimeout()),
+                                                                                   TimeUnit.NANOSECONDS);
+        future.addListener(() -> timeout.cancel(false), MoreExecutors.directExecutor());
+        return future;
+    }
+
+    private void complete(SettableFuture<Void> future)
+    {
+        if (isFailed())
+            future.setException(failureException());
+        else
+            future.set(null);
+    }
+
+    private boolean isFailed()
+    {
+        return totalBlockFor() + failures > totalEndpoints();
+    }
+
+    private WriteTimeoutException timeoutException()
+    {
+        int blockedFor = totalBlockFor();
+        int acks = ackCount();
+        // It's pretty unlikely, but we can race between exiting await above and here, so
+        // that we could now have enough acks. In that case, we "lie" on the acks count to
+        // avoid sending confusing info to the user (see CASSANDRA-6491).
+        if (acks >= blockedFor)
+            acks = blockedFor - 1;
+        return new WriteTimeoutException(writeType, consistencyLevel, acks, blockedFor);
+    }
+
+    private WriteFailureException failureException()
+    {
+        return new WriteFailureException(consistencyLevel, ackCount(), totalBlockFor(), writeType, failureReasonByEndpoint);
     }
 
     public final long currentTimeout()
@@ -231,6 +282,9 @@ public abstract class AbstractWriteResponseHandler<T> implements IAsyncCallbackW
     protected void signal()
     {
         condition.signalAll();
+        SettableFuture<Void> future = completion;
+        if (future != null)
+            complete(future);
         if (callback != null)
             callback.run();
     }
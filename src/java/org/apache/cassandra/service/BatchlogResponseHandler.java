@@ -20,6 +20,8 @@ package org.apache.cassandra.service;
 
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 import org.apache.cassandra.exceptions.RequestFailureReason;
 import org.apache.cassandra.exceptions.WriteFailureException;
 import org.apache.cassandra.exceptions.WriteTimeoutException;
@@ -74,6 +76,11 @@ public class BatchlogResponseHandler<T> extends AbstractWriteResponseHandler<T>
         wrapped.get();
     }
 
+    public ListenableFuture<Void> getAsync()
+    {
+        return wrapped.getAsync();
+    }
+
     protected int totalBlockFor()
     {
         return wrapped.totalBlockFor();
@@ -319,7 +319,8 @@ public class StartupChecks
         Iterable<String> dirs = Iterables.concat(Arrays.asList(DatabaseDescriptor.getAllDataFileLocations()),
                                                  Arrays.asList(DatabaseDescriptor.getCommitLogLocation(),
                                                                DatabaseDescriptor.getSavedCachesLocation(),
-                                                               DatabaseDescriptor.getHintsDirectory().getAbsolutePath()));
+                                                               DatabaseDescriptor.getHintsDirectory().getAbsolutePath(),
+                                                               DatabaseDescriptor.getBatchlogDirectory().getAbsolutePath()));
         for (String dataDir : dirs)
         {
             logger.debug("Checking directory {}", dataDir);
@@ -351,6 +352,7 @@ public class StartupChecks
             nonSSTablePaths.add(FileUtils.getCanonicalPath(DatabaseDescriptor.getCommitLogLocation()));
             nonSSTablePaths.add(FileUtils.getCanonicalPath(DatabaseDescriptor.getSavedCachesLocation()));
             nonSSTablePaths.add(FileUtils.getCanonicalPath(DatabaseDescriptor.getHintsDirectory()));
+            nonSSTablePaths.add(FileUtils.getCanonicalPath(DatabaseDescriptor.getBatchlogDirectory()));
 
             FileVisitor<Path> sstableVisitor = new SimpleFileVisitor<Path>()
             {
@@ -24,16 +24,22 @@ import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.cache.CacheLoader;
 import com.google.common.collect.*;
 import com.google.common.primitives.Ints;
-import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -46,6 +52,7 @@ import org.apache.cassandra.concurrent.Stage;
 import org.apache.cassandra.concurrent.StageManager;
 import org.apache.cassandra.service.reads.AbstractReadExecutor;
 import org.apache.cassandra.service.reads.DataResolver;
+import org.apache.cassandra.service.reads.PartialAggregationCallback;
 import org.apache.cassandra.service.reads.ReadCallback;
 import org.apache.cassandra.service.reads.repair.ReadRepair;
 import org.apache.cassandra.schema.TableMetadata;
@@ -53,24 +60,33 @@ import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.schema.Schema;
 import org.apache.cassandra.schema.SchemaConstants;
 import org.apache.cassandra.db.*;
+import org.apache.cassandra.db.aggregation.PartialAggregation;
+import org.apache.cassandra.db.aggregation.PartialAggregationRequest;
+import org.apache.cassandra.db.aggregation.PartialAggregationResponse;
 import org.apache.cassandra.db.filter.DataLimits;
 import org.apache.cassandra.db.filter.TombstoneOverwhelmingException;
 import org.apache.cassandra.db.fullquerylog.FullQueryLogger;
 import org.apache.cassandra.db.partitions.*;
 import org.apache.cassandra.db.rows.RowIterator;
+import org.apache.cassandra.db.transform.Transformation;
 import org.apache.cassandra.db.view.ViewUtils;
 import org.apache.cassandra.dht.*;
+import org.apache.cassandra.dht.Range;
 import org.apache.cassandra.exceptions.*;
 import org.apache.cassandra.gms.FailureDetector;
 import org.apache.cassandra.gms.Gossiper;
 import org.apache.cassandra.hints.Hint;
 import org.apache.cassandra.hints.HintsService;
 import org.apache.cassandra.index.Index;
+import org.apache.cassandra.index.IndexSelectivity;
 import org.apache.cassandra.locator.*;
 import org.apache.cassandra.metrics.*;
 import org.apache.cassandra.net.*;
 import org.apache.cassandra.service.paxos.Commit;
+import org.apache.cassandra.service.paxos.PaxosContention;
 import org.apache.cassandra.service.paxos.PaxosState;
+import org.apache.cassandra.service.paxos.PrepareAndRead;
+import org.apache.cassandra.service.paxos.PrepareAndReadVerbHandler;
 import org.apache.cassandra.service.paxos.PrepareCallback;
 import org.apache.cassandra.service.paxos.PrepareResponse;
 import org.apache.cassandra.service.paxos.PrepareVerbHandler;
@@ -115,6 +131,26 @@ public class StorageProxy implements StorageProxyMBean
 
     private static final double CONCURRENT_SUBREQUESTS_MARGIN = 0.10;
 
+    /**
+     * Whether the read of a CAS or SERIAL read is sent along with the paxos prepare, saving a round trip when the
+     * replicas agree on the current values.
+     */
+    private static final boolean PREPARE_WITH_READ = Boolean.parseBoolean(System.getProperty("cassandra.paxos.prepare_with_read", "true"));
+
+    /**
+     * Whether the native aggregates of queries without GROUP BY are computed by the replicas, see {@link #aggregate}.
+     */
+    private static final boolean PARTIAL_AGGREGATION = Boolean.parseBoolean(System.getProperty("cassandra.partial_aggregation", "true"));
+
+    /**
+     * The replicas that have aggregated a page, and the ones that timed out on their first request along with the
+     * time they did, as the 4.0 nodes without partial aggregation support the messaging version but never reply. The
+     * latter are retried after {@link #NON_AGGREGATING_REPLICA_RETRY_NANOS}, in case they have been upgraded since.
+     */
+    private static final Set<InetAddressAndPort> aggregatingReplicas = ConcurrentHashMap.newKeySet();
+    private static final ConcurrentMap<InetAddressAndPort, Long> nonAggregatingReplicas = new ConcurrentHashMap<>();
+    private static final long NON_AGGREGATING_REPLICA_RETRY_NANOS = TimeUnit.MINUTES.toNanos(10);
+
     private StorageProxy()
     {
     }
@@ -239,6 +275,7 @@ public class StorageProxy implements StorageProxyMBean
     {
         final long startTimeForMetrics = System.nanoTime();
         int contentions = 0;
+        Lock queue = null;
         try
         {
             consistencyForPaxos.validateForCas();
@@ -247,6 +284,18 @@ public class StorageProxy implements StorageProxyMBean
             TableMetadata metadata = Schema.instance.getTableMetadata(keyspaceName, cfName);
 
             long timeout = TimeUnit.MILLISECONDS.toNanos(DatabaseDescriptor.getCasContentionTimeout());
+
+            // queue behind the CAS on the same partition this node is already coordinating, rather than competing
+            // with them for the promises of the replicas
+            Lock lock = PaxosContention.lockFor(metadata.id, key);
+            if (lock != null)
+            {
+                Tracing.trace("Waiting for the pending CAS on the same partition");
+                if (!PaxosContention.tryLock(lock, timeout - (System.nanoTime() - queryStartNanoTime), TimeUnit.NANOSECONDS))
+                    throw new WriteTimeoutException(WriteType.CAS, consistencyForPaxos, 0, consistencyForPaxos.blockFor(Keyspace.open(keyspaceName)));
+                queue = lock;
+            }
+
             while (System.nanoTime() - queryStartNanoTime < timeout)
             {
                 // for simplicity, we'll do a single liveness check at the start of each attempt
@@ -254,19 +303,31 @@ public class StorageProxy implements StorageProxyMBean
                 List<InetAddressAndPort> liveEndpoints = p.liveEndpoints;
                 int requiredParticipants = p.participants;
 
-                final PaxosBallotAndContention pair = beginAndRepairPaxos(queryStartNanoTime, key, metadata, liveEndpoints, requiredParticipants, consistencyForPaxos, consistencyForCommit, true, state);
+                SinglePartitionReadCommand readCommand = request.readCommand(FBUtilities.nowInSeconds());
+                final PaxosBallotAndContention pair = beginAndRepairPaxos(queryStartNanoTime, key, metadata, liveEndpoints, requiredParticipants, consistencyForPaxos, consistencyForCommit, true, state, readCommand);
                 final UUID ballot = pair.ballot;
                 contentions += pair.contentions;
 
-                // read the current values and check they validate the conditions
-                Tracing.trace("Reading existing values for CAS precondition");
-                SinglePartitionReadCommand readCommand = request.readCommand(FBUtilities.nowInSeconds());
-                ConsistencyLevel readConsistency = consistencyForPaxos == ConsistencyLevel.LOCAL_SERIAL ? ConsistencyLevel.LOCAL_QUORUM : ConsistencyLevel.QUORUM;
-
+                // read the current values and check they validate the conditions, unless the replicas that promised
+                // our ballot have all answered the same values along with their promise
                 FilteredPartition current;
-                try (RowIterator rowIter = readOne(readCommand, readConsistency, queryStartNanoTime))
+                PartitionIterator promisedRead = pair.summary.readResult(readCommand);
+                if (promisedRead != null)
                 {
-                    current = FilteredPartition.create(rowIter);
+                    Tracing.trace("Using the existing values read along with the prepare for CAS precondition");
+                    try (RowIterator rowIter = PartitionIterators.getOnlyElement(promisedRead, readCommand))
+                    {
+                        current = FilteredPartition.create(rowIter);
+                    }
+                }
+                else
+                {
+                    Tracing.trace("Reading existing values for CAS precondition");
+                    ConsistencyLevel readConsistency = consistencyForPaxos == ConsistencyLevel.LOCAL_SERIAL ? ConsistencyLevel.LOCAL_QUORUM : ConsistencyLevel.QUORUM;
+                    try (RowIterator rowIter = readOne(readCommand, readConsistency, queryStartNanoTime))
+                    {
+                        current = FilteredPartition.create(rowIter);
+                    }
                 }
 
                 if (!request.appliesTo(current))
@@ -305,7 +366,7 @@ public class StorageProxy implements StorageProxyMBean
 
                 Tracing.trace("Paxos proposal not accepted (pre-empted by a higher ballot)");
                 contentions++;
-                Uninterruptibles.sleepUninterruptibly(ThreadLocalRandom.current().nextInt(100), TimeUnit.MILLISECONDS);
+                PaxosContention.backoff(contentions, casWriteMetrics);
                 // continue to retry
             }
 
@@ -331,6 +392,9 @@ public class StorageProxy implements StorageProxyMBean
         }
         finally
         {
+            if (queue != null)
+                queue.unlock();
+
             recordCasContention(contentions);
             final long latency = System.nanoTime() - startTimeForMetrics;
             casWriteMetrics.addNano(latency);
@@ -390,6 +454,8 @@ public class StorageProxy implements StorageProxyMBean
     /**
      * begin a Paxos session by sending a prepare request and completing any in-progress requests seen in the replies
      *
+     * @param read if not null, a read of the partition the replicas should perform along with their promise, whose
+     * result can then be retrieved from the summary of the returned ballot
      * @return the Paxos ballot promised by the replicas if no in-progress requests were seen and a quorum of
      * nodes have seen the mostRecentCommit.  Otherwise, return null.
      */
@@ -401,7 +467,8 @@ public class StorageProxy implements StorageProxyMBean
                                                            ConsistencyLevel consistencyForPaxos,
                                                            ConsistencyLevel consistencyForCommit,
                                                            final boolean isWrite,
-                                                           ClientState state)
+                                                           ClientState state,
+                                                           SinglePartitionReadCommand read)
     throws WriteTimeoutException, WriteFailureException
     {
         long timeout = TimeUnit.MILLISECONDS.toNanos(DatabaseDescriptor.getCasContentionTimeout());
@@ -423,13 +490,13 @@ public class StorageProxy implements StorageProxyMBean
             // prepare
             Tracing.trace("Preparing {}", ballot);
             Commit toPrepare = Commit.newPrepare(key, metadata, ballot);
-            summary = preparePaxos(toPrepare, liveEndpoints, requiredParticipants, consistencyForPaxos, queryStartNanoTime);
+            summary = preparePaxos(toPrepare, read, liveEndpoints, requiredParticipants, consistencyForPaxos, queryStartNanoTime);
             if (!summary.promised)
             {
                 Tracing.trace("Some replicas have already promised a higher ballot than ours; aborting");
                 contentions++;
                 // sleep a random amount to give the other proposer a chance to finish
-                Uninterruptibles.sleepUninterruptibly(ThreadLocalRandom.current().nextInt(100), TimeUnit.MILLISECONDS);
+                PaxosContention.backoff(contentions, isWrite ? casWriteMetrics : casReadMetrics);
                 continue;
             }
 
@@ -464,7 +531,7 @@ public class StorageProxy implements StorageProxyMBean
                     Tracing.trace("Some replicas have already promised a higher ballot than ours; aborting");
                     // sleep a random amount to give the other proposer a chance to finish
                     contentions++;
-                    Uninterruptibles.sleepUninterruptibly(ThreadLocalRandom.current().nextInt(100), TimeUnit.MILLISECONDS);
+                    PaxosContention.backoff(contentions, isWrite ? casWriteMetrics : casReadMetrics);
                 }
                 continue;
             }
@@ -486,7 +553,7 @@ public class StorageProxy implements StorageProxyMBean
                 continue;
             }
 
-            return new PaxosBallotAndContention(ballot, contentions);
+            return new PaxosBallotAndContention(ballot, contentions, summary);
         }
 
         recordCasContention(contentions);
@@ -503,23 +570,43 @@ public class StorageProxy implements StorageProxyMBean
             MessagingService.instance().sendOneWay(message, target);
     }
 
-    private static PrepareCallback preparePaxos(Commit toPrepare, List<InetAddressAndPort> endpoints, int requiredParticipants, ConsistencyLevel consistencyForPaxos, long queryStartNanoTime)
+    /**
+     * Whether the replicas can perform the read of a CAS or SERIAL read along with the prepare, which they can only
+     * do if they are all recent enough to understand PAXOS_PREPARE_AND_READ.
+     */
+    private static boolean canPrepareWithRead(SinglePartitionReadCommand read, List<InetAddressAndPort> endpoints)
+    {
+        if (read == null || !PREPARE_WITH_READ)
+            return false;
+
+        for (InetAddressAndPort endpoint : endpoints)
+        {
+            if (MessagingService.instance().getVersion(endpoint) < MessagingService.VERSION_40)
+                return false;
+        }
+        return true;
+    }
+
+    private static PrepareCallback preparePaxos(Commit toPrepare, SinglePartitionReadCommand read, List<InetAddressAndPort> endpoints, int requiredParticipants, ConsistencyLevel consistencyForPaxos, long queryStartNanoTime)
     throws WriteTimeoutException
     {
         PrepareCallback callback = new PrepareCallback(toPrepare.update.partitionKey(), toPrepare.update.metadata(), requiredParticipants, consistencyForPaxos, queryStartNanoTime);
-        MessageOut<Commit> message = new MessageOut<Commit>(MessagingService.Verb.PAXOS_PREPARE, toPrepare, Commit.serializer);
+        PrepareAndRead toPrepareAndRead = canPrepareWithRead(read, endpoints) ? new PrepareAndRead(toPrepare, read) : null;
+        MessageOut<?> message = toPrepareAndRead == null
+                              ? new MessageOut<Commit>(MessagingService.Verb.PAXOS_PREPARE, toPrepare, Commit.serializer)
+                              : new MessageOut<PrepareAndRead>(MessagingService.Verb.PAXOS_PREPARE_AND_READ, toPrepareAndRead, PrepareAndRead.serializer);
         for (InetAddressAndPort target : endpoints)
         {
             if (canDoLocalRequest(target))
             {
-                StageManager.getStage(MessagingService.verbStages.get(MessagingService.Verb.PAXOS_PREPARE)).execute(new Runnable()
+                StageManager.getStage(MessagingService.verbStages.get(message.verb)).execute(new Runnable()
                 {
                     public void run()
                     {
                         try
                         {
                             MessageIn<PrepareResponse> message = MessageIn.create(FBUtilities.getBroadcastAddressAndPort(),
-                                    PrepareVerbHandler.doPrepare(toPrepare),
+                                    toPrepareAndRead == null ? PrepareVerbHandler.doPrepare(toPrepare) : PrepareAndReadVerbHandler.doPrepare(toPrepareAndRead),
                                     Collections.emptyMap(),
                                     MessagingService.Verb.INTERNAL_RESPONSE,
                                     MessagingService.current_version);
@@ -720,47 +807,116 @@ public class StorageProxy implements StorageProxyMBean
             }
             else
             {
-                if (ex instanceof WriteFailureException)
+                markWriteFailure(ex, consistency_level);
+                throw ex;
+            }
+        }
+        catch (UnavailableException|OverloadedException e)
+        {
+            markWriteFailure(e, consistency_level);
+            throw e;
+        }
+        finally
+        {
+            addWriteLatency(mutations, consistency_level, System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Non-blocking counterpart of {@link #mutate}: the replicas are written to before this method returns, but
+     * the returned future only completes once the consistency level has been met for every mutation, or fails
+     * with the exception {@link #mutate} would have thrown. No thread waits for the replicas in the meantime.
+     */
+    public static ListenableFuture<Void> mutateAsync(Collection<? extends IMutation> mutations, ConsistencyLevel consistency_level, long queryStartNanoTime)
+    {
+        Tracing.trace("Determining replicas for mutation");
+        final String localDataCenter = DatabaseDescriptor.getEndpointSnitch().getDatacenter(FBUtilities.getBroadcastAddressAndPort());
+
+        long startTime = System.nanoTime();
+        List<ListenableFuture<Void>> responses = new ArrayList<>(mutations.size());
+
+        try
+        {
+            for (IMutation mutation : mutations)
+            {
+                if (mutation instanceof CounterMutation)
                 {
-                    writeMetrics.failures.mark();
-                    writeMetricsMap.get(consistency_level).failures.mark();
-                    WriteFailureException fe = (WriteFailureException)ex;
-                    Tracing.trace("Write failure; received {} of {} required replies, failed {} requests",
-                                  fe.received, fe.blockFor, fe.failureReasonByEndpoint.size());
+                    responses.add(mutateCounter((CounterMutation)mutation, localDataCenter, queryStartNanoTime).getAsync());
                 }
                 else
                 {
-                    writeMetrics.timeouts.mark();
-                    writeMetricsMap.get(consistency_level).timeouts.mark();
-                    WriteTimeoutException te = (WriteTimeoutException)ex;
-                    Tracing.trace("Write timeout; received {} of {} required replies", te.received, te.blockFor);
+                    WriteType wt = mutations.size() <= 1 ? WriteType.SIMPLE : WriteType.UNLOGGED_BATCH;
+                    responses.add(performWrite(mutation, consistency_level, localDataCenter, standardWritePerformer, null, wt, queryStartNanoTime).getAsync());
                 }
-                throw ex;
             }
         }
-        catch (UnavailableException e)
+        catch (UnavailableException|OverloadedException e)
         {
-            writeMetrics.unavailables.mark();
-            writeMetricsMap.get(consistency_level).unavailables.mark();
-            Tracing.trace("Unavailable");
-            throw e;
+            markWriteFailure(e, consistency_level);
+            addWriteLatency(mutations, consistency_level, System.nanoTime() - startTime);
+            return Futures.immediateFailedFuture(e);
         }
-        catch (OverloadedException e)
+
+        SettableFuture<Void> result = SettableFuture.create();
+        Futures.addCallback(Futures.allAsList(responses), new FutureCallback<List<Void>>()
         {
-            writeMetrics.unavailables.mark();
-            writeMetricsMap.get(consistency_level).unavailables.mark();
-            Tracing.trace("Overloaded");
-            throw e;
+            public void onSuccess(List<Void> ignored)
+            {
+                addWriteLatency(mutations, consistency_level, System.nanoTime() - startTime);
+                result.set(null);
+            }
+
+            public void onFailure(Throwable t)
+            {
+                addWriteLatency(mutations, consistency_level, System.nanoTime() - startTime);
+                if (t instanceof WriteTimeoutException || t instanceof WriteFailureException)
+                {
+                    if (consistency_level == ConsistencyLevel.ANY)
+                    {
+                        hintMutations(mutations);
+                        result.set(null);
+                        return;
+                    }
+                    markWriteFailure((RequestExecutionException) t, consistency_level);
+                }
+                result.setException(t);
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
+    }
+
+    private static void markWriteFailure(RequestExecutionException e, ConsistencyLevel consistency_level)
+    {
+        if (e instanceof WriteFailureException)
+        {
+            writeMetrics.failures.mark();
+            writeMetricsMap.get(consistency_level).failures.mark();
+            WriteFailureException fe = (WriteFailureException)e;
+            Tracing.trace("Write failure; received {} of {} required replies, failed {} requests",
+                          fe.received, fe.blockFor, fe.failureReasonByEndpoint.size());
         }
-        finally
+        else if (e instanceof WriteTimeoutException)
         {
-            long latency = System.nanoTime() - startTime;
-            writeMetrics.addNano(latency);
-            writeMetricsMap.get(consistency_level).addNano(latency);
-            updateCoordinatorWriteLatencyTableMetric(mutations, latency);
+            writeMetrics.timeouts.mark();
+            writeMetricsMap.get(consistency_level).timeouts.mark();
+            WriteTimeoutException te = (WriteTimeoutException)e;
+            Tracing.trace("Write timeout; received {} of {} required replies", te.received, te.blockFor);
+        }
+        else
+        {
+            writeMetrics.unavailables.mark();
+            writeMetricsMap.get(consistency_level).unavailables.mark();
+            Tracing.trace(e instanceof OverloadedException ? "Overloaded" : "Unavailable");
         }
     }
 
+    private static void addWriteLatency(Collection<? extends IMutation> mutations, ConsistencyLevel consistency_level, long latency)
+    {
+        writeMetrics.addNano(latency);
+        writeMetricsMap.get(consistency_level).addNano(latency);
+        updateCoordinatorWriteLatencyTableMetric(mutations, latency);
+    }
+
     /**
      * Hint all the mutations (except counters, which can't be safely retried).  This means
      * we'll re-hint any successful ones; doesn't seem worth it to track individual success
@@ -941,6 +1097,33 @@ public class StorageProxy implements StorageProxyMBean
         }
     }
 
+    /**
+     * Non-blocking counterpart of {@link #mutateWithTriggers} for non-atomic writes, see {@link #mutateAsync}.
+     * Writes that have to go through the batchlog, because of triggers or materialized views, are still
+     * performed synchronously.
+     */
+    public static ListenableFuture<Void> mutateWithTriggersAsync(Collection<? extends IMutation> mutations,
+                                                                 ConsistencyLevel consistencyLevel,
+                                                                 long queryStartNanoTime)
+    throws UnavailableException, OverloadedException, InvalidRequestException
+    {
+        Collection<Mutation> augmented = TriggerExecutor.instance.execute(mutations);
+
+        boolean updatesView = Keyspace.open(mutations.iterator().next().getKeyspaceName())
+                              .viewManager
+                              .updatesAffectView(mutations, true);
+
+        long size = IMutation.dataSize(mutations);
+        writeMetrics.mutationSize.update(size);
+        writeMetricsMap.get(consistencyLevel).mutationSize.update(size);
+
+        if (augmented == null && !updatesView)
+            return mutateAsync(mutations, consistencyLevel, queryStartNanoTime);
+
+        mutateAtomically(augmented != null ? augmented : (Collection<Mutation>) mutations, consistencyLevel, updatesView, queryStartNanoTime);
+        return Futures.immediateFuture(null);
+    }
+
     /**
      * See mutate. Adds additional steps before and after writing a batch.
      * Before writing the batch (but after doing availability check against the FD for the row replicas):
@@ -1673,9 +1856,10 @@ public class StorageProxy implements StorageProxyMBean
 
             try
             {
-                final PaxosBallotAndContention pair = beginAndRepairPaxos(start, key, metadata, liveEndpoints, requiredParticipants, consistencyLevel, consistencyForCommitOrFetch, false, state);
+                final PaxosBallotAndContention pair = beginAndRepairPaxos(start, key, metadata, liveEndpoints, requiredParticipants, consistencyLevel, consistencyForCommitOrFetch, false, state, command);
                 if (pair.contentions > 0)
                     casReadMetrics.contention.update(pair.contentions);
+                result = pair.summary.readResult(command);
             }
             catch (WriteTimeoutException e)
             {
@@ -1686,7 +1870,10 @@ public class StorageProxy implements StorageProxyMBean
                 throw new ReadFailureException(consistencyLevel, e.received, e.blockFor, false, e.failureReasonByEndpoint);
             }
 
-            result = fetchRows(group.commands, consistencyForCommitOrFetch, queryStartNanoTime);
+            if (result == null)
+                result = fetchRows(group.commands, consistencyForCommitOrFetch, queryStartNanoTime);
+            else
+                Tracing.trace("Using the partition read along with the prepare");
         }
         catch (UnavailableException e)
         {
@@ -1738,35 +1925,99 @@ public class StorageProxy implements StorageProxyMBean
                 result = group.limits().filter(result, group.nowInSec(), group.selectsFullPartition(), enforceStrictLiveness);
             return result;
         }
-        catch (UnavailableException e)
+        catch (UnavailableException|ReadTimeoutException|ReadFailureException e)
+        {
+            markReadFailure(e, consistencyLevel);
+            throw e;
+        }
+        finally
+        {
+            addReadLatency(group, consistencyLevel, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Non-blocking counterpart of {@link #read(SinglePartitionReadCommand.Group, ConsistencyLevel, ClientState, long)}
+     * for non-serial consistency levels and groups of a single command: the returned future is completed by the
+     * thread delivering the responses satisfying the consistency level, or by the READ_REPAIR stage if a foreground
+     * read repair was needed, see {@link AbstractReadExecutor#getResultAsync()}.
+     *
+     * Groups of several commands are not supported, since the result of one command could then be consumed by the
+     * thread completing another one, a REQUEST_RESPONSE thread that must not wait for the acknowledgements of the
+     * read repair mutations of the former.
+     */
+    @SuppressWarnings("resource")
+    public static ListenableFuture<PartitionIterator> readAsync(SinglePartitionReadCommand.Group group, ConsistencyLevel consistencyLevel, long queryStartNanoTime)
+    throws UnavailableException, IsBootstrappingException
+    {
+        assert !consistencyLevel.isSerialConsistency();
+        assert group.commands.size() == 1;
+        if (StorageService.instance.isBootstrapMode() && !systemKeyspaceQuery(group.commands))
         {
             readMetrics.unavailables.mark();
             readMetricsMap.get(consistencyLevel).unavailables.mark();
-            throw e;
+            throw new IsBootstrappingException();
         }
-        catch (ReadTimeoutException e)
+
+        long start = System.nanoTime();
+        ListenableFuture<PartitionIterator> result;
+        try
         {
-            readMetrics.timeouts.mark();
-            readMetricsMap.get(consistencyLevel).timeouts.mark();
+            result = fetchRowAsync(group.commands.get(0), consistencyLevel, queryStartNanoTime);
+        }
+        catch (UnavailableException e)
+        {
+            markReadFailure(e, consistencyLevel);
+            addReadLatency(group, consistencyLevel, System.nanoTime() - start);
             throw e;
         }
-        catch (ReadFailureException e)
+
+        Futures.addCallback(result, new FutureCallback<PartitionIterator>()
+        {
+            public void onSuccess(PartitionIterator ignored)
+            {
+                addReadLatency(group, consistencyLevel, System.nanoTime() - start);
+            }
+
+            public void onFailure(Throwable t)
+            {
+                if (t instanceof ReadTimeoutException || t instanceof ReadFailureException)
+                    markReadFailure((RequestExecutionException) t, consistencyLevel);
+                addReadLatency(group, consistencyLevel, System.nanoTime() - start);
+            }
+        }, MoreExecutors.directExecutor());
+
+        return result;
+    }
+
+    private static void markReadFailure(RequestExecutionException e, ConsistencyLevel consistencyLevel)
+    {
+        if (e instanceof ReadFailureException)
         {
             readMetrics.failures.mark();
             readMetricsMap.get(consistencyLevel).failures.mark();
-            throw e;
         }
-        finally
+        else if (e instanceof ReadTimeoutException)
         {
-            long latency = System.nanoTime() - start;
-            readMetrics.addNano(latency);
-            readMetricsMap.get(consistencyLevel).addNano(latency);
-            // TODO avoid giving every command the same latency number.  Can fix this in CASSADRA-5329
-            for (ReadCommand command : group.commands)
-                Keyspace.openAndGetStore(command.metadata()).metric.coordinatorReadLatency.update(latency, TimeUnit.NANOSECONDS);
+            readMetrics.timeouts.mark();
+            readMetricsMap.get(consistencyLevel).timeouts.mark();
+        }
+        else
+        {
+            readMetrics.unavailables.mark();
+            readMetricsMap.get(consistencyLevel).unavailables.mark();
         }
     }
 
+    private static void addReadLatency(SinglePartitionReadCommand.Group group, ConsistencyLevel consistencyLevel, long latency)
+    {
+        readMetrics.addNano(latency);
+        readMetricsMap.get(consistencyLevel).addNano(latency);
+        // TODO avoid giving every command the same latency number.  Can fix this in CASSADRA-5329
+        for (ReadCommand command : group.commands)
+            Keyspace.openAndGetStore(command.metadata()).metric.coordinatorReadLatency.update(latency, TimeUnit.NANOSECONDS);
+    }
+
     /**
      * This function executes local and remote reads, and blocks for the results:
      *
@@ -1824,6 +2075,17 @@ public class StorageProxy implements StorageProxyMBean
         return PartitionIterators.concat(results);
     }
 
+    /**
+     * Non-blocking counterpart of {@link #fetchRows(List, ConsistencyLevel, long)} for a single command.
+     */
+    private static ListenableFuture<PartitionIterator> fetchRowAsync(SinglePartitionReadCommand command, ConsistencyLevel consistencyLevel, long queryStartNanoTime)
+    throws UnavailableException
+    {
+        AbstractReadExecutor read = AbstractReadExecutor.getReadExecutor(command, consistencyLevel, queryStartNanoTime);
+        read.executeAsync();
+        return read.getResultAsync();
+    }
+
     public static class LocalReadRunnable extends DroppableRunnable
     {
         private final ReadCommand command;
@@ -1885,8 +2147,16 @@ public class StorageProxy implements StorageProxyMBean
 
     public static List<InetAddressAndPort> getLiveSortedEndpoints(Keyspace keyspace, RingPosition pos)
     {
-        List<InetAddressAndPort> liveEndpoints = StorageService.instance.getLiveNaturalEndpoints(keyspace, pos);
-        DatabaseDescriptor.getEndpointSnitch().sortByProximity(FBUtilities.getBroadcastAddressAndPort(), liveEndpoints);
+        // the sorted replicas are cached per token range; liveness is checked on each call as it is cheap, and caching
+        // it would delay reacting to nodes going down
+        List<InetAddressAndPort> sortedEndpoints = keyspace.getReplicationStrategy().getSortedEndpoints(pos);
+        List<InetAddressAndPort> liveEndpoints = new ArrayList<>(sortedEndpoints.size());
+        for (int i = 0; i < sortedEndpoints.size(); i++)
+        {
+            InetAddressAndPort endpoint = sortedEndpoints.get(i);
+            if (FailureDetector.instance.isAlive(endpoint))
+                liveEndpoints.add(endpoint);
+        }
         return liveEndpoints;
     }
 
@@ -1907,9 +2177,15 @@ public class StorageProxy implements StorageProxyMBean
      * <p>
      * This assumes that ranges are uniformly distributed across the cluster and
      * that the queried data is also uniformly distributed.
+     * <p>
+     * For index queries, the number of rows per range returned by the previous queries using the same index is used
+     * instead if it is known.
      */
-    private static float estimateResultsPerRange(PartitionRangeReadCommand command, Keyspace keyspace)
+    private static float estimateResultsPerRange(PartitionRangeReadCommand command, Keyspace keyspace, IndexSelectivity selectivity)
     {
+        if (selectivity != null && !Float.isNaN(selectivity.rowsPerRange()))
+            return selectivity.rowsPerRange();
+
         ColumnFamilyStore cfs = keyspace.getColumnFamilyStore(command.metadata().id);
         Index index = command.getIndex(cfs);
         float maxExpectedResults = index == null
@@ -1920,7 +2196,8 @@ public class StorageProxy implements StorageProxyMBean
         return (maxExpectedResults / DatabaseDescriptor.getNumTokens()) / keyspace.getReplicationStrategy().getReplicationFactor();
     }
 
-    private static class RangeForQuery
+    @VisibleForTesting
+    static class RangeForQuery
     {
         public final AbstractBounds<PartitionPosition> range;
         public final List<InetAddressAndPort> liveEndpoints;
@@ -1934,7 +2211,8 @@ public class StorageProxy implements StorageProxyMBean
         }
     }
 
-    private static class RangeIterator extends AbstractIterator<RangeForQuery>
+    @VisibleForTesting
+    static class RangeIterator extends AbstractIterator<RangeForQuery>
     {
         private final Keyspace keyspace;
         private final ConsistencyLevel consistency;
@@ -1971,13 +2249,14 @@ public class StorageProxy implements StorageProxyMBean
         }
     }
 
-    private static class RangeMerger extends AbstractIterator<RangeForQuery>
+    @VisibleForTesting
+    static class RangeMerger extends AbstractIterator<RangeForQuery>
     {
         private final Keyspace keyspace;
         private final ConsistencyLevel consistency;
         private final PeekingIterator<RangeForQuery> ranges;
 
-        private RangeMerger(Iterator<RangeForQuery> iterator, Keyspace keyspace, ConsistencyLevel consistency)
+        RangeMerger(Iterator<RangeForQuery> iterator, Keyspace keyspace, ConsistencyLevel consistency)
         {
             this.keyspace = keyspace;
             this.consistency = consistency;
@@ -2060,7 +2339,15 @@ public class StorageProxy implements StorageProxyMBean
         }
     }
 
-    private static class RangeCommandIterator extends AbstractIterator<RowIterator> implements PartitionIterator
+    /**
+     * Queries the ranges in token order, keeping up to {@code concurrencyFactor} of them in flight: a new range is
+     * queried as soon as the results of the oldest one have been consumed. The concurrency factor is adapted after
+     * each range, from the number of rows per range returned so far, so that the ranges in flight are expected to
+     * return the rows still needed to satisfy the limits, and no more ranges are queried once they are known to be
+     * satisfied.
+     */
+    @VisibleForTesting
+    static class RangeCommandIterator extends AbstractIterator<RowIterator> implements PartitionIterator
     {
         private final Iterator<RangeForQuery> ranges;
         private final int totalRangeCount;
@@ -2068,55 +2355,81 @@ public class StorageProxy implements StorageProxyMBean
         private final Keyspace keyspace;
         private final ConsistencyLevel consistency;
         private final boolean enforceStrictLiveness;
+        private final IndexSelectivity selectivity;
+
+        /**
+         * Whether the limits of the command count the rows we count, so that the ranges queried once some rows have
+         * been returned can fetch less rows, and no more ranges are needed once enough rows have been returned. This
+         * isn't the case when the index post-processes the rows, as the limits then apply to the rows it returns,
+         * which may be fewer, or others than the first ones, like with a top-k.
+         */
+        private final boolean limitsCountRows;
 
         private final long startTime;
         private final long queryStartNanoTime;
-        private DataLimits.Counter counter;
-        private PartitionIterator sentQueryIterator;
+
+        private final Deque<CountedRangeResponse> inFlight = new ArrayDeque<>();
+        private CountedRangeResponse current;
 
         private int concurrencyFactor;
         // The two following "metric" are maintained to improve the concurrencyFactor
         // when it was not good enough initially.
         private int liveReturned;
+        private int rangesCompleted;
         private int rangesQueried;
 
-        public RangeCommandIterator(RangeIterator ranges, PartitionRangeReadCommand command, int concurrencyFactor, Keyspace keyspace, ConsistencyLevel consistency, long queryStartNanoTime)
+        RangeCommandIterator(Iterator<RangeForQuery> ranges,
+                             int totalRangeCount,
+                             PartitionRangeReadCommand command,
+                             int concurrencyFactor,
+                             Keyspace keyspace,
+                             ConsistencyLevel consistency,
+                             Index index,
+                             IndexSelectivity selectivity,
+                             long queryStartNanoTime)
         {
             this.command = command;
             this.concurrencyFactor = concurrencyFactor;
             this.startTime = System.nanoTime();
-            this.ranges = new RangeMerger(ranges, keyspace, consistency);
-            this.totalRangeCount = ranges.rangeCount();
+            this.ranges = ranges;
+            this.totalRangeCount = totalRangeCount;
             this.consistency = consistency;
             this.keyspace = keyspace;
+            this.selectivity = selectivity;
             this.queryStartNanoTime = queryStartNanoTime;
             this.enforceStrictLiveness = command.metadata().enforceStrictLiveness();
+            this.limitsCountRows = !command.limits().isGroupByLimit()
+                                && !command.limits().isDistinct()
+                                && (index == null || index.postProcessorFor(command) == Index.NO_POST_PROCESSING);
         }
 
         public RowIterator computeNext()
         {
             try
             {
-                while (sentQueryIterator == null || !sentQueryIterator.hasNext())
+                while (current == null || !current.hasNext())
                 {
-                    // If we don't have more range to handle, we're done
-                    if (!ranges.hasNext())
-                        return endOfData();
-
-                    // else, sends the next batch of concurrent queries (after having close the previous iterator)
-                    if (sentQueryIterator != null)
+                    if (current != null)
                     {
-                        liveReturned += counter.counted();
-                        sentQueryIterator.close();
-
-                        // It's not the first batch of queries and we're not done, so we we can use what has been
-                        // returned so far to improve our rows-per-range estimate and update the concurrency accordingly
+                        // The oldest range is done, so we we can use what it returned to improve our rows-per-range
+                        // estimate and update the concurrency accordingly
+                        liveReturned += current.counter.counted();
+                        ++rangesCompleted;
+                        current.close();
+                        current = null;
                         updateConcurrencyFactor();
                     }
-                    sentQueryIterator = sendNextRequests();
+
+                    sendNextRequests();
+
+                    // If we don't have more range to handle, we're done
+                    if (inFlight.isEmpty())
+                        return endOfData();
+
+                    current = inFlight.poll();
                 }
 
-                return sentQueryIterator.next();
+                return current.next();
             }
             catch (UnavailableException e)
             {
@@ -2135,20 +2448,32 @@ public class StorageProxy implements StorageProxyMBean
             }
         }
 
+        private int remainingRows()
+        {
+            return command.limits().count() - liveReturned;
+        }
+
         private void updateConcurrencyFactor()
         {
+            if (limitsCountRows && remainingRows() <= 0)
+            {
+                // we already have all the rows we need, so there's no point in querying more ranges
+                concurrencyFactor = 0;
+                return;
+            }
+
             if (liveReturned == 0)
             {
                 // we haven't actually gotten any results, so query all remaining ranges at once
-                concurrencyFactor = totalRangeCount - rangesQueried;
+                concurrencyFactor = totalRangeCount - rangesCompleted;
                 return;
             }
 
             // Otherwise, compute how many rows per range we got on average and pick a concurrency factor
-            // that should allow us to fetch all remaining rows with the next batch of (concurrent) queries.
-            int remainingRows = command.limits().count() - liveReturned;
-            float rowsPerRange = (float)liveReturned / (float)rangesQueried;
-            concurrencyFactor = Math.max(1, Math.min(totalRangeCount - rangesQueried, Math.round(remainingRows / rowsPerRange)));
+            // that should allow us to fetch all remaining rows with the ranges in flight.
+            int remainingRows = remainingRows();
+            float rowsPerRange = (float)liveReturned / (float)rangesCompleted;
+            concurrencyFactor = Math.max(1, Math.min(totalRangeCount - rangesCompleted, Math.round(remainingRows / rowsPerRange)));
             logger.trace("Didn't get enough response rows; actual rows per range: {}; remaining rows: {}, new concurrent requests: {}",
                          rowsPerRange, remainingRows, concurrencyFactor);
         }
@@ -2165,6 +2490,10 @@ public class StorageProxy implements StorageProxyMBean
         private SingleRangeResponse query(RangeForQuery toQuery, boolean isFirst)
         {
             PartitionRangeReadCommand rangeCommand = command.forSubRange(toQuery.range, isFirst);
+            // the following ranges can't return more rows than those still needed
+            if (!isFirst && limitsCountRows && liveReturned > 0)
+                rangeCommand = rangeCommand.withUpdatedLimitsAndDataRange(rangeCommand.limits().forShortReadRetry(remainingRows()),
+                                                                          rangeCommand.dataRange());
 
             ReadRepair readRepair = ReadRepair.create(command, toQuery.filteredEndpoints, queryStartNanoTime, consistency);
             DataResolver resolver = new DataResolver(keyspace, rangeCommand, consistency, toQuery.filteredEndpoints.size(), queryStartNanoTime, readRepair);
@@ -2192,28 +2521,42 @@ public class StorageProxy implements StorageProxyMBean
             return new SingleRangeResponse(resolver, handler);
         }
 
-        private PartitionIterator sendNextRequests()
+        /**
+         * Queries the next ranges, until there are {@code concurrencyFactor} ranges in flight.
+         */
+        private void sendNextRequests()
         {
-            List<PartitionIterator> concurrentQueries = new ArrayList<>(concurrencyFactor);
-            for (int i = 0; i < concurrencyFactor && ranges.hasNext(); i++)
+            int sent = 0;
+            while (inFlight.size() < concurrencyFactor && ranges.hasNext())
             {
-                concurrentQueries.add(query(ranges.next(), i == 0));
+                // We want to count the results for the sake of updating the concurrency factor (see updateConcurrencyFactor) but we don't want to
+                // enforce any particular limit at this point (this could break code than rely on postReconciliationProcessing), hence the DataLimits.NONE.
+                DataLimits.Counter counter = DataLimits.NONE.newCounter(command.nowInSec(), true, command.selectsFullPartition(), enforceStrictLiveness);
+                inFlight.add(new CountedRangeResponse(query(ranges.next(), rangesQueried == 0), counter));
                 ++rangesQueried;
+                ++sent;
             }
 
-            Tracing.trace("Submitted {} concurrent range requests", concurrentQueries.size());
-            // We want to count the results for the sake of updating the concurrency factor (see updateConcurrencyFactor) but we don't want to
-            // enforce any particular limit at this point (this could break code than rely on postReconciliationProcessing), hence the DataLimits.NONE.
-            counter = DataLimits.NONE.newCounter(command.nowInSec(), true, command.selectsFullPartition(), enforceStrictLiveness);
-            return counter.applyTo(PartitionIterators.concat(concurrentQueries));
+            if (sent > 0)
+                Tracing.trace("Submitted {} concurrent range requests", sent);
+        }
+
+        @VisibleForTesting
+        int rangesQueried()
+        {
+            return rangesQueried;
         }
 
         public void close()
         {
             try
             {
-                if (sentQueryIterator != null)
-                    sentQueryIterator.close();
+                if (current != null)
+                    current.close();
+                inFlight.forEach(CountedRangeResponse::close);
+
+                if (selectivity != null)
+                    selectivity.update(rangesCompleted, liveReturned);
             }
             finally
             {
@@ -2224,6 +2567,31 @@ public class StorageProxy implements StorageProxyMBean
         }
     }
 
+    /**
+     * The response to the query of a range, along with the counter of the live rows it returned.
+     */
+    private static class CountedRangeResponse extends AbstractIterator<RowIterator> implements PartitionIterator
+    {
+        private final DataLimits.Counter counter;
+        private final PartitionIterator iterator;
+
+        private CountedRangeResponse(SingleRangeResponse response, DataLimits.Counter counter)
+        {
+            this.counter = counter;
+            this.iterator = counter.applyTo(response);
+        }
+
+        protected RowIterator computeNext()
+        {
+            return iterator.hasNext() ? iterator.next() : endOfData();
+        }
+
+        public void close()
+        {
+            iterator.close();
+        }
+    }
+
     @SuppressWarnings("resource")
     public static PartitionIterator getRangeSlice(PartitionRangeReadCommand command, ConsistencyLevel consistencyLevel, long queryStartNanoTime)
     {
@@ -2232,8 +2600,12 @@ public class StorageProxy implements StorageProxyMBean
         Keyspace keyspace = Keyspace.open(command.metadata().keyspace);
         RangeIterator ranges = new RangeIterator(command, keyspace, consistencyLevel);
 
+        ColumnFamilyStore cfs = keyspace.getColumnFamilyStore(command.metadata().id);
+        Index index = command.getIndex(cfs);
+        IndexSelectivity selectivity = index == null ? null : cfs.indexManager.getSelectivity(index);
+
         // our estimate of how many result rows there will be per-range
-        float resultsPerRange = estimateResultsPerRange(command, keyspace);
+        float resultsPerRange = estimateResultsPerRange(command, keyspace, selectivity);
         // underestimate how many rows we will get per-range in order to increase the likelihood that we'll
         // fetch enough rows in the first round
         resultsPerRange -= resultsPerRange * CONCURRENT_SUBREQUESTS_MARGIN;
@@ -2246,12 +2618,336 @@ public class StorageProxy implements StorageProxyMBean
 
         // Note that in general, a RangeCommandIterator will honor the command limit for each range, but will not enforce it globally.
 
-        return command.limits().filter(command.postReconciliationProcessing(new RangeCommandIterator(ranges, command, concurrencyFactor, keyspace, consistencyLevel, queryStartNanoTime)),
+        RangeCommandIterator rangeCommandIterator = new RangeCommandIterator(new RangeMerger(ranges, keyspace, consistencyLevel),
+                                                                             ranges.rangeCount(),
+                                                                             command,
+                                                                             concurrencyFactor,
+                                                                             keyspace,
+                                                                             consistencyLevel,
+                                                                             index,
+                                                                             selectivity,
+                                                                             queryStartNanoTime);
+        return command.limits().filter(command.postReconciliationProcessing(rangeCommandIterator),
                                        command.nowInSec(),
                                        command.selectsFullPartition(),
                                        command.metadata().enforceStrictLiveness());
     }
 
+    /**
+     * Computes aggregates over the rows selected by a query on the replicas, a page at a time, and merges their
+     * partial results, instead of fetching the rows to aggregate them here.
+     * <p>
+     * When more than one replica is needed by the consistency level, the replica computing the aggregates of a page
+     * also returns the digest of the data it computed them from, which is compared to the digests of the other
+     * replicas. If they don't all match, or if a replica fails to respond, the page is read as rows through the
+     * regular read path, which repairs the replicas, and aggregated here. Pages are merged in token order, so that
+     * the result is the same as when aggregating the rows here. A replica that times out before it has ever aggregated
+     * a page is assumed not to support it, and its pages are read as rows for a while; other timeouts fail the query,
+     * like those of the regular read path.
+     *
+     * @param query the query selecting the rows to aggregate
+     * @param aggregation the aggregates to compute
+     * @param consistencyLevel the consistency level of the query
+     * @param clientState the client state, used for the pages read through the regular read path
+     * @param pageSize the number of rows each replica aggregates per request
+     * @return the values of the aggregates, or {@code null} if the query can't be aggregated by replicas, in which case
+     * it has to be executed normally
+     */
+    public static List<ByteBuffer> aggregate(ReadQuery query,
+                                             PartialAggregation aggregation,
+                                             ConsistencyLevel consistencyLevel,
+                                             ClientState clientState,
+                                             int pageSize)
+    throws UnavailableException, ReadFailureException, ReadTimeoutException
+    {
+        if (!PARTIAL_AGGREGATION || consistencyLevel.isSerialConsistency())
+            return null;
+
+        PartialAggregation.State state = aggregation.newState();
+        if (query instanceof PartitionRangeReadCommand)
+        {
+            PartitionRangeReadCommand command = (PartitionRangeReadCommand) query;
+            Keyspace keyspace = Keyspace.open(command.metadata().keyspace);
+            if (command.indexMetadata() != null || keyspace.getReplicationStrategy() instanceof LocalStrategy)
+                return null;
+
+            Tracing.trace("Aggregating on the replicas");
+            Iterator<RangeForQuery> ranges = new RangeMerger(new RangeIterator(command, keyspace, consistencyLevel), keyspace, consistencyLevel);
+            while (ranges.hasNext())
+            {
+                RangeForQuery range = ranges.next();
+                aggregate(command.forSubRange(range.range, false), aggregation, state, keyspace, range.filteredEndpoints, consistencyLevel, clientState, pageSize);
+            }
+        }
+        else if (query instanceof SinglePartitionReadCommand.Group)
+        {
+            List<SinglePartitionReadCommand> commands = ((SinglePartitionReadCommand.Group) query).commands;
+            if (commands.isEmpty())
+                return null;
+
+            Keyspace keyspace = Keyspace.open(commands.get(0).metadata().keyspace);
+            if (keyspace.getReplicationStrategy() instanceof LocalStrategy)
+                return null;
+
+            Tracing.trace("Aggregating on the replicas");
+            for (SinglePartitionReadCommand command : commands)
+            {
+                List<InetAddressAndPort> endpoints = consistencyLevel.filterForQuery(keyspace, getLiveSortedEndpoints(keyspace, command.partitionKey()));
+                aggregate(command, aggregation, state, keyspace, endpoints, consistencyLevel, clientState, pageSize);
+            }
+        }
+        else
+        {
+            return null;
+        }
+        return aggregation.compute(state);
+    }
+
+    /**
+     * Aggregates the rows selected by a single partition command, or by a range command over a range whose replicas
+     * are the specified endpoints, a page at a time.
+     */
+    private static void aggregate(ReadCommand command,
+                                  PartialAggregation aggregation,
+                                  PartialAggregation.State state,
+                                  Keyspace keyspace,
+                                  List<InetAddressAndPort> endpoints,
+                                  ConsistencyLevel consistencyLevel,
+                                  ClientState clientState,
+                                  int pageSize)
+    {
+        TableMetadata metadata = command.metadata();
+        ReadCommand page = command.withUpdatedLimit(command.limits().forPaging(pageSize));
+        ByteBuffer resumedKey = null;
+        while (page != null)
+        {
+            PartialAggregationResponse response = aggregateOnReplicas(page, aggregation, resumedKey, keyspace, endpoints, consistencyLevel);
+
+            // the pages are timed individually, as the aggregation of a large table takes a lot more than a read timeout
+            if (response == null)
+                response = aggregateRows(page, aggregation, resumedKey, consistencyLevel, clientState, System.nanoTime());
+
+            aggregation.merge(state, response.state);
+
+            DecoratedKey lastKey = response.lastKey(metadata);
+            if (response.isExhausted || lastKey == null)
+                return;
+
+            Clustering lastClustering = response.lastClustering(metadata);
+            page = nextAggregationPage(command, pageSize, lastKey, lastClustering);
+            resumedKey = lastClustering == null ? null : lastKey.getKey();
+        }
+    }
+
+    /**
+     * Returns the command for the page following the last live row of the previous one, like the query pagers do, or
+     * {@code null} if there is nothing left to read.
+     */
+    private static ReadCommand nextAggregationPage(ReadCommand command, int pageSize, DecoratedKey lastKey, Clustering lastClustering)
+    {
+        if (command instanceof SinglePartitionReadCommand)
+        {
+            return lastClustering == null
+                 ? null
+                 : ((SinglePartitionReadCommand) command).forPaging(lastClustering, command.limits().forPaging(pageSize, lastKey.getKey(), DataLimits.NO_LIMIT));
+        }
+
+        PartitionRangeReadCommand rangeCommand = (PartitionRangeReadCommand) command;
+        AbstractBounds<PartitionPosition> bounds = rangeCommand.dataRange().keyRange();
+        boolean isInclusive = bounds instanceof Range || bounds instanceof Bounds;
+        if (lastClustering != null)
+        {
+            // we stopped in the middle of the partition, resume after its last live row
+            bounds = isInclusive ? new Bounds<>(lastKey, bounds.right) : new IncludingExcludingBounds<>(lastKey, bounds.right);
+            return rangeCommand.withUpdatedLimitsAndDataRange(command.limits().forPaging(pageSize, lastKey.getKey(), DataLimits.NO_LIMIT),
+                                                              rangeCommand.dataRange().forPaging(bounds, command.metadata().comparator, lastClustering, false));
+        }
+
+        bounds = isInclusive ? new Range<>(lastKey, bounds.right) : new ExcludingBounds<>(lastKey, bounds.right);
+        return rangeCommand.withUpdatedLimitsAndDataRange(command.limits().forPaging(pageSize), rangeCommand.dataRange().forSubRange(bounds));
+    }
+
+    /**
+     * Aggregates a page on the replicas if they all support it. The page is recorded in the read or range slice
+     * metrics, like a page read through the regular read path.
+     *
+     * @return the partial aggregates, or {@code null} if the replicas don't support it, if one of them fails or if
+     * their data don't match, in which case the rows of the page have to be read through the regular read path
+     * @throws ReadTimeoutException if the replicas don't reply in time, unless the replica asked to aggregate the page
+     * has never done it before, which is how the 4.0 nodes that don't support partial aggregation behave
+     */
+    private static PartialAggregationResponse aggregateOnReplicas(ReadCommand page,
+                                                                  PartialAggregation aggregation,
+                                                                  ByteBuffer resumedKey,
+                                                                  Keyspace keyspace,
+                                                                  List<InetAddressAndPort> endpoints,
+                                                                  ConsistencyLevel consistencyLevel)
+    throws UnavailableException, ReadTimeoutException
+    {
+        // the pages are timed individually, as the aggregation of a large table takes a lot more than a read timeout
+        long pageStartNanoTime = System.nanoTime();
+        boolean isRangePage = page instanceof PartitionRangeReadCommand;
+        ClientRequestMetrics metrics = isRangePage ? rangeMetrics : readMetrics;
+        try
+        {
+            consistencyLevel.assureSufficientLiveNodes(keyspace, endpoints);
+            List<InetAddressAndPort> targets = endpoints.subList(0, Math.min(endpoints.size(), consistencyLevel.blockFor(keyspace)));
+
+            int digestVersion = MessagingService.current_version;
+            for (InetAddressAndPort endpoint : targets)
+                digestVersion = Math.min(digestVersion, MessagingService.instance().getVersion(endpoint));
+
+            if (digestVersion < MessagingService.VERSION_40)
+                return null;
+
+            // only the first target is asked to aggregate the page, the others send the digests of their data
+            InetAddressAndPort aggregatingReplica = targets.get(0);
+            if (!mayAggregateOn(aggregatingReplica))
+                return null;
+
+            try
+            {
+                PartialAggregationResponse response = queryPartialAggregates(page, aggregation, resumedKey, targets, digestVersion, consistencyLevel, pageStartNanoTime);
+                if (response != null)
+                    aggregatingReplicas.add(aggregatingReplica);
+                return response;
+            }
+            catch (ReadTimeoutException e)
+            {
+                if (e.dataPresent || aggregatingReplicas.contains(aggregatingReplica))
+                    throw e;
+
+                Tracing.trace("Timed out aggregating on {}, which presumably doesn't support it, aggregating the rows instead", aggregatingReplica);
+                nonAggregatingReplicas.put(aggregatingReplica, System.nanoTime());
+                return null;
+            }
+        }
+        catch (UnavailableException e)
+        {
+            metrics.unavailables.mark();
+            throw e;
+        }
+        catch (ReadTimeoutException e)
+        {
+            metrics.timeouts.mark();
+            throw e;
+        }
+        finally
+        {
+            long latency = System.nanoTime() - pageStartNanoTime;
+            metrics.addNano(latency);
+            ColumnFamilyStore cfs = Keyspace.openAndGetStore(page.metadata());
+            (isRangePage ? cfs.metric.coordinatorScanLatency : cfs.metric.coordinatorReadLatency).update(latency, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Whether the given replica isn't known not to support partial aggregation, the replicas that timed out on their
+     * first request being retried once in a while.
+     */
+    private static boolean mayAggregateOn(InetAddressAndPort replica)
+    {
+        Long timedOutAt = nonAggregatingReplicas.get(replica);
+        if (timedOutAt == null)
+            return true;
+
+        if (System.nanoTime() - timedOutAt < NON_AGGREGATING_REPLICA_RETRY_NANOS)
+            return false;
+
+        nonAggregatingReplicas.remove(replica, timedOutAt);
+        return true;
+    }
+
+    /**
+     * Asks the first target to aggregate the page, and the others for the digests of their data.
+     *
+     * @return the partial aggregates, or {@code null} if a replica failed or if the digests don't all match
+     */
+    private static PartialAggregationResponse queryPartialAggregates(ReadCommand page,
+                                                                     PartialAggregation aggregation,
+                                                                     ByteBuffer resumedKey,
+                                                                     List<InetAddressAndPort> targets,
+                                                                     int digestVersion,
+                                                                     ConsistencyLevel consistencyLevel,
+                                                                     long pageStartNanoTime)
+    {
+        PartialAggregationCallback callback = new PartialAggregationCallback(page, consistencyLevel, targets.size(), pageStartNanoTime);
+        PartialAggregationRequest request = new PartialAggregationRequest(page,
+                                                                          aggregation,
+                                                                          resumedKey,
+                                                                          targets.size() > 1 ? digestVersion : PartialAggregationRequest.NO_DIGEST);
+        ReadCommand digestCommand = targets.size() > 1 ? page.copyAsDigestQuery().setDigestVersion(digestVersion) : null;
+
+        Runnable localRead = null;
+        for (int i = 0; i < targets.size(); i++)
+        {
+            InetAddressAndPort endpoint = targets.get(i);
+            boolean isData = i == 0;
+            if (canDoLocalRequest(endpoint))
+            {
+                localRead = () -> {
+                    try
+                    {
+                        if (isData)
+                        {
+                            callback.onResponse(request.execute());
+                            return;
+                        }
+
+                        try (ReadExecutionController executionController = digestCommand.executionController();
+                             UnfilteredPartitionIterator iterator = digestCommand.executeLocally(executionController))
+                        {
+                            callback.onResponse(digestCommand.createResponse(iterator));
+                        }
+                    }
+                    catch (Throwable t)
+                    {
+                        // the page is read through the regular read path, which reports the errors
+                        JVMStabilityInspector.inspectThrowable(t);
+                        callback.onFailure(FBUtilities.getBroadcastAddressAndPort(), RequestFailureReason.UNKNOWN);
+                    }
+                };
+            }
+            else
+            {
+                Tracing.trace("Enqueuing {} request to {}", isData ? "partial aggregation" : "digest", endpoint);
+                MessagingService.instance().sendRRWithFailure(isData ? request.createMessage() : digestCommand.createMessage(), endpoint, callback);
+            }
+        }
+
+        // executed last, as it may run in this thread
+        if (localRead != null)
+            StageManager.getStage(Stage.READ).maybeExecuteImmediately(localRead);
+
+        return callback.get();
+    }
+
+    /**
+     * Reads the rows of a page through the regular read path, and aggregates them here.
+     */
+    private static PartialAggregationResponse aggregateRows(ReadCommand page,
+                                                           PartialAggregation aggregation,
+                                                           ByteBuffer resumedKey,
+                                                           ConsistencyLevel consistencyLevel,
+                                                           ClientState clientState,
+                                                           long pageStartNanoTime)
+    {
+        PartialAggregation.State state = aggregation.newState();
+        boolean enforceStrictLiveness = page.metadata().enforceStrictLiveness();
+        DataLimits.Counter counter = page.limits().newCounter(page.nowInSec(), true, page.selectsFullPartition(), enforceStrictLiveness).onlyCount();
+        PartialAggregation.Aggregator aggregator = aggregation.newAggregator(state, page.nowInSec(), enforceStrictLiveness, resumedKey);
+        try (PartitionIterator rows = Transformation.apply(counter.applyTo(page.execute(consistencyLevel, clientState, pageStartNanoTime)), aggregator))
+        {
+            PartitionIterators.consume(rows);
+        }
+        return PartialAggregationResponse.create(page.metadata(),
+                                                 state,
+                                                 page.limits().isExhausted(counter),
+                                                 aggregator.lastKey(),
+                                                 aggregator.lastClustering(),
+                                                 null);
+    }
+
     public Map<String, List<String>> getSchemaVersions()
     {
         return describeSchemaVersions(false);
@@ -2864,11 +3560,13 @@ public class StorageProxy implements StorageProxyMBean
     {
         final UUID ballot;
         final int contentions;
+        final PrepareCallback summary;
 
-        PaxosBallotAndContention(UUID ballot, int contentions)
+        PaxosBallotAndContention(UUID ballot, int contentions, PrepareCallback summary)
         {
             this.ballot = ballot;
             this.contentions = contentions;
+            this.summary = summary;
         }
 
         @Override
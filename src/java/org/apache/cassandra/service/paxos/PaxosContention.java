@@ -0,0 +1,109 @@
+package org.apache.cassandra.service.paxos;
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.metrics.CASClientRequestMetrics;
+import org.apache.cassandra.schema.TableId;
+import org.apache.cassandra.utils.Pair;
+
+/**
+ * Coordinator side handling of paxos contention.
+ * <p>
+ * Concurrent CAS on the same partition coordinated by the same node are queued, so that they run one after the other
+ * instead of preempting each other's ballots. And when a round is preempted anyway (by another coordinator, or by a
+ * SERIAL read), the coordinator backs off for a random time that grows with the number of times the request has
+ * already been preempted and with the contention recently seen by the other requests.
+ */
+public final class PaxosContention
+{
+    private static final boolean QUEUE_LOCAL_CAS = Boolean.parseBoolean(System.getProperty("cassandra.paxos.queue_local_cas", "true"));
+
+    @VisibleForTesting
+    static final long MIN_BACKOFF_MILLIS = Long.getLong("cassandra.paxos.min_backoff_ms", 5);
+    @VisibleForTesting
+    static final long MAX_BACKOFF_MILLIS = Long.getLong("cassandra.paxos.max_backoff_ms", 100);
+
+    private static final Striped<Lock> LOCKS = Striped.lazyWeakLock(DatabaseDescriptor.getConcurrentWriters() * 1024);
+
+    private PaxosContention()
+    {
+    }
+
+    /**
+     * @return the lock that queues the CAS of the given partition coordinated by this node, or null if they aren't
+     * queued
+     */
+    public static Lock lockFor(TableId tableId, DecoratedKey key)
+    {
+        return QUEUE_LOCAL_CAS ? LOCKS.get(Pair.create(tableId, key)) : null;
+    }
+
+    /**
+     * Waits for the CAS ahead in the queue to be done.
+     *
+     * @return whether the lock was acquired before the timeout
+     */
+    public static boolean tryLock(Lock lock, long timeout, TimeUnit unit)
+    {
+        try
+        {
+            return lock.tryLock(timeout, unit);
+        }
+        catch (InterruptedException e)
+        {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Sleeps before retrying a preempted paxos round.
+     *
+     * @param contentions the number of times the request has been preempted so far
+     * @param metrics the metrics of the requests of the same kind, whose recent contention scales the backoff
+     */
+    public static void backoff(int contentions, CASClientRequestMetrics metrics)
+    {
+        Uninterruptibles.sleepUninterruptibly(backoffMillis(contentions, metrics.contention.getSnapshot().getMean()), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Picks a random backoff up to a bound that doubles with each contention of the request, and is scaled by the
+     * mean contention of the recent requests, so that the coordinators spread their retries more on a hot partition.
+     */
+    @VisibleForTesting
+    static long backoffMillis(int contentions, double recentContention)
+    {
+        double bound = (MIN_BACKOFF_MILLIS << Math.min(Math.max(contentions - 1, 0), 10)) * (1 + recentContention);
+        long max = (long) Math.min(MAX_BACKOFF_MILLIS, bound);
+        return ThreadLocalRandom.current().nextLong(max + 1);
+    }
+}
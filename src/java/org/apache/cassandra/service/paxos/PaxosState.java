@@ -27,6 +27,7 @@ import com.google.common.util.concurrent.Striped;
 import org.apache.cassandra.schema.TableMetadata;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.*;
+import org.apache.cassandra.db.partitions.UnfilteredPartitionIterator;
 import org.apache.cassandra.tracing.Tracing;
 import org.apache.cassandra.utils.UUIDGen;
 
@@ -54,6 +55,16 @@ public class PaxosState
     }
 
     public static PrepareResponse prepare(Commit toPrepare)
+    {
+        return prepare(toPrepare, null);
+    }
+
+    /**
+     * Promises the ballot of {@code toPrepare} if it is newer than any promised so far, and if so, also performs the
+     * provided read (if any) while the ballot can't be superseded, so that its result can stand for the read of a
+     * CAS (or SERIAL read) that would otherwise follow the prepare.
+     */
+    public static PrepareResponse prepare(Commit toPrepare, SinglePartitionReadCommand read)
     {
         long start = System.nanoTime();
         try
@@ -73,7 +84,7 @@ public class PaxosState
                 {
                     Tracing.trace("Promising ballot {}", toPrepare.ballot);
                     SystemKeyspace.savePaxosPromise(toPrepare);
-                    return new PrepareResponse(true, state.accepted, state.mostRecentCommit);
+                    return new PrepareResponse(true, state.accepted, state.mostRecentCommit, read == null ? null : readLocally(read));
                 }
                 else
                 {
@@ -94,6 +105,16 @@ public class PaxosState
 
     }
 
+    private static ReadResponse readLocally(SinglePartitionReadCommand read)
+    {
+        Tracing.trace("Reading partition along with the promise");
+        try (ReadExecutionController executionController = read.executionController();
+             UnfilteredPartitionIterator iterator = read.executeLocally(executionController))
+        {
+            return read.createResponse(iterator);
+        }
+    }
+
     public static Boolean propose(Commit proposal)
     {
         long start = System.nanoTime();
@@ -0,0 +1,78 @@
+package org.apache.cassandra.service.paxos;
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.io.IOException;
+
+import org.apache.cassandra.db.ReadCommand;
+import org.apache.cassandra.db.SinglePartitionReadCommand;
+import org.apache.cassandra.io.IVersionedSerializer;
+import org.apache.cassandra.io.util.DataInputPlus;
+import org.apache.cassandra.io.util.DataOutputPlus;
+
+/**
+ * A paxos prepare that also asks the replica to read the partition, once it has promised the ballot, so that the
+ * coordinator doesn't need a separate read round trip to check the conditions of a CAS (or to answer a SERIAL read).
+ */
+public class PrepareAndRead
+{
+    public static final PrepareAndReadSerializer serializer = new PrepareAndReadSerializer();
+
+    public final Commit commit;
+    public final SinglePartitionReadCommand read;
+
+    public PrepareAndRead(Commit commit, SinglePartitionReadCommand read)
+    {
+        assert commit.update.partitionKey().equals(read.partitionKey());
+
+        this.commit = commit;
+        this.read = read;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("PrepareAndRead(%s, %s)", commit, read);
+    }
+
+    public static class PrepareAndReadSerializer implements IVersionedSerializer<PrepareAndRead>
+    {
+        public void serialize(PrepareAndRead request, DataOutputPlus out, int version) throws IOException
+        {
+            Commit.serializer.serialize(request.commit, out, version);
+            ReadCommand.serializer.serialize(request.read, out, version);
+        }
+
+        public PrepareAndRead deserialize(DataInputPlus in, int version) throws IOException
+        {
+            Commit commit = Commit.serializer.deserialize(in, version);
+            SinglePartitionReadCommand read = (SinglePartitionReadCommand) ReadCommand.serializer.deserialize(in, version);
+            return new PrepareAndRead(commit, read);
+        }
+
+        public long serializedSize(PrepareAndRead request, int version)
+        {
+            return Commit.serializer.serializedSize(request.commit, version)
+                 + ReadCommand.serializer.serializedSize(request.read, version);
+        }
+    }
+}
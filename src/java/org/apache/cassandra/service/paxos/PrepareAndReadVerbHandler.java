@@ -0,0 +1,41 @@
+package org.apache.cassandra.service.paxos;
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import org.apache.cassandra.net.IVerbHandler;
+import org.apache.cassandra.net.MessageIn;
+import org.apache.cassandra.net.MessageOut;
+import org.apache.cassandra.net.MessagingService;
+
+public class PrepareAndReadVerbHandler implements IVerbHandler<PrepareAndRead>
+{
+    public static PrepareResponse doPrepare(PrepareAndRead toPrepare)
+    {
+        return PaxosState.prepare(toPrepare.commit, toPrepare.read);
+    }
+
+    public void doVerb(MessageIn<PrepareAndRead> message, int id)
+    {
+        MessageOut<PrepareResponse> reply = new MessageOut<PrepareResponse>(MessagingService.Verb.REQUEST_RESPONSE, doPrepare(message.payload), PrepareResponse.withReadSerializer);
+        MessagingService.instance().sendReply(reply, id, message.from);
+    }
+}
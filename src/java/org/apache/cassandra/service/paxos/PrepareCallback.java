@@ -21,6 +21,7 @@ package org.apache.cassandra.service.paxos;
  */
 
 
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -32,6 +33,10 @@ import org.apache.cassandra.locator.InetAddressAndPort;
 import org.apache.cassandra.schema.TableMetadata;
 import org.apache.cassandra.db.ConsistencyLevel;
 import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.ReadResponse;
+import org.apache.cassandra.db.SinglePartitionReadCommand;
+import org.apache.cassandra.db.partitions.PartitionIterator;
+import org.apache.cassandra.db.partitions.UnfilteredPartitionIterators;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,6 +54,7 @@ public class PrepareCallback extends AbstractPaxosCallback<PrepareResponse>
     public Commit mostRecentInProgressCommitWithUpdate;
 
     private final Map<InetAddressAndPort, Commit> commitsByReplica = new ConcurrentHashMap<>();
+    private final Map<InetAddressAndPort, ReadResponse> readsByReplica = new ConcurrentHashMap<>();
 
     public PrepareCallback(DecoratedKey key, TableMetadata metadata, int targets, ConsistencyLevel consistency, long queryStartNanoTime)
     {
@@ -79,6 +85,8 @@ public class PrepareCallback extends AbstractPaxosCallback<PrepareResponse>
         }
 
         commitsByReplica.put(message.from, response.mostRecentCommit);
+        if (response.readResponse != null)
+            readsByReplica.put(message.from, response.readResponse);
         if (response.mostRecentCommit.isAfter(mostRecentCommit))
             mostRecentCommit = response.mostRecentCommit;
 
@@ -90,6 +98,34 @@ public class PrepareCallback extends AbstractPaxosCallback<PrepareResponse>
         latch.countDown();
     }
 
+    /**
+     * Returns the result of the read performed by the replicas along with their promise, provided all the replicas
+     * that promised did read and got the same result. Otherwise, the replicas may be out of sync (or the read wasn't
+     * requested), and null is returned so the caller falls back to a regular quorum read, which will repair them.
+     */
+    public synchronized PartitionIterator readResult(SinglePartitionReadCommand command)
+    {
+        if (readsByReplica.isEmpty() || readsByReplica.size() != commitsByReplica.size())
+            return null;
+
+        ReadResponse result = null;
+        ByteBuffer digest = null;
+        for (ReadResponse response : readsByReplica.values())
+        {
+            ByteBuffer responseDigest = response.digest(command);
+            if (digest == null)
+            {
+                result = response;
+                digest = responseDigest;
+            }
+            else if (!digest.equals(responseDigest))
+            {
+                return null;
+            }
+        }
+        return UnfilteredPartitionIterators.filter(result.makeIterator(command), command.nowInSec());
+    }
+
     public Iterable<InetAddressAndPort> replicasMissingMostRecentCommit(TableMetadata metadata, int nowInSec)
     {
         // In general, we need every replicas that have answered to the prepare (a quorum) to agree on the MRC (see
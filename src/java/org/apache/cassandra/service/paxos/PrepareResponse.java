@@ -23,6 +23,7 @@ package org.apache.cassandra.service.paxos;
 
 import java.io.IOException;
 
+import org.apache.cassandra.db.ReadResponse;
 import org.apache.cassandra.db.TypeSizes;
 import org.apache.cassandra.io.IVersionedSerializer;
 import org.apache.cassandra.io.util.DataInputPlus;
@@ -31,6 +32,7 @@ import org.apache.cassandra.io.util.DataOutputPlus;
 public class PrepareResponse
 {
     public static final PrepareResponseSerializer serializer = new PrepareResponseSerializer();
+    public static final PrepareResponseSerializer withReadSerializer = new PrepareResponseWithReadSerializer();
 
     public final boolean promised;
 
@@ -42,7 +44,17 @@ public class PrepareResponse
     public final Commit inProgressCommit;
     public final Commit mostRecentCommit;
 
+    /*
+     * The result of the read of a PrepareAndRead, if the ballot was promised; null otherwise.
+     */
+    public final ReadResponse readResponse;
+
     public PrepareResponse(boolean promised, Commit inProgressCommit, Commit mostRecentCommit)
+    {
+        this(promised, inProgressCommit, mostRecentCommit, null);
+    }
+
+    public PrepareResponse(boolean promised, Commit inProgressCommit, Commit mostRecentCommit, ReadResponse readResponse)
     {
         assert inProgressCommit.update.partitionKey().equals(mostRecentCommit.update.partitionKey());
         assert inProgressCommit.update.metadata() == mostRecentCommit.update.metadata();
@@ -50,6 +62,7 @@ public class PrepareResponse
         this.promised = promised;
         this.mostRecentCommit = mostRecentCommit;
         this.inProgressCommit = inProgressCommit;
+        this.readResponse = readResponse;
     }
 
     @Override
@@ -82,4 +95,34 @@ public class PrepareResponse
                  + Commit.serializer.serializedSize(response.mostRecentCommit, version);
         }
     }
+
+    /**
+     * Serializer of the responses to a PrepareAndRead, which carry the result of the read after the fields of a plain
+     * prepare response.
+     */
+    private static class PrepareResponseWithReadSerializer extends PrepareResponseSerializer
+    {
+        public void serialize(PrepareResponse response, DataOutputPlus out, int version) throws IOException
+        {
+            super.serialize(response, out, version);
+            out.writeBoolean(response.readResponse != null);
+            if (response.readResponse != null)
+                ReadResponse.serializer.serialize(response.readResponse, out, version);
+        }
+
+        public PrepareResponse deserialize(DataInputPlus in, int version) throws IOException
+        {
+            PrepareResponse response = super.deserialize(in, version);
+            ReadResponse readResponse = in.readBoolean() ? ReadResponse.serializer.deserialize(in, version) : null;
+            return new PrepareResponse(response.promised, response.inProgressCommit, response.mostRecentCommit, readResponse);
+        }
+
+        public long serializedSize(PrepareResponse response, int version)
+        {
+            long size = super.serializedSize(response, version) + TypeSizes.sizeof(response.readResponse != null);
+            if (response.readResponse != null)
+                size += ReadResponse.serializer.serializedSize(response.readResponse, version);
+            return size;
+        }
+    }
 }
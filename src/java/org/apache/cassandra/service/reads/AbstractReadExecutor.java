@@ -18,14 +18,19 @@
 package org.apache.cassandra.service.reads;
 
 import java.util.List;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.cassandra.concurrent.ScheduledExecutors;
 import org.apache.cassandra.concurrent.Stage;
 import org.apache.cassandra.concurrent.StageManager;
 import org.apache.cassandra.db.ColumnFamilyStore;
@@ -150,6 +155,31 @@ public abstract class AbstractReadExecutor
      */
     public abstract void maybeTryAdditionalReplicas();
 
+    /**
+     * Non-blocking counterpart of {@link #maybeTryAdditionalReplicas()}: rather than waiting to see if the original
+     * requests are answered first, schedules a task performing the additional requests if they are not.
+     *
+     * @return the scheduled task, or null if there is nothing to schedule
+     */
+    public ScheduledFuture<?> scheduleAdditionalReplicas()
+    {
+        if (!canSpeculate())
+            return null;
+
+        long delay = cfs.sampleLatencyNanos - (System.nanoTime() - queryStartNanoTime);
+        return ScheduledExecutors.scheduledFastTasks.schedule(() -> {
+                                                                  if (!handler.condition.isSignaled())
+                                                                      tryAdditionalReplicas();
+                                                              },
+                                                              Math.max(0, delay),
+                                                              TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Perform the additional requests, once it looks like the original will time out.
+     */
+    abstract void tryAdditionalReplicas();
+
     /**
      * Get the replicas involved in the [finished] request.
      *
@@ -251,13 +281,18 @@ public abstract class AbstractReadExecutor
      */
     boolean shouldSpeculateAndMaybeWait()
     {
-        // no latency information, or we're overloaded
-        if (cfs.sampleLatencyNanos > TimeUnit.MILLISECONDS.toNanos(command.getTimeout()))
+        if (!canSpeculate())
             return false;
 
         return !handler.await(cfs.sampleLatencyNanos, TimeUnit.NANOSECONDS);
     }
 
+    private boolean canSpeculate()
+    {
+        // no latency information, or we're overloaded
+        return cfs.sampleLatencyNanos <= TimeUnit.MILLISECONDS.toNanos(command.getTimeout());
+    }
+
     void onReadTimeout() {}
 
     public static class NeverSpeculatingReadExecutor extends AbstractReadExecutor
@@ -284,10 +319,20 @@ public abstract class AbstractReadExecutor
 
         public void maybeTryAdditionalReplicas()
         {
-            if (shouldSpeculateAndMaybeWait() && logFailedSpeculation)
-            {
+            if (shouldSpeculateAndMaybeWait())
+                tryAdditionalReplicas();
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleAdditionalReplicas()
+        {
+            return logFailedSpeculation ? super.scheduleAdditionalReplicas() : null;
+        }
+
+        void tryAdditionalReplicas()
+        {
+            if (logFailedSpeculation)
                 cfs.metric.speculativeInsufficientReplicas.inc();
-            }
         }
 
         public List<InetAddressAndPort> getContactedReplicas()
@@ -338,21 +383,24 @@ public abstract class AbstractReadExecutor
         public void maybeTryAdditionalReplicas()
         {
             if (shouldSpeculateAndMaybeWait())
-            {
-                //Handle speculation stats first in case the callback fires immediately
-                speculated = true;
-                cfs.metric.speculativeRetries.inc();
-                // Could be waiting on the data, or on enough digests.
-                ReadCommand retryCommand = command;
-                if (handler.resolver.isDataPresent())
-                    retryCommand = command.copyAsDigestQuery();
-
-                InetAddressAndPort extraReplica = Iterables.getLast(targetReplicas);
-                if (traceState != null)
-                    traceState.trace("speculating read retry on {}", extraReplica);
-                logger.trace("speculating read retry on {}", extraReplica);
-                MessagingService.instance().sendRRWithFailure(retryCommand.createMessage(), extraReplica, handler);
-            }
+                tryAdditionalReplicas();
+        }
+
+        void tryAdditionalReplicas()
+        {
+            //Handle speculation stats first in case the callback fires immediately
+            speculated = true;
+            cfs.metric.speculativeRetries.inc();
+            // Could be waiting on the data, or on enough digests.
+            ReadCommand retryCommand = command;
+            if (handler.resolver.isDataPresent())
+                retryCommand = command.copyAsDigestQuery();
+
+            InetAddressAndPort extraReplica = Iterables.getLast(targetReplicas);
+            if (traceState != null)
+                traceState.trace("speculating read retry on {}", extraReplica);
+            logger.trace("speculating read retry on {}", extraReplica);
+            MessagingService.instance().sendRRWithFailure(retryCommand.createMessage(), extraReplica, handler);
         }
 
         public List<InetAddressAndPort> getContactedReplicas()
@@ -389,6 +437,17 @@ public abstract class AbstractReadExecutor
             // no-op
         }
 
+        @Override
+        public ScheduledFuture<?> scheduleAdditionalReplicas()
+        {
+            return null;
+        }
+
+        void tryAdditionalReplicas()
+        {
+            // no-op
+        }
+
         public List<InetAddressAndPort> getContactedReplicas()
         {
             return targetReplicas;
@@ -437,16 +496,25 @@ public abstract class AbstractReadExecutor
             }
         }
 
-        // return immediately, or begin a read repair
+        resolveResponses();
+    }
+
+    /**
+     * Return immediately, or begin a read repair
+     *
+     * @return true if the result has been set, false if a foreground read repair was started
+     */
+    private boolean resolveResponses()
+    {
         if (digestResolver.responsesMatch())
         {
             setResult(digestResolver.getData());
+            return true;
         }
-        else
-        {
-            Tracing.trace("Digest mismatch: Mismatch for key {}", getKey());
-            readRepair.startForegroundRepair(digestResolver, handler.endpoints, getContactedReplicas(), this::setResult);
-        }
+
+        Tracing.trace("Digest mismatch: Mismatch for key {}", getKey());
+        readRepair.startForegroundRepair(digestResolver, handler.endpoints, getContactedReplicas(), this::setResult);
+        return false;
     }
 
     public void awaitReadRepair() throws ReadTimeoutException
@@ -457,17 +525,22 @@ public abstract class AbstractReadExecutor
         }
         catch (ReadTimeoutException e)
         {
-            if (Tracing.isTracing())
-                Tracing.trace("Timed out waiting on digest mismatch repair requests");
-            else
-                logger.trace("Timed out waiting on digest mismatch repair requests");
-            // the caught exception here will have CL.ALL from the repair command,
-            // not whatever CL the initial command was at (CASSANDRA-7947)
-            int blockFor = consistency.blockFor(Keyspace.open(command.metadata().keyspace));
-            throw new ReadTimeoutException(consistency, blockFor-1, blockFor, true);
+            throw readRepairTimeout();
         }
     }
 
+    private ReadTimeoutException readRepairTimeout()
+    {
+        if (Tracing.isTracing())
+            Tracing.trace("Timed out waiting on digest mismatch repair requests");
+        else
+            logger.trace("Timed out waiting on digest mismatch repair requests");
+        // the caught exception here will have CL.ALL from the repair command,
+        // not whatever CL the initial command was at (CASSANDRA-7947)
+        int blockFor = consistency.blockFor(Keyspace.open(command.metadata().keyspace));
+        return new ReadTimeoutException(consistency, blockFor-1, blockFor, true);
+    }
+
     public void maybeRepairAdditionalReplicas()
     {
         // TODO: this
@@ -478,4 +551,46 @@ public abstract class AbstractReadExecutor
         Preconditions.checkState(result != null, "Result must be set first");
         return result;
     }
+
+    /**
+     * Non-blocking counterpart of {@link #maybeTryAdditionalReplicas()}, {@link #awaitResponses()},
+     * {@link #awaitReadRepair()} and {@link #getResult()}, to be called once {@link #executeAsync()} has sent
+     * the initial requests.
+     *
+     * Speculative retry is scheduled rather than waited for, and the responses are resolved by the thread
+     * delivering the one that satisfies the consistency level. On digest mismatch, the foreground read repair
+     * continues on the READ_REPAIR stage, see {@link ReadRepair#awaitForegroundRepairFinishAsync()}.
+     */
+    public ListenableFuture<PartitionIterator> getResultAsync()
+    {
+        ScheduledFuture<?> speculation = scheduleAdditionalReplicas();
+        ListenableFuture<Void> responses = handler.awaitResultsAsync();
+        if (speculation != null)
+            responses.addListener(() -> speculation.cancel(false), MoreExecutors.directExecutor());
+
+        responses = Futures.catching(responses, ReadTimeoutException.class, this::onReadTimeoutAsync, MoreExecutors.directExecutor());
+
+        ListenableFuture<Void> resolved = Futures.transformAsync(responses,
+                                                                 ignored -> resolveResponses()
+                                                                            ? Futures.immediateFuture(null)
+                                                                            : Futures.catching(readRepair.awaitForegroundRepairFinishAsync(),
+                                                                                               ReadTimeoutException.class,
+                                                                                               e -> { throw readRepairTimeout(); },
+                                                                                               MoreExecutors.directExecutor()),
+                                                                 MoreExecutors.directExecutor());
+
+        return Futures.transform(resolved, ignored -> getResult(), MoreExecutors.directExecutor());
+    }
+
+    private Void onReadTimeoutAsync(ReadTimeoutException e)
+    {
+        try
+        {
+            onReadTimeout();
+        }
+        finally
+        {
+            throw e;
+        }
+    }
 }
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.service.reads;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.apache.cassandra.db.ReadCommand;
+import org.apache.cassandra.db.ReadResponse;
+import org.apache.cassandra.db.aggregation.PartialAggregationResponse;
+import org.apache.cassandra.exceptions.ReadTimeoutException;
+import org.apache.cassandra.exceptions.RequestFailureReason;
+import org.apache.cassandra.locator.InetAddressAndPort;
+import org.apache.cassandra.net.IAsyncCallbackWithFailure;
+import org.apache.cassandra.net.MessageIn;
+import org.apache.cassandra.tracing.Tracing;
+import org.apache.cassandra.utils.concurrent.SimpleCondition;
+
+/**
+ * Collects the responses for a page of a query aggregated by replicas: the partial aggregates computed by one of them,
+ * along with the digest of the data they were computed from, and the digests of the data of the others.
+ */
+public class PartialAggregationCallback implements IAsyncCallbackWithFailure<Object>
+{
+    private final ReadCommand command;
+    private final ConsistencyLevel consistencyLevel;
+    private final int blockFor;
+    private final long pageStartNanoTime;
+
+    private final SimpleCondition condition = new SimpleCondition();
+    private final AtomicInteger received = new AtomicInteger();
+    private final Queue<ByteBuffer> digests = new ConcurrentLinkedQueue<>();
+    private volatile PartialAggregationResponse data;
+    private volatile boolean failed;
+
+    /**
+     * @param command the command of the page
+     * @param consistencyLevel the consistency level of the query
+     * @param blockFor the number of replicas queried, all of which have to respond
+     * @param pageStartNanoTime the time the page was queried, from which its timeout is computed
+     */
+    public PartialAggregationCallback(ReadCommand command, ConsistencyLevel consistencyLevel, int blockFor, long pageStartNanoTime)
+    {
+        this.command = command;
+        this.consistencyLevel = consistencyLevel;
+        this.blockFor = blockFor;
+        this.pageStartNanoTime = pageStartNanoTime;
+    }
+
+    public void response(MessageIn<Object> message)
+    {
+        onResponse(message.payload);
+    }
+
+    /**
+     * Records a response, either a {@link PartialAggregationResponse} or a digest {@link ReadResponse}.
+     */
+    public void onResponse(Object payload)
+    {
+        if (payload instanceof PartialAggregationResponse)
+            data = (PartialAggregationResponse) payload;
+        else
+            digests.add(((ReadResponse) payload).digest(command));
+
+        if (received.incrementAndGet() >= blockFor)
+            condition.signalAll();
+    }
+
+    public void onFailure(InetAddressAndPort from, RequestFailureReason failureReason)
+    {
+        failed = true;
+        condition.signalAll();
+    }
+
+    public boolean isLatencyForSnitch()
+    {
+        return true;
+    }
+
+    /**
+     * Waits for the responses of all the queried replicas.
+     *
+     * @return the partial aggregates, or {@code null} if a replica failed to respond or if the digests of the data of
+     * the replicas don't all match, in which case the page has to be read through the regular read path.
+     * @throws ReadTimeoutException if the replicas didn't all respond in time
+     */
+    public PartialAggregationResponse get() throws ReadTimeoutException
+    {
+        long time = TimeUnit.MILLISECONDS.toNanos(command.getTimeout()) - (System.nanoTime() - pageStartNanoTime);
+        boolean signaled;
+        try
+        {
+            signaled = condition.await(time, TimeUnit.NANOSECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            throw new AssertionError(e);
+        }
+
+        if (failed)
+        {
+            Tracing.trace("A replica failed to aggregate the page, reading its rows");
+            return null;
+        }
+
+        if (!signaled)
+            throw new ReadTimeoutException(consistencyLevel, received.get(), blockFor, data != null);
+
+        for (ByteBuffer digest : digests)
+        {
+            if (!digest.equals(data.digest))
+            {
+                Tracing.trace("Digest mismatch for the aggregated page, reading its rows");
+                return null;
+            }
+        }
+        return data;
+    }
+}
@@ -21,15 +21,21 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.cassandra.concurrent.ScheduledExecutors;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.*;
+import org.apache.cassandra.exceptions.RequestExecutionException;
 import org.apache.cassandra.exceptions.RequestFailureReason;
 import org.apache.cassandra.exceptions.ReadFailureException;
 import org.apache.cassandra.exceptions.ReadTimeoutException;
@@ -68,6 +74,9 @@ public class ReadCallback implements IAsyncCallbackWithFailure<ReadResponse>
 
     private final ReadRepair readRepair;
 
+    // only set if someone asked for a non-blocking completion through awaitResultsAsync()
+    private volatile SettableFuture<Void> completion;
+
     /**
      * Constructor when response count has to be calculated and blocked for.
      */
@@ -116,10 +125,62 @@ public class ReadCallback implements IAsyncCallbackWithFailure<ReadResponse>
     public void awaitResults() throws ReadFailureException, ReadTimeoutException
     {
         boolean signaled = await(command.getTimeout(), TimeUnit.MILLISECONDS);
-        boolean failed = blockfor + failures > endpoints.size();
+        boolean failed = isFailed();
         if (signaled && !failed)
             return;
 
+        throw resultException(failed);
+    }
+
+    /**
+     * Non-blocking counterpart of {@link #awaitResults()}: the returned future completes once enough responses
+     * have been received, or fails with the exception {@link #awaitResults()} would have thrown. It is completed
+     * either by the thread delivering the response or failure that signals this callback, or by a task scheduled
+     * to fire on timeout.
+     */
+    public ListenableFuture<Void> awaitResultsAsync()
+    {
+        SettableFuture<Void> future = SettableFuture.create();
+        completion = future;
+
+        // we may have been signaled before the completion was set, in which case signal() might not have seen it
+        if (condition.isSignaled())
+        {
+            complete(future);
+            return future;
+        }
+
+        long timeout = TimeUnit.MILLISECONDS.toNanos(command.getTimeout()) - (System.nanoTime() - queryStartNanoTime);
+        ScheduledFuture<?> timeoutTask = ScheduledExecutors.scheduledFastTasks.schedule(() -> future.setException(resultException(false)),
+                                                                                       Math.max(0, timeout),
+                                                                                       TimeUnit.NANOSECONDS);
+        future.addListener(() -> timeoutTask.cancel(false), MoreExecutors.directExecutor());
+        return future;
+    }
+
+    private void signal()
+    {
+        condition.signalAll();
+        SettableFuture<Void> future = completion;
+        if (future != null)
+            complete(future);
+    }
+
+    private void complete(SettableFuture<Void> future)
+    {
+        if (isFailed())
+            future.setException(resultException(true));
+        else
+            future.set(null);
+    }
+
+    private boolean isFailed()
+    {
+        return blockfor + failures > endpoints.size();
+    }
+
+    private RequestExecutionException resultException(boolean failed)
+    {
         if (Tracing.isTracing())
         {
             String gotData = received > 0 ? (resolver.isDataPresent() ? " (including data)" : " (only digests)") : "";
@@ -132,9 +193,9 @@ public class ReadCallback implements IAsyncCallbackWithFailure<ReadResponse>
         }
 
         // Same as for writes, see AbstractWriteResponseHandler
-        throw failed
-            ? new ReadFailureException(consistencyLevel, received, blockfor, resolver.isDataPresent(), failureReasonByEndpoint)
-            : new ReadTimeoutException(consistencyLevel, received, blockfor, resolver.isDataPresent());
+        return failed
+             ? new ReadFailureException(consistencyLevel, received, blockfor, resolver.isDataPresent(), failureReasonByEndpoint)
+             : new ReadTimeoutException(consistencyLevel, received, blockfor, resolver.isDataPresent());
     }
 
     public int blockFor()
@@ -150,7 +211,7 @@ public class ReadCallback implements IAsyncCallbackWithFailure<ReadResponse>
               : received;
         if (n >= blockfor && resolver.isDataPresent())
         {
-            condition.signalAll();
+            signal();
             // kick off a background digest comparison if this is a result that (may have) arrived after
             // the original resolve that get() kicks off as soon as the condition is signaled
             if (blockfor < endpoints.size() && n == endpoints.size())
@@ -208,6 +269,6 @@ public class ReadCallback implements IAsyncCallbackWithFailure<ReadResponse>
         failureReasonByEndpoint.put(from, failureReason);
 
         if (blockfor + n > endpoints.size())
-            condition.signalAll();
+            signal();
     }
 }
@@ -32,6 +32,7 @@ import javax.annotation.Nullable;
 import com.google.common.util.concurrent.AbstractFuture;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -253,6 +254,24 @@ public class BlockingReadRepair implements ReadRepair, RepairListener
         }
     }
 
+    /**
+     * The full data responses are resolved on the READ_REPAIR stage, since consuming the resolved result blocks
+     * until the replicas have acknowledged the repair mutations it generates.
+     */
+    public ListenableFuture<Void> awaitForegroundRepairFinishAsync()
+    {
+        DigestRepair repair = digestRepair;
+        if (repair == null)
+            return Futures.immediateFuture(null);
+
+        return Futures.transform(repair.readCallback.awaitResultsAsync(),
+                                 ignored -> {
+                                     repair.resultConsumer.accept(repair.dataResolver.resolve());
+                                     return null;
+                                 },
+                                 StageManager.getStage(Stage.READ_REPAIR));
+    }
+
     public void maybeStartBackgroundRepair(ResponseResolver resolver)
     {
         TraceState traceState = Tracing.instance.get();
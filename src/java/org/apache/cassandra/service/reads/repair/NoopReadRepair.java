@@ -21,6 +21,9 @@ package org.apache.cassandra.service.reads.repair;
 import java.util.List;
 import java.util.function.Consumer;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
 import org.apache.cassandra.db.partitions.PartitionIterator;
 import org.apache.cassandra.db.partitions.UnfilteredPartitionIterators;
 import org.apache.cassandra.exceptions.ReadTimeoutException;
@@ -50,6 +53,11 @@ public class NoopReadRepair implements ReadRepair
 
     }
 
+    public ListenableFuture<Void> awaitForegroundRepairFinishAsync()
+    {
+        return Futures.immediateFuture(null);
+    }
+
     public void maybeStartBackgroundRepair(ResponseResolver resolver)
     {
 
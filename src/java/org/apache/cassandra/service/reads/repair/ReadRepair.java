@@ -21,6 +21,8 @@ package org.apache.cassandra.service.reads.repair;
 import java.util.List;
 import java.util.function.Consumer;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 import org.apache.cassandra.db.ConsistencyLevel;
 import org.apache.cassandra.db.ReadCommand;
 import org.apache.cassandra.db.partitions.PartitionIterator;
@@ -54,6 +56,13 @@ public interface ReadRepair
      */
     public void awaitForegroundRepairFinish() throws ReadTimeoutException;
 
+    /**
+     * Non-blocking counterpart of {@link ReadRepair#awaitForegroundRepairFinish}: the returned future completes
+     * once the result has been handed to the consumer given to {@link ReadRepair#startForegroundRepair}, or
+     * fails with a {@link ReadTimeoutException}.
+     */
+    public ListenableFuture<Void> awaitForegroundRepairFinishAsync();
+
     /**
      * Called when responses from all replicas have been received. Read will not block on this.
      * @param resolver
@@ -36,7 +36,9 @@ import java.util.UUID;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.util.CharsetUtil;
 import io.netty.util.concurrent.FastThreadLocal;
@@ -60,6 +62,12 @@ public abstract class CBUtil
     public static final ByteBufAllocator allocator = USE_HEAP_ALLOCATOR ? new UnpooledByteBufAllocator(false) : new PooledByteBufAllocator(true);
     private static final int UUID_SIZE = 16;
 
+    /**
+     * Values at least that large are referenced from, rather than copied into, a buffer allocated by
+     * {@link #compositeBuffer(int)}. A non-positive size disables this.
+     */
+    public static final int MIN_WRAPPED_VALUE_SIZE = Integer.getInteger(Config.PROPERTY_PREFIX + "native_transport_min_wrapped_value_size", 64 * 1024);
+
     private final static FastThreadLocal<CharsetDecoder> TL_UTF8_DECODER = new FastThreadLocal<CharsetDecoder>()
     {
         @Override
@@ -443,10 +451,64 @@ public abstract class CBUtil
         int remaining = bytes.remaining();
         cb.writeInt(remaining);
 
-        if (remaining > 0)
+        if (cb instanceof CompositeByteBuf && isWrappedValue(bytes))
+            addWrappedValue(bytes, (CompositeByteBuf) cb);
+        else if (remaining > 0)
             cb.writeBytes(bytes.duplicate());
     }
 
+    /**
+     * @return whether {@link #writeValue(ByteBuffer, ByteBuf)} references the value from a buffer allocated by
+     * {@link #compositeBuffer(int)} rather than copying it
+     */
+    public static boolean isWrappedValue(ByteBuffer bytes)
+    {
+        return MIN_WRAPPED_VALUE_SIZE > 0 && bytes != null && bytes.remaining() >= MIN_WRAPPED_VALUE_SIZE;
+    }
+
+    /**
+     * Allocates a buffer that can be written {@code capacity} bytes, not counting the values written to it by
+     * {@link #writeValue(ByteBuffer, ByteBuf)} that are accepted by {@link #isWrappedValue(ByteBuffer)}: those are
+     * added to it as components wrapping them, so that they are never copied.
+     */
+    public static CompositeByteBuf compositeBuffer(int capacity)
+    {
+        ByteBuf buffer = allocator.buffer(capacity, capacity);
+        buffer.writerIndex(capacity);
+        CompositeByteBuf composite = allocator.compositeBuffer(Integer.MAX_VALUE);
+        composite.addComponent(false, buffer);
+        return composite;
+    }
+
+    private static void addWrappedValue(ByteBuffer bytes, CompositeByteBuf cb)
+    {
+        ByteBuf value = Unpooled.wrappedBuffer(bytes.duplicate());
+        int readerIndex = cb.readerIndex();
+        int writerIndex = cb.writerIndex();
+
+        if (writerIndex == cb.capacity())
+        {
+            cb.addComponent(true, value);
+            return;
+        }
+
+        // split the component the next bytes would have been written to around the value
+        int index = cb.toComponentIndex(writerIndex);
+        ByteBuf component = cb.internalComponent(index);
+        int written = writerIndex - cb.toByteIndex(index);
+        ByteBuf before = component.retainedSlice(component.readerIndex(), written);
+        ByteBuf after = component.retainedSlice(component.readerIndex() + written, component.readableBytes() - written);
+
+        cb.removeComponent(index);
+        if (before.isReadable())
+            cb.addComponent(false, index++, before);
+        else
+            before.release();
+        cb.addComponent(false, index++, value);
+        cb.addComponent(false, index, after);
+        cb.setIndex(readerIndex, writerIndex + value.readableBytes());
+    }
+
     public static int sizeOfValue(byte[] bytes)
     {
         return 4 + (bytes == null ? 0 : bytes.length);
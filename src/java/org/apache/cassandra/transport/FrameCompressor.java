@@ -18,6 +18,7 @@
 package org.apache.cassandra.transport;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import io.netty.buffer.ByteBuf;
 import org.xerial.snappy.Snappy;
@@ -132,33 +133,31 @@ public interface FrameCompressor
 
         private static final int INTEGER_BYTES = 4;
         private final net.jpountz.lz4.LZ4Compressor compressor;
-        private final net.jpountz.lz4.LZ4Decompressor decompressor;
+        private final net.jpountz.lz4.LZ4FastDecompressor decompressor;
 
         private LZ4Compressor()
         {
             final LZ4Factory lz4Factory = LZ4Factory.fastestInstance();
             compressor = lz4Factory.fastCompressor();
-            decompressor = lz4Factory.decompressor();
+            decompressor = lz4Factory.fastDecompressor();
         }
 
         public Frame compress(Frame frame) throws IOException
         {
-            byte[] input = CBUtil.readRawBytes(frame.body);
-
-            int maxCompressedLength = compressor.maxCompressedLength(input.length);
-            ByteBuf outputBuf = CBUtil.allocator.heapBuffer(INTEGER_BYTES + maxCompressedLength);
-
-            byte[] output = outputBuf.array();
-            int outputOffset = outputBuf.arrayOffset();
+            ByteBuf input = frame.body;
+            int inputLength = input.readableBytes();
 
-            output[outputOffset + 0] = (byte) (input.length >>> 24);
-            output[outputOffset + 1] = (byte) (input.length >>> 16);
-            output[outputOffset + 2] = (byte) (input.length >>>  8);
-            output[outputOffset + 3] = (byte) (input.length);
+            int maxCompressedLength = compressor.maxCompressedLength(inputLength);
+            ByteBuf outputBuf = CBUtil.allocator.buffer(INTEGER_BYTES + maxCompressedLength);
 
             try
             {
-                int written = compressor.compress(input, 0, input.length, output, outputOffset + INTEGER_BYTES, maxCompressedLength);
+                outputBuf.writeInt(inputLength);
+
+                // compress straight from and to the (pooled) frame buffers, rather than through heap arrays
+                ByteBuffer in = input.nioBuffer(input.readerIndex(), inputLength);
+                ByteBuffer out = outputBuf.nioBuffer(INTEGER_BYTES, maxCompressedLength);
+                int written = compressor.compress(in, in.position(), inputLength, out, out.position(), maxCompressedLength);
                 outputBuf.writerIndex(INTEGER_BYTES + written);
 
                 return frame.with(outputBuf);
@@ -177,19 +176,29 @@ public interface FrameCompressor
 
         public Frame decompress(Frame frame) throws IOException
         {
-            byte[] input = CBUtil.readRawBytes(frame.body);
+            ByteBuf input = frame.body;
+            int inputLength = input.readableBytes();
+            if (inputLength < INTEGER_BYTES)
+            {
+                frame.release();
+                throw new ProtocolException("Provided frame does not appear to be LZ4 compressed");
+            }
 
-            int uncompressedLength = ((input[0] & 0xFF) << 24)
-                                   | ((input[1] & 0xFF) << 16)
-                                   | ((input[2] & 0xFF) <<  8)
-                                   | ((input[3] & 0xFF));
+            int uncompressedLength = input.getInt(input.readerIndex());
+            if (uncompressedLength < 0)
+            {
+                frame.release();
+                throw new ProtocolException("Invalid uncompressed length in LZ4 compressed frame: " + uncompressedLength);
+            }
 
-            ByteBuf output = CBUtil.allocator.heapBuffer(uncompressedLength);
+            ByteBuf output = CBUtil.allocator.buffer(uncompressedLength);
 
             try
             {
-                int read = decompressor.decompress(input, INTEGER_BYTES, output.array(), output.arrayOffset(), uncompressedLength);
-                if (read != input.length - INTEGER_BYTES)
+                ByteBuffer in = input.nioBuffer(input.readerIndex() + INTEGER_BYTES, inputLength - INTEGER_BYTES);
+                ByteBuffer out = output.nioBuffer(0, uncompressedLength);
+                int read = decompressor.decompress(in, in.position(), out, out.position(), uncompressedLength);
+                if (read != inputLength - INTEGER_BYTES)
                     throw new IOException("Compressed lengths mismatch");
 
                 output.writerIndex(uncompressedLength);
@@ -29,6 +29,7 @@ import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -39,6 +40,9 @@ import io.netty.handler.codec.MessageToMessageEncoder;
 
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -212,6 +216,25 @@ public abstract class Message
 
         public abstract Response execute(QueryState queryState, long queryStartNanoTime);
 
+        /**
+         * Executes this request without blocking the calling thread on replica responses, if the request supports
+         * it (see {@code native_transport_async_execution}), in which case the returned future is completed by
+         * whichever thread receives the last required response. By default the request is executed synchronously.
+         */
+        public ListenableFuture<Response> executeAsync(QueryState queryState, long queryStartNanoTime)
+        {
+            return Futures.immediateFuture(execute(queryState, queryStartNanoTime));
+        }
+
+        /**
+         * Whether this request is cheap enough, and guaranteed not to block, so that it can be executed
+         * directly on the Netty event loop when {@code native_transport_execute_inline} is enabled.
+         */
+        public boolean isExecutableInline(ServerConnection connection)
+        {
+            return false;
+        }
+
         public void setTracingRequested()
         {
             this.tracingRequested = true;
@@ -346,7 +369,13 @@ public abstract class Message
                             throw new ProtocolException("Must not send frame with CUSTOM_PAYLOAD flag for native protocol version < 4");
                         messageSize += CBUtil.sizeOfBytesMap(customPayload);
                     }
-                    body = CBUtil.allocator.buffer(messageSize);
+                    // large values of a result set are referenced from the body rather than copied into it
+                    int wrappedSize = message instanceof ResultMessage.Rows
+                                    ? ((ResultMessage.Rows) message).result.wrappedValuesSize()
+                                    : 0;
+                    body = wrappedSize > 0
+                         ? CBUtil.compositeBuffer(messageSize - wrappedSize)
+                         : CBUtil.allocator.buffer(messageSize);
                     if (tracingId != null)
                     {
                         CBUtil.writeUUID(tracingId, body);
@@ -491,17 +520,36 @@ public abstract class Message
 
         private static final ConcurrentMap<EventLoop, Flusher> flusherLookup = new ConcurrentHashMap<>();
 
+        private final boolean inline;
+
         public Dispatcher()
+        {
+            this(false);
+        }
+
+        /**
+         * @param inline if true, this dispatcher runs on the event loop and only executes requests that are
+         *               {@link Request#isExecutableInline executable inline}, passing every other request on to
+         *               the next dispatcher in the pipeline.
+         */
+        public Dispatcher(boolean inline)
         {
             super(false);
+            this.inline = inline;
         }
 
         @Override
         public void channelRead0(ChannelHandlerContext ctx, Request request)
         {
+            if (inline && !request.isExecutableInline((ServerConnection) request.connection()))
+            {
+                ctx.fireChannelRead(request);
+                return;
+            }
 
-            final Response response;
+            final ListenableFuture<Response> response;
             final ServerConnection connection;
+            final List<String> warnings;
             long queryStartNanoTime = System.nanoTime();
 
             try
@@ -515,17 +563,12 @@ public abstract class Message
 
                 logger.trace("Received: {}, v={}", request, connection.getVersion());
                 connection.requests.inc();
-                response = request.execute(qstate, queryStartNanoTime);
-                response.setStreamId(request.getStreamId());
-                response.setWarnings(ClientWarn.instance.getWarnings());
-                response.attach(connection);
-                connection.applyStateTransition(request.type, response.type);
+                response = request.executeAsync(qstate, queryStartNanoTime);
+                warnings = ClientWarn.instance.getWarnings();
             }
             catch (Throwable t)
             {
-                JVMStabilityInspector.inspectThrowable(t);
-                UnexpectedChannelExceptionHandler handler = new UnexpectedChannelExceptionHandler(ctx.channel(), true);
-                flush(new FlushItem(ctx, ErrorMessage.fromException(t, handler).setStreamId(request.getStreamId()), request.getSourceFrame()));
+                respondWithError(ctx, request, t);
                 return;
             }
             finally
@@ -533,10 +576,40 @@ public abstract class Message
                 ClientWarn.instance.resetWarnings();
             }
 
+            if (response.isDone())
+                respond(ctx, request, connection, response, warnings);
+            else
+                response.addListener(() -> respond(ctx, request, connection, response, warnings), MoreExecutors.directExecutor());
+        }
+
+        private void respond(ChannelHandlerContext ctx, Request request, ServerConnection connection, ListenableFuture<Response> future, List<String> warnings)
+        {
+            final Response response;
+            try
+            {
+                response = Futures.getDone(future);
+                response.setStreamId(request.getStreamId());
+                response.setWarnings(warnings);
+                response.attach(connection);
+                connection.applyStateTransition(request.type, response.type);
+            }
+            catch (Throwable t)
+            {
+                respondWithError(ctx, request, t instanceof ExecutionException ? t.getCause() : t);
+                return;
+            }
+
             logger.trace("Responding: {}, v={}", response, connection.getVersion());
             flush(new FlushItem(ctx, response, request.getSourceFrame()));
         }
 
+        private void respondWithError(ChannelHandlerContext ctx, Request request, Throwable t)
+        {
+            JVMStabilityInspector.inspectThrowable(t);
+            UnexpectedChannelExceptionHandler handler = new UnexpectedChannelExceptionHandler(ctx.channel(), true);
+            flush(new FlushItem(ctx, ErrorMessage.fromException(t, handler).setStreamId(request.getStreamId()), request.getSourceFrame()));
+        }
+
         private void flush(FlushItem item)
         {
             EventLoop loop = item.ctx.channel().eventLoop();
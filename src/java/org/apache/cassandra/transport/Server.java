@@ -346,6 +346,7 @@ public class Server implements CassandraDaemon.Server
         private static final Frame.Encoder frameEncoder = new Frame.Encoder();
         private static final Message.ExceptionHandler exceptionHandler = new Message.ExceptionHandler();
         private static final Message.Dispatcher dispatcher = new Message.Dispatcher();
+        private static final Message.Dispatcher inlineDispatcher = new Message.Dispatcher(true);
         private static final ConnectionLimitHandler connectionLimitHandler = new ConnectionLimitHandler();
 
         private final Server server;
@@ -386,6 +387,11 @@ public class Server implements CassandraDaemon.Server
             // See https://issues.apache.org/jira/browse/CASSANDRA-13649
             pipeline.addLast("exceptionHandler", exceptionHandler);
 
+            // Answers the cheap, non-blocking requests straight from the EventLoop, saving the handoff
+            // to the request executor. Every other request is passed on to the "executor" dispatcher.
+            if (DatabaseDescriptor.getNativeTransportExecuteInline())
+                pipeline.addLast("inlineExecutor", inlineDispatcher);
+
             if (server.eventExecutorGroup != null)
                 pipeline.addLast(server.eventExecutorGroup, "executor", dispatcher);
             else
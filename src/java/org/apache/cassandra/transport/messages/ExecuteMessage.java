@@ -20,12 +20,17 @@ package org.apache.cassandra.transport.messages;
 import java.util.UUID;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import io.netty.buffer.ByteBuf;
 
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.cql3.CQLStatement;
 import org.apache.cassandra.cql3.ColumnSpecification;
 import org.apache.cassandra.cql3.QueryHandler;
 import org.apache.cassandra.cql3.QueryOptions;
+import org.apache.cassandra.cql3.QueryProcessor;
 import org.apache.cassandra.cql3.ResultSet;
 import org.apache.cassandra.cql3.statements.BatchStatement;
 import org.apache.cassandra.cql3.statements.ModificationStatement;
@@ -35,6 +40,7 @@ import org.apache.cassandra.db.fullquerylog.FullQueryLogger;
 import org.apache.cassandra.exceptions.PreparedQueryNotFoundException;
 import org.apache.cassandra.service.ClientState;
 import org.apache.cassandra.service.QueryState;
+import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.tracing.Tracing;
 import org.apache.cassandra.transport.*;
 import org.apache.cassandra.utils.JVMStabilityInspector;
@@ -107,6 +113,17 @@ public class ExecuteMessage extends Message.Request
         this.resultMetadataId = resultMetadataId;
     }
 
+    /**
+     * An unknown statement id is answered with an UNPREPARED error straight away; any actual execution goes
+     * through the request executor.
+     */
+    @Override
+    public boolean isExecutableInline(ServerConnection connection)
+    {
+        QueryHandler handler = ClientState.getCQLQueryHandler();
+        return handler == QueryProcessor.instance && handler.getPrepared(statementId) == null;
+    }
+
     public Message.Response execute(QueryState state, long queryStartNanoTime)
     {
         try
@@ -175,35 +192,7 @@ public class ExecuteMessage extends Message.Request
                 FullQueryLogger.instance.logQuery(prepared.rawCQLStatement, options, fqlTime);
             }
 
-            if (response instanceof ResultMessage.Rows)
-            {
-                ResultMessage.Rows rows = (ResultMessage.Rows) response;
-
-                ResultSet.ResultMetadata resultMetadata = rows.result.metadata;
-
-                if (options.getProtocolVersion().isGreaterOrEqualTo(ProtocolVersion.V5))
-                {
-                    // For LWTs, always send a resultset metadata but avoid setting a metadata changed flag. This way
-                    // Client will always receive fresh metadata, but will avoid caching and reusing it. See CASSANDRA-13992
-                    // for details.
-                    if (!statement.hasConditions())
-                    {
-                        // Starting with V5 we can rely on the result metadata id coming with execute message in order to
-                        // check if there was a change, comparing it with metadata that's about to be returned to client.
-                        if (!resultMetadata.getResultMetadataId().equals(resultMetadataId))
-                            resultMetadata.setMetadataChanged();
-                        else if (options.skipMetadata())
-                            resultMetadata.setSkipMetadata();
-                    }
-                }
-                else
-                {
-                    // Pre-V5 code has to rely on the difference between the metadata in the prepared message cache
-                    // and compare it with the metadata to be returned to client.
-                    if (options.skipMetadata() && prepared.resultMetadataId.equals(resultMetadata.getResultMetadataId()))
-                        resultMetadata.setSkipMetadata();
-                }
-            }
+            updateResultMetadata(prepared, response);
 
             if (tracingId != null)
                 response.setTracingId(tracingId);
@@ -221,6 +210,76 @@ public class ExecuteMessage extends Message.Request
         }
     }
 
+    @Override
+    public ListenableFuture<Message.Response> executeAsync(QueryState state, long queryStartNanoTime)
+    {
+        QueryHandler handler = ClientState.getCQLQueryHandler();
+        ParsedStatement.Prepared prepared = handler.getPrepared(statementId);
+
+        // Tracing and full query logging rely on thread locals, and custom query handlers only have a synchronous API
+        if (!DatabaseDescriptor.getNativeTransportAsyncExecution()
+            || prepared == null
+            || handler != QueryProcessor.instance
+            || isTracingRequested()
+            || StorageService.instance.getTraceProbability() != 0
+            || FullQueryLogger.instance.enabled())
+            return super.executeAsync(state, queryStartNanoTime);
+
+        try
+        {
+            options.prepare(prepared.boundNames);
+
+            if (options.getPageSize() == 0)
+                throw new ProtocolException("The page size cannot be 0");
+
+            QueryOptions queryOptions = QueryOptions.addColumnSpecifications(options, prepared.boundNames);
+            ListenableFuture<ResultMessage> result = QueryProcessor.instance.processPreparedAsync(prepared.statement, state, queryOptions, queryStartNanoTime);
+            ListenableFuture<Message.Response> response = Futures.transform(result,
+                                                                            r -> { updateResultMetadata(prepared, r); return r; },
+                                                                            MoreExecutors.directExecutor());
+            return Futures.catching(response, Throwable.class, ErrorMessage::fromException, MoreExecutors.directExecutor());
+        }
+        catch (Exception e)
+        {
+            JVMStabilityInspector.inspectThrowable(e);
+            return Futures.immediateFuture(ErrorMessage.fromException(e));
+        }
+    }
+
+    private void updateResultMetadata(ParsedStatement.Prepared prepared, Message.Response response)
+    {
+        CQLStatement statement = prepared.statement;
+        if (response instanceof ResultMessage.Rows)
+        {
+            ResultMessage.Rows rows = (ResultMessage.Rows) response;
+
+            ResultSet.ResultMetadata resultMetadata = rows.result.metadata;
+
+            if (options.getProtocolVersion().isGreaterOrEqualTo(ProtocolVersion.V5))
+            {
+                // For LWTs, always send a resultset metadata but avoid setting a metadata changed flag. This way
+                // Client will always receive fresh metadata, but will avoid caching and reusing it. See CASSANDRA-13992
+                // for details.
+                if (!statement.hasConditions())
+                {
+                    // Starting with V5 we can rely on the result metadata id coming with execute message in order to
+                    // check if there was a change, comparing it with metadata that's about to be returned to client.
+                    if (!resultMetadata.getResultMetadataId().equals(resultMetadataId))
+                        resultMetadata.setMetadataChanged();
+                    else if (options.skipMetadata())
+                        resultMetadata.setSkipMetadata();
+                }
+            }
+            else
+            {
+                // Pre-V5 code has to rely on the difference between the metadata in the prepared message cache
+                // and compare it with the metadata to be returned to client.
+                if (options.skipMetadata() && prepared.resultMetadataId.equals(resultMetadata.getResultMetadataId()))
+                    resultMetadata.setSkipMetadata();
+            }
+        }
+    }
+
     @Override
     public String toString()
     {
@@ -29,6 +29,7 @@ import org.apache.cassandra.service.QueryState;
 import org.apache.cassandra.transport.FrameCompressor;
 import org.apache.cassandra.transport.Message;
 import org.apache.cassandra.transport.ProtocolVersion;
+import org.apache.cassandra.transport.ServerConnection;
 
 /**
  * Message to indicate that the server is ready to receive requests.
@@ -57,6 +58,12 @@ public class OptionsMessage extends Message.Request
         super(Message.Type.OPTIONS);
     }
 
+    @Override
+    public boolean isExecutableInline(ServerConnection connection)
+    {
+        return true;
+    }
+
     public Message.Response execute(QueryState state, long queryStartNanoTime)
     {
         List<String> cqlVersions = new ArrayList<String>();
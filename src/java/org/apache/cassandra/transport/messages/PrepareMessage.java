@@ -22,6 +22,7 @@ import java.util.UUID;
 import com.google.common.collect.ImmutableMap;
 import io.netty.buffer.ByteBuf;
 
+import org.apache.cassandra.cql3.QueryProcessor;
 import org.apache.cassandra.service.ClientState;
 import org.apache.cassandra.service.QueryState;
 import org.apache.cassandra.tracing.Tracing;
@@ -91,6 +92,20 @@ public class PrepareMessage extends Message.Request
         this.keyspace = keyspace;
     }
 
+    /**
+     * Re-preparing a statement that is already in the prepared statements cache only requires a cache lookup,
+     * provided the default query handler is in use.
+     */
+    @Override
+    public boolean isExecutableInline(ServerConnection connection)
+    {
+        if (isTracingRequested() || ClientState.getCQLQueryHandler() != QueryProcessor.instance)
+            return false;
+
+        String rawKeyspace = keyspace == null ? connection.getClientState().getRawKeyspace() : keyspace;
+        return QueryProcessor.isPrepared(query, rawKeyspace);
+    }
+
     public Message.Response execute(QueryState state, long queryStartNanoTime)
     {
         try
@@ -62,6 +62,12 @@ public class RegisterMessage extends Message.Request
         this.eventTypes = eventTypes;
     }
 
+    @Override
+    public boolean isExecutableInline(ServerConnection connection)
+    {
+        return true;
+    }
+
     public Response execute(QueryState state, long queryStartNanoTime)
     {
         assert connection instanceof ServerConnection;
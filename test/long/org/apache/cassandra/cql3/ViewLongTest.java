@@ -135,7 +135,7 @@ public class ViewLongTest extends CQLTester
 
         for (int i = 0; i < writers * insertsPerWriter; i++)
         {
-            if (executeNet(protocolVersion, "SELECT COUNT(*) FROM system.batches").one().getLong(0) == 0)
+            if (BatchlogManager.instance.countAllBatches() == 0)
                 break;
             try
             {
@@ -0,0 +1,358 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.test.microbench;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.cassandra.cql3.functions.AggregateFcts;
+import org.apache.cassandra.cql3.functions.AggregateFunction;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.db.marshal.DoubleType;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.LongType;
+import org.apache.cassandra.transport.ProtocolVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the native aggregates, which decode their inputs straight from the buffers into primitive accumulators,
+ * with their previous implementations, which decoded each input through the type serializer into a boxed Number.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512M")
+@Threads(1)
+@State(Scope.Benchmark)
+public class AggregationBench
+{
+    @Param({ "int", "bigint", "double" })
+    private String type;
+
+    @Param({ "1024" })
+    private int rows;
+
+    private AggregateFunction sum;
+    private AggregateFunction avg;
+    private Supplier<AggregateFunction.Aggregate> previousSum;
+    private Supplier<AggregateFunction.Aggregate> previousAvg;
+    private List<List<ByteBuffer>> inputs;
+
+    @Setup
+    public void setup()
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Supplier<ByteBuffer> values;
+        switch (type)
+        {
+            case "int":
+                sum = AggregateFcts.sumFunctionForInt32;
+                avg = AggregateFcts.avgFunctionForInt32;
+                previousSum = PreviousInt32SumAggregate::new;
+                previousAvg = () -> new PreviousAvgAggregate(Int32Type.instance);
+                values = () -> Int32Type.instance.decompose(random.nextInt(1000));
+                break;
+            case "bigint":
+                sum = AggregateFcts.sumFunctionForLong;
+                avg = AggregateFcts.avgFunctionForLong;
+                previousSum = PreviousLongSumAggregate::new;
+                previousAvg = () -> new PreviousAvgAggregate(LongType.instance);
+                values = () -> LongType.instance.decompose(random.nextLong(1000));
+                break;
+            default:
+                sum = AggregateFcts.sumFunctionForDouble;
+                avg = AggregateFcts.avgFunctionForDouble;
+                previousSum = () -> new PreviousFloatSumAggregate(DoubleType.instance);
+                previousAvg = () -> new PreviousFloatAvgAggregate(DoubleType.instance);
+                values = () -> DoubleType.instance.decompose(random.nextDouble());
+        }
+
+        inputs = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++)
+            inputs.add(Collections.singletonList(values.get()));
+    }
+
+    @Benchmark
+    public ByteBuffer sumAndAvg()
+    {
+        return sumAndAvg(sum.newAggregate(), avg.newAggregate());
+    }
+
+    @Benchmark
+    public ByteBuffer sumAndAvgPrevious()
+    {
+        return sumAndAvg(previousSum.get(), previousAvg.get());
+    }
+
+    private ByteBuffer sumAndAvg(AggregateFunction.Aggregate sumAggregate, AggregateFunction.Aggregate avgAggregate)
+    {
+        for (List<ByteBuffer> input : inputs)
+        {
+            sumAggregate.addInput(ProtocolVersion.CURRENT, input);
+            avgAggregate.addInput(ProtocolVersion.CURRENT, input);
+        }
+        avgAggregate.compute(ProtocolVersion.CURRENT);
+        return sumAggregate.compute(ProtocolVersion.CURRENT);
+    }
+
+    // The aggregates below are those of AggregateFcts before they decoded their inputs straight from the buffers.
+
+    private static class PreviousInt32SumAggregate implements AggregateFunction.Aggregate
+    {
+        private int sum;
+
+        public void reset()
+        {
+            sum = 0;
+        }
+
+        public ByteBuffer compute(ProtocolVersion protocolVersion)
+        {
+            return Int32Type.instance.decompose(sum);
+        }
+
+        public void addInput(ProtocolVersion protocolVersion, List<ByteBuffer> values)
+        {
+            ByteBuffer value = values.get(0);
+
+            if (value == null)
+                return;
+
+            Number number = Int32Type.instance.compose(value);
+            sum += number.intValue();
+        }
+    }
+
+    private static class PreviousLongSumAggregate implements AggregateFunction.Aggregate
+    {
+        private long sum;
+
+        public void reset()
+        {
+            sum = 0;
+        }
+
+        public ByteBuffer compute(ProtocolVersion protocolVersion)
+        {
+            return LongType.instance.decompose(sum);
+        }
+
+        public void addInput(ProtocolVersion protocolVersion, List<ByteBuffer> values)
+        {
+            ByteBuffer value = values.get(0);
+
+            if (value == null)
+                return;
+
+            Number number = LongType.instance.compose(value);
+            sum += number.longValue();
+        }
+    }
+
+    private static class PreviousAvgAggregate implements AggregateFunction.Aggregate
+    {
+        private long sum;
+        private int count;
+        private BigInteger bigSum = null;
+        private boolean overflow = false;
+
+        private final AbstractType<?> numberType;
+
+        PreviousAvgAggregate(AbstractType<?> numberType)
+        {
+            this.numberType = numberType;
+        }
+
+        public void reset()
+        {
+            count = 0;
+            sum = 0L;
+            overflow = false;
+            bigSum = null;
+        }
+
+        public ByteBuffer compute(ProtocolVersion protocolVersion)
+        {
+            long avg = overflow ? bigSum.divide(BigInteger.valueOf(count)).longValue() : count == 0 ? 0 : (sum / count);
+            return numberType == Int32Type.instance ? Int32Type.instance.decompose((int) avg) : LongType.instance.decompose(avg);
+        }
+
+        public void addInput(ProtocolVersion protocolVersion, List<ByteBuffer> values)
+        {
+            ByteBuffer value = values.get(0);
+
+            if (value == null)
+                return;
+
+            count++;
+            long number = ((Number) numberType.compose(value)).longValue();
+            if (overflow)
+            {
+                bigSum = bigSum.add(BigInteger.valueOf(number));
+            }
+            else
+            {
+                long prev = sum;
+                sum += number;
+
+                if (((prev ^ sum) & (number ^ sum)) < 0)
+                {
+                    overflow = true;
+                    bigSum = BigInteger.valueOf(prev).add(BigInteger.valueOf(number));
+                }
+            }
+        }
+    }
+
+    private static class PreviousFloatSumAggregate implements AggregateFunction.Aggregate
+    {
+        private double sum;
+        private double compensation;
+        private double simpleSum;
+
+        private final AbstractType<?> numberType;
+
+        PreviousFloatSumAggregate(AbstractType<?> numberType)
+        {
+            this.numberType = numberType;
+        }
+
+        public void reset()
+        {
+            sum = 0;
+            compensation = 0;
+            simpleSum = 0;
+        }
+
+        public ByteBuffer compute(ProtocolVersion protocolVersion)
+        {
+            double tmp = sum + compensation;
+            return DoubleType.instance.decompose(Double.isNaN(tmp) && Double.isInfinite(simpleSum) ? simpleSum : tmp);
+        }
+
+        public void addInput(ProtocolVersion protocolVersion, List<ByteBuffer> values)
+        {
+            ByteBuffer value = values.get(0);
+
+            if (value == null)
+                return;
+
+            double number = ((Number) numberType.compose(value)).doubleValue();
+            simpleSum += number;
+            double tmp = number - compensation;
+            double rounded = sum + tmp;
+            compensation = (rounded - sum) - tmp;
+            sum = rounded;
+        }
+    }
+
+    private static class PreviousFloatAvgAggregate implements AggregateFunction.Aggregate
+    {
+        private double sum;
+        private double compensation;
+        private double simpleSum;
+
+        private int count;
+
+        private BigDecimal bigSum = null;
+        private boolean overflow = false;
+
+        private final AbstractType<?> numberType;
+
+        PreviousFloatAvgAggregate(AbstractType<?> numberType)
+        {
+            this.numberType = numberType;
+        }
+
+        public void reset()
+        {
+            sum = 0;
+            compensation = 0;
+            simpleSum = 0;
+
+            count = 0;
+            bigSum = null;
+            overflow = false;
+        }
+
+        public ByteBuffer compute(ProtocolVersion protocolVersion)
+        {
+            if (count == 0)
+                return DoubleType.instance.decompose(0d);
+
+            if (overflow)
+                return DoubleType.instance.decompose(bigSum.divide(BigDecimal.valueOf(count), RoundingMode.HALF_EVEN).doubleValue());
+
+            double tmp = sum + compensation;
+            return DoubleType.instance.decompose((Double.isNaN(tmp) && Double.isInfinite(simpleSum) ? simpleSum : tmp) / count);
+        }
+
+        public void addInput(ProtocolVersion protocolVersion, List<ByteBuffer> values)
+        {
+            ByteBuffer value = values.get(0);
+
+            if (value == null)
+                return;
+
+            count++;
+
+            double number = ((Number) numberType.compose(value)).doubleValue();
+
+            if (overflow)
+            {
+                bigSum = bigSum.add(BigDecimal.valueOf(number));
+            }
+            else
+            {
+                simpleSum += number;
+                double prev = sum;
+                double tmp = number - compensation;
+                double rounded = sum + tmp;
+                compensation = (rounded - sum) - tmp;
+                sum = rounded;
+
+                if (Double.isInfinite(sum) && !Double.isInfinite(number))
+                {
+                    overflow = true;
+                    bigSum = BigDecimal.valueOf(prev).add(BigDecimal.valueOf(number));
+                }
+            }
+        }
+    }
+}
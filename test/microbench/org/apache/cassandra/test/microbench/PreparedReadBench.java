@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.test.microbench;
+
+
+import java.io.IOException;
+import java.util.concurrent.*;
+
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.Keyspace;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Executes prepared point reads, to measure the work and the allocations of a read that only depend on the
+ * statement. Run with {@code -prof gc} to get the bytes allocated per read ({@code gc.alloc.rate.norm}).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class PreparedReadBench extends CQLTester
+{
+    private static final long ROWS = 10000;
+
+    static String keyspace;
+    String keyValueRead;
+    String partitionRead;
+    String rowRead;
+    long key = 0;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable
+    {
+        CQLTester.setUpClass();
+        keyspace = createKeyspace("CREATE KEYSPACE %s with replication = { 'class' : 'SimpleStrategy', 'replication_factor' : 1 } and durable_writes = false");
+        String keyValueTable = createTable(keyspace, "CREATE TABLE %s (k bigint PRIMARY KEY, v bigint)");
+        String wideTable = createTable(keyspace, "CREATE TABLE %s (k bigint, c bigint, v bigint, PRIMARY KEY (k, c))");
+        execute("use " + keyspace + ";");
+
+        keyValueRead = "SELECT v FROM " + keyValueTable + " WHERE k = ?";
+        partitionRead = "SELECT c, v FROM " + wideTable + " WHERE k = ?";
+        rowRead = "SELECT v FROM " + wideTable + " WHERE k = ? AND c = ?";
+
+        for (long i = 0; i < ROWS; i++)
+        {
+            execute("INSERT INTO " + keyValueTable + " (k, v) VALUES (?, ?)", i, i);
+            execute("INSERT INTO " + wideTable + " (k, c, v) VALUES (?, ?, ?)", i, i, i);
+        }
+
+        for (String table : new String[]{ keyValueTable, wideTable })
+        {
+            ColumnFamilyStore cfs = Keyspace.open(keyspace).getColumnFamilyStore(table);
+            cfs.disableAutoCompaction();
+            cfs.forceBlockingFlush();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws IOException, ExecutionException, InterruptedException
+    {
+        CQLTester.cleanup();
+    }
+
+    private long nextKey()
+    {
+        key = (key + 1) % ROWS;
+        return key;
+    }
+
+    @Benchmark
+    public Object readKeyValue() throws Throwable
+    {
+        return execute(keyValueRead, nextKey());
+    }
+
+    @Benchmark
+    public Object readPartition() throws Throwable
+    {
+        return execute(partitionRead, nextKey());
+    }
+
+    @Benchmark
+    public Object readRow() throws Throwable
+    {
+        long k = nextKey();
+        return execute(rowRead, k, k);
+    }
+}
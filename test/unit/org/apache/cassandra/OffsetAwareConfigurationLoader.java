@@ -87,6 +87,7 @@ public class OffsetAwareConfigurationLoader extends YamlConfigurationLoader
         config.commitlog_directory += sep + offset;
         config.saved_caches_directory += sep + offset;
         config.hints_directory += sep + offset;
+        config.batchlog_directory += sep + offset;
 
         config.cdc_raw_directory += sep + offset;
 
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 
+import com.codahale.metrics.Meter;
 import com.google.common.collect.Lists;
 
 import org.junit.*;
@@ -32,7 +33,6 @@ import org.apache.cassandra.locator.InetAddressAndPort;
 import org.apache.cassandra.schema.TableMetadata;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.schema.Schema;
-import org.apache.cassandra.schema.SchemaConstants;
 import org.apache.cassandra.cql3.UntypedResultSet;
 import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.DecoratedKey;
@@ -97,7 +97,7 @@ public class BatchlogManagerTest
         InetAddressAndPort localhost = InetAddressAndPort.getByName("127.0.0.1");
         metadata.updateNormalToken(Util.token("A"), localhost);
         metadata.updateHostId(UUIDGen.getTimeUUID(), localhost);
-        Keyspace.open(SchemaConstants.SYSTEM_KEYSPACE_NAME).getColumnFamilyStore(SystemKeyspace.BATCHES).truncateBlocking();
+        BatchlogManager.instance.truncate();
     }
 
     @Test
@@ -154,9 +154,6 @@ public class BatchlogManagerTest
             BatchlogManager.store(Batch.createLocal(UUIDGen.getTimeUUID(timestamp, i), timestamp * 1000, mutations));
         }
 
-        // Flush the batchlog to disk (see CASSANDRA-6822).
-        Keyspace.open(SchemaConstants.SYSTEM_KEYSPACE_NAME).getColumnFamilyStore(SystemKeyspace.BATCHES).forceBlockingFlush();
-
         assertEquals(100, BatchlogManager.instance.countAllBatches() - initialAllBatches);
         assertEquals(0, BatchlogManager.instance.getTotalBatchesReplayed() - initialReplayedBatches);
 
@@ -221,8 +218,9 @@ public class BatchlogManagerTest
 
             List<Mutation> mutations = Lists.newArrayList(mutation1, mutation2);
 
-            // Make sure it's ready to be replayed, so adjust the timestamp.
-            long timestamp = System.currentTimeMillis() - BatchlogManager.getBatchlogTimeout();
+            // Make sure it's ready to be replayed, so adjust the timestamp (leaving room for the increment below,
+            // as the replay may start within the same millisecond as the last store).
+            long timestamp = System.currentTimeMillis() - BatchlogManager.getBatchlogTimeout() - 1;
 
             if (i == 500)
                 SystemKeyspace.saveTruncationRecord(Keyspace.open(KEYSPACE1).getColumnFamilyStore(CF_STANDARD2),
@@ -238,9 +236,6 @@ public class BatchlogManagerTest
             BatchlogManager.store(Batch.createLocal(UUIDGen.getTimeUUID(timestamp, i), FBUtilities.timestampMicros(), mutations));
         }
 
-        // Flush the batchlog to disk (see CASSANDRA-6822).
-        Keyspace.open(SchemaConstants.SYSTEM_KEYSPACE_NAME).getColumnFamilyStore(SystemKeyspace.BATCHES).forceBlockingFlush();
-
         // Force batchlog replay and wait for it to complete.
         BatchlogManager.instance.startBatchlogReplay().get();
 
@@ -293,14 +288,7 @@ public class BatchlogManagerTest
 
         BatchlogManager.store(Batch.createLocal(uuid, timestamp, mutations));
         Assert.assertEquals(initialAllBatches + 1, BatchlogManager.instance.countAllBatches());
-
-        String query = String.format("SELECT count(*) FROM %s.%s where id = %s",
-                                     SchemaConstants.SYSTEM_KEYSPACE_NAME,
-                                     SystemKeyspace.BATCHES,
-                                     uuid);
-        UntypedResultSet result = executeInternal(query);
-        assertNotNull(result);
-        assertEquals(1L, result.one().getLong("count"));
+        assertTrue(BatchlogManager.instance.contains(uuid));
     }
 
     @Test
@@ -330,14 +318,34 @@ public class BatchlogManagerTest
         BatchlogManager.remove(uuid);
 
         assertEquals(initialAllBatches, BatchlogManager.instance.countAllBatches());
+        assertFalse(BatchlogManager.instance.contains(uuid));
+    }
 
-        String query = String.format("SELECT count(*) FROM %s.%s where id = %s",
-                                     SchemaConstants.SYSTEM_KEYSPACE_NAME,
-                                     SystemKeyspace.BATCHES,
-                                     uuid);
-        UntypedResultSet result = executeInternal(query);
-        assertNotNull(result);
-        assertEquals(0L, result.one().getLong("count"));
+    @Test
+    public void testEndpointPermits() throws Exception
+    {
+        Meter throttled = new Meter();
+        BatchlogManager.EndpointPermits permits = new BatchlogManager.EndpointPermits(2, throttled);
+        InetAddressAndPort first = InetAddressAndPort.getByName("127.0.0.2");
+        InetAddressAndPort second = InetAddressAndPort.getByName("127.0.0.3");
+
+        assertTrue(permits.tryAcquire(first));
+        assertTrue(permits.tryAcquire(first));
+        assertEquals(0, throttled.getCount());
+
+        // the cap is per endpoint
+        assertFalse(permits.tryAcquire(first));
+        assertEquals(1, throttled.getCount());
+        assertTrue(permits.tryAcquire(second));
+        assertEquals(3, permits.inFlight());
+
+        permits.release(first);
+        assertTrue(permits.tryAcquire(first));
+
+        permits.release(first);
+        permits.release(first);
+        permits.release(second);
+        assertEquals(0, permits.inFlight());
     }
 
     // CASSANRDA-9223
@@ -366,9 +374,6 @@ public class BatchlogManagerTest
         BatchlogManager.store(Batch.createLocal(uuid, timestamp, mutations));
         assertEquals(1, BatchlogManager.instance.countAllBatches() - initialAllBatches);
 
-        // Flush the batchlog to disk (see CASSANDRA-6822).
-        Keyspace.open(SchemaConstants.SYSTEM_KEYSPACE_NAME).getColumnFamilyStore(SystemKeyspace.BATCHES).forceBlockingFlush();
-
         assertEquals(1, BatchlogManager.instance.countAllBatches() - initialAllBatches);
         assertEquals(0, BatchlogManager.instance.getTotalBatchesReplayed() - initialReplayedBatches);
 
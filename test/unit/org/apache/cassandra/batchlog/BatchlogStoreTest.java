@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.batchlog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.utils.UUIDGen;
+
+import static org.apache.cassandra.utils.ByteBufferUtil.bytes;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BatchlogStoreTest
+{
+    @BeforeClass
+    public static void setup()
+    {
+        DatabaseDescriptor.daemonInitialization();
+    }
+
+    @Test
+    public void testWriteAndReload() throws IOException
+    {
+        File directory = Files.createTempDirectory("batchlog").toFile();
+        try
+        {
+            List<UUID> ids = new ArrayList<>();
+            BatchlogStore store = BatchlogStore.open(directory);
+            for (int i = 0; i < 10; i++)
+            {
+                UUID id = UUIDGen.getTimeUUID();
+                ids.add(id);
+                store.write(id, MessagingService.current_version, mutations(i), true);
+            }
+            for (int i = 0; i < 10; i += 2)
+                store.remove(ids.get(i));
+            assertEquals(5, store.size());
+            store.close();
+
+            // only the batches that haven't been removed are loaded back
+            store = BatchlogStore.open(directory);
+            assertEquals(5, store.size());
+            List<BatchlogSegment> segments = store.pendingSegments();
+            assertEquals(1, segments.size());
+            for (int i = 0; i < 10; i++)
+            {
+                assertEquals(i % 2 == 1, store.contains(ids.get(i)));
+                BatchlogStore.StoredBatch batch = store.read(segments.get(0), ids.get(i));
+                if (i % 2 == 0)
+                {
+                    assertNull(batch);
+                    continue;
+                }
+                assertEquals(ids.get(i), batch.id);
+                assertEquals(MessagingService.current_version, batch.version);
+                assertEquals(mutations(i), batch.mutations);
+            }
+            store.close();
+        }
+        finally
+        {
+            FileUtils.deleteRecursive(directory);
+        }
+    }
+
+    @Test
+    public void testSegmentDeletion() throws IOException
+    {
+        File directory = Files.createTempDirectory("batchlog").toFile();
+        try
+        {
+            BatchlogStore store = BatchlogStore.open(directory);
+            UUID id = UUIDGen.getTimeUUID();
+            store.write(id, MessagingService.current_version, mutations(1), true);
+            store.maybeRollIdleSegment();
+            assertEquals(1, segmentFiles(directory).length);
+
+            // once its last batch is removed, a segment that isn't active anymore is deleted
+            store.remove(id);
+            store.maybeRollIdleSegment();
+            assertEquals(1, segmentFiles(directory).length);
+            assertTrue(store.pendingSegments().isEmpty());
+            store.close();
+
+            // the empty active segment is deleted on close
+            assertEquals(0, segmentFiles(directory).length);
+        }
+        finally
+        {
+            FileUtils.deleteRecursive(directory);
+        }
+    }
+
+    @Test
+    public void testTornWrite() throws IOException
+    {
+        File directory = Files.createTempDirectory("batchlog").toFile();
+        try
+        {
+            BatchlogStore store = BatchlogStore.open(directory);
+            UUID first = UUIDGen.getTimeUUID();
+            UUID second = UUIDGen.getTimeUUID();
+            store.write(first, MessagingService.current_version, mutations(1), true);
+            store.write(second, MessagingService.current_version, mutations(2), true);
+            store.close();
+
+            // truncate the last record, as would a crash in the middle of a write
+            File segment = segmentFiles(directory)[0];
+            try (RandomAccessFile file = new RandomAccessFile(segment, "rw"))
+            {
+                file.setLength(file.length() - 3);
+            }
+
+            store = BatchlogStore.open(directory);
+            assertTrue(store.contains(first));
+            assertFalse(store.contains(second));
+            store.close();
+        }
+        finally
+        {
+            FileUtils.deleteRecursive(directory);
+        }
+    }
+
+    private static File[] segmentFiles(File directory)
+    {
+        return directory.listFiles((dir, name) -> BatchlogSegment.isSegmentFileName(name));
+    }
+
+    private static List<ByteBuffer> mutations(int i)
+    {
+        List<ByteBuffer> mutations = new ArrayList<>();
+        for (int j = 0; j <= i; j++)
+            mutations.add(bytes("mutation " + i + ' ' + j));
+        return mutations;
+    }
+}
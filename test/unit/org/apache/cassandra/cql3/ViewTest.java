@@ -148,6 +148,39 @@ public class ViewTest extends CQLTester
                                 row(1, 2, 0, 2, 0));
     }
 
+    @Test
+    public void testMirroringViewSkipsReadBeforeWrite() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k1 int, c1 int, c2 int, v1 int, v2 int, PRIMARY KEY (k1, c1, c2))");
+
+        execute("USE " + keyspace());
+        executeNet(protocolVersion, "USE " + keyspace());
+
+        createView("view1",
+                   "CREATE MATERIALIZED VIEW view1 AS SELECT * FROM %%s WHERE k1 IS NOT NULL AND c1 IS NOT NULL AND c2 IS NOT NULL PRIMARY KEY (k1, c2, c1)");
+
+        // the memtable that existed when the view was created may hold deletions the view hasn't seen
+        ColumnFamilyStore cfs = Keyspace.open(keyspace()).getColumnFamilyStore(currentTable());
+        cfs.forceBlockingFlush();
+        long reads = cfs.metric.viewReadTime.cf.getCount();
+
+        updateView("INSERT INTO %s (k1, c1, c2, v1, v2) VALUES (1, 0, 0, 0, 0) USING TIMESTAMP 10");
+        updateView("UPDATE %s USING TIMESTAMP 11 SET v1 = 1 WHERE k1 = 1 AND c1 = 0 AND c2 = 0");
+        assertEquals(reads, cfs.metric.viewReadTime.cf.getCount());
+
+        // once there is a deletion, older updates must read the existing row to not be shadowed in the base only
+        updateView("DELETE FROM %s USING TIMESTAMP 20 WHERE k1 = 1");
+        updateView("INSERT INTO %s (k1, c1, c2, v1, v2) VALUES (1, 1, 1, 1, 1) USING TIMESTAMP 15");
+        assertTrue(cfs.metric.viewReadTime.cf.getCount() > reads);
+
+        updateView("INSERT INTO %s (k1, c1, c2, v1, v2) VALUES (1, 2, 2, 2, 2) USING TIMESTAMP 25");
+
+        assertRowsIgnoringOrder(execute("select * from %s"),
+                                row(1, 2, 2, 2, 2));
+        assertRowsIgnoringOrder(execute("select k1,c1,c2,v1,v2 from view1"),
+                                row(1, 2, 2, 2, 2));
+    }
+
     @Test
     public void testPartitionTombstone() throws Throwable
     {
@@ -60,6 +60,7 @@ import org.apache.cassandra.transport.ProtocolVersion;
 import org.apache.cassandra.transport.messages.ResultMessage;
 
 import static ch.qos.logback.core.CoreConstants.RECONFIGURE_ON_CHANGE_TASK;
+import static org.apache.cassandra.utils.ByteBufferUtil.EMPTY_BYTE_BUFFER;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -170,6 +171,23 @@ public class AggregationTest extends CQLTester
         assertRows(execute("SELECT max(b), COUNT(1), b FROM %s WHERE a = 1 LIMIT 2"), row(5, 4L, 1));
     }
 
+    @Test
+    public void testNativeAggregatesIgnoreEmptyValues() throws Throwable
+    {
+        createTable("CREATE TABLE %s (a int, b int, c int, d bigint, e float, f double, primary key (a, b))");
+
+        execute("INSERT INTO %s (a, b, c, d, e, f) VALUES (1, 1, 1, 1, 1.5, 1.5)");
+        execute("INSERT INTO %s (a, b, c, d, e, f) VALUES (1, 2, ?, ?, ?, ?)",
+                EMPTY_BYTE_BUFFER, EMPTY_BYTE_BUFFER, EMPTY_BYTE_BUFFER, EMPTY_BYTE_BUFFER);
+        execute("INSERT INTO %s (a, b, c, d, e, f) VALUES (1, 3, 3, 3, 2.5, 2.5)");
+
+        // empty values are ignored, like nulls
+        assertRows(execute("SELECT sum(c), avg(c), sum(d), avg(d), sum(e), avg(e), sum(f), avg(f) FROM %s"),
+                   row(4, 2, 4L, 2L, 4.0f, 2.0f, 4.0, 2.0));
+        assertRows(execute("SELECT sum(c), avg(c), sum(d), avg(d), sum(e), avg(e), sum(f), avg(f) FROM %s WHERE a = 1 AND b = 2"),
+                   row(0, 0, 0L, 0L, 0.0f, 0.0f, 0.0, 0.0));
+    }
+
     @Test
     public void testAggregateWithColumns() throws Throwable
     {
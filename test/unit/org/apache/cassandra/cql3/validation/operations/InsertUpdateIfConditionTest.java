@@ -21,6 +21,8 @@ package org.apache.cassandra.cql3.validation.operations;
 import java.nio.ByteBuffer;
 import java.util.List;
 
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.SimpleStatement;
 import org.junit.Test;
 
 import org.apache.cassandra.schema.SchemaConstants;
@@ -29,6 +31,7 @@ import org.apache.cassandra.cql3.Duration;
 import org.apache.cassandra.exceptions.InvalidRequestException;
 import org.apache.cassandra.exceptions.SyntaxException;
 import org.apache.cassandra.schema.SchemaKeyspace;
+import org.apache.cassandra.transport.ProtocolVersion;
 
 import static java.lang.String.format;
 import static org.junit.Assert.assertEquals;
@@ -53,6 +56,24 @@ public class InsertUpdateIfConditionTest extends CQLTester
         }
     }
 
+    @Test
+    public void testSimpleCasThroughPaxos() throws Throwable
+    {
+        createTable("CREATE TABLE %s (tkn int, consumed boolean, PRIMARY KEY (tkn))");
+
+        for (int i = 0; i < 10; i++)
+        {
+            executeNet(ProtocolVersion.CURRENT, "INSERT INTO %s (tkn, consumed) VALUES (?, FALSE)", i);
+
+            assertRowsNet(executeNet(ProtocolVersion.CURRENT, "UPDATE %s SET consumed = TRUE WHERE tkn = ? IF consumed = ?", i, false), row(true));
+            assertRowsNet(executeNet(ProtocolVersion.CURRENT, "UPDATE %s SET consumed = TRUE WHERE tkn = ? IF consumed = ?", i, false), row(false, true));
+
+            SimpleStatement select = new SimpleStatement(formatQuery("SELECT consumed FROM %s WHERE tkn = ?"), i);
+            select.setConsistencyLevel(ConsistencyLevel.SERIAL);
+            assertRowsNet(sessionNet().execute(select), row(true));
+        }
+    }
+
     /**
      * Migrated from cql_tests.py:TestCQL.conditional_update_test()
      */
@@ -2132,4 +2132,56 @@ public class SelectGroupByTest extends CQLTester
                           row(1, 1, 4L, 3L));
         }
     }
+
+    @Test
+    public void testAggregationOnReplicasWithPaging() throws Throwable
+    {
+        createTable("CREATE TABLE %s (a int, b int, c int, s int static, d bigint, e text, primary key (a, b))");
+
+        execute("INSERT INTO %s (a, b, c, d, e) VALUES (1, 1, 3, 6, 'f')");
+        execute("INSERT INTO %s (a, b, c, d, e) VALUES (1, 2, 1, 12, 'b')");
+        execute("INSERT INTO %s (a, b, c, d) VALUES (1, 3, 2, -4)");
+        execute("INSERT INTO %s (a, b, c, e) VALUES (1, 4, 7, 'a')");
+        execute("INSERT INTO %s (a, b, c, d, e) VALUES (2, 1, 5, 3, 'z')");
+        execute("INSERT INTO %s (a, b, c, d, e) VALUES (2, 2, 4, 8, 'c')");
+        execute("INSERT INTO %s (a, b, c, d, e) VALUES (4, 1, 6, 1, 'd')");
+        execute("INSERT INTO %s (a, s) VALUES (5, 1)");
+        execute("INSERT INTO %s (a, b, c, d, e) VALUES (6, 1, 9, 100, 'y')");
+
+        // Makes sure that we have some tombstones
+        execute("DELETE FROM %s WHERE a = 4 AND b = 1");
+        execute("DELETE d FROM %s WHERE a = 2 AND b = 2");
+        execute("DELETE FROM %s WHERE a = 6");
+
+        for (int pageSize = 1; pageSize < 10; pageSize++)
+        {
+            // Range queries, the partition with only static content isn't counted as no static column is selected
+            assertRowsNet(executeNetWithPaging("SELECT count(*), count(d), sum(c), sum(d), min(c), max(d), min(e), max(e) FROM %s", pageSize),
+                          row(6L, 4L, 22, 17L, 1, 12L, "a", "z"));
+
+            assertRowsNet(executeNetWithPaging("SELECT count(*) AS total, max(c) FROM %s WHERE c > 2 ALLOW FILTERING", pageSize),
+                          row(4L, 7));
+
+            // Single partition queries
+            assertRowsNet(executeNetWithPaging("SELECT count(*), sum(d), min(e), max(e) FROM %s WHERE a = 1", pageSize),
+                          row(4L, 14L, "a", "f"));
+
+            assertRowsNet(executeNetWithPaging("SELECT count(*), sum(c), max(d) FROM %s WHERE a = 1 AND b > 1", pageSize),
+                          row(3L, 10, 12L));
+
+            assertRowsNet(executeNetWithPaging("SELECT count(*), count(d), min(d) FROM %s WHERE a IN (1, 2, 4, 5, 6)", pageSize),
+                          row(6L, 4L, -4L));
+
+            // The partition with only static content is not counted when rows are selected
+            assertRowsNet(executeNetWithPaging("SELECT count(*), sum(c) FROM %s WHERE a IN (1, 5) AND b < 3", pageSize),
+                          row(2L, 4));
+
+            // Queries not selecting any row
+            assertRowsNet(executeNetWithPaging("SELECT count(*), sum(c), min(e) FROM %s WHERE a = 4", pageSize),
+                          row(0L, 0, null));
+
+            assertRowsNet(executeNetWithPaging("SELECT count(*), sum(c), min(e) FROM %s WHERE a IN (4, 6)", pageSize),
+                          row(0L, 0, null));
+        }
+    }
 }
@@ -2376,6 +2376,53 @@ public class SelectTest extends CQLTester
         });
     }
 
+    @Test
+    public void testFilteringOnSignedAndReversedColumns() throws Throwable
+    {
+        createTable("CREATE TABLE %s (a int, b int, c bigint, d timestamp, e text, PRIMARY KEY (a, b)) WITH CLUSTERING ORDER BY (b DESC)");
+
+        execute("INSERT INTO %s (a, b, c, d, e) VALUES (1, 4, 7, 2000, 'c')");
+        execute("INSERT INTO %s (a, b, c, d, e) VALUES (1, 3, 10, -1000, 'a')");
+        execute("INSERT INTO %s (a, b, c, d, e) VALUES (1, -1, -20, 0, 'b')");
+        execute("INSERT INTO %s (a, b, c, d, e) VALUES (1, -2, -5, -5000, 'ab')");
+
+        beforeAndAfterFlush(() -> {
+            assertRows(executeFilteringOnly("SELECT b FROM %s WHERE a = 1 AND c < 0"),
+                       row(-1),
+                       row(-2));
+            assertRows(executeFilteringOnly("SELECT b FROM %s WHERE a = 1 AND c >= -5"),
+                       row(4),
+                       row(3),
+                       row(-2));
+            assertRows(executeFilteringOnly("SELECT b FROM %s WHERE a = 1 AND c = -20"),
+                       row(-1));
+            assertRows(executeFilteringOnly("SELECT b FROM %s WHERE a = 1 AND d <= 0"),
+                       row(3),
+                       row(-1),
+                       row(-2));
+            assertRows(executeFilteringOnly("SELECT b FROM %s WHERE a = 1 AND e > 'a'"),
+                       row(4),
+                       row(-1),
+                       row(-2));
+        });
+
+        createTable("CREATE TABLE %s (a int, b int, c int, PRIMARY KEY (a, b, c)) WITH CLUSTERING ORDER BY (b DESC, c DESC)");
+
+        execute("INSERT INTO %s (a, b, c) VALUES (1, 1, -3)");
+        execute("INSERT INTO %s (a, b, c) VALUES (1, 1, 2)");
+        execute("INSERT INTO %s (a, b, c) VALUES (1, 2, 0)");
+        execute("INSERT INTO %s (a, b, c) VALUES (1, 2, -1)");
+
+        beforeAndAfterFlush(() -> {
+            assertRows(executeFilteringOnly("SELECT * FROM %s WHERE c > -1"),
+                       row(1, 2, 0),
+                       row(1, 1, 2));
+            assertRows(executeFilteringOnly("SELECT * FROM %s WHERE c <= -1"),
+                       row(1, 2, -1),
+                       row(1, 1, -3));
+        });
+    }
+
     private UntypedResultSet executeFilteringOnly(String statement) throws Throwable
     {
         assertInvalid(statement);
@@ -18,7 +18,11 @@
 
 package org.apache.cassandra.db.view;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -33,8 +37,10 @@ import org.apache.cassandra.dht.Range;
 import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.schema.SchemaConstants;
 import org.apache.cassandra.transport.ProtocolVersion;
+import org.apache.cassandra.utils.Pair;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class ViewBuilderTaskTest extends CQLTester
 {
@@ -95,8 +101,10 @@ public class ViewBuilderTaskTest extends CQLTester
                 Range<Token> range = new Range<>(startToken, endToken);
 
                 // Run the view build task, verifying the returned number of bult keys
-                long actualKeysBuilt = new ViewBuilderTask(cfs, view, range, lastToken, keysBuilt).call();
+                ViewBuilderTask task = new ViewBuilderTask(cfs, view, range, lastToken, keysBuilt);
+                long actualKeysBuilt = task.call();
                 assertEquals(expectedKeysBuilt, actualKeysBuilt);
+                ViewBuilderTask.markBuilt(Collections.singleton(task));
 
                 // Verify that the rows have been written to the MV
                 assertRowCount(execute("SELECT * FROM " + viewName), expectedRowsInView);
@@ -132,4 +140,77 @@ public class ViewBuilderTaskTest extends CQLTester
 
         executeNet(protocolVersion, "DROP MATERIALIZED VIEW " + view.name);
     }
+
+    @Test
+    public void testResumeAfterRestart() throws Throwable
+    {
+        requireNetwork();
+        execute("USE " + keyspace());
+        executeNet(protocolVersion, "USE " + keyspace());
+
+        String tableName = createTable("CREATE TABLE %s (k int PRIMARY KEY, v int)");
+        String viewName = tableName + "_view";
+        executeNet(protocolVersion, String.format("CREATE MATERIALIZED VIEW %s AS SELECT * FROM %%s " +
+                                                  "WHERE v IS NOT NULL AND k IS NOT NULL PRIMARY KEY (v, k)", viewName));
+
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        View view = cfs.keyspace.viewManager.forTable(cfs.metadata().id).iterator().next();
+        ColumnFamilyStore viewCfs = cfs.keyspace.getColumnFamilyStore(viewName);
+
+        // Insert the dataset, and truncate the materialized view (not the base table)
+        for (int k = 0; k < 100; k++)
+            execute("INSERT INTO %s (k, v) VALUES (?, ?)", k, k);
+        cfs.viewManager.forceBlockingFlush();
+        cfs.viewManager.truncateBlocking(cfs.forceBlockingFlush(), System.currentTimeMillis());
+        assertRowCount(execute("SELECT * FROM " + viewName), 0);
+
+        IPartitioner partitioner = cfs.metadata().partitioner;
+        List<Token> tokens = IntStream.range(0, 100)
+                                      .mapToObj(Int32Type.instance::decompose)
+                                      .map(partitioner::getToken)
+                                      .sorted()
+                                      .collect(Collectors.toList());
+        List<Range<Token>> ranges = Arrays.asList(new Range<>(tokens.get(0), tokens.get(50)),
+                                                  new Range<>(tokens.get(50), tokens.get(0)));
+
+        // the task for the first range completes, but the node restarts before the view is flushed
+        ViewBuilderTask first = new ViewBuilderTask(cfs, view, ranges.get(0), null, 0);
+        assertEquals(50, (long) first.call());
+        assertRowCount(execute("SELECT * FROM " + viewName), 50);
+        restart(viewCfs);
+        assertRowCount(execute("SELECT * FROM " + viewName), 0);
+
+        // the first range isn't recorded as built, so it is built again along with the second one
+        Map<Range<Token>, Pair<Token, Long>> status = SystemKeyspace.getViewBuildStatus(keyspace(), viewName);
+        List<ViewBuilderTask> tasks = new ArrayList<>();
+        for (Range<Token> range : ranges)
+        {
+            Pair<Token, Long> progress = status.get(range);
+            assertTrue(progress == null || !range.right.equals(progress.left));
+            tasks.add(progress == null
+                      ? new ViewBuilderTask(cfs, view, range, null, 0)
+                      : new ViewBuilderTask(cfs, view, range, progress.left, progress.right));
+        }
+        for (ViewBuilderTask task : tasks)
+            task.call();
+        ViewBuilderTask.markBuilt(tasks);
+
+        // once recorded as built, the view survives a restart
+        restart(viewCfs);
+        assertRowCount(execute("SELECT * FROM " + viewName), 100);
+        status = SystemKeyspace.getViewBuildStatus(keyspace(), viewName);
+        for (Range<Token> range : ranges)
+            assertEquals(range.right, status.get(range).left);
+
+        executeNet(protocolVersion, "DROP MATERIALIZED VIEW " + view.name);
+    }
+
+    /**
+     * Simulates a restart of the node for the given table, by dropping its memtable and reloading its sstables.
+     */
+    private static void restart(ColumnFamilyStore cfs)
+    {
+        cfs.clearUnsafe();
+        cfs.loadNewSSTables();
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.hints;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.schema.TableMetadata;
+import org.apache.cassandra.schema.Schema;
+import org.apache.cassandra.db.Mutation;
+import org.apache.cassandra.db.RowUpdateBuilder;
+import org.apache.cassandra.io.util.DataInputBuffer;
+import org.apache.cassandra.io.util.DataInputPlus;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.schema.KeyspaceParams;
+import org.apache.cassandra.utils.FBUtilities;
+
+import static junit.framework.Assert.assertEquals;
+
+import static org.apache.cassandra.hints.HintsTestUtil.assertHintsEqual;
+import static org.apache.cassandra.utils.ByteBufferUtil.bytes;
+
+public class HintsBatchMessageTest
+{
+    private static final String KEYSPACE = "hints_batch_message_test";
+    private static final String TABLE = "table";
+
+    @Test
+    public void testSerializer() throws IOException
+    {
+        SchemaLoader.prepareServer();
+        SchemaLoader.createKeyspace(KEYSPACE, KeyspaceParams.simple(1), SchemaLoader.standardCFMD(KEYSPACE, TABLE));
+
+        UUID hostId = UUID.randomUUID();
+        long now = FBUtilities.timestampMicros();
+        int version = MessagingService.current_version;
+
+        TableMetadata table = Schema.instance.getTableMetadata(KEYSPACE, TABLE);
+        List<Hint> hints = new ArrayList<>();
+        List<ByteBuffer> encodedHints = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+        {
+            Mutation mutation =
+                new RowUpdateBuilder(table, now, bytes("key" + i))
+                    .clustering("column")
+                    .add("val", "val" + i)
+                    .build();
+            Hint hint = Hint.create(mutation, now / 1000 + i);
+            hints.add(hint);
+
+            // encode the hints as they are in a hints file
+            DataOutputBuffer encoded = new DataOutputBuffer();
+            Hint.serializer.serialize(hint, encoded, version);
+            encodedHints.add(encoded.buffer());
+        }
+
+        // the verbatim and re-encoded forms of the message are the same
+        HintsBatchMessage message = new HintsBatchMessage(hostId, encodedHints, version);
+        HintsBatchMessage decodedMessage = new HintsBatchMessage(hostId, hints);
+        assertEquals(HintsBatchMessage.serializer.serializedSize(decodedMessage, version), HintsBatchMessage.serializer.serializedSize(message, version));
+
+        long[] creationTimes = message.getHintCreationTimes();
+        long[] decodedCreationTimes = decodedMessage.getHintCreationTimes();
+        for (int i = 0; i < hints.size(); i++)
+        {
+            assertEquals(hints.get(i).creationTime, creationTimes[i]);
+            assertEquals(hints.get(i).creationTime, decodedCreationTimes[i]);
+        }
+
+        // serialize
+        int serializedSize = (int) HintsBatchMessage.serializer.serializedSize(message, version);
+        DataOutputBuffer dob = new DataOutputBuffer();
+        HintsBatchMessage.serializer.serialize(message, dob, version);
+        assertEquals(serializedSize, dob.getLength());
+
+        DataOutputBuffer decodedDob = new DataOutputBuffer();
+        HintsBatchMessage.serializer.serialize(decodedMessage, decodedDob, version);
+        assertEquals(dob.buffer(), decodedDob.buffer());
+
+        // deserialize
+        DataInputPlus di = new DataInputBuffer(dob.buffer(), true);
+        HintsBatchMessage deserializedMessage = HintsBatchMessage.serializer.deserialize(di, version);
+
+        // compare before/after
+        assertEquals(hostId, deserializedMessage.hostId);
+        assertEquals(hints.size(), deserializedMessage.hints.size());
+        for (int i = 0; i < hints.size(); i++)
+            assertHintsEqual(hints.get(i), deserializedMessage.hints.get(i));
+    }
+}
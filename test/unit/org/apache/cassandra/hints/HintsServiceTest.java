@@ -33,6 +33,7 @@ import org.junit.Test;
 
 import com.datastax.driver.core.utils.MoreFutures;
 import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.locator.InetAddressAndPort;
 import org.apache.cassandra.schema.TableMetadata;
 import org.apache.cassandra.schema.Schema;
@@ -106,8 +107,8 @@ public class HintsServiceTest
         // metrics should have been updated with number of create hints
         assertEquals(cnt + 100, StorageMetrics.totalHints.getCount());
 
-        // wait until hints have been send
-        spy.interceptMessageOut(100).get();
+        // wait until hints have been send, all in a single page split in batches
+        spy.interceptMessageOut(messagesFor(100)).get();
         spy.interceptNoMsg(500, TimeUnit.MILLISECONDS).get();
     }
 
@@ -131,7 +132,7 @@ public class HintsServiceTest
 
         Futures.allAsList(
                 noMessagesWhilePaused,
-                spy.interceptMessageOut(100),
+                spy.interceptMessageOut(messagesFor(100)),
                 spy.interceptNoMsg(200, TimeUnit.MILLISECONDS)
         ).get();
     }
@@ -139,17 +140,17 @@ public class HintsServiceTest
     @Test
     public void testPageRetry() throws InterruptedException, ExecutionException, TimeoutException
     {
-        // create spy for hint messages, but only create responses for 5 hints
-        MockMessagingSpy spy = sendHintsAndResponses(20, 5);
+        // create spy for hint messages, but don't create any response
+        MockMessagingSpy spy = sendHintsAndResponses(20, 0);
 
         Futures.allAsList(
-                // the dispatcher will always send all hints within the current page
-                // and only wait for the acks before going to the next page
-                spy.interceptMessageOut(20),
+                // the dispatcher will send all hints within the current page at once, in batches
+                // and wait for the ack before going to the next page
+                spy.interceptMessageOut(messagesFor(20)),
                 spy.interceptNoMsg(200, TimeUnit.MILLISECONDS),
 
-                // next tick will trigger a retry of the same page as we only replied with 5/20 acks
-                spy.interceptMessageOut(20)
+                // next tick will trigger a retry of the same page as we didn't ack it
+                spy.interceptMessageOut(messagesFor(20))
         ).get();
 
         // marking the destination node as dead should stop sending hints
@@ -160,15 +161,16 @@ public class HintsServiceTest
     @Test
     public void testPageSeek() throws InterruptedException, ExecutionException
     {
-        // create spy for hint messages, stop replying after 12k (should be on 3rd page)
-        MockMessagingSpy spy = sendHintsAndResponses(20000, 12000);
+        // create spy for hint messages, stop replying after the 1st page (of a few thousand hints), or a later one
+        MockMessagingSpy spy = sendHintsAndResponses(20000, messagesFor(20000) / 2);
 
         // At this point the dispatcher will constantly retry the page we stopped acking,
-        // thus we receive the same hints from the page multiple times and in total more than
-        // all written hints. Lets just consume them for a while and then pause the dispatcher.
-        spy.interceptMessageOut(22000).get();
+        // thus we receive the same page multiple times. Lets just consume them for a while
+        // and then pause the dispatcher.
+        spy.interceptMessageOut(3).get();
         HintsService.instance.pauseDispatch();
-        Thread.sleep(1000);
+        // wait for the page in flight to time out
+        Thread.sleep(DatabaseDescriptor.getWriteRpcTimeout() + 1000);
 
         // verify that we have a dispatch offset set for the page we're currently stuck at
         HintsStore store = HintsService.instance.getCatalog().get(StorageService.instance.getLocalHostUUID());
@@ -179,6 +181,11 @@ public class HintsServiceTest
         assertTrue(((ChecksummedDataInput.Position) dispatchOffset).sourcePosition > 0);
     }
 
+    private static int messagesFor(int noOfHints)
+    {
+        return (noOfHints + HintsDispatcher.MAX_HINTS_PER_MESSAGE - 1) / HintsDispatcher.MAX_HINTS_PER_MESSAGE;
+    }
+
     private MockMessagingSpy sendHintsAndResponses(int noOfHints, int noOfResponses)
     {
         // create spy for hint messages, but only create responses for noOfResponses hints
@@ -191,11 +198,11 @@ public class HintsServiceTest
         MockMessagingSpy spy;
         if (noOfResponses != -1)
         {
-            spy = MockMessagingService.when(verb(MessagingService.Verb.HINT)).respondN(messageIn, noOfResponses);
+            spy = MockMessagingService.when(verb(MessagingService.Verb.HINTS_BATCH)).respondN(messageIn, noOfResponses);
         }
         else
         {
-            spy = MockMessagingService.when(verb(MessagingService.Verb.HINT)).respond(messageIn);
+            spy = MockMessagingService.when(verb(MessagingService.Verb.HINTS_BATCH)).respond(messageIn);
         }
 
         // create and write noOfHints using service
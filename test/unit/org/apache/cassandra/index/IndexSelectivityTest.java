@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.index;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IndexSelectivityTest
+{
+    @Test
+    public void testUnknownUntilUpdated()
+    {
+        IndexSelectivity selectivity = new IndexSelectivity();
+        assertTrue(Float.isNaN(selectivity.rowsPerRange()));
+
+        // queries that didn't complete any range tell us nothing
+        selectivity.update(0, 10);
+        assertTrue(Float.isNaN(selectivity.rowsPerRange()));
+
+        selectivity.update(4, 10);
+        assertEquals(2.5f, selectivity.rowsPerRange(), 0.0001f);
+    }
+
+    @Test
+    public void testFollowsLatestQueries()
+    {
+        IndexSelectivity selectivity = new IndexSelectivity();
+        selectivity.update(10, 100);
+        assertEquals(10f, selectivity.rowsPerRange(), 0.0001f);
+
+        // a selective query moves the estimate down, but not all the way
+        selectivity.update(10, 0);
+        assertEquals(8f, selectivity.rowsPerRange(), 0.0001f);
+
+        for (int i = 0; i < 100; i++)
+            selectivity.update(10, 0);
+        assertEquals(0f, selectivity.rowsPerRange(), 0.0001f);
+    }
+}
@@ -18,6 +18,9 @@
 
 package org.apache.cassandra.index.internal;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -30,18 +33,26 @@ import org.apache.cassandra.cql3.CQLTester;
 import org.apache.cassandra.cql3.UntypedResultSet;
 import org.apache.cassandra.cql3.restrictions.StatementRestrictions;
 import org.apache.cassandra.db.*;
+import org.apache.cassandra.db.compaction.CompactionManager;
 import org.apache.cassandra.db.filter.ClusteringIndexFilter;
 import org.apache.cassandra.db.filter.ClusteringIndexSliceFilter;
 import org.apache.cassandra.db.filter.ColumnFilter;
+import org.apache.cassandra.db.lifecycle.SSTableSet;
 import org.apache.cassandra.db.rows.Row;
 import org.apache.cassandra.db.rows.Unfiltered;
 import org.apache.cassandra.db.rows.UnfilteredRowIterator;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.exceptions.InvalidRequestException;
+import org.apache.cassandra.index.Index;
+import org.apache.cassandra.index.SecondaryIndexBuilder;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.schema.ColumnMetadata;
 import org.apache.cassandra.schema.SchemaConstants;
 import org.apache.cassandra.schema.TableMetadata;
 import org.apache.cassandra.utils.ByteBufferUtil;
 import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.concurrent.Refs;
 
 import static org.apache.cassandra.Util.throwAssert;
 import static org.junit.Assert.assertArrayEquals;
@@ -508,6 +519,64 @@ public class CassandraIndexTest extends CQLTester
                    row(KEYSPACE, indexName, null ));
     }
 
+    @Test
+    public void indexBuildSplitByTokenRange() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int PRIMARY KEY, v int)");
+        String indexName = createIndex("CREATE INDEX ON %s(v)");
+        for (int i = 0; i < 100; i++)
+        {
+            execute("INSERT INTO %s (k, v) VALUES (?, 0)", i);
+            if (i % 30 == 0)
+                flush();
+        }
+        flush();
+
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        Index index = cfs.indexManager.getIndexByName(indexName);
+        index.getBackingTable().get().truncateBlocking();
+        assertEmpty(execute("SELECT k FROM %s WHERE v = 0"));
+
+        try (Refs<SSTableReader> sstables = Refs.ref(cfs.getSSTables(SSTableSet.CANONICAL)))
+        {
+            List<SecondaryIndexBuilder> builders = CollatedViewIndexBuilder.splitByTokenRange(cfs, Collections.singleton(index), sstables, false, 1, 1);
+            assertTrue(builders.size() > 1);
+            FBUtilities.waitOnFutures(builders.stream().map(CompactionManager.instance::submitIndexBuild).collect(Collectors.toList()));
+        }
+        assertEquals(100, execute("SELECT k FROM %s WHERE v = 0").size());
+    }
+
+    @Test
+    public void indexBuildResumesFromCheckpoint() throws Throwable
+    {
+        String indexName = "resumed_build_idx";
+        createTable("CREATE TABLE %s (k int PRIMARY KEY, v int)");
+        List<Token> tokens = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+        {
+            execute("INSERT INTO %s (k, v) VALUES (?, 0)", i);
+            tokens.add(getCurrentColumnFamilyStore().decorateKey(ByteBufferUtil.bytes(i)).getToken());
+        }
+        flush();
+
+        // pretend that an interrupted build has already covered the first half of the keys
+        Collections.sort(tokens);
+        Token checkpoint = tokens.get(49);
+        Range<Token> builtRange = new Range<>(checkpoint.getPartitioner().getMinimumToken(), checkpoint);
+        SystemKeyspace.updateIndexBuildStatus(KEYSPACE, indexName, builtRange, 50);
+
+        createIndex(String.format("CREATE INDEX %s ON %%s(v)", indexName));
+        assertTrue(waitForIndex(KEYSPACE, currentTable(), indexName));
+        assertEquals(50, execute("SELECT k FROM %s WHERE v = 0").size());
+        assertTrue(SystemKeyspace.getIndexBuildStatus(KEYSPACE, indexName).isEmpty());
+
+        // an explicit rebuild starts over
+        SystemKeyspace.updateIndexBuildStatus(KEYSPACE, indexName, builtRange, 50);
+        getCurrentColumnFamilyStore().rebuildSecondaryIndex(indexName);
+        assertEquals(100, execute("SELECT k FROM %s WHERE v = 0").size());
+        assertTrue(SystemKeyspace.getIndexBuildStatus(KEYSPACE, indexName).isEmpty());
+    }
+
 
     // this is slightly annoying, but we cannot read rows from the methods in Util as
     // ReadCommand#executeInternal uses metadata retrieved via the tableId, which the index
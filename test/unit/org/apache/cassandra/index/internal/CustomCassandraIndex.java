@@ -213,7 +213,7 @@ public class CustomCassandraIndex implements Index
      */
     public BiFunction<PartitionIterator, ReadCommand, PartitionIterator> postProcessorFor(ReadCommand command)
     {
-        return (partitionIterator, readCommand) -> partitionIterator;
+        return NO_POST_PROCESSING;
     }
 
     public RowFilter getPostIndexQueryFilter(RowFilter filter)
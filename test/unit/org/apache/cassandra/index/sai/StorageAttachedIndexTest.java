@@ -0,0 +1,314 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.index.sai;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.Sets;
+import org.junit.Test;
+
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.SimpleStatement;
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.cql3.ColumnIdentifier;
+import org.apache.cassandra.cql3.UntypedResultSet;
+import org.apache.cassandra.db.Clustering;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.rows.BTreeRow;
+import org.apache.cassandra.db.rows.BufferCell;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.schema.ColumnMetadata;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StorageAttachedIndexTest extends CQLTester
+{
+    private static final String USING = " USING 'org.apache.cassandra.index.sai.StorageAttachedIndex'";
+
+    @Test
+    public void testMemtableAndSSTables() throws Throwable
+    {
+        createTable("CREATE TABLE %s (pk int, ck int, v text, PRIMARY KEY (pk, ck))");
+
+        // written before the index is created, so indexed by the initial build
+        execute("INSERT INTO %s (pk, ck, v) VALUES (0, 0, 'a')");
+        flush();
+        execute("INSERT INTO %s (pk, ck, v) VALUES (1, 0, 'a')");
+        String indexName = createIndex("CREATE CUSTOM INDEX ON %s (v)" + USING);
+        assertTrue(waitForIndex(KEYSPACE, currentTable(), indexName));
+
+        execute("INSERT INTO %s (pk, ck, v) VALUES (2, 0, 'a')");
+        execute("INSERT INTO %s (pk, ck, v) VALUES (2, 1, 'b')");
+        execute("INSERT INTO %s (pk, ck, v) VALUES (3, 0, 'b')");
+        assertRowsIgnoringOrder(execute("SELECT pk, ck FROM %s WHERE v = 'a'"), row(0, 0), row(1, 0), row(2, 0));
+        assertRowsIgnoringOrder(execute("SELECT pk, ck FROM %s WHERE v = 'b'"), row(2, 1), row(3, 0));
+
+        flush();
+        assertRowsIgnoringOrder(execute("SELECT pk, ck FROM %s WHERE v = 'a'"), row(0, 0), row(1, 0), row(2, 0));
+        assertRowsIgnoringOrder(execute("SELECT pk, ck FROM %s WHERE v = 'b'"), row(2, 1), row(3, 0));
+        assertEmpty(execute("SELECT pk, ck FROM %s WHERE v = 'c'"));
+
+        // overwritten and deleted rows are still indexed by the older sstables, but filtered out
+        execute("UPDATE %s SET v = 'c' WHERE pk = 0 AND ck = 0");
+        execute("DELETE FROM %s WHERE pk = 1");
+        assertRows(execute("SELECT pk, ck FROM %s WHERE v = 'a'"), row(2, 0));
+        assertRows(execute("SELECT pk, ck FROM %s WHERE v = 'c'"), row(0, 0));
+
+        flush();
+        compact();
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        assertEquals(1, cfs.getLiveSSTables().size());
+        StorageAttachedIndex index = (StorageAttachedIndex) cfs.indexManager.listIndexes().iterator().next();
+        for (SSTableReader sstable : cfs.getLiveSSTables())
+            assertTrue(index.hasComponent(sstable.descriptor));
+
+        assertRows(execute("SELECT pk, ck FROM %s WHERE v = 'a'"), row(2, 0));
+        assertRowsIgnoringOrder(execute("SELECT pk, ck FROM %s WHERE v = 'b'"), row(2, 1), row(3, 0));
+        assertRows(execute("SELECT pk, ck FROM %s WHERE v = 'c'"), row(0, 0));
+        assertRows(execute("SELECT pk, ck FROM %s WHERE pk = 2 AND v = 'b'"), row(2, 1));
+    }
+
+    @Test
+    public void testMultipleExpressions() throws Throwable
+    {
+        createTable("CREATE TABLE %s (pk int PRIMARY KEY, v1 int, v2 int, s text)");
+        createIndex("CREATE CUSTOM INDEX ON %s (v1)" + USING);
+        createIndex("CREATE CUSTOM INDEX ON %s (v2)" + USING);
+
+        for (int i = 0; i < 100; i++)
+        {
+            execute("INSERT INTO %s (pk, v1, v2) VALUES (?, ?, ?)", i, i % 10, i % 7);
+            if (i == 50)
+                flush();
+        }
+
+        for (boolean forceFlush : new boolean[]{ false, true })
+        {
+            flush(forceFlush);
+            assertRowsIgnoringOrder(execute("SELECT pk FROM %s WHERE v1 = 3 AND v2 = 2 ALLOW FILTERING"),
+                                    row(23), row(93));
+            assertEmpty(execute("SELECT pk FROM %s WHERE v1 = 3 AND v2 = 100 ALLOW FILTERING"));
+            assertEquals(10, execute("SELECT pk FROM %s WHERE v1 = 3").size());
+        }
+    }
+
+    @Test
+    public void testStaticColumnAndPaging() throws Throwable
+    {
+        createTable("CREATE TABLE %s (pk int, ck int, s int static, v int, PRIMARY KEY (pk, ck))");
+        createIndex("CREATE CUSTOM INDEX ON %s (s)" + USING);
+        createIndex("CREATE CUSTOM INDEX ON %s (v)" + USING);
+
+        for (int i = 0; i < 10; i++)
+        {
+            execute("INSERT INTO %s (pk, s) VALUES (?, ?)", i, i % 2);
+            for (int j = 0; j < 3; j++)
+                execute("INSERT INTO %s (pk, ck, v) VALUES (?, ?, 1)", i, j);
+        }
+
+        for (boolean forceFlush : new boolean[]{ false, true })
+        {
+            flush(forceFlush);
+            assertEquals(15, execute("SELECT * FROM %s WHERE s = 1").size());
+
+            SimpleStatement statement = new SimpleStatement("SELECT * FROM " + KEYSPACE + '.' + currentTable() + " WHERE v = 1");
+            statement.setFetchSize(4);
+            List<Row> rows = sessionNet().execute(statement).all();
+            assertEquals(30, rows.size());
+            assertEquals(Sets.newHashSet(0, 1, 2, 3, 4, 5, 6, 7, 8, 9),
+                         rows.stream().map(row -> row.getInt("pk")).collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    public void testTokenRangeAndLimit() throws Throwable
+    {
+        createTable("CREATE TABLE %s (pk int PRIMARY KEY, v int)");
+        createIndex("CREATE CUSTOM INDEX ON %s (v)" + USING);
+
+        for (int i = 0; i < 30; i++)
+        {
+            execute("INSERT INTO %s (pk, v) VALUES (?, ?)", i, i % 2);
+            if (i % 10 == 9)
+                flush();
+        }
+        execute("INSERT INTO %s (pk, v) VALUES (30, 0)");
+
+        List<Object[]> all = tokensAndKeys(execute("SELECT token(pk) AS t, pk FROM %s WHERE v = 0"));
+        assertEquals(16, all.size());
+
+        // the candidates of all the sstables and of the memtable are merged in token order
+        assertRows(execute("SELECT token(pk), pk FROM %s WHERE v = 0 LIMIT 3"), all.subList(0, 3).toArray(new Object[0][]));
+
+        Object start = all.get(5)[0], end = all.get(9)[0];
+        assertRows(execute("SELECT token(pk), pk FROM %s WHERE v = 0 AND token(pk) >= ? AND token(pk) <= ?", start, end),
+                   all.subList(5, 10).toArray(new Object[0][]));
+        assertRows(execute("SELECT token(pk), pk FROM %s WHERE v = 0 AND token(pk) > ? AND token(pk) < ?", start, end),
+                   all.subList(6, 9).toArray(new Object[0][]));
+        assertRows(execute("SELECT token(pk), pk FROM %s WHERE v = 0 AND token(pk) > ? LIMIT 2", start),
+                   all.subList(6, 8).toArray(new Object[0][]));
+    }
+
+    @Test
+    public void testSSTableWithoutComponent() throws Throwable
+    {
+        createTable("CREATE TABLE %s (pk int PRIMARY KEY, v int)");
+        createIndex("CREATE CUSTOM INDEX ON %s (v)" + USING);
+        for (int i = 0; i < 10; i++)
+            execute("INSERT INTO %s (pk, v) VALUES (?, ?)", i, i % 2);
+        flush();
+
+        // as if the index were being built for the sstable
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        StorageAttachedIndex index = (StorageAttachedIndex) cfs.indexManager.listIndexes().iterator().next();
+        SSTableReader sstable = cfs.getLiveSSTables().iterator().next();
+        index.unloadSSTableIndex(sstable);
+        FileUtils.deleteWithConfirm(index.componentFile(sstable.descriptor));
+
+        assertRowsIgnoringOrder(execute("SELECT pk FROM %s WHERE v = 1"), row(1), row(3), row(5), row(7), row(9));
+        assertEquals(2, execute("SELECT pk FROM %s WHERE v = 1 LIMIT 2").size());
+        assertRows(execute("SELECT pk FROM %s WHERE pk = 3 AND v = 1"), row(3));
+        assertEmpty(execute("SELECT pk FROM %s WHERE pk = 2 AND v = 1"));
+
+        // the component of the sstable replacing it is written by the compaction
+        compact();
+        for (SSTableReader compacted : cfs.getLiveSSTables())
+            assertTrue(index.hasComponent(compacted.descriptor));
+        assertRowsIgnoringOrder(execute("SELECT pk FROM %s WHERE v = 1"), row(1), row(3), row(5), row(7), row(9));
+    }
+
+    @Test
+    public void testRebuildWhileSearching() throws Throwable
+    {
+        createTable("CREATE TABLE %s (pk int PRIMARY KEY, v int)");
+        String indexName = createIndex("CREATE CUSTOM INDEX ON %s (v)" + USING);
+        for (int i = 0; i < 10; i++)
+            execute("INSERT INTO %s (pk, v) VALUES (?, ?)", i, i % 2);
+        flush();
+
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        StorageAttachedIndex index = (StorageAttachedIndex) cfs.indexManager.listIndexes().iterator().next();
+        ByteBuffer term = Int32Type.instance.decompose(1);
+        List<SSTableReader> sstables = new ArrayList<>(cfs.getLiveSSTables());
+        List<SSTableTermsIndex.Reader> readers = new ArrayList<>();
+        try
+        {
+            List<int[]> postings = new ArrayList<>();
+            int matches = 0;
+            for (SSTableReader sstable : sstables)
+            {
+                SSTableTermsIndex.Reader reader = index.openSSTableIndex(sstable);
+                readers.add(reader);
+                postings.add(reader.postings(term));
+                matches += postings.get(postings.size() - 1).length;
+            }
+            assertEquals(5, matches);
+
+            // the readers keep reading the components they were opened on, while the new ones replace them
+            cfs.indexManager.rebuildIndexesBlocking(Collections.singleton(indexName));
+            for (int i = 0; i < readers.size(); i++)
+                assertArrayEquals(postings.get(i), readers.get(i).postings(term));
+        }
+        finally
+        {
+            readers.forEach(SSTableTermsIndex.Reader::close);
+        }
+
+        for (SSTableReader sstable : sstables)
+        {
+            File component = index.componentFile(sstable.descriptor);
+            assertTrue(component.exists());
+            assertFalse(new File(component.getPath() + Descriptor.TMP_EXT).exists());
+        }
+        assertRowsIgnoringOrder(execute("SELECT pk FROM %s WHERE v = 1"), row(1), row(3), row(5), row(7), row(9));
+    }
+
+    @Test
+    public void testSegmentedComponent() throws Throwable
+    {
+        createTable("CREATE TABLE %s (pk int PRIMARY KEY, v int)");
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        ColumnMetadata column = cfs.metadata().getColumn(ColumnIdentifier.getInterned("v", false));
+
+        File directory = Files.createTempDirectory("sai").toFile();
+        try
+        {
+            File buffered = new File(directory, "buffered.db");
+            File segmented = new File(directory, "segmented.db");
+            List<SSTableTermsWriter> writers = Arrays.asList(new SSTableTermsWriter(column, new File(buffered + Descriptor.TMP_EXT), buffered, Long.MAX_VALUE),
+                                                             new SSTableTermsWriter(column, new File(segmented + Descriptor.TMP_EXT), segmented, 1024));
+            for (int i = 0; i < 1000; i++)
+            {
+                DecoratedKey key = cfs.decorateKey(Int32Type.instance.decompose(i));
+                BTreeRow row = BTreeRow.singleCellRow(Clustering.EMPTY, BufferCell.live(column, 0, Int32Type.instance.decompose(i % 37)));
+                for (SSTableTermsWriter writer : writers)
+                {
+                    writer.startPartition(key, i * 100L);
+                    writer.nextUnfilteredCluster(row);
+                }
+            }
+            writers.forEach(SSTableTermsWriter::complete);
+
+            // the segments are merged into the same component, and removed
+            assertArrayEquals(Files.readAllBytes(buffered.toPath()), Files.readAllBytes(segmented.toPath()));
+            assertEquals(Sets.newHashSet(buffered.getName(), segmented.getName()), Sets.newHashSet(directory.list()));
+
+            SSTableTermsIndex index = SSTableTermsIndex.load(segmented);
+            try (SSTableTermsIndex.Reader reader = index.tryOpen())
+            {
+                int[] postings = reader.postings(Int32Type.instance.decompose(5));
+                assertEquals(27, postings.length);
+                for (int i = 0; i < postings.length; i++)
+                {
+                    assertEquals(5 + i * 37, postings[i]);
+                    assertEquals(postings[i] * 100L, reader.partitionPosition(postings[i]));
+                }
+            }
+            finally
+            {
+                index.release();
+            }
+        }
+        finally
+        {
+            FileUtils.deleteRecursive(directory);
+        }
+    }
+
+    private static List<Object[]> tokensAndKeys(UntypedResultSet rows)
+    {
+        List<Object[]> result = new ArrayList<>();
+        for (UntypedResultSet.Row row : rows)
+            result.add(row(row.getLong("t"), row.getInt("pk")));
+        return result;
+    }
+}
@@ -422,6 +422,40 @@ public class RangeIntersectionIteratorTest
         }
     }
 
+    @Test
+    public void testSkipsUnselectiveRange()
+    {
+        for (Strategy strategy : Strategy.values())
+            testSkipsUnselectiveRange(strategy);
+    }
+
+    private void testSkipsUnselectiveRange(Strategy strategy)
+    {
+        long[] tokens = new long[10000];
+        for (int i = 0; i < tokens.length; i++)
+            tokens[i] = i;
+
+        int[] computed = new int[1];
+        LongIterator unselective = new LongIterator(tokens)
+        {
+            @Override
+            protected Token computeNext()
+            {
+                computed[0]++;
+                return super.computeNext();
+            }
+        };
+
+        RangeIterator.Builder<Long, Token> builder = RangeIntersectionIterator.builder(strategy);
+        builder.add(unselective);
+        builder.add(new LongIterator(new long[] { 10L, 5000L, 5001L, 9990L }));
+        builder.add(new LongIterator(new long[] { 5L, 10L, 20L, 5001L, 6000L, 7000L, 9990L }));
+
+        Assert.assertEquals(convert(10L, 5001L, 9990L), convert(builder.build()));
+        // the unselective range is only advanced to the tokens proposed by the selective ones
+        Assert.assertTrue("computed " + computed[0] + " tokens with " + strategy, computed[0] <= 8);
+    }
+
     @Test
     public void testIteratorPeeking()
     {
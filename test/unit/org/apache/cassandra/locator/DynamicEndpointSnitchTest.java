@@ -30,6 +30,8 @@ import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.utils.FBUtilities;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class DynamicEndpointSnitchTest
 {
@@ -103,4 +105,53 @@ public class DynamicEndpointSnitchTest
         order = Arrays.asList(host4, host1, host2, host3);
         assertEquals(order, dsnitch.getSortedListByProximity(self, Arrays.asList(host1, host2, host3, host4)));
     }
+
+    @Test
+    public void testMayChangeOrdering() throws Exception
+    {
+        InetAddressAndPort host1 = InetAddressAndPort.getByName("127.0.0.2");
+        InetAddressAndPort host2 = InetAddressAndPort.getByName("127.0.0.3");
+        InetAddressAndPort host3 = InetAddressAndPort.getByName("127.0.0.4");
+
+        Map<InetAddressAndPort, Double> scores = new HashMap<>();
+        scores.put(host1, 0.2);
+        scores.put(host2, 0.5);
+        scores.put(host3, 1.0);
+
+        // same ranks
+        Map<InetAddressAndPort, Double> newScores = new HashMap<>(scores);
+        newScores.put(host1, 0.3);
+        assertFalse(DynamicEndpointSnitch.mayChangeOrdering(scores, newScores, 0.0));
+
+        // swapped ranks, or ties created or broken
+        newScores.put(host1, 0.6);
+        assertTrue(DynamicEndpointSnitch.mayChangeOrdering(scores, newScores, 0.0));
+        newScores.put(host1, 0.5);
+        assertTrue(DynamicEndpointSnitch.mayChangeOrdering(scores, newScores, 0.0));
+        assertTrue(DynamicEndpointSnitch.mayChangeOrdering(newScores, scores, 0.0));
+
+        // missing scores count as 0
+        newScores = new HashMap<>(scores);
+        newScores.remove(host1);
+        assertFalse(DynamicEndpointSnitch.mayChangeOrdering(scores, newScores, 0.0));
+        newScores.remove(host2);
+        assertTrue(DynamicEndpointSnitch.mayChangeOrdering(scores, newScores, 0.0));
+
+        // with a badness threshold, a score crossing the score of another endpoint times the threshold counts even
+        // if the ranks are the same, however small the move
+        newScores = new HashMap<>(scores);
+        newScores.put(host2, 0.9);
+        assertFalse(DynamicEndpointSnitch.mayChangeOrdering(scores, newScores, 0.1));
+        newScores.put(host2, 0.92);
+        assertFalse(DynamicEndpointSnitch.mayChangeOrdering(scores, newScores, 0.0));
+        assertTrue(DynamicEndpointSnitch.mayChangeOrdering(scores, newScores, 0.1));
+        assertTrue(DynamicEndpointSnitch.mayChangeOrdering(newScores, scores, 0.1));
+
+        scores.put(host2, 1.0);
+        scores.put(host3, 1.095);
+        newScores = new HashMap<>(scores);
+        newScores.put(host2, 0.99);
+        assertFalse(DynamicEndpointSnitch.mayChangeOrdering(scores, newScores, 0.0));
+        assertTrue(DynamicEndpointSnitch.mayChangeOrdering(scores, newScores, 0.1));
+    }
 }
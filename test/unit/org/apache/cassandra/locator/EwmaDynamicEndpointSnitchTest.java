@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.locator;
+
+import java.io.IOException;
+import java.util.*;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.utils.FBUtilities;
+
+import static org.junit.Assert.assertEquals;
+
+public class EwmaDynamicEndpointSnitchTest
+{
+    @BeforeClass
+    public static void setupDD()
+    {
+        DatabaseDescriptor.daemonInitialization();
+    }
+
+    private static void setScores(DynamicEndpointSnitch dsnitch, int rounds, List<InetAddressAndPort> hosts, Integer... scores) throws InterruptedException
+    {
+        for (int round = 0; round < rounds; round++)
+        {
+            for (int i = 0; i < hosts.size(); i++)
+                dsnitch.receiveTiming(hosts.get(i), scores[i]);
+        }
+        Thread.sleep(150);
+    }
+
+    @Test
+    public void testMovingAverage() throws IOException
+    {
+        SimpleSnitch ss = new SimpleSnitch();
+        EwmaDynamicEndpointSnitch dsnitch = new EwmaDynamicEndpointSnitch(ss, String.valueOf(ss.hashCode()));
+        InetAddressAndPort host = InetAddressAndPort.getByName("127.0.0.2");
+        try
+        {
+            dsnitch.receiveTiming(host, 100);
+            assertEquals(100, dsnitch.getAverageLatency(host), 0.001);
+            dsnitch.receiveTiming(host, 20);
+            assertEquals(80, dsnitch.getAverageLatency(host), 0.001);
+            assertEquals(Collections.singletonList(80d), dsnitch.dumpTimings("127.0.0.2"));
+        }
+        finally
+        {
+            dsnitch.close();
+        }
+    }
+
+    @Test
+    public void testSnitch() throws InterruptedException, IOException, ConfigurationException
+    {
+        // do this because SS needs to be initialized before DES can work properly.
+        StorageService.instance.unsafeInitialize();
+        SimpleSnitch ss = new SimpleSnitch();
+        EwmaDynamicEndpointSnitch dsnitch = new EwmaDynamicEndpointSnitch(ss, String.valueOf(ss.hashCode()));
+        InetAddressAndPort self = FBUtilities.getBroadcastAddressAndPort();
+        InetAddressAndPort host1 = InetAddressAndPort.getByName("127.0.0.2");
+        InetAddressAndPort host2 = InetAddressAndPort.getByName("127.0.0.3");
+        InetAddressAndPort host3 = InetAddressAndPort.getByName("127.0.0.4");
+        List<InetAddressAndPort> hosts = Arrays.asList(host1, host2, host3);
+        try
+        {
+            // first, make all hosts equal
+            setScores(dsnitch, 1, hosts, 10, 10, 10);
+            List<InetAddressAndPort> order = Arrays.asList(host1, host2, host3);
+            assertEquals(order, dsnitch.getSortedListByProximity(self, hosts));
+
+            // make host1 a lot worse
+            setScores(dsnitch, 5, hosts, 50, 10, 10);
+            order = Arrays.asList(host2, host3, host1);
+            assertEquals(order, dsnitch.getSortedListByProximity(self, hosts));
+
+            // recent latencies quickly outweigh the older ones
+            setScores(dsnitch, 20, hosts, 10, 10, 50);
+            order = Arrays.asList(host1, host2, host3);
+            assertEquals(order, dsnitch.getSortedListByProximity(self, hosts));
+
+            // a timeout re-ranks the hosts without waiting for the periodic update
+            dsnitch.receiveTimeout(host1, 10000);
+            order = Arrays.asList(host2, host3, host1);
+            assertEquals(order, dsnitch.getSortedListByProximity(self, hosts));
+        }
+        finally
+        {
+            dsnitch.close();
+        }
+    }
+}
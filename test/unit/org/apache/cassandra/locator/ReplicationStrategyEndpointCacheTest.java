@@ -119,6 +119,30 @@ public class ReplicationStrategyEndpointCacheTest
         assert !endpoints.equals(initial);
     }
 
+    @Test
+    public void testSortedEndpointsCache() throws Exception
+    {
+        setup(SimpleStrategy.class, null);
+
+        List<InetAddressAndPort> initial = strategy.getSortedEndpoints(searchToken);
+        assert initial.size() == 5 : StringUtils.join(initial, ",");
+        assert initial == strategy.getSortedEndpoints(searchToken) : "sorted endpoints should have been cached";
+
+        // a change of the proximity ordering invalidates the cache, but not the natural endpoints
+        AbstractReplicationStrategy.invalidateCachedSortedEndpoints();
+        List<InetAddressAndPort> endpoints = strategy.getSortedEndpoints(searchToken);
+        assert endpoints != initial;
+        assert endpoints.equals(initial);
+
+        // as does a ring change
+        initial = endpoints;
+        tmd.updateNormalToken(new BigIntegerToken(String.valueOf(35)), InetAddressAndPort.getByName("127.0.0.5"));
+        endpoints = strategy.getSortedEndpoints(searchToken);
+        assert endpoints.size() == 5 : StringUtils.join(endpoints, ",");
+        assert endpoints.contains(InetAddressAndPort.getByName("127.0.0.5"));
+        assert !endpoints.equals(initial);
+    }
+
     protected static class FakeSimpleStrategy extends SimpleStrategy
     {
         private boolean called = false;
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.net.async;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.google.common.net.InetAddresses;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.locator.InetAddressAndPort;
+import org.apache.cassandra.metrics.MessagingMetrics;
+import org.apache.cassandra.net.MessagingService;
+
+public class FrameEncoderTest
+{
+    private static final InetAddressAndPort REMOTE_ADDR = InetAddressAndPort.getByAddressOverrideDefaults(InetAddresses.forString("127.0.0.2"), 0);
+
+    private EmbeddedChannel outboundChannel;
+    private EmbeddedChannel inboundChannel;
+
+    @BeforeClass
+    public static void before()
+    {
+        DatabaseDescriptor.daemonInitialization();
+    }
+
+    @After
+    public void tearDown()
+    {
+        if (outboundChannel != null)
+            outboundChannel.finishAndReleaseAll();
+        if (inboundChannel != null)
+            inboundChannel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void roundTrip_NoCompression()
+    {
+        roundTrip(false, false);
+    }
+
+    @Test
+    public void roundTrip_Compression()
+    {
+        roundTrip(true, false);
+    }
+
+    @Test
+    public void roundTrip_CompressionOfIncompressibleData()
+    {
+        roundTrip(true, true);
+    }
+
+    private void roundTrip(boolean compress, boolean random)
+    {
+        MessagingMetrics.FrameMetrics metrics = MessagingService.instance().metrics.frameMetrics(REMOTE_ADDR, "Test" + compress + random);
+        outboundChannel = new EmbeddedChannel(new FrameEncoder(compress, metrics));
+        inboundChannel = new EmbeddedChannel(new FrameDecoder());
+
+        // enough messages, of various sizes (including empty ones), to span several frames
+        List<byte[]> messages = new ArrayList<>();
+        List<ChannelFuture> futures = new ArrayList<>();
+        int totalSize = 0;
+        for (int i = 0; totalSize < 3 * FrameEncoder.MAX_FRAME_SIZE; i++)
+        {
+            byte[] message = new byte[i % 7 == 0 ? 0 : ThreadLocalRandom.current().nextInt(1, 8192)];
+            if (random)
+                ThreadLocalRandom.current().nextBytes(message);
+            else
+                for (int j = 0; j < message.length; j++)
+                    message[j] = (byte) (j % 16);
+            messages.add(message);
+            futures.add(outboundChannel.write(Unpooled.wrappedBuffer(message)));
+            totalSize += message.length;
+        }
+
+        // nothing is written until the flush task runs, besides the frames that are already full
+        outboundChannel.flush();
+        if (totalSize % FrameEncoder.MAX_FRAME_SIZE != 0)
+            Assert.assertFalse(futures.get(futures.size() - 1).isDone());
+        outboundChannel.runPendingTasks();
+        for (ChannelFuture future : futures)
+            Assert.assertTrue(future.isSuccess());
+
+        long frames = 0;
+        ByteBuf received = Unpooled.buffer(totalSize);
+        Object o;
+        while ((o = outboundChannel.readOutbound()) != null)
+        {
+            ByteBuf frame = (ByteBuf) o;
+            if (!frame.isReadable())
+            {
+                frame.release();
+                continue;
+            }
+            frames++;
+            inboundChannel.writeInbound(frame);
+            ByteBuf content;
+            while ((content = inboundChannel.readInbound()) != null)
+            {
+                Assert.assertTrue(content.readableBytes() <= FrameEncoder.MAX_FRAME_SIZE);
+                received.writeBytes(content);
+                content.release();
+            }
+        }
+
+        Assert.assertEquals((totalSize + FrameEncoder.MAX_FRAME_SIZE - 1) / FrameEncoder.MAX_FRAME_SIZE, frames);
+        Assert.assertEquals(frames, metrics.framesSent.getCount());
+        Assert.assertEquals(totalSize, metrics.uncompressedBytesSent.getCount());
+        if (compress && !random)
+            Assert.assertTrue(metrics.compressionRatio.getValue() < 0.5);
+        else
+            Assert.assertEquals(totalSize + frames * FrameEncoder.HEADER_LENGTH, metrics.bytesSent.getCount());
+
+        for (byte[] message : messages)
+        {
+            byte[] actual = new byte[message.length];
+            received.readBytes(actual);
+            Assert.assertArrayEquals(message, actual);
+        }
+        Assert.assertFalse(received.isReadable());
+        received.release();
+    }
+
+    @Test
+    public void decode_CorruptedContent()
+    {
+        decode_Corrupted(FrameEncoder.HEADER_LENGTH + 10);
+    }
+
+    @Test
+    public void decode_CorruptedHeader()
+    {
+        decode_Corrupted(5);
+    }
+
+    private void decode_Corrupted(int corruptedIndex)
+    {
+        outboundChannel = new EmbeddedChannel(new FrameEncoder(false, null));
+        inboundChannel = new EmbeddedChannel(new FrameDecoder());
+
+        outboundChannel.writeAndFlush(Unpooled.wrappedBuffer(new byte[1024]));
+        outboundChannel.runPendingTasks();
+        ByteBuf frame = outboundChannel.readOutbound();
+        frame.setByte(corruptedIndex, frame.getByte(corruptedIndex) + 1);
+
+        long corruptedFrames = MessagingService.instance().metrics.corruptedFrames.getCount();
+        try
+        {
+            inboundChannel.writeInbound(frame);
+            Assert.fail("corrupted frame should have been rejected");
+        }
+        catch (DecoderException e)
+        {
+            // expected
+        }
+        Assert.assertNull(inboundChannel.readInbound());
+        Assert.assertEquals(corruptedFrames + 1, MessagingService.instance().metrics.corruptedFrames.getCount());
+    }
+}
@@ -117,9 +117,26 @@ public class HandshakeHandlersTest
         lotsOfMutations(true);
     }
 
+    @Test
+    public void lotsOfMutations_Framed() throws IOException
+    {
+        lotsOfMutations(false, true);
+    }
+
+    @Test
+    public void lotsOfMutations_FramedWithCompression() throws IOException
+    {
+        lotsOfMutations(true, true);
+    }
+
     private void lotsOfMutations(boolean compress)
     {
-        TestChannels channels = buildChannels(compress);
+        lotsOfMutations(compress, false);
+    }
+
+    private void lotsOfMutations(boolean compress, boolean framing)
+    {
+        TestChannels channels = buildChannels(compress, framing);
         EmbeddedChannel outboundChannel = channels.outboundChannel;
         EmbeddedChannel inboundChannel = channels.inboundChannel;
 
@@ -150,6 +167,7 @@ public class HandshakeHandlersTest
             }
         }
         outboundChannel.flush();
+        outboundChannel.runPendingTasks();
 
         // move the messages to the other channel
         Object o;
@@ -160,13 +178,14 @@ public class HandshakeHandlersTest
         Assert.assertFalse(inboundChannel.finishAndReleaseAll());
     }
 
-    private TestChannels buildChannels(boolean compress)
+    private TestChannels buildChannels(boolean compress, boolean framing)
     {
         OutboundConnectionParams params = OutboundConnectionParams.builder()
                                                                   .connectionId(connectionId)
                                                                   .callback(this::nop)
                                                                   .mode(NettyFactory.Mode.MESSAGING)
                                                                   .compress(compress)
+                                                                  .framing(framing)
                                                                   .coalescingStrategy(Optional.empty())
                                                                   .protocolVersion(MessagingService.current_version)
                                                                   .build();
@@ -174,14 +193,14 @@ public class HandshakeHandlersTest
         EmbeddedChannel outboundChannel = new EmbeddedChannel(outboundHandshakeHandler);
         OutboundMessagingConnection omc = new OutboundMessagingConnection(connectionId, null, Optional.empty(), new AllowAllInternodeAuthenticator());
         omc.setTargetVersion(MESSAGING_VERSION);
-        outboundHandshakeHandler.setupPipeline(outboundChannel, MESSAGING_VERSION);
+        outboundHandshakeHandler.setupPipeline(outboundChannel, MESSAGING_VERSION, framing);
 
         // remove the outbound handshake message from the outbound messages
         outboundChannel.outboundMessages().clear();
 
         InboundHandshakeHandler handler = new InboundHandshakeHandler(new TestAuthenticator(true));
         EmbeddedChannel inboundChannel = new EmbeddedChannel(handler);
-        handler.setupMessagingPipeline(inboundChannel.pipeline(), REMOTE_ADDR, compress, MESSAGING_VERSION);
+        handler.setupMessagingPipeline(inboundChannel.pipeline(), REMOTE_ADDR, compress, framing, MESSAGING_VERSION);
 
         return new TestChannels(outboundChannel, inboundChannel);
     }
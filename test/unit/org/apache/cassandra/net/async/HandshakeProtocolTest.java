@@ -55,15 +55,17 @@ public class HandshakeProtocolTest
     @Test
     public void firstMessageTest() throws Exception
     {
-        firstMessageTest(NettyFactory.Mode.MESSAGING, false);
-        firstMessageTest(NettyFactory.Mode.MESSAGING, true);
-        firstMessageTest(NettyFactory.Mode.STREAMING, false);
-        firstMessageTest(NettyFactory.Mode.STREAMING, true);
+        firstMessageTest(NettyFactory.Mode.MESSAGING, false, false);
+        firstMessageTest(NettyFactory.Mode.MESSAGING, true, false);
+        firstMessageTest(NettyFactory.Mode.MESSAGING, false, true);
+        firstMessageTest(NettyFactory.Mode.MESSAGING, true, true);
+        firstMessageTest(NettyFactory.Mode.STREAMING, false, false);
+        firstMessageTest(NettyFactory.Mode.STREAMING, true, false);
     }
 
-    private void firstMessageTest(NettyFactory.Mode mode, boolean compression) throws Exception
+    private void firstMessageTest(NettyFactory.Mode mode, boolean compression, boolean framing) throws Exception
     {
-        FirstHandshakeMessage before = new FirstHandshakeMessage(MessagingService.current_version, mode, compression);
+        FirstHandshakeMessage before = new FirstHandshakeMessage(MessagingService.current_version, mode, compression, framing);
         buf = before.encode(PooledByteBufAllocator.DEFAULT);
         FirstHandshakeMessage after = FirstHandshakeMessage.maybeDecode(buf);
         assertEquals(before, after);
@@ -74,7 +76,13 @@ public class HandshakeProtocolTest
     @Test
     public void secondMessageTest() throws Exception
     {
-        SecondHandshakeMessage before = new SecondHandshakeMessage(MessagingService.current_version);
+        secondMessageTest(false);
+        secondMessageTest(true);
+    }
+
+    private void secondMessageTest(boolean framing) throws Exception
+    {
+        SecondHandshakeMessage before = new SecondHandshakeMessage(MessagingService.current_version, framing);
         buf = before.encode(PooledByteBufAllocator.DEFAULT);
         SecondHandshakeMessage after = SecondHandshakeMessage.maybeDecode(buf);
         assertEquals(before, after);
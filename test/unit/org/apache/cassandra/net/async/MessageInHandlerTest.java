@@ -26,6 +26,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 
 import com.google.common.net.InetAddresses;
@@ -38,6 +42,9 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
 import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.io.IVersionedSerializer;
+import org.apache.cassandra.io.util.DataInputPlus;
+import org.apache.cassandra.io.util.DataOutputPlus;
 import org.apache.cassandra.locator.InetAddressAndPort;
 import org.apache.cassandra.net.MessageIn;
 import org.apache.cassandra.net.MessageOut;
@@ -168,6 +175,76 @@ public class MessageInHandlerTest
         Assert.assertTrue(out.isEmpty());
     }
 
+    @Test
+    public void decode_LargePayload() throws Exception
+    {
+        IVersionedSerializer<byte[]> serializer = new IVersionedSerializer<byte[]>()
+        {
+            public void serialize(byte[] bytes, DataOutputPlus out, int version) throws IOException
+            {
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            public byte[] deserialize(DataInputPlus in, int version) throws IOException
+            {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return bytes;
+            }
+
+            public long serializedSize(byte[] bytes, int version)
+            {
+                return 4 + bytes.length;
+            }
+        };
+        IVersionedSerializer<?> previousSerializer = MessagingService.verbSerializers.put(MessagingService.Verb.UNUSED_5, serializer);
+        try
+        {
+            byte[] payload = new byte[(int) MessageInHandler.LARGE_PAYLOAD_THRESHOLD * 4];
+            ThreadLocalRandom.current().nextBytes(payload);
+            MessageOut<byte[]> msgOut = new MessageOut<>(MessagingService.Verb.UNUSED_5, payload, serializer);
+            int size = 12 + msgOut.serializedSize(MSG_VERSION);
+            buf = Unpooled.buffer(size, size);
+            buf.writeInt(MessagingService.PROTOCOL_MAGIC);
+            buf.writeInt(MSG_ID);
+            buf.writeInt((int) NanoTimeToCurrentTimeMillis.convert(System.nanoTime()));
+            msgOut.serialize(new ByteBufDataOutputPlus(buf), MSG_VERSION);
+            // and another, small, message right after it
+            ByteBuf next = Unpooled.buffer(1024, 1024);
+            next.writeInt(MessagingService.PROTOCOL_MAGIC);
+            next.writeInt(MSG_ID + 1);
+            next.writeInt((int) NanoTimeToCurrentTimeMillis.convert(System.nanoTime()));
+            new MessageOut<>(MessagingService.Verb.ECHO).serialize(new ByteBufDataOutputPlus(next), MSG_VERSION);
+
+            Map<Integer, MessageIn> received = new ConcurrentHashMap<>();
+            CountDownLatch latch = new CountDownLatch(2);
+            MessageInHandler handler = new MessageInHandler(addr, MSG_VERSION, (messageIn, id) -> {
+                received.put(id, messageIn);
+                latch.countDown();
+            });
+            EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+            // feed the message in chunks, as if it was received over the network
+            int chunkSize = 8192;
+            while (buf.isReadable())
+                channel.writeInbound(buf.readRetainedSlice(Math.min(chunkSize, buf.readableBytes())));
+            channel.writeInbound(next);
+
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+            Assert.assertArrayEquals(payload, (byte[]) received.get(MSG_ID).payload);
+            Assert.assertEquals(MessagingService.Verb.ECHO, received.get(MSG_ID + 1).verb);
+            Assert.assertTrue(channel.isOpen());
+            channel.finishAndReleaseAll();
+        }
+        finally
+        {
+            MessagingService.verbSerializers.remove(MessagingService.Verb.UNUSED_5);
+            if (previousSerializer != null)
+                MessagingService.verbSerializers.put(MessagingService.Verb.UNUSED_5, previousSerializer);
+        }
+    }
+
     @Test
     public void canReadNextParam_HappyPath() throws IOException
     {
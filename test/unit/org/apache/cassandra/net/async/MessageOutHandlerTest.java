@@ -23,7 +23,9 @@ import java.net.InetSocketAddress;
 import java.util.HashMap;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import org.junit.Assert;
@@ -32,6 +34,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.sun.org.apache.bcel.internal.generic.DDIV;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelOutboundHandlerAdapter;
@@ -114,6 +117,95 @@ public class MessageOutHandlerTest
         Assert.assertTrue(channel.releaseOutbound());
     }
 
+    private static MessageOut<byte[]> largeMessage()
+    {
+        int payloadSize = MessageOutHandler.LARGE_MESSAGE_FRAME_SIZE * 3 + 42;
+        IVersionedSerializer<byte[]> serializer = new IVersionedSerializer<byte[]>()
+        {
+            public void serialize(byte[] bytes, DataOutputPlus out, int version) throws IOException
+            {
+                out.write(bytes);
+            }
+
+            public byte[] deserialize(DataInputPlus in, int version)
+            {
+                return null;
+            }
+
+            public long serializedSize(byte[] bytes, int version)
+            {
+                return bytes.length;
+            }
+        };
+        return new MessageOut<>(MessagingService.Verb.UNUSED_5, new byte[payloadSize], serializer);
+    }
+
+    /**
+     * Waits for a large message to be written by its serializing thread, as {@link ChannelFuture#await()} cannot be
+     * used on an {@link EmbeddedChannel}.
+     */
+    private static void awaitLargeMessage(ChannelFuture future) throws InterruptedException
+    {
+        CountDownLatch latch = new CountDownLatch(1);
+        future.addListener(f -> latch.countDown());
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void write_LargeMessageIsFramed() throws InterruptedException
+    {
+        channelWriter.pendingMessageCount.set(2);
+        MessageOut<byte[]> message = largeMessage();
+        MessageOut nextMessage = new MessageOut(MessagingService.Verb.ECHO);
+
+        // keep the serializing thread waiting until both messages are written, as the embedded channel isn't thread-safe
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+        ChannelFuture future = channel.writeAndFlush(new QueuedMessage(message, 42));
+        // written after the large message, so must not be interleaved with its frames
+        ChannelFuture next = channel.writeAndFlush(new QueuedMessage(nextMessage, 43));
+        Assert.assertFalse(next.isDone());
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, true);
+        // the writability change is notified later on, as a task of the event loop
+        channel.runPendingTasks();
+
+        awaitLargeMessage(future);
+        Assert.assertTrue(future.isSuccess());
+        Assert.assertTrue(next.isSuccess());
+
+        int frames = 0;
+        long totalSize = 0;
+        ByteBuf frame;
+        while ((frame = channel.readOutbound()) != null)
+        {
+            Assert.assertTrue(frame.readableBytes() <= MessageOutHandler.LARGE_MESSAGE_FRAME_SIZE);
+            totalSize += frame.readableBytes();
+            frames++;
+            frame.release();
+        }
+        Assert.assertTrue(frames > 4);
+        Assert.assertEquals(12 + message.serializedSize(MESSAGING_VERSION) + 12 + nextMessage.serializedSize(MESSAGING_VERSION), totalSize);
+    }
+
+    @Test
+    public void write_LargeMessageWaitsForWritability() throws InterruptedException
+    {
+        channelWriter.pendingMessageCount.set(1);
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+        ChannelFuture future = channel.writeAndFlush(new QueuedMessage(largeMessage(), 42));
+
+        // no frame gets produced while the channel is not writable
+        Thread.sleep(100);
+        Assert.assertFalse(future.isDone());
+        Assert.assertTrue(channel.outboundMessages().isEmpty());
+
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, true);
+        // the writability change is notified later on, as a task of the event loop
+        channel.runPendingTasks();
+        awaitLargeMessage(future);
+        Assert.assertTrue(future.isSuccess());
+        Assert.assertTrue(channel.releaseOutbound());
+    }
+
     @Test
     public void wrongMessageType()
     {
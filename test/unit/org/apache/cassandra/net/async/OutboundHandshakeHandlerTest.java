@@ -114,6 +114,34 @@ public class OutboundHandshakeHandlerTest
         Assert.assertEquals(HandshakeResult.Outcome.SUCCESS, callbackHandler.result.outcome);
     }
 
+    @Test
+    public void decode_FramingConfirmed() throws Exception
+    {
+        Assert.assertNotNull(decodeWithFramingProposed(true).get(FrameEncoder.class));
+    }
+
+    @Test
+    public void decode_FramingNotConfirmed() throws Exception
+    {
+        // a peer that doesn't support framing ignores the proposal, so messages must not be framed
+        Assert.assertNull(decodeWithFramingProposed(false).get(FrameEncoder.class));
+    }
+
+    private ChannelPipeline decodeWithFramingProposed(boolean confirmed)
+    {
+        channel.pipeline().remove(HANDLER_NAME);
+        params = OutboundConnectionParams.builder(params).framing(true).protocolVersion(MessagingService.current_version).build();
+        handler = new OutboundHandshakeHandler(params);
+        channel.pipeline().addFirst(HANDLER_NAME, handler);
+
+        buf = new SecondHandshakeMessage(MESSAGING_VERSION, confirmed).encode(PooledByteBufAllocator.DEFAULT);
+        channel.writeInbound(buf);
+        Assert.assertTrue(channel.releaseOutbound()); // throw away any responses from decode()
+        Assert.assertEquals(HandshakeResult.Outcome.SUCCESS, callbackHandler.result.outcome);
+        Assert.assertNotNull(channel.pipeline().get(MessageOutHandler.class));
+        return channel.pipeline();
+    }
+
     @Test
     public void decode_HappyPathThrowsException() throws Exception
     {
@@ -171,7 +199,7 @@ public class OutboundHandshakeHandlerTest
         params = OutboundConnectionParams.builder(params).compress(true).protocolVersion(MessagingService.current_version).build();
         handler = new OutboundHandshakeHandler(params);
         pipeline.addFirst(handler);
-        handler.setupPipeline(chan, MESSAGING_VERSION);
+        handler.setupPipeline(chan, MESSAGING_VERSION, false);
         Assert.assertNotNull(pipeline.get(Lz4FrameEncoder.class));
         Assert.assertNull(pipeline.get(Lz4FrameDecoder.class));
         Assert.assertNotNull(pipeline.get(MessageOutHandler.class));
@@ -185,7 +213,7 @@ public class OutboundHandshakeHandlerTest
         params = OutboundConnectionParams.builder(params).compress(false).protocolVersion(MessagingService.current_version).build();
         handler = new OutboundHandshakeHandler(params);
         pipeline.addFirst(handler);
-        handler.setupPipeline(chan, MESSAGING_VERSION);
+        handler.setupPipeline(chan, MESSAGING_VERSION, false);
         Assert.assertNull(pipeline.get(Lz4FrameEncoder.class));
         Assert.assertNull(pipeline.get(Lz4FrameDecoder.class));
         Assert.assertNotNull(pipeline.get(MessageOutHandler.class));
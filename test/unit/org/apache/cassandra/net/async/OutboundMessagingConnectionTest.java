@@ -24,6 +24,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.net.ssl.SSLHandshakeException;
 
@@ -43,6 +44,9 @@ import org.apache.cassandra.config.Config;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.config.EncryptionOptions.ServerEncryptionOptions;
 import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.io.IVersionedSerializer;
+import org.apache.cassandra.io.util.DataInputPlus;
+import org.apache.cassandra.io.util.DataOutputPlus;
 import org.apache.cassandra.locator.AbstractEndpointSnitch;
 import org.apache.cassandra.locator.IEndpointSnitch;
 import org.apache.cassandra.locator.InetAddressAndPort;
@@ -60,6 +64,27 @@ import static org.apache.cassandra.net.async.OutboundMessagingConnection.State.R
 
 public class OutboundMessagingConnectionTest
 {
+    private static final IVersionedSerializer<byte[]> BYTES_SERIALIZER = new IVersionedSerializer<byte[]>()
+    {
+        public void serialize(byte[] bytes, DataOutputPlus out, int version) throws IOException
+        {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        public byte[] deserialize(DataInputPlus in, int version) throws IOException
+        {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return bytes;
+        }
+
+        public long serializedSize(byte[] bytes, int version)
+        {
+            return 4 + bytes.length;
+        }
+    };
+
     private static final InetAddressAndPort LOCAL_ADDR = InetAddressAndPort.getByAddressOverrideDefaults(InetAddresses.forString("127.0.0.1"), 9998);
     private static final InetAddressAndPort REMOTE_ADDR = InetAddressAndPort.getByAddressOverrideDefaults(InetAddresses.forString("127.0.0.2"), 9999);
     private static final InetAddressAndPort RECONNECT_ADDR = InetAddressAndPort.getByAddressOverrideDefaults(InetAddresses.forString("127.0.0.3"), 9999);
@@ -128,6 +153,103 @@ public class OutboundMessagingConnectionTest
         Assert.assertFalse(channel.releaseOutbound());
     }
 
+    @Test
+    public void sendMessage_PendingBytesLimit()
+    {
+        int limitInKB = 1;
+        DatabaseDescriptor.setOtcMaxPendingSizePerConnectionInKB(limitInKB);
+        try
+        {
+            omc.setState(CREATING_CHANNEL);
+            int accepted = 0;
+            while (omc.sendMessage(new QueuedMessage(new MessageOut<>(ECHO), accepted, System.nanoTime(), true, true)))
+                accepted++;
+
+            Assert.assertTrue(accepted > 0);
+            Assert.assertEquals(accepted, omc.backlogSize());
+            Assert.assertEquals(1, omc.getDroppedMessages().longValue());
+            Assert.assertTrue(omc.getPendingBytes() <= limitInKB * 1024);
+
+            // non-droppable messages are never rejected
+            Assert.assertTrue(omc.sendMessage(new QueuedMessage(new MessageOut<>(ECHO), accepted, System.nanoTime(), false, true)));
+            Assert.assertEquals(accepted + 1, omc.backlogSize());
+
+            omc.purgeBacklog();
+            Assert.assertEquals(0, omc.getPendingBytes().longValue());
+        }
+        finally
+        {
+            DatabaseDescriptor.setOtcMaxPendingSizePerConnectionInKB(new Config().otc_max_pending_size_per_connection_in_kb);
+        }
+    }
+
+    @Test
+    public void sendMessage_LargerThanPendingBytesLimit()
+    {
+        int limitInKB = 1;
+        DatabaseDescriptor.setOtcMaxPendingSizePerConnectionInKB(limitInKB);
+        try
+        {
+            omc.setState(CREATING_CHANNEL);
+            MessageOut<byte[]> large = new MessageOut<>(ECHO, new byte[4 * limitInKB * 1024], BYTES_SERIALIZER);
+
+            // a message larger than the limit is accepted while nothing is pending on the connection...
+            Assert.assertTrue(omc.sendMessage(new QueuedMessage(large, 0, System.nanoTime(), true, true)));
+            Assert.assertEquals(1, omc.backlogSize());
+            Assert.assertEquals(0, omc.getDroppedMessages().longValue());
+            Assert.assertTrue(omc.getPendingBytes() > limitInKB * 1024);
+
+            // ... but not once something is
+            Assert.assertFalse(omc.sendMessage(new QueuedMessage(large, 1, System.nanoTime(), true, true)));
+            Assert.assertEquals(1, omc.backlogSize());
+            Assert.assertEquals(1, omc.getDroppedMessages().longValue());
+
+            omc.purgeBacklog();
+            Assert.assertEquals(0, omc.getPendingBytes().longValue());
+        }
+        finally
+        {
+            DatabaseDescriptor.setOtcMaxPendingSizePerConnectionInKB(new Config().otc_max_pending_size_per_connection_in_kb);
+        }
+    }
+
+    @Test
+    public void sendMessage_PendingBytesReleased()
+    {
+        long globalPendingBytes = OutboundMessagingConnection.getGlobalPendingBytes();
+        omc.setState(CREATING_CHANNEL);
+        Assert.assertTrue(omc.sendMessage(new MessageOut<>(ECHO), 1));
+        Assert.assertTrue(omc.getPendingBytes() > 0);
+        Assert.assertEquals(globalPendingBytes + omc.getPendingBytes(), OutboundMessagingConnection.getGlobalPendingBytes());
+
+        // the bytes are released once the message is written, not when it leaves the backlog
+        QueuedMessage msg = omc.nextBackloggedMessage();
+        Assert.assertNotNull(msg);
+        Assert.assertTrue(omc.getPendingBytes() > 0);
+        Assert.assertTrue(omc.getChannelWriter().write(msg, false));
+        channel.flush();
+        Assert.assertEquals(0, omc.getPendingBytes().longValue());
+        Assert.assertEquals(globalPendingBytes, OutboundMessagingConnection.getGlobalPendingBytes());
+    }
+
+    @Test
+    public void nextBackloggedMessage_ExpiresTimedOutMessages()
+    {
+        omc.setState(CREATING_CHANNEL);
+        int expired = 8;
+        for (int i = 0; i < expired; i++)
+            Assert.assertTrue(omc.sendMessage(new QueuedMessage(new MessageOut<>(ECHO), i, System.nanoTime() - TimeUnit.HOURS.toNanos(1), true, true)));
+        Assert.assertTrue(omc.sendMessage(new MessageOut<>(ECHO), expired));
+        long pendingBytes = omc.getPendingBytes();
+
+        QueuedMessage msg = omc.nextBackloggedMessage();
+        Assert.assertNotNull(msg);
+        Assert.assertEquals(expired, msg.id);
+        Assert.assertEquals(expired, omc.getDroppedMessages().longValue());
+        Assert.assertEquals(0, omc.backlogSize());
+        Assert.assertEquals(pendingBytes / (expired + 1), omc.getPendingBytes().longValue());
+    }
+
     @Test
     public void shouldCompressConnection_None()
     {
@@ -21,6 +21,10 @@ import java.nio.ByteBuffer;
 import java.util.UUID;
 
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import org.apache.cassandra.service.paxos.PrepareAndRead;
+import org.apache.cassandra.service.paxos.PrepareAndReadVerbHandler;
+import org.apache.cassandra.service.paxos.PrepareResponse;
 import org.apache.cassandra.service.paxos.PrepareVerbHandler;
 import org.apache.cassandra.service.paxos.ProposeVerbHandler;
 import org.junit.AfterClass;
@@ -31,8 +35,15 @@ import org.apache.cassandra.SchemaLoader;
 import org.apache.cassandra.Util;
 import org.apache.cassandra.db.*;
 import org.apache.cassandra.db.rows.Row;
+import org.apache.cassandra.db.rows.RowIterator;
+import org.apache.cassandra.db.partitions.PartitionIterator;
+import org.apache.cassandra.db.partitions.PartitionIterators;
 import org.apache.cassandra.db.partitions.PartitionUpdate;
+import org.apache.cassandra.db.partitions.UnfilteredPartitionIterators;
 import org.apache.cassandra.gms.Gossiper;
+import org.apache.cassandra.io.util.DataInputBuffer;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.service.paxos.Commit;
 import org.apache.cassandra.service.paxos.PaxosState;
 import org.apache.cassandra.utils.ByteBufferUtil;
@@ -124,4 +135,41 @@ public class PaxosStateTest
         assertTrue("paxos prepare stage failed", PrepareVerbHandler.doPrepare(commit).promised);
         assertTrue("paxos propose stage failed", ProposeVerbHandler.doPropose(commit));
     }
+
+    @Test
+    public void testPrepareAndRead() throws Throwable
+    {
+        ColumnFamilyStore cfs = Keyspace.open("PaxosStateTestKeyspace1").getColumnFamilyStore("Standard1");
+        String key = "key" + System.nanoTime();
+        ByteBuffer value = ByteBufferUtil.bytes(0);
+        RowUpdateBuilder builder = new RowUpdateBuilder(cfs.metadata(), FBUtilities.timestampMicros(), key);
+        builder.clustering("a").add("val", value);
+        PartitionUpdate update = Iterables.getOnlyElement(builder.build().getPartitionUpdates());
+        PaxosState.commit(newProposal(FBUtilities.timestampMicros() / 1000, update));
+
+        SinglePartitionReadCommand read = (SinglePartitionReadCommand) Util.cmd(cfs, key).build();
+        UUID ballot = UUIDGen.getTimeUUID();
+        PrepareResponse response = PrepareAndReadVerbHandler.doPrepare(new PrepareAndRead(Commit.newPrepare(Util.dk(key), cfs.metadata(), ballot), read));
+        assertTrue(response.promised);
+        assertNotNull(response.readResponse);
+
+        // the read survives the trip over the wire
+        DataOutputBuffer out = new DataOutputBuffer();
+        PrepareResponse.withReadSerializer.serialize(response, out, MessagingService.current_version);
+        assertEquals(out.getLength(), PrepareResponse.withReadSerializer.serializedSize(response, MessagingService.current_version));
+        PrepareResponse deserialized = PrepareResponse.withReadSerializer.deserialize(new DataInputBuffer(out.getData()), MessagingService.current_version);
+        assertEquals(response.readResponse.digest(read), deserialized.readResponse.digest(read));
+        try (PartitionIterator partitions = UnfilteredPartitionIterators.filter(deserialized.readResponse.makeIterator(read), read.nowInSec());
+             RowIterator partition = PartitionIterators.getOnlyElement(partitions, read))
+        {
+            Row row = Iterators.getOnlyElement(partition);
+            assertEquals(0, ByteBufferUtil.compareUnsigned(value, row.getCell(cfs.metadata().getColumn(ByteBufferUtil.bytes("val"))).value()));
+        }
+
+        // a replica that doesn't promise the ballot doesn't read either
+        UUID olderBallot = UUIDGen.getTimeUUID(UUIDGen.unixTimestamp(ballot) - 1);
+        response = PrepareAndReadVerbHandler.doPrepare(new PrepareAndRead(Commit.newPrepare(Util.dk(key), cfs.metadata(), olderBallot), read));
+        assertFalse(response.promised);
+        assertNull(response.readResponse);
+    }
 }
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.db.PartitionRangeReadCommand;
+import org.apache.cassandra.db.ReadCommand;
+import org.apache.cassandra.db.RowUpdateBuilder;
+import org.apache.cassandra.db.partitions.PartitionIterator;
+import org.apache.cassandra.db.rows.RowIterator;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.index.Index;
+import org.apache.cassandra.index.StubIndex;
+import org.apache.cassandra.locator.TokenMetadata;
+import org.apache.cassandra.schema.KeyspaceParams;
+import org.apache.cassandra.utils.FBUtilities;
+
+import static org.junit.Assert.assertEquals;
+
+public class RangeCommandIteratorTest
+{
+    private static final String KEYSPACE = "RangeCommandIteratorTest";
+    private static final String TABLE = "Standard1";
+
+    private static final int ROWS = 100;
+    // the ring is split in 10 ranges, the first one with 11 rows, the last one with 9 and the others with 10
+    private static final int RANGES = 10;
+
+    private static ColumnFamilyStore cfs;
+
+    @BeforeClass
+    public static void defineSchema()
+    {
+        SchemaLoader.prepareServer();
+        SchemaLoader.createKeyspace(KEYSPACE, KeyspaceParams.simple(1), SchemaLoader.standardCFMD(KEYSPACE, TABLE));
+
+        List<Token> tokens = new ArrayList<>();
+        for (int i = 1; i < RANGES; i++)
+            tokens.add(Util.token(key(i * 10)));
+        TokenMetadata tmd = StorageService.instance.getTokenMetadata();
+        tmd.clearUnsafe();
+        tmd.updateNormalTokens(tokens, FBUtilities.getBroadcastAddressAndPort());
+
+        cfs = Keyspace.open(KEYSPACE).getColumnFamilyStore(TABLE);
+        for (int i = 0; i < ROWS; i++)
+            new RowUpdateBuilder(cfs.metadata(), 0, key(i)).clustering("c").add("val", "v").build().applyUnsafe();
+    }
+
+    private static String key(int i)
+    {
+        return String.format("%02d", i);
+    }
+
+    @Test
+    public void testAllRanges()
+    {
+        PartitionRangeReadCommand command = (PartitionRangeReadCommand) Util.cmd(cfs).build();
+        assertQueried(command, null, 1, ROWS, RANGES);
+        assertQueried(command, null, RANGES, ROWS, RANGES);
+    }
+
+    @Test
+    public void testStopOnceLimitsAreReached()
+    {
+        // the first range returns 11 rows, so the second one only needs to return 4 rows, and no others are queried
+        PartitionRangeReadCommand command = (PartitionRangeReadCommand) Util.cmd(cfs).withLimit(15).build();
+        assertQueried(command, null, 1, 15, 2);
+        assertQueried(command, new StubIndex(cfs, null)
+        {
+            public BiFunction<PartitionIterator, ReadCommand, PartitionIterator> postProcessorFor(ReadCommand readCommand)
+            {
+                return NO_POST_PROCESSING;
+            }
+        }, 1, 15, 2);
+
+        // with all the ranges in flight, the ranges that are already queried still return all their rows
+        assertQueried(command, null, RANGES, ROWS, RANGES);
+    }
+
+    @Test
+    public void testNoStopWithPostProcessing()
+    {
+        // the index may drop or reorder the rows, so the ranges return all their rows and are all queried
+        PartitionRangeReadCommand command = (PartitionRangeReadCommand) Util.cmd(cfs).withLimit(15).build();
+        assertQueried(command, new StubIndex(cfs, null), 1, ROWS, RANGES);
+    }
+
+    private static void assertQueried(PartitionRangeReadCommand command,
+                                      Index index,
+                                      int concurrencyFactor,
+                                      int expectedRows,
+                                      int expectedRangesQueried)
+    {
+        Keyspace keyspace = Keyspace.open(KEYSPACE);
+        StorageProxy.RangeIterator ranges = new StorageProxy.RangeIterator(command, keyspace, ConsistencyLevel.ONE);
+        assertEquals(RANGES, ranges.rangeCount());
+
+        // the ranges aren't merged, so that they are queried one by one
+        StorageProxy.RangeCommandIterator iterator = new StorageProxy.RangeCommandIterator(ranges,
+                                                                                           ranges.rangeCount(),
+                                                                                           command,
+                                                                                           concurrencyFactor,
+                                                                                           keyspace,
+                                                                                           ConsistencyLevel.ONE,
+                                                                                           index,
+                                                                                           null,
+                                                                                           System.nanoTime());
+        int rows = 0;
+        try (PartitionIterator partitions = iterator)
+        {
+            while (partitions.hasNext())
+            {
+                try (RowIterator partition = partitions.next())
+                {
+                    while (partition.hasNext())
+                    {
+                        partition.next();
+                        rows++;
+                    }
+                }
+            }
+        }
+        assertEquals(expectedRows, rows);
+        assertEquals(expectedRangesQueried, iterator.rangesQueried());
+    }
+}
@@ -23,9 +23,11 @@ import java.net.InetAddress;
 import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -36,6 +38,9 @@ import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.ConsistencyLevel;
 import org.apache.cassandra.db.Keyspace;
 import org.apache.cassandra.db.WriteType;
+import org.apache.cassandra.exceptions.RequestFailureReason;
+import org.apache.cassandra.exceptions.WriteFailureException;
+import org.apache.cassandra.exceptions.WriteTimeoutException;
 import org.apache.cassandra.locator.IEndpointSnitch;
 import org.apache.cassandra.locator.InetAddressAndPort;
 import org.apache.cassandra.locator.TokenMetadata;
@@ -43,7 +48,9 @@ import org.apache.cassandra.net.MessageIn;
 import org.apache.cassandra.schema.KeyspaceParams;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class WriteResponseHandlerTest
 {
@@ -213,6 +220,61 @@ public class WriteResponseHandlerTest
         assertEquals(0, ks.metric.idealCLWriteLatency.totalLatency.getCount());
     }
 
+    /**
+     * Validate that the future returned by getAsync() completes once the CL is met, whether it was requested
+     * before or after the responses arrived.
+     */
+    @Test
+    public void getAsyncCompletesOnResponses() throws Throwable
+    {
+        AbstractWriteResponseHandler awr = createWriteResponseHandler(ConsistencyLevel.LOCAL_QUORUM, null);
+        ListenableFuture<Void> future = awr.getAsync();
+        awr.response(createDummyMessage(0));
+        assertFalse(future.isDone());
+        awr.response(createDummyMessage(1));
+        assertTrue(future.isDone());
+        future.get();
+
+        awr = createWriteResponseHandler(ConsistencyLevel.LOCAL_QUORUM, null);
+        awr.response(createDummyMessage(0));
+        awr.response(createDummyMessage(1));
+        assertTrue(awr.getAsync().isDone());
+    }
+
+    /**
+     * Validate that the future returned by getAsync() fails on failures and timeouts just like get() would.
+     */
+    @Test
+    public void getAsyncFailsOnFailureOrTimeout() throws Throwable
+    {
+        AbstractWriteResponseHandler awr = createWriteResponseHandler(ConsistencyLevel.ALL, null);
+        ListenableFuture<Void> future = awr.getAsync();
+        awr.onFailure(targets.get(0), RequestFailureReason.UNKNOWN);
+        try
+        {
+            future.get();
+            fail("Expected a WriteFailureException");
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof WriteFailureException);
+        }
+
+        // started long enough ago for the request to have already timed out
+        awr = createWriteResponseHandler(ConsistencyLevel.LOCAL_QUORUM, null, System.nanoTime() - TimeUnit.DAYS.toNanos(1));
+        awr.response(createDummyMessage(0));
+        try
+        {
+            awr.getAsync().get(1, TimeUnit.MINUTES);
+            fail("Expected a WriteTimeoutException");
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof WriteTimeoutException);
+            assertEquals(1, ((WriteTimeoutException) e.getCause()).received);
+        }
+    }
+
     private static AbstractWriteResponseHandler createWriteResponseHandler(ConsistencyLevel cl, ConsistencyLevel ideal)
     {
         return createWriteResponseHandler(cl, ideal, System.nanoTime());
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.service.paxos;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.Util;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.schema.TableId;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PaxosContentionTest
+{
+    @BeforeClass
+    public static void setup()
+    {
+        DatabaseDescriptor.daemonInitialization();
+    }
+
+    @Test
+    public void testBackoffBounds()
+    {
+        long max = 0;
+        for (int i = 0; i < 1000; i++)
+        {
+            long backoff = PaxosContention.backoffMillis(1, 0);
+            assertTrue(backoff >= 0 && backoff <= PaxosContention.MIN_BACKOFF_MILLIS);
+            max = Math.max(max, PaxosContention.backoffMillis(20, 10));
+        }
+        // the more contention, the longer the backoff, up to the maximum
+        assertTrue(max > PaxosContention.MIN_BACKOFF_MILLIS && max <= PaxosContention.MAX_BACKOFF_MILLIS);
+    }
+
+    @Test
+    public void testQueue() throws InterruptedException
+    {
+        TableId tableId = TableId.generate();
+        Lock lock = PaxosContention.lockFor(tableId, Util.dk("key"));
+        assertTrue(PaxosContention.tryLock(lock, 0, TimeUnit.MILLISECONDS));
+        try
+        {
+            // a concurrent CAS on the same partition waits for the first one to be done
+            CountDownLatch done = new CountDownLatch(1);
+            boolean[] acquired = new boolean[1];
+            Thread other = new Thread(() -> {
+                acquired[0] = PaxosContention.tryLock(PaxosContention.lockFor(tableId, Util.dk("key")), 10, TimeUnit.MILLISECONDS);
+                done.countDown();
+            });
+            other.start();
+            done.await();
+            assertFalse(acquired[0]);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+}
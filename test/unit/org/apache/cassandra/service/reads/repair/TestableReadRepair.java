@@ -23,6 +23,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
 import org.apache.cassandra.db.Mutation;
 import org.apache.cassandra.db.ReadCommand;
 import org.apache.cassandra.db.partitions.PartitionIterator;
@@ -77,6 +80,12 @@ public class TestableReadRepair implements ReadRepair, RepairListener
 
     }
 
+    @Override
+    public ListenableFuture<Void> awaitForegroundRepairFinishAsync()
+    {
+        return Futures.immediateFuture(null);
+    }
+
     @Override
     public void maybeStartBackgroundRepair(ResponseResolver resolver)
     {
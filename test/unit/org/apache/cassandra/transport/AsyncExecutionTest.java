@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.transport;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.apache.cassandra.transport.messages.ResultMessage;
+
+import static org.apache.cassandra.utils.ByteBufferUtil.bytes;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncExecutionTest extends CQLTester
+{
+    @BeforeClass
+    public static void setUp()
+    {
+        DatabaseDescriptor.setNativeTransportAsyncExecution(true);
+        requireNetwork();
+    }
+
+    @Test
+    public void testPreparedStatements() throws Throwable
+    {
+        String table = KEYSPACE + '.' + createTable("CREATE TABLE %s (pk int, ck int, v int, PRIMARY KEY (pk, ck))");
+
+        try (SimpleClient client = newSimpleClient(ProtocolVersion.CURRENT, false))
+        {
+            ResultMessage.Prepared insert = client.prepare("INSERT INTO " + table + " (pk, ck, v) VALUES (?, ?, ?)");
+            ResultMessage.Prepared delete = client.prepare("DELETE FROM " + table + " WHERE pk = ? AND ck = ?");
+            ResultMessage.Prepared select = client.prepare("SELECT v FROM " + table + " WHERE pk = ?");
+
+            for (int i = 0; i < 10; i++)
+            {
+                ResultMessage result = client.executePrepared(insert, Arrays.asList(bytes(0), bytes(i), bytes(i)), ConsistencyLevel.ONE);
+                assertTrue(result instanceof ResultMessage.Void);
+            }
+            client.executePrepared(delete, Arrays.asList(bytes(0), bytes(0)), ConsistencyLevel.ONE);
+
+            ResultMessage.Rows rows = (ResultMessage.Rows) client.executePrepared(select, Collections.singletonList(bytes(0)), ConsistencyLevel.ONE);
+            assertEquals(9, rows.result.size());
+        }
+
+        assertRows(execute("SELECT v FROM %s WHERE pk = 0 AND ck = 9"), row(9));
+    }
+
+    @Test
+    public void testPreparedReads() throws Throwable
+    {
+        String table = KEYSPACE + '.' + createTable("CREATE TABLE %s (pk int, ck int, v int, PRIMARY KEY (pk, ck))");
+        for (int pk = 0; pk < 3; pk++)
+            for (int ck = 0; ck < 3; ck++)
+                execute("INSERT INTO %s (pk, ck, v) VALUES (?, ?, ?)", pk, ck, pk * 10 + ck);
+
+        try (SimpleClient client = newSimpleClient(ProtocolVersion.CURRENT, false))
+        {
+            ResultMessage.Prepared select = client.prepare("SELECT v FROM " + table + " WHERE pk = ? AND ck = ?");
+            ResultMessage.Prepared selectIn = client.prepare("SELECT v FROM " + table + " WHERE pk IN (?, ?) LIMIT 4");
+            ResultMessage.Prepared count = client.prepare("SELECT count(*) FROM " + table + " WHERE pk = ?");
+
+            ResultMessage.Rows rows = (ResultMessage.Rows) client.executePrepared(select, Arrays.asList(bytes(1), bytes(2)), ConsistencyLevel.ONE);
+            assertEquals(1, rows.result.size());
+            assertEquals(bytes(12), rows.result.rows.get(0).get(0));
+
+            rows = (ResultMessage.Rows) client.executePrepared(select, Arrays.asList(bytes(5), bytes(0)), ConsistencyLevel.ONE);
+            assertEquals(0, rows.result.size());
+
+            // IN queries are executed synchronously, and the limit is enforced across partitions
+            rows = (ResultMessage.Rows) client.executePrepared(selectIn, Arrays.asList(bytes(0), bytes(2)), ConsistencyLevel.ONE);
+            assertEquals(4, rows.result.size());
+
+            // aggregates are executed synchronously
+            rows = (ResultMessage.Rows) client.executePrepared(count, Collections.singletonList(bytes(0)), ConsistencyLevel.ONE);
+            assertEquals(1, rows.result.size());
+        }
+    }
+}
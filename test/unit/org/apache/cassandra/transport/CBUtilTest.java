@@ -18,12 +18,17 @@
 
 package org.apache.cassandra.transport;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.PooledByteBufAllocator;
 
 public class CBUtilTest
@@ -65,4 +70,40 @@ public class CBUtilTest
         Assert.assertEquals(text, CBUtil.readLongString(buf));
         Assert.assertEquals(buf.writerIndex(), buf.readerIndex());
     }
+
+    @Test
+    public void writeAndReadWrappedValues()
+    {
+        int large = CBUtil.MIN_WRAPPED_VALUE_SIZE;
+        List<ByteBuffer> values = Arrays.asList(value(10, 1), value(large, 2), value(large + 1, 3), value(0, 4), value(20, 5), value(large, 6));
+
+        int size = 0;
+        int wrappedSize = 0;
+        for (ByteBuffer value : values)
+        {
+            size += CBUtil.sizeOfValue(value);
+            if (CBUtil.isWrappedValue(value))
+                wrappedSize += value.remaining();
+        }
+        Assert.assertEquals(3 * large + 1, wrappedSize);
+
+        CompositeByteBuf composite = CBUtil.compositeBuffer(size - wrappedSize);
+        buf = composite;
+        for (ByteBuffer value : values)
+            CBUtil.writeValue(value, buf);
+
+        Assert.assertEquals(size, buf.writerIndex());
+        Assert.assertEquals(size, buf.capacity());
+        for (ByteBuffer value : values)
+            Assert.assertEquals(value, CBUtil.readValue(buf));
+        Assert.assertEquals(buf.writerIndex(), buf.readerIndex());
+        Assert.assertTrue(buf.release());
+    }
+
+    private static ByteBuffer value(int size, int fill)
+    {
+        byte[] bytes = new byte[size];
+        Arrays.fill(bytes, (byte) fill);
+        return ByteBuffer.wrap(bytes);
+    }
 }
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+
+public class FrameCompressorTest
+{
+    @Test
+    public void testLZ4RoundTrip() throws IOException
+    {
+        byte[] bytes = new byte[100000];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = (byte) (i % 7 == 0 ? ThreadLocalRandom.current().nextInt() : i);
+
+        testLZ4RoundTrip(bytes, Unpooled.wrappedBuffer(bytes));
+        testLZ4RoundTrip(bytes, Unpooled.directBuffer(bytes.length).writeBytes(bytes));
+        testLZ4RoundTrip(new byte[0], Unpooled.buffer(0));
+
+        // a composite body, as sent for responses with large values
+        CompositeByteBuf composite = Unpooled.compositeBuffer();
+        composite.addComponent(true, Unpooled.wrappedBuffer(bytes, 0, 10));
+        composite.addComponent(true, Unpooled.wrappedBuffer(ByteBuffer.wrap(bytes, 10, bytes.length - 10)));
+        testLZ4RoundTrip(bytes, composite);
+    }
+
+    private static void testLZ4RoundTrip(byte[] expected, ByteBuf body) throws IOException
+    {
+        Frame frame = Frame.create(Message.Type.RESULT, 0, ProtocolVersion.CURRENT, EnumSet.noneOf(Frame.Header.Flag.class), body);
+
+        Frame compressed = FrameCompressor.LZ4Compressor.instance.compress(frame);
+        Assert.assertEquals(0, body.refCnt());
+        Assert.assertEquals(expected.length, compressed.body.getInt(compressed.body.readerIndex()));
+
+        Frame decompressed = FrameCompressor.LZ4Compressor.instance.decompress(compressed);
+        Assert.assertEquals(0, compressed.body.refCnt());
+        Assert.assertArrayEquals(expected, CBUtil.readRawBytes(decompressed.body));
+        decompressed.release();
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void testLZ4TruncatedFrame() throws IOException
+    {
+        Frame frame = Frame.create(Message.Type.QUERY, 0, ProtocolVersion.CURRENT, EnumSet.of(Frame.Header.Flag.COMPRESSED), Unpooled.buffer(2).writeShort(1));
+        FrameCompressor.LZ4Compressor.instance.decompress(frame);
+    }
+}
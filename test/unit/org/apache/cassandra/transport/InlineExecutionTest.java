@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.transport;
+
+import java.util.Collections;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.config.EncryptionOptions;
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.cql3.QueryOptions;
+import org.apache.cassandra.cql3.QueryProcessor;
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.apache.cassandra.service.ClientState;
+import org.apache.cassandra.transport.messages.ExecuteMessage;
+import org.apache.cassandra.transport.messages.OptionsMessage;
+import org.apache.cassandra.transport.messages.PrepareMessage;
+import org.apache.cassandra.transport.messages.QueryMessage;
+import org.apache.cassandra.transport.messages.ResultMessage;
+import org.apache.cassandra.transport.messages.SupportedMessage;
+import org.apache.cassandra.utils.MD5Digest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InlineExecutionTest extends CQLTester
+{
+    @BeforeClass
+    public static void setUp()
+    {
+        DatabaseDescriptor.setNativeTransportExecuteInline(true);
+        requireNetwork();
+    }
+
+    @Test
+    public void testIsExecutableInline() throws Throwable
+    {
+        createTable("CREATE TABLE %s (pk int PRIMARY KEY, v int)");
+        String query = formatQuery("SELECT v FROM %s WHERE pk = ?");
+        // as the keyspace is always explicitly set below, no connection is required to check the prepared statements cache
+        ServerConnection connection = null;
+
+        assertTrue(new OptionsMessage().isExecutableInline(connection));
+        assertFalse(new QueryMessage(query, QueryOptions.DEFAULT).isExecutableInline(connection));
+
+        PrepareMessage prepare = new PrepareMessage(query, KEYSPACE);
+        assertFalse(prepare.isExecutableInline(connection));
+        ResultMessage.Prepared prepared = QueryProcessor.prepare(query, ClientState.forInternalCalls().cloneWithKeyspaceIfSet(KEYSPACE));
+        assertTrue(prepare.isExecutableInline(connection));
+
+        assertFalse(new ExecuteMessage(prepared.statementId, prepared.resultMetadataId, QueryOptions.DEFAULT).isExecutableInline(connection));
+        MD5Digest unknown = MD5Digest.compute(new byte[]{ 1, 2, 3 });
+        assertTrue(new ExecuteMessage(unknown, unknown, QueryOptions.DEFAULT).isExecutableInline(connection));
+    }
+
+    @Test
+    public void testInlineAndOffloadedRequests() throws Throwable
+    {
+        createTable("CREATE TABLE %s (pk int PRIMARY KEY, v int)");
+        execute("INSERT INTO %s (pk, v) VALUES (0, 0)");
+
+        try (SimpleClient client = new SimpleClient(nativeAddr.getHostAddress(), nativePort, ProtocolVersion.CURRENT, new EncryptionOptions()))
+        {
+            client.connect(false);
+
+            assertTrue(client.execute(new OptionsMessage()) instanceof SupportedMessage);
+
+            String query = formatQuery("SELECT v FROM %s WHERE pk = 0");
+            ResultMessage.Prepared prepared = client.prepare(query);
+            ResultMessage.Prepared reprepared = client.prepare(query);
+            assertEquals(prepared.statementId, reprepared.statementId);
+
+            ResultMessage result = client.executePrepared(prepared, Collections.emptyList(), ConsistencyLevel.ONE);
+            assertEquals(1, ((ResultMessage.Rows) result).result.size());
+
+            MD5Digest unknown = MD5Digest.compute(new byte[]{ 1, 2, 3 });
+            try
+            {
+                client.execute(new ExecuteMessage(unknown, unknown, QueryOptions.DEFAULT));
+                fail("Expected the execution of an unknown statement to fail");
+            }
+            catch (RuntimeException e)
+            {
+                assertTrue(e.getCause().getMessage(), e.getCause().getMessage().contains("Prepared query with ID"));
+            }
+        }
+    }
+}